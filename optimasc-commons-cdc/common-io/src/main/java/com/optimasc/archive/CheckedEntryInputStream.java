@@ -0,0 +1,105 @@
+package com.optimasc.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/** Computes the CRC-32 of the uncompressed data of a ZIP entry,
+ *  and verifies it along with the size of the data when the end of
+ *  the stream is reached. The expected values are read from the
+ *  entry at that time, so that they can be set by a data descriptor
+ *  which follows the data.
+ *
+ * @author Carl Eric Codere
+ */
+class CheckedEntryInputStream extends InputStream
+{
+    private final InputStream in;
+    private final ZipEntry entry;
+    private final CRC32 crc = new CRC32();
+    private long count;
+    private boolean checked;
+
+    CheckedEntryInputStream(InputStream in, ZipEntry entry)
+    {
+        this.in = in;
+        this.entry = entry;
+    }
+
+    /** Returns a stream returning the uncompressed data of an entry,
+     *  given a stream on its raw data.
+     *
+     * @throws IOException If the compression method is not supported
+     */
+    static InputStream create(InputStream raw, ZipEntry entry) throws IOException
+    {
+        switch (entry.getMethod())
+        {
+            case ZipEntry.COMPRESSION_STORED:
+                return new CheckedEntryInputStream(raw, entry);
+            case ZipEntry.COMPRESSION_DEFLATED:
+                return new CheckedEntryInputStream(new EntryInflaterInputStream(raw), entry);
+            default:
+                throw new IOException("Unsupported compression method " + entry.getMethod()
+                    + " for entry " + entry.getName());
+        }
+    }
+
+    public int read() throws IOException
+    {
+        byte[] b = new byte[1];
+        if (read(b, 0, 1) <= 0)
+        {
+            return -1;
+        }
+        return b[0] & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        int n = in.read(b, off, len);
+        if (n < 0)
+        {
+            check();
+            return -1;
+        }
+        crc.update(b, off, n);
+        count += n;
+        if ((entry.getSize() >= 0) && (count > entry.getSize()))
+        {
+            throw new IOException("Invalid size for entry " + entry.getName());
+        }
+        return n;
+    }
+
+    private void check() throws IOException
+    {
+        if (checked)
+        {
+            return;
+        }
+        checked = true;
+        if (count != entry.getSize())
+        {
+            throw new IOException("Invalid size for entry " + entry.getName());
+        }
+        if (crc.getValue() != entry.getCrc())
+        {
+            throw new IOException("Invalid CRC-32 for entry " + entry.getName());
+        }
+    }
+
+    public int available() throws IOException
+    {
+        return in.available();
+    }
+
+    public void close() throws IOException
+    {
+        in.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.optimasc.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** Inflates the raw deflated data of a ZIP entry, and releases the
+ *  inflater when closed.
+ *
+ *  <p>Once the end of the deflated data is reached, the rest of the
+ *  raw stream is read, so that a data descriptor following the data
+ *  is always processed by the raw stream.</p>
+ *
+ * @author Carl Eric Codere
+ */
+class EntryInflaterInputStream extends InflaterInputStream
+{
+    /** Size of the buffer used to read the compressed data. */
+    private static final int INFLATE_BUFFER_SIZE = 8192;
+
+    private boolean eof;
+    private boolean drained;
+    private boolean closed;
+
+    EntryInflaterInputStream(InputStream in)
+    {
+        super(in, new Inflater(true), INFLATE_BUFFER_SIZE);
+    }
+
+    /** Adds a dummy byte at the end of the input, as required
+     *  by the inflater in raw mode. */
+    protected void fill() throws IOException
+    {
+        if (eof)
+        {
+            throw new EOFException("Unexpected end of compressed data");
+        }
+        len = in.read(buf, 0, buf.length);
+        if (len < 0)
+        {
+            buf[0] = 0;
+            len = 1;
+            eof = true;
+        }
+        inf.setInput(buf, 0, len);
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        int count = super.read(b, off, len);
+        if ((count < 0) && (drained == false))
+        {
+            drained = true;
+            if (eof == false)
+            {
+                while (in.read(buf, 0, buf.length) >= 0)
+                {
+                    /* Skip the remaining raw data */
+                }
+            }
+        }
+        return count;
+    }
+
+    public void close() throws IOException
+    {
+        if (closed == false)
+        {
+            closed = true;
+            inf.end();
+            in.close();
+        }
+    }
+}
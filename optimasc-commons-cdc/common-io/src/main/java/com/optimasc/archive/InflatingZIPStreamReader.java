@@ -0,0 +1,84 @@
+package com.optimasc.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Forward-only ZIP archive reader which returns the uncompressed
+ *  data of the entries.
+ *
+ *  <p>The stream returned by {@link #getInputStream()} inflates the
+ *  data of deflated entries, and verifies the size and CRC-32 of the
+ *  data when its end is reached, using the values of the data
+ *  descriptor when the entry has one. Only the stored and deflated
+ *  compression methods are supported.</p>
+ *
+ * @author Carl Eric Codere
+ */
+public class InflatingZIPStreamReader extends ZIPStreamReader
+{
+    /** Entry of the last stream returned by getInputStream() */
+    private ZipEntry streamEntry;
+    private InputStream stream;
+
+    /** Creates a reader using a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param in The stream containing the archive
+     */
+    public InflatingZIPStreamReader(InputStream in)
+    {
+        super(in);
+    }
+
+    /** Creates a reader using a buffer of the specified size.
+     *
+     * @param in The stream containing the archive
+     * @param bufferSize The size of the input buffer
+     */
+    public InflatingZIPStreamReader(InputStream in, int bufferSize)
+    {
+        super(in, bufferSize);
+    }
+
+    public ZipEntry getNextEntry() throws IOException
+    {
+        if (stream != null)
+        {
+            /* Release the inflater of the previous entry */
+            stream.close();
+            stream = null;
+            streamEntry = null;
+        }
+        return super.getNextEntry();
+    }
+
+    /** Returns a stream on the uncompressed data of the current entry.
+     *  The stream is valid until the next call to {@link #getNextEntry()}.
+     *
+     * @throws IllegalStateException if there is no current entry.
+     * @throws IOException If the compression method of the entry is not supported.
+     */
+    public InputStream getInputStream() throws IOException
+    {
+        ZipEntry entry = getEntry();
+        if (entry == null)
+        {
+            throw new IllegalStateException("No current entry.");
+        }
+        if (streamEntry != entry)
+        {
+            stream = CheckedEntryInputStream.create(getRawInputStream(), entry);
+            streamEntry = entry;
+        }
+        return stream;
+    }
+
+    /** Returns a stream on the raw, possibly compressed, data of the
+     *  current entry.
+     *
+     * @throws IllegalStateException if there is no current entry.
+     */
+    public InputStream getRawInputStream() throws IOException
+    {
+        return super.getInputStream();
+    }
+}
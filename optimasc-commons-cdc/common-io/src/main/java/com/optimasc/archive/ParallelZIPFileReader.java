@@ -0,0 +1,126 @@
+package com.optimasc.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Vector;
+
+import com.optimasc.io.FileDataInputStream;
+import com.optimasc.io.ParallelTasks;
+import com.optimasc.io.SeekableDataInputStream;
+
+/** ZIP file reader that reads the archive from its central directory,
+ *  returns the uncompressed data of the entries and can extract
+ *  several entries in parallel.
+ *
+ *  <p>The streams returned by {@link #getInputStream(ArchiveEntry)}
+ *  inflate the data of deflated entries, and verify the size and
+ *  CRC-32 of the data when the end of the stream is reached. Only the
+ *  stored and deflated compression methods are supported.</p>
+ *
+ *  <p>Since the accesses to the archive stream are serialized, the
+ *  streams of different entries can be read concurrently, the
+ *  decompression of the entries taking place in parallel.
+ *  {@link #extract(Vector, ZIPEntryHandler)} uses this to extract a
+ *  list of entries with several threads.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public class ParallelZIPFileReader extends ZIPFileReader
+{
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    /** Opens a ZIP file.
+     *
+     * @param file The file to read
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If this is not a valid ZIP file
+     */
+    public ParallelZIPFileReader(File file) throws IOException, IllegalArgumentException
+    {
+        this(new FileDataInputStream(new RandomAccessFile(file, "r")));
+    }
+
+    /** Reads a ZIP file from a seekable stream. The stream is closed
+     *  when this reader is closed.
+     *
+     * @param is The stream containing the archive
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If this is not a valid ZIP file
+     */
+    public ParallelZIPFileReader(SeekableDataInputStream is) throws IOException, IllegalArgumentException
+    {
+        super(is);
+    }
+
+    /** Returns the maximum number of threads used for extraction. */
+    public int getThreadCount()
+    {
+        return threadCount;
+    }
+
+    /** Sets the maximum number of threads used for extraction,
+     *  including the calling thread.
+     *
+     * @param threadCount The number of threads
+     * @throws IllegalArgumentException if the count is not positive.
+     */
+    public void setThreadCount(int threadCount)
+    {
+        if (threadCount <= 0)
+        {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /** Returns an input stream returning the uncompressed data of the entry.
+     *
+     * @throws IOException If the compression method of the entry is not
+     *   supported or if an I/O error occurs. The stream throws an IOException
+     *   if the size or CRC-32 of the data is invalid.
+     */
+    public InputStream getInputStream(ArchiveEntry entry) throws IOException, IllegalArgumentException
+    {
+        ZipEntry z = (ZipEntry) entry;
+        return CheckedEntryInputStream.create(getRawInputStream(z), z);
+    }
+
+    /** Returns an input stream on the raw, possibly compressed,
+     *  data of the entry.
+     */
+    public InputStream getRawInputStream(ZipEntry entry) throws IOException
+    {
+        return super.getInputStream(entry);
+    }
+
+    /** Extracts entries of the archive using several threads. The
+     *  calling thread also extracts entries, and this method returns
+     *  when all the entries are extracted or when an error occurs.
+     *
+     * @param entries The {@link ZipEntry} instances of this archive to extract
+     * @param handler The handler receiving the data of each entry
+     * @throws IOException If an entry cannot be read, if its data is
+     *   invalid or if the handler throws an exception.
+     */
+    public void extract(final Vector entries, final ZIPEntryHandler handler) throws IOException
+    {
+        new ParallelTasks()
+        {
+            protected void runTask(int task) throws IOException
+            {
+                ZipEntry entry = (ZipEntry) entries.elementAt(task);
+                InputStream in = getInputStream(entry);
+                try
+                {
+                    handler.handleEntry(entry, in);
+                } finally
+                {
+                    in.close();
+                }
+            }
+        }.run(entries.size(), threadCount);
+    }
+}
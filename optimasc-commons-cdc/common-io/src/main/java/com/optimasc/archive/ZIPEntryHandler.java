@@ -0,0 +1,27 @@
+package com.optimasc.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Callback interface used to receive the entries extracted by
+ *  {@link ParallelZIPFileReader#extract(java.util.Vector, ZIPEntryHandler)}.
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public interface ZIPEntryHandler
+{
+    /** Called once for each extracted entry. The stream is closed
+     *  when this method returns, and the CRC-32 of the data is only
+     *  verified if the stream is read until its end.
+     *
+     *  <p>This method may be called concurrently from different
+     *  threads for different entries.</p>
+     *
+     * @param entry The entry being extracted
+     * @param in The stream returning the uncompressed data of the entry
+     * @throws IOException If the entry cannot be processed, which
+     *   stops the extraction.
+     */
+    public void handleEntry(ZipEntry entry, InputStream in) throws IOException;
+}
@@ -0,0 +1,367 @@
+package com.optimasc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/** Buffered variant of {@link FileDataInputStream} that keeps a small
+ *  cache of fixed-size pages of the file in memory.
+ *
+ *  <p>Seeking only updates the stream position, and reads that fall
+ *  inside a cached page are served from memory without any system call.
+ *  When a page that is not cached is needed, the least recently used
+ *  page is replaced. The number of page hits and misses is counted so
+ *  that the page size and page count can be tuned according to the
+ *  access patterns.</p>
+ *
+ *  <p>The pages are searched linearly, so the cache is meant to hold a
+ *  small number of pages (typically a few dozens). The file should not
+ *  be modified while it is read. Like {@link ByteArrayInputStream}, this
+ *  class is not thread-safe.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public class CachedFileDataInputStream extends FileDataInputStream
+{
+  /** Default size of a page, in bytes. */
+  public static final int DEFAULT_PAGE_SIZE = 4096;
+  /** Default number of pages kept in the cache. */
+  public static final int DEFAULT_PAGE_COUNT = 16;
+
+  protected final int pageSize;
+  /** Page data, one entry per cache slot. */
+  protected final byte[][] pages;
+  /** Page number stored in each cache slot, or -1 if the slot is free. */
+  protected final long[] pageNumbers;
+  /** Number of valid bytes in each cache slot. */
+  protected final int[] pageLengths;
+  /** Last access stamp of each cache slot, used for LRU replacement. */
+  protected final long[] pageStamps;
+  private long stamp;
+
+  /* Page containing the last accessed position */
+  private byte[] page;
+  private long pageStart = -1;
+  private int pageLength;
+
+  protected long hitCount;
+  protected long missCount;
+
+  /** Opens a file using a cache of {@link #DEFAULT_PAGE_COUNT} pages of
+   *  {@link #DEFAULT_PAGE_SIZE} bytes.
+   *
+   * @param f The file to read
+   * @throws IOException If the file cannot be opened
+   */
+  public CachedFileDataInputStream(File f) throws IOException
+  {
+    this(new RandomAccessFile(f, "r"), DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+  }
+
+  /** Reads a file using a cache of {@link #DEFAULT_PAGE_COUNT} pages of
+   *  {@link #DEFAULT_PAGE_SIZE} bytes.
+   *
+   * @param fd The file to read
+   * @throws IOException If the length of the file cannot be read
+   */
+  public CachedFileDataInputStream(RandomAccessFile fd) throws IOException
+  {
+    this(fd, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+  }
+
+  /** Reads a file using a cache of pages of the specified size.
+   *
+   * @param fd The file to read
+   * @param pageSize The size of each page in bytes
+   * @param pageCount The maximum number of pages kept in memory
+   * @throws IOException If the length of the file cannot be read
+   * @throws IllegalArgumentException If one of the sizes is not positive.
+   */
+  public CachedFileDataInputStream(RandomAccessFile fd, int pageSize, int pageCount) throws IOException
+  {
+    super(fd);
+    if ((pageSize <= 0) || (pageCount <= 0))
+    {
+      throw new IllegalArgumentException("Page size and count must be positive.");
+    }
+    this.pageSize = pageSize;
+    pages = new byte[pageCount][];
+    pageNumbers = new long[pageCount];
+    pageLengths = new int[pageCount];
+    pageStamps = new long[pageCount];
+    for (int i = 0; i < pageCount; i++)
+    {
+      pageNumbers[i] = -1;
+    }
+    length = fd.length();
+    currentPos = fd.getFilePointer();
+  }
+
+  /** Makes the page containing the specified position the current page.
+   *
+   * @return the offset of the position in the current page, or -1 if
+   *   the position is outside the file.
+   */
+  private int selectPage(long pos) throws IOException
+  {
+    long offset = pos - pageStart;
+    if ((pageStart >= 0) && (offset >= 0) && (offset < pageLength))
+    {
+      hitCount++;
+      return (int) offset;
+    }
+    if ((pos < 0) || (pos >= length))
+    {
+      return -1;
+    }
+    long pageNumber = pos / pageSize;
+    int slot = -1;
+    int oldest = 0;
+    for (int i = 0; i < pageNumbers.length; i++)
+    {
+      if (pageNumbers[i] == pageNumber)
+      {
+        slot = i;
+        break;
+      }
+      if (pageStamps[i] < pageStamps[oldest])
+      {
+        oldest = i;
+      }
+    }
+    if (slot >= 0)
+    {
+      hitCount++;
+    }
+    else
+    {
+      missCount++;
+      slot = oldest;
+      loadPage(slot, pageNumber);
+    }
+    pageStamps[slot] = ++stamp;
+    page = pages[slot];
+    pageStart = pageNumber * pageSize;
+    pageLength = pageLengths[slot];
+    return (int) (pos - pageStart);
+  }
+
+  private void loadPage(int slot, long pageNumber) throws IOException
+  {
+    if (pages[slot] == null)
+    {
+      pages[slot] = new byte[pageSize];
+    }
+    /* Mark the slot as free in case the read fails. */
+    pageNumbers[slot] = -1;
+    long start = pageNumber * pageSize;
+    int len = (int) Math.min(pageSize, length - start);
+    fd.seek(start);
+    fd.readFully(pages[slot], 0, len);
+    pageNumbers[slot] = pageNumber;
+    pageLengths[slot] = len;
+  }
+
+  /** Returns the offset in the current page if <code>count</code>
+   *  bytes can be read from it at the current position, otherwise
+   *  returns -1. */
+  private int contiguous(int count) throws IOException
+  {
+    int offset = selectPage(currentPos);
+    if ((offset < 0) || (offset + count > pageLength))
+    {
+      return -1;
+    }
+    bitOffset = 0;
+    return offset;
+  }
+
+  public int read() throws IOException
+  {
+    bitOffset = 0;
+    int offset = selectPage(currentPos);
+    if (offset < 0)
+    {
+      return -1;
+    }
+    currentPos++;
+    readCount++;
+    return page[offset] & 0xFF;
+  }
+
+  public int read(byte[] b) throws IOException
+  {
+    return read(b, 0, b.length);
+  }
+
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    if ((off | len) < 0 || off > b.length || b.length - off < len)
+    {
+      throw new IndexOutOfBoundsException("Invalid parameters");
+    }
+    if (currentPos >= length)
+    {
+      return -1;
+    }
+    bitOffset = 0;
+    if (currentPos + len > length)
+    {
+      len = (int) (length - currentPos);
+    }
+    int total = 0;
+    while (total < len)
+    {
+      int offset = selectPage(currentPos);
+      int count = Math.min(len - total, pageLength - offset);
+      System.arraycopy(page, offset, b, off + total, count);
+      currentPos += count;
+      total += count;
+    }
+    readCount += total;
+    return total;
+  }
+
+  public short readShort() throws IOException
+  {
+    int offset = contiguous(2);
+    if (offset < 0)
+    {
+      return super.readShort();
+    }
+    currentPos += 2;
+    readCount += 2;
+    if (byteOrder == ByteOrder.BIG_ENDIAN)
+    {
+      return ByteBufferIO.getShortBig(page, offset);
+    }
+    return ByteBufferIO.getShortLittle(page, offset);
+  }
+
+  public int readUnsignedShort() throws IOException
+  {
+    return readShort() & 0xFFFF;
+  }
+
+  public char readChar() throws IOException
+  {
+    return (char) readShort();
+  }
+
+  public int readInt() throws IOException
+  {
+    int offset = contiguous(4);
+    if (offset < 0)
+    {
+      return super.readInt();
+    }
+    currentPos += 4;
+    readCount += 4;
+    if (byteOrder == ByteOrder.BIG_ENDIAN)
+    {
+      return ByteBufferIO.getIntBig(page, offset);
+    }
+    return ByteBufferIO.getIntLittle(page, offset);
+  }
+
+  public long readUnsignedInt() throws IOException
+  {
+    return ((long) readInt()) & 0xFFFFFFFFL;
+  }
+
+  public long readLong() throws IOException
+  {
+    int offset = contiguous(8);
+    if (offset < 0)
+    {
+      return super.readLong();
+    }
+    currentPos += 8;
+    readCount += 8;
+    if (byteOrder == ByteOrder.BIG_ENDIAN)
+    {
+      return ByteBufferIO.getLongBig(page, offset);
+    }
+    return ByteBufferIO.getLongLittle(page, offset);
+  }
+
+  public float readFloat() throws IOException
+  {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  public double readDouble() throws IOException
+  {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  public long getStreamPosition() throws IOException
+  {
+    return currentPos;
+  }
+
+  public void seek(long pos) throws IOException
+  {
+    currentPos = pos;
+    bitOffset = 0;
+  }
+
+  public long length() throws IOException
+  {
+    return length;
+  }
+
+  public int available() throws IOException
+  {
+    if (currentPos >= length)
+    {
+      return 0;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, length - currentPos);
+  }
+
+  public void close() throws IOException
+  {
+    page = null;
+    pageStart = -1;
+    for (int i = 0; i < pages.length; i++)
+    {
+      pages[i] = null;
+      pageNumbers[i] = -1;
+    }
+    super.close();
+  }
+
+  /** Returns true, since the pages of the file are cached in memory. */
+  public boolean isCached()
+  {
+    return true;
+  }
+
+  /** Returns the number of accesses that were served from a cached page.
+   *
+   * @return the number of cache hits
+   */
+  public long getHitCount()
+  {
+    return hitCount;
+  }
+
+  /** Returns the number of accesses that required a page to be read
+   *  from the file.
+   *
+   * @return the number of cache misses
+   */
+  public long getMissCount()
+  {
+    return missCount;
+  }
+
+  /** Resets the hit and miss counters to zero. */
+  public void resetCacheCounters()
+  {
+    hitCount = 0;
+    missCount = 0;
+  }
+}
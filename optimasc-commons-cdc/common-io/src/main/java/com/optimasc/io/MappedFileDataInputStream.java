@@ -0,0 +1,404 @@
+package com.optimasc.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** Implementation of the {@link com.optimasc.io.SeekableDataInputStream} class
+ *  that works on a file on disk which is mapped in memory.
+ *
+ *  <p>Contrary to {@link FileDataInputStream}, reading data does not require
+ *  any system call: bytes, primitive values and bits are read directly from
+ *  the mapped memory, and seeking only updates the stream position. Files
+ *  larger than what can be mapped in a single buffer are mapped as several
+ *  consecutive regions, values that straddle two regions are assembled
+ *  byte by byte.</p>
+ *
+ *  <p>The file should not be modified while it is mapped. Like
+ *  {@link ByteArrayInputStream}, this class is not thread-safe.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public class MappedFileDataInputStream extends SeekableDataInputStream
+{
+  /** Default size of each mapped region, in bytes. */
+  public static final int DEFAULT_REGION_SIZE = 1 << 30;
+
+  protected RandomAccessFile fd;
+  protected FileChannel channel;
+  /** The mapped regions, all of size <code>1 &lt;&lt; regionShift</code>
+   *  except the last one. */
+  protected MappedByteBuffer[] regions;
+  protected int regionShift;
+
+  /** Region containing the current position, or null if none. */
+  private ByteBuffer region;
+  /** Stream position of the first byte of {@link #region}. */
+  private long regionStart;
+  /** Stream position one past the last byte of {@link #region}. */
+  private long regionEnd;
+
+  /** Maps a complete file, using regions of {@link #DEFAULT_REGION_SIZE} bytes.
+   *
+   * @param f The file to map
+   * @throws IOException If the file cannot be opened or mapped
+   */
+  public MappedFileDataInputStream(File f) throws IOException
+  {
+    this(new RandomAccessFile(f, "r"), DEFAULT_REGION_SIZE);
+  }
+
+  /** Maps a complete file, using regions of {@link #DEFAULT_REGION_SIZE} bytes.
+   *  The file is closed when this stream is closed.
+   *
+   * @param fd The file to map
+   * @throws IOException If the file cannot be mapped
+   */
+  public MappedFileDataInputStream(RandomAccessFile fd) throws IOException
+  {
+    this(fd, DEFAULT_REGION_SIZE);
+  }
+
+  /** Maps a complete file, using regions of the specified size.
+   *  The file is closed when this stream is closed.
+   *
+   * @param fd The file to map
+   * @param regionSize The size of each mapped region, must be a power of two.
+   * @throws IOException If the file cannot be mapped
+   * @throws IllegalArgumentException If the region size is not a positive
+   *   power of two.
+   */
+  public MappedFileDataInputStream(RandomAccessFile fd, int regionSize) throws IOException
+  {
+    super();
+    if ((regionSize <= 0) || ((regionSize & (regionSize - 1)) != 0))
+    {
+      throw new IllegalArgumentException("Region size must be a power of two.");
+    }
+    this.fd = fd;
+    regionShift = 0;
+    while ((1 << regionShift) != regionSize)
+    {
+      regionShift++;
+    }
+    boolean mapped = false;
+    try
+    {
+      channel = fd.getChannel();
+      length = channel.size();
+      int count = (int) ((length + regionSize - 1) >>> regionShift);
+      regions = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++)
+      {
+        long start = (long) i << regionShift;
+        long size = Math.min(regionSize, length - start);
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      }
+      mapped = true;
+    } finally
+    {
+      // The file is owned by this stream, it would not be closed otherwise
+      if (mapped == false)
+      {
+        closeQuietly();
+      }
+    }
+    setByteOrder(byteOrder);
+  }
+
+  /** Closes the channel and file after a failure, without hiding the
+   *  exception which caused it. */
+  private void closeQuietly()
+  {
+    try
+    {
+      if (channel != null)
+      {
+        channel.close();
+      }
+    } catch (IOException e)
+    {
+      /* the original exception is reported */
+    }
+    try
+    {
+      fd.close();
+    } catch (IOException e)
+    {
+      /* the original exception is reported */
+    }
+  }
+
+  public void setByteOrder(ByteOrder byteOrder)
+  {
+    super.setByteOrder(byteOrder);
+    java.nio.ByteOrder order;
+    if (byteOrder == ByteOrder.LITTLE_ENDIAN)
+    {
+      order = java.nio.ByteOrder.LITTLE_ENDIAN;
+    }
+    else
+    {
+      order = java.nio.ByteOrder.BIG_ENDIAN;
+    }
+    if (regions != null)
+    {
+      for (int i = 0; i < regions.length; i++)
+      {
+        regions[i].order(order);
+      }
+    }
+  }
+
+  /** Selects the region containing the specified position and
+   *  returns the offset of the position inside it.
+   *
+   * @return the offset in {@link #region}, or -1 if the position
+   *   is outside the file.
+   */
+  private int selectRegion(long pos) throws IOException
+  {
+    if ((pos >= regionStart) && (pos < regionEnd))
+    {
+      return (int) (pos - regionStart);
+    }
+    if (regions == null)
+    {
+      throw new IOException("Stream is closed.");
+    }
+    if ((pos < 0) || (pos >= length))
+    {
+      return -1;
+    }
+    int index = (int) (pos >>> regionShift);
+    region = regions[index];
+    regionStart = (long) index << regionShift;
+    regionEnd = regionStart + region.capacity();
+    return (int) (pos - regionStart);
+  }
+
+  /** Returns the offset in the current region if <code>count</code>
+   *  bytes can be read from it at the current position, otherwise
+   *  returns -1. */
+  private int contiguous(int count) throws IOException
+  {
+    int offset = selectRegion(currentPos);
+    if ((offset < 0) || (currentPos + count > regionEnd))
+    {
+      return -1;
+    }
+    bitOffset = 0;
+    return offset;
+  }
+
+  public int read() throws IOException
+  {
+    bitOffset = 0;
+    int offset = selectRegion(currentPos);
+    if (offset < 0)
+    {
+      return -1;
+    }
+    currentPos++;
+    readCount++;
+    return region.get(offset) & 0xFF;
+  }
+
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    if ((off | len) < 0 || off > b.length || b.length - off < len)
+    {
+      throw new IndexOutOfBoundsException("Invalid parameters");
+    }
+    if (currentPos >= length)
+    {
+      return -1;
+    }
+    bitOffset = 0;
+    if (currentPos + len > length)
+    {
+      len = (int) (length - currentPos);
+    }
+    int total = 0;
+    while (total < len)
+    {
+      int offset = selectRegion(currentPos);
+      int count = (int) Math.min(len - total, regionEnd - currentPos);
+      ByteBuffer dup = region.duplicate();
+      dup.position(offset);
+      dup.get(b, off + total, count);
+      currentPos += count;
+      total += count;
+    }
+    readCount += total;
+    return total;
+  }
+
+  public short readShort() throws IOException
+  {
+    int offset = contiguous(2);
+    if (offset < 0)
+    {
+      return super.readShort();
+    }
+    currentPos += 2;
+    readCount += 2;
+    return region.getShort(offset);
+  }
+
+  public int readUnsignedShort() throws IOException
+  {
+    return readShort() & 0xFFFF;
+  }
+
+  public char readChar() throws IOException
+  {
+    return (char) readShort();
+  }
+
+  public int readInt() throws IOException
+  {
+    int offset = contiguous(4);
+    if (offset < 0)
+    {
+      return super.readInt();
+    }
+    currentPos += 4;
+    readCount += 4;
+    return region.getInt(offset);
+  }
+
+  public long readUnsignedInt() throws IOException
+  {
+    return ((long) readInt()) & 0xFFFFFFFFL;
+  }
+
+  public long readLong() throws IOException
+  {
+    int offset = contiguous(8);
+    if (offset < 0)
+    {
+      return super.readLong();
+    }
+    currentPos += 8;
+    readCount += 8;
+    return region.getLong(offset);
+  }
+
+  public float readFloat() throws IOException
+  {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  public double readDouble() throws IOException
+  {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  /** Returns the bits that would be returned by the next read
+   *  of bits, without changing the stream position. The bytes
+   *  are read directly from the mapped memory.
+   */
+  public int peekBits(int numBits) throws IOException
+  {
+    if ((numBits < 0) || (numBits > 32))
+    {
+      throw new IllegalArgumentException("number of its must be between 0 and 64");
+    }
+    int localBitBuffer = bitBuffer;
+    int localBitOffset = bitOffset;
+    long pos = currentPos;
+    int value = 0;
+    if (byteOrder == ByteOrder.LITTLE_ENDIAN)
+    {
+      for (int i = 0; i < numBits; i++)
+      {
+        if (localBitOffset == 8)
+        {
+          localBitBuffer = peekByte(pos++);
+          localBitOffset = 0;
+        }
+        int bit = (localBitBuffer >>> localBitOffset);
+        localBitOffset++;
+        value |= ((bit & 0x01) << i);
+      }
+    }
+    else
+    {
+      for (int i = numBits - 1; i >= 0; i--)
+      {
+        if (localBitOffset == 8)
+        {
+          localBitBuffer = peekByte(pos++);
+          localBitOffset = 0;
+        }
+        int bit = (localBitBuffer >>> localBitOffset);
+        localBitOffset++;
+        value |= ((bit & 0x01) << i);
+      }
+    }
+    return value;
+  }
+
+  private int peekByte(long pos) throws IOException
+  {
+    int offset = selectRegion(pos);
+    if (offset < 0)
+    {
+      throw new EOFException();
+    }
+    return region.get(offset) & 0xFF;
+  }
+
+  public long getStreamPosition() throws IOException
+  {
+    return currentPos;
+  }
+
+  public void seek(long pos) throws IOException
+  {
+    currentPos = pos;
+    bitOffset = 0;
+  }
+
+  public long length() throws IOException
+  {
+    return length;
+  }
+
+  public int available() throws IOException
+  {
+    if (regions == null)
+    {
+      throw new IOException("Stream is closed.");
+    }
+    if (currentPos >= length)
+    {
+      return 0;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, length - currentPos);
+  }
+
+  /** Closes the file. The memory is unmapped once the
+   *  buffers are garbage collected. */
+  public void close() throws IOException
+  {
+    regions = null;
+    region = null;
+    regionStart = 0;
+    regionEnd = 0;
+    channel.close();
+    fd.close();
+  }
+
+  public boolean isCached()
+  {
+    return false;
+  }
+
+}
@@ -0,0 +1,484 @@
+package com.optimasc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+
+/** Parses a large CSV file or byte region using several threads.
+ *
+ *  <p>The input is cut into chunks of {@link #getChunkSize()} bytes. Safe
+ *  record boundaries are then found in two passes:</p>
+ *  <ol>
+ *   <li>Each chunk is scanned in parallel with the CSV state machine started
+ *    in every possible state (record start, field start, unquoted field,
+ *    quoted field, quote inside a quoted field, after a carriage return),
+ *    recording for each starting state the state at the end of the chunk
+ *    and the position of the first record start in the chunk.</li>
+ *   <li>These results are chained sequentially from the start of the input,
+ *    which gives the exact parser state at the start of each chunk, and
+ *    therefore the real record boundaries even when quoted fields contain
+ *    embedded newlines.</li>
+ *  </ol>
+ *  <p>The byte ranges between the boundaries are then decoded and parsed in
+ *  parallel with a {@link CSVTokenizer}, using the same RFC 4180 rules, and
+ *  each record is passed to a {@link CSVRecordHandler} along with the index
+ *  of its range and its index in the range, which together give the
+ *  original record ordering.</p>
+ *
+ *  <p>Boundaries are searched on the raw bytes, so the character encoding
+ *  must be ASCII compatible and must never use bytes below 0x80 inside
+ *  multibyte sequences, as is the case of UTF-8 and of the ISO-8859 and
+ *  Windows single byte encodings. For the same reason the delimiter
+ *  must be an ASCII character.</p>
+ *
+ *  <p>Instances of this class are not thread safe.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public class ParallelCSVReader
+{
+  /** Default chunk size in bytes. */
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  /** Size of the buffer used when scanning the chunks. */
+  private static final int SCAN_BUFFER_SIZE = 65536;
+
+  /* States of the CSV state machine */
+  private static final int STATE_RECORD_START = 0;
+  private static final int STATE_FIELD_START = 1;
+  private static final int STATE_UNQUOTED = 2;
+  private static final int STATE_QUOTED = 3;
+  private static final int STATE_QUOTE_IN_QUOTED = 4;
+  private static final int STATE_CR = 5;
+  private static final int STATE_COUNT = 6;
+
+  /* Character classes */
+  private static final int CLASS_OTHER = 0;
+  private static final int CLASS_QUOTE = 1;
+  private static final int CLASS_DELIMITER = 2;
+  private static final int CLASS_LF = 3;
+  private static final int CLASS_CR = 4;
+  private static final int CLASS_COUNT = 5;
+
+  /* Where a record starts relative to the current character. */
+  private static final int BOUNDARY_NONE = 0;
+  private static final int BOUNDARY_BEFORE = 1;
+  private static final int BOUNDARY_AFTER = 2;
+
+  /** Next state, indexed by state * CLASS_COUNT + class. */
+  private static final int[] NEXT_STATE = {
+    /* RECORD_START */ STATE_UNQUOTED, STATE_QUOTED, STATE_FIELD_START, STATE_RECORD_START, STATE_CR,
+    /* FIELD_START */ STATE_UNQUOTED, STATE_QUOTED, STATE_FIELD_START, STATE_RECORD_START, STATE_CR,
+    /* UNQUOTED */ STATE_UNQUOTED, STATE_UNQUOTED, STATE_FIELD_START, STATE_RECORD_START, STATE_CR,
+    /* QUOTED */ STATE_QUOTED, STATE_QUOTE_IN_QUOTED, STATE_QUOTED, STATE_QUOTED, STATE_QUOTED,
+    /* QUOTE_IN_QUOTED */ STATE_UNQUOTED, STATE_QUOTED, STATE_FIELD_START, STATE_RECORD_START, STATE_CR,
+    /* CR */ STATE_UNQUOTED, STATE_QUOTED, STATE_FIELD_START, STATE_RECORD_START, STATE_CR,
+  };
+
+  /** Record boundary type, indexed by state * CLASS_COUNT + class. */
+  private static final int[] BOUNDARY = {
+    /* RECORD_START */ BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_AFTER, BOUNDARY_NONE,
+    /* FIELD_START */ BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_AFTER, BOUNDARY_NONE,
+    /* UNQUOTED */ BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_AFTER, BOUNDARY_NONE,
+    /* QUOTED */ BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_NONE,
+    /* QUOTE_IN_QUOTED */ BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_NONE, BOUNDARY_AFTER, BOUNDARY_NONE,
+    /* CR */ BOUNDARY_BEFORE, BOUNDARY_BEFORE, BOUNDARY_BEFORE, BOUNDARY_AFTER, BOUNDARY_BEFORE,
+  };
+
+  protected File file;
+  protected byte[] data;
+  protected int dataOffset;
+  protected long length;
+  protected String encoding;
+  protected char delimiter;
+  protected int chunkSize = DEFAULT_CHUNK_SIZE;
+  protected int threadCount;
+
+  /** Character class of each byte value */
+  private final int[] classes = new int[256];
+
+  /* Results of the scanning pass, indexed by chunk * STATE_COUNT + state */
+  private int[] chunkEndStates;
+  private long[] chunkFirstRecords;
+
+  /** Start offsets of the ranges that are parsed, the last entry is the length. */
+  private long[] rangeStarts;
+  private long[] rangeRecordCounts;
+
+  /** Creates a reader on a file.
+   *
+   * @param file The file to parse
+   * @param encoding The ASCII compatible encoding of the file
+   * @param delimiter The ASCII field separator character
+   * @throws IllegalArgumentException if {@code delimiter} is not an ASCII
+   *   character or is {@code '"'}, {@code '\r'}, or {@code '\n'}.
+   */
+  public ParallelCSVReader(File file, String encoding, char delimiter)
+  {
+    this(encoding, delimiter);
+    this.file = file;
+    length = file.length();
+  }
+
+  /** Creates a reader on a region of a byte array, such as
+   *  the contents of a file loaded in memory.
+   *
+   * @param data The data to parse
+   * @param off The offset of the first byte to parse
+   * @param len The number of bytes to parse
+   * @param encoding The ASCII compatible encoding of the data
+   * @param delimiter The ASCII field separator character
+   * @throws IllegalArgumentException if {@code delimiter} is not an ASCII
+   *   character or is {@code '"'}, {@code '\r'}, or {@code '\n'}.
+   */
+  public ParallelCSVReader(byte[] data, int off, int len, String encoding, char delimiter)
+  {
+    this(encoding, delimiter);
+    if ((off < 0) || (len < 0) || (off + len > data.length))
+    {
+      throw new IndexOutOfBoundsException();
+    }
+    this.data = data;
+    dataOffset = off;
+    length = len;
+  }
+
+  private ParallelCSVReader(String encoding, char delimiter)
+  {
+    if ((delimiter == '"') || (delimiter == '\r') || (delimiter == '\n') || (delimiter > 0x7F))
+    {
+      throw new IllegalArgumentException("Invalid delimiter character.");
+    }
+    this.encoding = encoding;
+    this.delimiter = delimiter;
+    threadCount = Runtime.getRuntime().availableProcessors();
+    classes['"'] = CLASS_QUOTE;
+    classes['\n'] = CLASS_LF;
+    classes['\r'] = CLASS_CR;
+    classes[delimiter] = CLASS_DELIMITER;
+  }
+
+  /** Returns the size of the chunks used to search for record boundaries.
+   *
+   * @return the chunk size in bytes.
+   */
+  public int getChunkSize()
+  {
+    return chunkSize;
+  }
+
+  /** Sets the size of the chunks used to search for record boundaries.
+   *
+   * @param chunkSize the chunk size in bytes
+   * @throws IllegalArgumentException if the size is not positive.
+   */
+  public void setChunkSize(int chunkSize)
+  {
+    if (chunkSize <= 0)
+    {
+      throw new IllegalArgumentException("Chunk size must be positive.");
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /** Returns the number of threads used for parsing. By default
+   *  this is the number of available processors.
+   *
+   * @return the number of threads.
+   */
+  public int getThreadCount()
+  {
+    return threadCount;
+  }
+
+  /** Sets the number of threads used for parsing.
+   *
+   * @param threadCount the number of threads
+   * @throws IllegalArgumentException if the count is not positive.
+   */
+  public void setThreadCount(int threadCount)
+  {
+    if (threadCount <= 0)
+    {
+      throw new IllegalArgumentException("Thread count must be positive.");
+    }
+    this.threadCount = threadCount;
+  }
+
+  /** Returns the number of ranges the input was split into by
+   *  the last call to {@link #parse(CSVRecordHandler)}. This is
+   *  the number of distinct chunk indexes passed to the handler.
+   *
+   * @return the number of ranges, or 0 if nothing was parsed.
+   */
+  public int getRangeCount()
+  {
+    if (rangeStarts == null)
+    {
+      return 0;
+    }
+    return rangeStarts.length - 1;
+  }
+
+  /** Returns the global 0-based ordinal of the first record of a range,
+   *  once {@link #parse(CSVRecordHandler)} has completed, so that
+   *  (<code>chunk</code>,<code>index</code>) pairs can be converted
+   *  to record numbers.
+   *
+   * @param range The range index, as passed to the handler
+   * @return the number of records in all the preceding ranges.
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public long getFirstRecordOrdinal(int range)
+  {
+    if ((range < 0) || (range >= getRangeCount()))
+    {
+      throw new IndexOutOfBoundsException("Invalid range index " + range);
+    }
+    long total = 0;
+    for (int i = 0; i < range; i++)
+    {
+      total += rangeRecordCounts[i];
+    }
+    return total;
+  }
+
+  /** Parses all the records of the input and passes them to the
+   *  handler. The handler is called concurrently from several
+   *  threads.
+   *
+   * @param handler The handler receiving each record
+   * @return the total number of records parsed
+   * @throws IOException if an I/O error occurs, if the input ends inside
+   *   an unclosed quoted field or if the handler throws an exception.
+   */
+  public long parse(CSVRecordHandler handler) throws IOException
+  {
+    rangeStarts = null;
+    rangeRecordCounts = null;
+    int chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+    if (chunkCount == 0)
+    {
+      rangeStarts = new long[] { 0 };
+      rangeRecordCounts = new long[0];
+      return 0;
+    }
+
+    /* Pass 1: compute the state transitions of each chunk */
+    chunkEndStates = new int[chunkCount * STATE_COUNT];
+    chunkFirstRecords = new long[chunkCount * STATE_COUNT];
+    runTasks(chunkCount, null);
+
+    /* Chain the chunks to find the record boundaries */
+    long[] starts = new long[chunkCount + 1];
+    int rangeCount = 0;
+    int state = STATE_RECORD_START;
+    for (int i = 0; i < chunkCount; i++)
+    {
+      long start;
+      if (state == STATE_RECORD_START)
+      {
+        start = (long) i * chunkSize;
+      }
+      else
+      {
+        start = chunkFirstRecords[i * STATE_COUNT + state];
+      }
+      if ((start >= 0) && (start < length) && ((rangeCount == 0) || (starts[rangeCount - 1] != start)))
+      {
+        starts[rangeCount++] = start;
+      }
+      state = chunkEndStates[i * STATE_COUNT + state];
+    }
+    chunkEndStates = null;
+    chunkFirstRecords = null;
+    if (state == STATE_QUOTED)
+    {
+      throw new IOException(
+          "Malformed CSV: end of stream reached inside an unclosed quoted field.");
+    }
+    starts[rangeCount] = length;
+    rangeStarts = new long[rangeCount + 1];
+    System.arraycopy(starts, 0, rangeStarts, 0, rangeCount + 1);
+    rangeRecordCounts = new long[rangeCount];
+
+    /* Pass 2: parse each range */
+    runTasks(rangeCount, handler);
+    long total = 0;
+    for (int i = 0; i < rangeCount; i++)
+    {
+      total += rangeRecordCounts[i];
+    }
+    return total;
+  }
+
+  /** Runs tasks on the worker threads, and waits for their completion.
+   *
+   * @param taskCount the number of tasks
+   * @param handler null to scan chunks, otherwise the record handler used
+   *   when parsing ranges.
+   */
+  private void runTasks(int taskCount, final CSVRecordHandler handler) throws IOException
+  {
+    new ParallelTasks()
+    {
+      protected void runTask(int task) throws IOException
+      {
+        if (handler == null)
+        {
+          scanChunk(task);
+        }
+        else
+        {
+          parseRange(task, handler);
+        }
+      }
+    }.run(taskCount, threadCount);
+  }
+
+  /** Runs the state machine over a chunk, starting from every possible state. */
+  private void scanChunk(int chunk) throws IOException
+  {
+    long start = (long) chunk * chunkSize;
+    long end = Math.min(start + chunkSize, length);
+    int[] states = new int[STATE_COUNT];
+    long[] firstRecords = new long[STATE_COUNT];
+    for (int q = 0; q < STATE_COUNT; q++)
+    {
+      states[q] = q;
+      firstRecords[q] = -1;
+    }
+    int[] next = NEXT_STATE;
+    int[] boundary = BOUNDARY;
+    int[] cls = classes;
+    int pending = STATE_COUNT;
+
+    InputStream in = openRegion(start, end - start);
+    try
+    {
+      byte[] buffer = new byte[(int) Math.min(SCAN_BUFFER_SIZE, end - start)];
+      long pos = start;
+      int count;
+      while ((count = in.read(buffer, 0, buffer.length)) > 0)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          int c = cls[buffer[i] & 0xFF];
+          if (pending > 0)
+          {
+            for (int q = 0; q < STATE_COUNT; q++)
+            {
+              int index = states[q] * CLASS_COUNT + c;
+              if (firstRecords[q] < 0)
+              {
+                int b = boundary[index];
+                if (b != BOUNDARY_NONE)
+                {
+                  firstRecords[q] = (b == BOUNDARY_BEFORE) ? pos + i : pos + i + 1;
+                  pending--;
+                }
+              }
+              states[q] = next[index];
+            }
+          }
+          else
+          {
+            for (int q = 0; q < STATE_COUNT; q++)
+            {
+              states[q] = next[states[q] * CLASS_COUNT + c];
+            }
+          }
+        }
+        pos += count;
+      }
+    } finally
+    {
+      in.close();
+    }
+    System.arraycopy(states, 0, chunkEndStates, chunk * STATE_COUNT, STATE_COUNT);
+    System.arraycopy(firstRecords, 0, chunkFirstRecords, chunk * STATE_COUNT, STATE_COUNT);
+  }
+
+  /** Decodes and parses the records of a range. */
+  private void parseRange(int range, CSVRecordHandler handler) throws IOException
+  {
+    long start = rangeStarts[range];
+    long end = rangeStarts[range + 1];
+    InputStream in = openRegion(start, end - start);
+    try
+    {
+      Reader reader = new InputStreamReader(in, encoding);
+      CSVTokenizer tokenizer = new CSVTokenizer(reader, delimiter);
+      long index = 0;
+      while (tokenizer.nextRecord())
+      {
+        handler.handleRecord(range, index++, tokenizer);
+      }
+      rangeRecordCounts[range] = index;
+    } finally
+    {
+      in.close();
+    }
+  }
+
+  private InputStream openRegion(long start, long len) throws IOException
+  {
+    if (data != null)
+    {
+      return new java.io.ByteArrayInputStream(data, dataOffset + (int) start, (int) len);
+    }
+    RandomAccessFile fd = new RandomAccessFile(file, "r");
+    fd.seek(start);
+    return new RegionInputStream(fd, len);
+  }
+
+  /** Input stream reading a region of a file. */
+  private static class RegionInputStream extends InputStream
+  {
+    private final RandomAccessFile fd;
+    private long remaining;
+
+    RegionInputStream(RandomAccessFile fd, long len)
+    {
+      this.fd = fd;
+      remaining = len;
+    }
+
+    public int read() throws IOException
+    {
+      if (remaining <= 0)
+      {
+        return -1;
+      }
+      remaining--;
+      return fd.read();
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if (remaining <= 0)
+      {
+        return -1;
+      }
+      if (len > remaining)
+      {
+        len = (int) remaining;
+      }
+      int count = fd.read(b, off, len);
+      if (count > 0)
+      {
+        remaining -= count;
+      }
+      return count;
+    }
+
+    public void close() throws IOException
+    {
+      fd.close();
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+
+/** Runs numbered tasks on several threads, the calling thread included.
+ *
+ *  <p>Tasks are handed out in increasing order of their index. Once a
+ *  task throws an exception no new task is started, and the first
+ *  exception is rethrown by {@link #run(int, int)} after all the threads
+ *  are finished.</p>
+ *
+ *  <p>This class is shared by the parallel readers of this library, and is
+ *  public only because they are in different packages.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public abstract class ParallelTasks
+{
+  private int taskCount;
+  private int nextTask;
+  private IOException taskException;
+  private RuntimeException taskRuntimeException;
+
+  /** Runs a single task. This is called concurrently from several threads.
+   *
+   * @param task The index of the task, from 0 to the task count - 1
+   */
+  protected abstract void runTask(int task) throws IOException;
+
+  /** Runs the tasks, and waits for their completion.
+   *
+   * @param taskCount The number of tasks
+   * @param threadCount The maximum number of threads, including the
+   *   calling thread
+   * @throws IOException If a task throws an IOException or if the calling
+   *   thread is interrupted. A RuntimeException thrown by a task is rethrown
+   *   if no task has thrown an IOException.
+   */
+  public final void run(int taskCount, int threadCount) throws IOException
+  {
+    synchronized (this)
+    {
+      this.taskCount = taskCount;
+      nextTask = 0;
+      taskException = null;
+      taskRuntimeException = null;
+    }
+    int count = Math.min(threadCount, taskCount);
+    Thread[] threads = new Thread[count];
+    Worker worker = new Worker();
+    /* The current thread also takes part in the work. */
+    for (int i = 1; i < count; i++)
+    {
+      threads[i] = new Thread(worker);
+      threads[i].start();
+    }
+    worker.run();
+    for (int i = 1; i < count; i++)
+    {
+      try
+      {
+        threads[i].join();
+      } catch (InterruptedException e)
+      {
+        throw new IOException("Interrupted while waiting for the worker threads.");
+      }
+    }
+    synchronized (this)
+    {
+      if (taskException != null)
+      {
+        throw taskException;
+      }
+      if (taskRuntimeException != null)
+      {
+        throw taskRuntimeException;
+      }
+    }
+  }
+
+  private synchronized int nextTask()
+  {
+    if ((nextTask >= taskCount) || (taskException != null) || (taskRuntimeException != null))
+    {
+      return -1;
+    }
+    return nextTask++;
+  }
+
+  private synchronized void setException(IOException e)
+  {
+    if (taskException == null)
+    {
+      taskException = e;
+    }
+  }
+
+  private synchronized void setException(RuntimeException e)
+  {
+    if (taskRuntimeException == null)
+    {
+      taskRuntimeException = e;
+    }
+  }
+
+  private class Worker implements Runnable
+  {
+    public void run()
+    {
+      int task;
+      while ((task = nextTask()) >= 0)
+      {
+        try
+        {
+          runTask(task);
+        } catch (IOException e)
+        {
+          setException(e);
+        } catch (RuntimeException e)
+        {
+          setException(e);
+        }
+      }
+    }
+  }
+}
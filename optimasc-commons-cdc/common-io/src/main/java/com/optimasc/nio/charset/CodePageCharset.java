@@ -0,0 +1,151 @@
+package com.optimasc.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/** A {@link java.nio.charset.Charset} for the single-byte code pages
+ *  supported by {@link CharSets}.
+ *
+ *  <p>Decoding uses the conversion tables of {@link CharSets}, and
+ *  encoding uses its reverse tables, so that each character is
+ *  converted in constant time. Code points which are not defined
+ *  in the code page are reported as unmappable when decoding.</p>
+ *
+ *  <p>The instances are also returned by {@link CodePageCharsetProvider}.
+ *  Since the Java platform usually has its own implementation of these
+ *  code pages, the canonical names are prefixed with <code>x-optimasc-</code>
+ *  to avoid any conflict.</p>
+ *
+ * @author Carl Eric Codere
+ */
+public class CodePageCharset extends Charset
+{
+    /** DOS Latin US code page (437) */
+    public static final CodePageCharset CP437 = new CodePageCharset("x-optimasc-IBM437",
+        new String[] {"x-optimasc-cp437"}, CharSets.CodePage437ToUCS2);
+    /** DOS Latin 1 code page (850) */
+    public static final CodePageCharset CP850 = new CodePageCharset("x-optimasc-IBM850",
+        new String[] {"x-optimasc-cp850"}, CharSets.CodePage850ToUCS2);
+    /** Windows Latin 1 code page (1252) */
+    public static final CodePageCharset WINDOWS_1252 = new CodePageCharset("x-optimasc-windows-1252",
+        new String[] {"x-optimasc-cp1252"}, CharSets.CodePage1252ToUCS2);
+
+    /** Conversion table of the code page */
+    private final char[] codePage;
+
+    protected CodePageCharset(String canonicalName, String[] aliases, char[] codePage)
+    {
+        super(canonicalName, aliases);
+        this.codePage = codePage;
+        /* Verifies that the table is supported */
+        CharSets.encode(codePage, (char) 0);
+    }
+
+    public boolean contains(Charset cs)
+    {
+        return cs == this;
+    }
+
+    public CharsetDecoder newDecoder()
+    {
+        return new Decoder(this);
+    }
+
+    public CharsetEncoder newEncoder()
+    {
+        return new Encoder(this);
+    }
+
+    private static class Decoder extends CharsetDecoder
+    {
+        private final char[] codePage;
+
+        Decoder(CodePageCharset cs)
+        {
+            super(cs, 1.0f, 1.0f);
+            codePage = cs.codePage;
+        }
+
+        protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out)
+        {
+            int count = Math.min(in.remaining(), out.remaining());
+            if (in.hasArray() && out.hasArray())
+            {
+                byte[] src = in.array();
+                int srcOff = in.arrayOffset() + in.position();
+                char[] dst = out.array();
+                int dstOff = out.arrayOffset() + out.position();
+                int i = 0;
+                try
+                {
+                    for (; i < count; i++)
+                    {
+                        char c = codePage[src[srcOff + i] & 0xFF];
+                        if (c == CharSets.UNKNOWN_CODEPOINT)
+                        {
+                            return CoderResult.unmappableForLength(1);
+                        }
+                        dst[dstOff + i] = c;
+                    }
+                } finally
+                {
+                    in.position(in.position() + i);
+                    out.position(out.position() + i);
+                }
+            }
+            else
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    int mark = in.position();
+                    char c = codePage[in.get() & 0xFF];
+                    if (c == CharSets.UNKNOWN_CODEPOINT)
+                    {
+                        in.position(mark);
+                        return CoderResult.unmappableForLength(1);
+                    }
+                    out.put(c);
+                }
+            }
+            return in.hasRemaining() ? CoderResult.OVERFLOW : CoderResult.UNDERFLOW;
+        }
+    }
+
+    private static class Encoder extends CharsetEncoder
+    {
+        private final char[] codePage;
+
+        Encoder(CodePageCharset cs)
+        {
+            super(cs, 1.0f, 1.0f);
+            codePage = cs.codePage;
+        }
+
+        public boolean canEncode(char c)
+        {
+            return CharSets.encode(codePage, c) != CharSets.UNKNOWN_CODEPOINT;
+        }
+
+        protected CoderResult encodeLoop(CharBuffer in, ByteBuffer out)
+        {
+            int count = Math.min(in.remaining(), out.remaining());
+            for (int i = 0; i < count; i++)
+            {
+                int mark = in.position();
+                char c = in.get();
+                int b = CharSets.encode(codePage, c);
+                if (b == CharSets.UNKNOWN_CODEPOINT)
+                {
+                    in.position(mark);
+                    return CoderResult.unmappableForLength(1);
+                }
+                out.put((byte) b);
+            }
+            return in.hasRemaining() ? CoderResult.OVERFLOW : CoderResult.UNDERFLOW;
+        }
+    }
+}
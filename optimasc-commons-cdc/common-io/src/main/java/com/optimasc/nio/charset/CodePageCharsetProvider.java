@@ -0,0 +1,47 @@
+package com.optimasc.nio.charset;
+
+import java.nio.charset.Charset;
+import java.nio.charset.spi.CharsetProvider;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/** Provides the {@link CodePageCharset} instances to
+ *  {@link java.nio.charset.Charset#forName(String)}. The provider is
+ *  registered in <code>META-INF/services</code>.
+ *
+ * @author Carl Eric Codere
+ */
+public class CodePageCharsetProvider extends CharsetProvider
+{
+    private static final Charset[] CHARSETS =
+    {
+        CodePageCharset.CP437,
+        CodePageCharset.CP850,
+        CodePageCharset.WINDOWS_1252
+    };
+
+    public Iterator charsets()
+    {
+        return Arrays.asList(CHARSETS).iterator();
+    }
+
+    public Charset charsetForName(String charsetName)
+    {
+        for (int i = 0; i < CHARSETS.length; i++)
+        {
+            if (CHARSETS[i].name().equalsIgnoreCase(charsetName))
+            {
+                return CHARSETS[i];
+            }
+            String[] aliases = (String[]) CHARSETS[i].aliases().toArray(new String[0]);
+            for (int j = 0; j < aliases.length; j++)
+            {
+                if (aliases[j].equalsIgnoreCase(charsetName))
+                {
+                    return CHARSETS[i];
+                }
+            }
+        }
+        return null;
+    }
+}
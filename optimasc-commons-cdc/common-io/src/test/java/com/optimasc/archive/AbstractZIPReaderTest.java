@@ -0,0 +1,76 @@
+package com.optimasc.archive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+/** Common fixture of the ZIP reader tests. <code>setUp</code> creates a
+ *  temporary archive of {@link #ENTRY_COUNT} entries, where every third
+ *  entry is stored and the other ones are deflated and followed by a data
+ *  descriptor. The contents of entry <code>dir/entry<i>i</i>.txt</code> are
+ *  kept in <code>contents[i]</code>.
+ */
+public abstract class AbstractZIPReaderTest extends TestCase
+{
+    protected static final int ENTRY_COUNT = 64;
+
+    protected File file;
+    protected byte[][] contents;
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        Random random = new Random(1234);
+        contents = new byte[ENTRY_COUNT][];
+        file = File.createTempFile("zipreader", ".zip");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        for (int i = 0; i < ENTRY_COUNT; i++)
+        {
+            byte[] data = new byte[random.nextInt(20000)];
+            for (int j = 0; j < data.length; j++)
+            {
+                /* Compressible data */
+                data[j] = (byte) ('a' + random.nextInt(4));
+            }
+            contents[i] = data;
+            java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry("dir/entry" + i + ".txt");
+            if ((i % 3) == 0)
+            {
+                java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+                crc.update(data);
+                entry.setMethod(java.util.zip.ZipEntry.STORED);
+                entry.setSize(data.length);
+                entry.setCompressedSize(data.length);
+                entry.setCrc(crc.getValue());
+            }
+            out.putNextEntry(entry);
+            out.write(data);
+            out.closeEntry();
+        }
+        out.setComment("archive comment");
+        out.close();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        file.delete();
+        super.tearDown();
+    }
+
+    protected static byte[] readFully(InputStream in) throws IOException
+    {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] b = new byte[1000];
+        int count;
+        while ((count = in.read(b, 0, b.length)) >= 0)
+        {
+            out.write(b, 0, count);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,69 @@
+package com.optimasc.archive;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Reads the archives of {@link AbstractZIPReaderTest}, whose deflated
+ *  entries use data descriptors, as a stream without mark support. */
+public class InflatingZIPStreamReaderTest extends AbstractZIPReaderTest
+{
+    public void testGetNextEntry() throws IOException
+    {
+        InflatingZIPStreamReader reader = new InflatingZIPStreamReader(new FileInputStream(file), 256);
+        try
+        {
+            ZipEntry entry;
+            int count = 0;
+            while ((entry = reader.getNextEntry()) != null)
+            {
+                assertEquals("dir/entry" + count + ".txt", entry.getName());
+                /* Skip some of the entries */
+                if ((count % 4) != 1)
+                {
+                    InputStream in = reader.getInputStream();
+                    assertTrue(java.util.Arrays.equals(contents[count], readFully(in)));
+                    assertEquals(contents[count].length, entry.getSize());
+                }
+                count++;
+            }
+            assertEquals(ENTRY_COUNT, count);
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    public void testCorruptedDescriptor() throws IOException
+    {
+        ParallelZIPFileReader zip = new ParallelZIPFileReader(file);
+        ZipEntry entry = (ZipEntry) zip.getEntry("dir/entry1.txt");
+        assertEquals(ZipEntry.COMPRESSION_DEFLATED, entry.getMethod());
+        long descriptor = zip.getDataOffset(entry) + entry.getCompressedSize();
+        zip.close();
+
+        /* Change the CRC-32 of the data descriptor */
+        java.io.RandomAccessFile fd = new java.io.RandomAccessFile(file, "rw");
+        fd.seek(descriptor + 4);
+        int c = fd.read();
+        fd.seek(descriptor + 4);
+        fd.write(c ^ 0x01);
+        fd.close();
+
+        InflatingZIPStreamReader reader = new InflatingZIPStreamReader(new FileInputStream(file));
+        try
+        {
+            reader.getNextEntry();
+            readFully(reader.getInputStream());
+            reader.getNextEntry();
+            readFully(reader.getInputStream());
+            fail("Expected a CRC error.");
+        } catch (IOException e)
+        {
+            /* expected */
+        } finally
+        {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.optimasc.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Vector;
+
+public class ParallelZIPFileReaderTest extends AbstractZIPReaderTest
+{
+    public void testGetInputStream() throws IOException
+    {
+        ParallelZIPFileReader reader = new ParallelZIPFileReader(file);
+        try
+        {
+            assertEquals(ENTRY_COUNT, reader.size());
+            assertEquals("archive comment", reader.getComment());
+            /* Random order */
+            for (int i = ENTRY_COUNT - 1; i >= 0; i -= 7)
+            {
+                ZipEntry entry = (ZipEntry) reader.getEntry("dir/entry" + i + ".txt");
+                assertNotNull(entry);
+                InputStream in = reader.getInputStream(entry);
+                assertTrue(java.util.Arrays.equals(contents[i], readFully(in)));
+                in.close();
+            }
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    public void testExtract() throws IOException
+    {
+        ParallelZIPFileReader reader = new ParallelZIPFileReader(file);
+        try
+        {
+            reader.setThreadCount(4);
+            final byte[][] results = new byte[ENTRY_COUNT][];
+            reader.extract(reader.entries(), new ZIPEntryHandler()
+            {
+                public void handleEntry(ZipEntry entry, InputStream in) throws IOException
+                {
+                    String name = entry.getName();
+                    int index = Integer.parseInt(name.substring(9, name.length() - 4));
+                    results[index] = readFully(in);
+                }
+            });
+            for (int i = 0; i < ENTRY_COUNT; i++)
+            {
+                assertTrue(java.util.Arrays.equals(contents[i], results[i]));
+            }
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    public void testCorruptedEntry() throws IOException
+    {
+        ParallelZIPFileReader reader = new ParallelZIPFileReader(file);
+        ZipEntry entry = (ZipEntry) reader.getEntry("dir/entry3.txt");
+        assertEquals(ZipEntry.COMPRESSION_STORED, entry.getMethod());
+        long offset = reader.getDataOffset(entry);
+        reader.close();
+
+        RandomAccessFile fd = new RandomAccessFile(file, "rw");
+        fd.seek(offset + 10);
+        int c = fd.read();
+        fd.seek(offset + 10);
+        fd.write(c ^ 0x01);
+        fd.close();
+
+        reader = new ParallelZIPFileReader(file);
+        try
+        {
+            final Vector entries = new Vector();
+            entries.addElement(reader.getEntry("dir/entry3.txt"));
+            reader.extract(entries, new ZIPEntryHandler()
+            {
+                public void handleEntry(ZipEntry entry, InputStream in) throws IOException
+                {
+                    readFully(in);
+                }
+            });
+            fail("Expected a CRC error.");
+        } catch (IOException e)
+        {
+            /* expected */
+        } finally
+        {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/** Verifies that {@link CachedFileDataInputStream} returns the same
+ *  values as {@link ByteArrayInputStream} on the same data, using
+ *  small pages so that values straddle page boundaries and pages
+ *  are frequently replaced.
+ */
+public class CachedFileDataInputStreamTest extends SeekableFileDataInputStreamTest
+{
+  public void testSameAsByteArrayInputStream() throws IOException
+  {
+    CachedFileDataInputStream cached = new CachedFileDataInputStream(new RandomAccessFile(file, "r"), 16, 4);
+    try
+    {
+      assertTrue(cached.isCached());
+      assertSameAsByteArrayInputStream(cached);
+    } finally
+    {
+      cached.close();
+    }
+  }
+
+  public void testCacheCounters() throws IOException
+  {
+    CachedFileDataInputStream cached = new CachedFileDataInputStream(new RandomAccessFile(file, "r"), 100, 2);
+    try
+    {
+      assertEquals(ByteBufferIO.getIntBig(data, 0), cached.readInt());
+      assertEquals(0, cached.getHitCount());
+      assertEquals(1, cached.getMissCount());
+      cached.seek(50);
+      assertEquals(data[50] & 0xFF, cached.read());
+      assertEquals(1, cached.getHitCount());
+      /* Load a second page, then go back to the first one */
+      cached.seek(150);
+      cached.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+      assertEquals(ByteBufferIO.getShortLittle(data, 150), cached.readShort());
+      cached.seek(10);
+      cached.read();
+      assertEquals(2, cached.getHitCount());
+      assertEquals(2, cached.getMissCount());
+      /* A third page replaces the least recently used one (page 1) */
+      cached.seek(250);
+      cached.read();
+      cached.seek(20);
+      cached.read();
+      assertEquals(3, cached.getHitCount());
+      cached.seek(160);
+      cached.read();
+      assertEquals(4, cached.getMissCount());
+      cached.resetCacheCounters();
+      assertEquals(0, cached.getHitCount());
+      assertEquals(0, cached.getMissCount());
+    } finally
+    {
+      cached.close();
+    }
+  }
+}
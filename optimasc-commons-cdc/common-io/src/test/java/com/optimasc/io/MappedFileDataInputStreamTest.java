@@ -0,0 +1,56 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/** Verifies that {@link MappedFileDataInputStream} returns the same
+ *  values as {@link ByteArrayInputStream} on the same data, using
+ *  small regions so that values straddle region boundaries.
+ */
+public class MappedFileDataInputStreamTest extends SeekableFileDataInputStreamTest
+{
+  public void testSameAsByteArrayInputStream() throws IOException
+  {
+    MappedFileDataInputStream mapped = new MappedFileDataInputStream(new RandomAccessFile(file, "r"), 16);
+    try
+    {
+      assertSameAsByteArrayInputStream(mapped);
+    } finally
+    {
+      mapped.close();
+    }
+  }
+  public void testSingleRegion() throws IOException
+  {
+    MappedFileDataInputStream mapped = new MappedFileDataInputStream(file);
+    try
+    {
+      mapped.seek(10);
+      assertEquals(ByteBufferIO.getIntBig(data, 10), mapped.readInt());
+      mapped.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+      assertEquals(ByteBufferIO.getLongLittle(data, 14), mapped.readLong());
+      mapped.seek(data.length - 1);
+      assertEquals(data[data.length - 1] & 0xFF, mapped.read());
+      assertEquals(-1, mapped.read());
+    } finally
+    {
+      mapped.close();
+    }
+  }
+
+  public void testInvalidRegionSize() throws IOException
+  {
+    RandomAccessFile fd = new RandomAccessFile(file, "r");
+    try
+    {
+      new MappedFileDataInputStream(fd, 1000);
+      fail("Expected IllegalArgumentException.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    } finally
+    {
+      fd.close();
+    }
+  }
+}
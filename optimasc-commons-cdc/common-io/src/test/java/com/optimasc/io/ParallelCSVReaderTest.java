@@ -0,0 +1,212 @@
+package com.optimasc.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+public class ParallelCSVReaderTest extends TestCase
+{
+
+  /** Collects the records, keyed by range and index. */
+  private static class Collector implements CSVRecordHandler
+  {
+    Vector[] ranges = new Vector[0];
+
+    public void handleRecord(int chunk, long index, CSVTokenizer tokenizer) throws IOException
+    {
+      String[] record = new String[tokenizer.getFieldCount()];
+      for (int i = 0; i < record.length; i++)
+      {
+        record[i] = tokenizer.getField(i);
+      }
+      Vector range;
+      synchronized (this)
+      {
+        if (chunk >= ranges.length)
+        {
+          Vector[] newRanges = new Vector[chunk + 1];
+          System.arraycopy(ranges, 0, newRanges, 0, ranges.length);
+          ranges = newRanges;
+        }
+        if (ranges[chunk] == null)
+        {
+          ranges[chunk] = new Vector();
+        }
+        range = ranges[chunk];
+      }
+      assertEquals(index, range.size());
+      range.addElement(record);
+    }
+
+    String toResult()
+    {
+      StringBuffer sb = new StringBuffer();
+      for (int i = 0; i < ranges.length; i++)
+      {
+        if (ranges[i] == null)
+        {
+          continue;
+        }
+        for (int j = 0; j < ranges[i].size(); j++)
+        {
+          appendRecord(sb, (String[]) ranges[i].elementAt(j));
+        }
+      }
+      return sb.toString();
+    }
+  }
+
+  private static void appendRecord(StringBuffer sb, String[] record)
+  {
+    sb.append('[');
+    for (int i = 0; i < record.length; i++)
+    {
+      sb.append('<').append(record[i]).append('>');
+    }
+    sb.append(']');
+  }
+
+  private static String parseSequential(String csv) throws IOException
+  {
+    StringBuffer sb = new StringBuffer();
+    CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(csv), ',');
+    while (tokenizer.nextRecord())
+    {
+      String[] record = new String[tokenizer.getFieldCount()];
+      for (int i = 0; i < record.length; i++)
+      {
+        record[i] = tokenizer.getField(i);
+      }
+      appendRecord(sb, record);
+    }
+    return sb.toString();
+  }
+
+  private static String parseParallel(ParallelCSVReader reader, long[] count) throws IOException
+  {
+    Collector collector = new Collector();
+    count[0] = reader.parse(collector);
+    return collector.toResult();
+  }
+
+  public void testSameResultsAsSequential() throws IOException
+  {
+    Random random = new Random(42);
+    String[] tokens = { "a", "bc", ",", "\"", "\"\"", "\n", "\r\n", "\r", "é" };
+    int[] chunkSizes = { 1, 2, 3, 5, 16, 1024 };
+    for (int n = 0; n < 300; n++)
+    {
+      StringBuffer sb = new StringBuffer();
+      int len = random.nextInt(60);
+      for (int i = 0; i < len; i++)
+      {
+        sb.append(tokens[random.nextInt(tokens.length)]);
+      }
+      String csv = sb.toString();
+      String expected = null;
+      try
+      {
+        expected = parseSequential(csv);
+      } catch (IOException e)
+      {
+        expected = null;
+      }
+      byte[] data = csv.getBytes("UTF-8");
+      for (int k = 0; k < chunkSizes.length; k++)
+      {
+        ParallelCSVReader reader = new ParallelCSVReader(data, 0, data.length, "UTF-8", ',');
+        reader.setChunkSize(chunkSizes[k]);
+        reader.setThreadCount(3);
+        long[] count = new long[1];
+        try
+        {
+          String actual = parseParallel(reader, count);
+          assertEquals("Input: " + csv, expected, actual);
+        } catch (IOException e)
+        {
+          assertNull("Unexpected exception for input: " + csv, expected);
+        }
+      }
+    }
+  }
+
+  public void testOrdinals() throws IOException
+  {
+    byte[] data = "a,b\n\"x\ny\",z\n1,2\n3,4\n".getBytes("UTF-8");
+    ParallelCSVReader reader = new ParallelCSVReader(data, 0, data.length, "UTF-8", ',');
+    reader.setChunkSize(4);
+    long[] count = new long[1];
+    String result = parseParallel(reader, count);
+    assertEquals("[<a><b>][<x\ny><z>][<1><2>][<3><4>]", result);
+    assertEquals(4, count[0]);
+    assertEquals(4, reader.getRangeCount());
+    assertEquals(0, reader.getFirstRecordOrdinal(0));
+    assertEquals(3, reader.getFirstRecordOrdinal(3));
+  }
+
+  public void testFile() throws IOException
+  {
+    File f = File.createTempFile("csv", ".csv");
+    try
+    {
+      StringBuffer sb = new StringBuffer();
+      for (int i = 0; i < 2000; i++)
+      {
+        sb.append(i).append(",\"quoted\r\n").append(i).append("\",\"a\"\"b\"\r\n");
+      }
+      String csv = sb.toString();
+      FileOutputStream out = new FileOutputStream(f);
+      out.write(csv.getBytes("ISO-8859-1"));
+      out.close();
+      ParallelCSVReader reader = new ParallelCSVReader(f, "ISO-8859-1", ',');
+      reader.setChunkSize(1000);
+      reader.setThreadCount(4);
+      long[] count = new long[1];
+      assertEquals(parseSequential(csv), parseParallel(reader, count));
+      assertEquals(2000, count[0]);
+    } finally
+    {
+      f.delete();
+    }
+  }
+
+  public void testEmpty() throws IOException
+  {
+    ParallelCSVReader reader = new ParallelCSVReader(new byte[0], 0, 0, "UTF-8", ',');
+    long[] count = new long[1];
+    assertEquals("", parseParallel(reader, count));
+    assertEquals(0, count[0]);
+  }
+
+  public void testUnclosedQuote() throws IOException
+  {
+    byte[] data = "a,b\n\"x\ny,z\n1,2\n".getBytes("UTF-8");
+    ParallelCSVReader reader = new ParallelCSVReader(data, 0, data.length, "UTF-8", ',');
+    reader.setChunkSize(3);
+    try
+    {
+      reader.parse(new Collector());
+      fail("Expected IOException for unclosed quoted field.");
+    } catch (IOException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testInvalidDelimiter()
+  {
+    try
+    {
+      new ParallelCSVReader(new byte[0], 0, 0, "UTF-8", 'é');
+      fail("Expected IllegalArgumentException for non ASCII delimiter.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+}
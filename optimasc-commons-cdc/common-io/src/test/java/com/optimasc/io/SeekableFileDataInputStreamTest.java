@@ -0,0 +1,116 @@
+package com.optimasc.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/** Base class for the tests of the file based seekable streams. A
+ *  temporary file containing {@link #data} is created for each test, and
+ *  {@link #assertSameAsByteArrayInputStream(SeekableDataInputStream)}
+ *  verifies that a stream on this file returns the same values as a
+ *  {@link ByteArrayInputStream} on the same data.
+ */
+public abstract class SeekableFileDataInputStreamTest extends TestCase
+{
+  protected File file;
+  protected byte[] data;
+
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    data = new byte[1000];
+    new Random(1).nextBytes(data);
+    file = File.createTempFile("stream", ".bin");
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(data);
+    out.close();
+  }
+
+  protected void tearDown() throws Exception
+  {
+    file.delete();
+    super.tearDown();
+  }
+
+  protected static long apply(SeekableDataInputStream is, int op, long arg) throws IOException
+  {
+    try
+    {
+      switch (op)
+      {
+        case 0:
+          is.seek(arg);
+          return is.getStreamPosition();
+        case 1:
+          return is.read();
+        case 2:
+          return is.readShort();
+        case 3:
+          return is.readUnsignedShort();
+        case 4:
+          return is.readInt();
+        case 5:
+          return is.readUnsignedInt();
+        case 6:
+          return is.readLong();
+        case 7:
+        {
+          /* Peeking must not move the stream, even at end of stream. */
+          long pos = is.getStreamPosition();
+          try
+          {
+            return is.peekBits((int) (arg % 33));
+          } catch (EOFException e)
+          {
+            is.seek(pos);
+            return Long.MIN_VALUE;
+          }
+        }
+        case 8:
+          is.setByteOrder((arg & 1) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+          return 0;
+        case 9:
+        {
+          byte[] b = new byte[(int) (arg % 50)];
+          int count = is.read(b, 0, b.length);
+          long sum = count;
+          for (int i = 0; i < b.length; i++)
+          {
+            sum = sum * 31 + b[i];
+          }
+          return sum;
+        }
+        case 10:
+          return Double.doubleToLongBits(is.readDouble());
+        default:
+          return Math.max(0, is.available());
+      }
+    } catch (EOFException e)
+    {
+      return Long.MIN_VALUE;
+    }
+  }
+
+  /** Applies the same random sequence of operations on the stream
+   *  and on a {@link ByteArrayInputStream}, and compares the results.
+   */
+  protected void assertSameAsByteArrayInputStream(SeekableDataInputStream is) throws IOException
+  {
+    ByteArrayInputStream reference = new ByteArrayInputStream(data);
+    assertEquals(data.length, is.length());
+    Random random = new Random(2);
+    for (int i = 0; i < 20000; i++)
+    {
+      int op = random.nextInt(12);
+      long arg = random.nextInt(data.length + 20);
+      long expected = apply(reference, op, arg);
+      long actual = apply(is, op, arg);
+      assertEquals("Operation " + op + " at step " + i, expected, actual);
+      assertEquals("Position after operation " + op + " at step " + i, reference.getStreamPosition(), is.getStreamPosition());
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.optimasc.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+
+import junit.framework.TestCase;
+
+public class CodePageCharsetTest extends TestCase
+{
+  public void testForName()
+  {
+    assertSame(CodePageCharset.CP437, Charset.forName("x-optimasc-IBM437"));
+    assertSame(CodePageCharset.CP850, Charset.forName("x-optimasc-cp850"));
+    assertSame(CodePageCharset.WINDOWS_1252, Charset.forName("X-OPTIMASC-WINDOWS-1252"));
+  }
+
+  public void testSameAsPlatform() throws Exception
+  {
+    String[] platform = {"IBM437", "IBM850", "windows-1252"};
+    Charset[] charsets = {CodePageCharset.CP437, CodePageCharset.CP850, CodePageCharset.WINDOWS_1252};
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < bytes.length; i++)
+    {
+      bytes[i] = (byte) i;
+    }
+    for (int i = 0; i < charsets.length; i++)
+    {
+      if (Charset.isSupported(platform[i]) == false)
+      {
+        continue;
+      }
+      Charset expected = Charset.forName(platform[i]);
+      for (int j = 0; j < bytes.length; j++)
+      {
+        String decoded = charsets[i].decode(ByteBuffer.wrap(bytes, j, 1)).toString();
+        char c = decoded.charAt(0);
+        if (c != '�')
+        {
+          assertEquals(expected.decode(ByteBuffer.wrap(bytes, j, 1)).toString(), decoded);
+          ByteBuffer encoded = charsets[i].encode(decoded);
+          assertEquals(1, encoded.remaining());
+          assertEquals(bytes[j], encoded.get());
+        }
+      }
+    }
+  }
+
+  public void testUnmappable()
+  {
+    try
+    {
+      CodePageCharset.CP437.newEncoder().encode(CharBuffer.wrap("A€"));
+      fail();
+    } catch (CharacterCodingException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      CodePageCharset.WINDOWS_1252.newDecoder().decode(ByteBuffer.wrap(new byte[] {0x41, (byte) 0x81}));
+      fail();
+    } catch (CharacterCodingException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testReplacement() throws Exception
+  {
+    ByteBuffer encoded = CodePageCharset.CP437.newEncoder()
+      .onUnmappableCharacter(CodingErrorAction.REPLACE).encode(CharBuffer.wrap("A€B"));
+    assertEquals(3, encoded.remaining());
+    assertEquals((byte) 'A', encoded.get(0));
+    assertEquals((byte) '?', encoded.get(1));
+    assertEquals((byte) 'B', encoded.get(2));
+  }
+
+  public void testDirectBuffers() throws Exception
+  {
+    String s = "café à l'été";
+    ByteBuffer out = ByteBuffer.allocateDirect(32);
+    CodePageCharset.CP850.newEncoder().encode(CharBuffer.wrap(s), out, true);
+    out.flip();
+    CharBuffer chars = ByteBuffer.allocateDirect(64).asCharBuffer();
+    CodePageCharset.CP850.newDecoder().decode(out, chars, true);
+    chars.flip();
+    assertEquals(s, chars.toString());
+  }
+}
@@ -255,6 +255,9 @@ public class CharacterSet
       VISIBLE_STRING_ID,new OrdinalSelectItem[]{Blocks.BASIC_LATIN});
   
   protected OrdinalSelectItem[] selectingItems;
+  /** The code points of the selecting items, compiled for
+   *  the verification of characters and strings. */
+  protected CodePointSet codePoints;
   
   public CharacterSet(String oid, CharacterSet parent, String name, Integer id, OrdinalSelectItem[] items)
   {
@@ -264,6 +267,7 @@ public class CharacterSet
     this.name = name;
     this.id = id;
     this.selectingItems = items;
+    this.codePoints = CodePointSet.compile(items);
   }
   
   public int hashCode()
@@ -312,7 +316,34 @@ public class CharacterSet
    */
   public boolean isValid(long codePoint)
   {
-    return NumberedSelectItems.validateValue(selectingItems, new Long(codePoint));
+    if ((codePoint < MIN_CODE_POINT) || (codePoint > MAX_CODE_POINT))
+    {
+      return false;
+    }
+    return codePoints.contains((int)codePoint);
+  }
+  
+  /** Returns the index of the first character of a string 
+   *  which cannot be represented in this character set repertoire.
+   *  Surrogate pairs are verified as the supplementary code point
+   *  they represent.
+   * 
+   * @param value [in] The string to verify.
+   * @return The index of the first invalid character, or -1
+   *  if all characters can be represented in the character 
+   *  repertoire.
+   */
+  public int indexOfInvalid(CharSequence value)
+  {
+    return codePoints.indexOfInvalid(value);
+  }
+  
+  /** Returns the compiled set of code points of this
+   *  character set repertoire.
+   */
+  public CodePointSet getCodePoints()
+  {
+    return codePoints;
   }
 
 
@@ -0,0 +1,212 @@
+package com.optimasc.lang;
+
+import com.optimasc.lang.NumberedSelectItems.NumberAnyValue;
+import com.optimasc.lang.NumberedSelectItems.NumberSelectRange;
+import com.optimasc.lang.NumberedSelectItems.NumberSelectValue;
+
+/** Immutable set of Unicode code points, compiled from a list of
+ *  selecting items so that the membership of a code point can be
+ *  verified without allocating or comparing <code>Number</code> objects.
+ *
+ *  <p>The code points of the Basic Multilingual Plane are stored in a
+ *  bitmap, which only extends up to the highest code point of the set
+ *  in this plane. The supplementary code points are stored as a sorted
+ *  array of disjoint ranges, which is searched by dichotomy.</p>
+ *
+ *  <p>The values of the selecting items which are not valid code points
+ *  are ignored.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public final class CodePointSet
+{
+  private static final int MIN_SUPPLEMENTARY_CODE_POINT = 0x10000;
+  private static final int MAX_CODE_POINT = 0x10FFFF;
+
+  /** Bitmap of the code points of the BMP, bit <code>c & 31</code>
+   *  of <code>bmp[c >> 5]</code> is set if <code>c</code> is in the set. */
+  private final int[] bmp;
+  /** Supplementary ranges, as sorted pairs of inclusive lower and
+   *  upper bounds. */
+  private final int[] ranges;
+
+  private CodePointSet(int[] bmp, int[] ranges)
+  {
+    this.bmp = bmp;
+    this.ranges = ranges;
+  }
+
+  /** Compiles a list of selecting items to a set of code points.
+   *
+   * @param items [in] The values and ranges of code points in the set.
+   * @return The set of the code points selected by the items.
+   */
+  public static CodePointSet compile(NumberSelectItem[] items)
+  {
+    // Bounds of the ranges of code points, which are not sorted
+    int[] bounds = new int[items.length * 2];
+    int count = 0;
+    for (int i = 0; i < items.length; i++)
+    {
+      NumberSelectItem item = items[i];
+      long min;
+      long max;
+      if (item instanceof NumberAnyValue)
+      {
+        min = 0;
+        max = MAX_CODE_POINT;
+      } else
+      if (item instanceof NumberSelectValue)
+      {
+        min = ((NumberSelectValue) item).getValue().longValue();
+        max = min;
+      } else
+      {
+        NumberSelectRange range = (NumberSelectRange) item;
+        min = (range.getMinInclusive() == null) ? 0 : range.getMinInclusive().longValue();
+        max = (range.getMaxInclusive() == null) ? MAX_CODE_POINT : range.getMaxInclusive().longValue();
+      }
+      if (min < 0)
+      {
+        min = 0;
+      }
+      if (max > MAX_CODE_POINT)
+      {
+        max = MAX_CODE_POINT;
+      }
+      if (min <= max)
+      {
+        bounds[count++] = (int) min;
+        bounds[count++] = (int) max;
+      }
+    }
+
+    // The BMP bitmap
+    int maxBmp = -1;
+    for (int i = 0; i < count; i += 2)
+    {
+      if (bounds[i] < MIN_SUPPLEMENTARY_CODE_POINT)
+      {
+        maxBmp = Math.max(maxBmp, Math.min(bounds[i + 1], MIN_SUPPLEMENTARY_CODE_POINT - 1));
+      }
+    }
+    int[] bmp = new int[(maxBmp >> 5) + 1];
+    for (int i = 0; i < count; i += 2)
+    {
+      int max = Math.min(bounds[i + 1], MIN_SUPPLEMENTARY_CODE_POINT - 1);
+      for (int c = bounds[i]; c <= max; c++)
+      {
+        bmp[c >> 5] |= 1 << (c & 31);
+      }
+    }
+
+    // The supplementary ranges, sorted by lower bound with insertion sort
+    // since there are few of them, then merged.
+    int[] supplementary = new int[count];
+    int supplementaryCount = 0;
+    for (int i = 0; i < count; i += 2)
+    {
+      if (bounds[i + 1] < MIN_SUPPLEMENTARY_CODE_POINT)
+      {
+        continue;
+      }
+      int min = Math.max(bounds[i], MIN_SUPPLEMENTARY_CODE_POINT);
+      int max = bounds[i + 1];
+      int j = supplementaryCount;
+      while ((j > 0) && (supplementary[j - 2] > min))
+      {
+        supplementary[j] = supplementary[j - 2];
+        supplementary[j + 1] = supplementary[j - 1];
+        j -= 2;
+      }
+      supplementary[j] = min;
+      supplementary[j + 1] = max;
+      supplementaryCount += 2;
+    }
+    int rangeCount = 0;
+    for (int i = 0; i < supplementaryCount; i += 2)
+    {
+      if ((rangeCount > 0) && (supplementary[i] <= supplementary[rangeCount - 1] + 1))
+      {
+        supplementary[rangeCount - 1] = Math.max(supplementary[rangeCount - 1], supplementary[i + 1]);
+      } else
+      {
+        supplementary[rangeCount++] = supplementary[i];
+        supplementary[rangeCount++] = supplementary[i + 1];
+      }
+    }
+    int[] ranges = new int[rangeCount];
+    System.arraycopy(supplementary, 0, ranges, 0, rangeCount);
+    return new CodePointSet(bmp, ranges);
+  }
+
+  /** Verifies if a code point is in this set.
+   *
+   * @param codePoint [in] The code point to verify.
+   * @return <code>true</code> if the code point is in this set,
+   *  otherwise <code>false</code>.
+   */
+  public boolean contains(int codePoint)
+  {
+    if (codePoint < MIN_SUPPLEMENTARY_CODE_POINT)
+    {
+      int index = codePoint >> 5;
+      return (codePoint >= 0) && (index < bmp.length) && ((bmp[index] & (1 << (codePoint & 31))) != 0);
+    }
+    // Search the last range whose lower bound is lower or equal to the code point
+    int low = 0;
+    int high = (ranges.length >> 1) - 1;
+    while (low <= high)
+    {
+      int middle = (low + high) >>> 1;
+      if (ranges[middle << 1] <= codePoint)
+      {
+        low = middle + 1;
+      } else
+      {
+        high = middle - 1;
+      }
+    }
+    return (high >= 0) && (codePoint <= ranges[(high << 1) + 1]);
+  }
+
+  /** Returns the index of the first character of a string which is not
+   *  in this set. A surrogate pair is verified as the supplementary code
+   *  point it represents, while an unpaired surrogate is verified as is.
+   *
+   * @param value [in] The string to verify.
+   * @return The index of the first character, or of the high surrogate of
+   *  the first code point, which is not in this set, or -1 if all the
+   *  code points of the string are in this set.
+   */
+  public int indexOfInvalid(CharSequence value)
+  {
+    int length = value.length();
+    int[] bitmap = bmp;
+    int bitmapLimit = bitmap.length << 5;
+    for (int i = 0; i < length; i++)
+    {
+      int c = value.charAt(i);
+      if ((c >= 0xD800) && (c <= 0xDBFF) && (i + 1 < length))
+      {
+        int c1 = value.charAt(i + 1);
+        if ((c1 >= 0xDC00) && (c1 <= 0xDFFF))
+        {
+          if (contains(MIN_SUPPLEMENTARY_CODE_POINT + ((c - 0xD800) << 10) + (c1 - 0xDC00)) == false)
+          {
+            return i;
+          }
+          i++;
+          continue;
+        }
+      }
+      if ((c >= bitmapLimit) || ((bitmap[c >> 5] & (1 << (c & 31))) == 0))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
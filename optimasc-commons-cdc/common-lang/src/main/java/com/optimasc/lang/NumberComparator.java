@@ -5,6 +5,16 @@ import java.math.BigInteger;
 import java.util.Comparator;
 
 /** Implements a generic number comparator.
+ * 
+ * <p>The integral values (<code>Byte</code>, <code>Short</code>,
+ * <code>Integer</code>, <code>Long</code>) are compared as <code>long</code>
+ * and the floating point values (<code>Float</code>, <code>Double</code>)
+ * as <code>double</code>, an integral value being compared exactly
+ * with a floating point value. The values are only converted to 
+ * <code>BigDecimal</code> when one of them is a <code>BigInteger</code>
+ * or a <code>BigDecimal</code>.</p>
+ * 
+ * <p>The comparison methods always return -1, 0 or 1.</p>
  * 
  * @author Carl Eric Codere
  *
@@ -13,6 +23,21 @@ public class NumberComparator implements Comparator
 {
   public static final NumberComparator INSTANCE = new NumberComparator();
   
+  /** Scale returned by {@link #getScale(Number)} for a <code>Double</code>. */
+  public static final int DOUBLE_SCALE = 15;
+  /** Scale returned by {@link #getScale(Number)} for a <code>Float</code>. */
+  public static final int FLOAT_SCALE = 7;
+  
+  /** The number is compared as a <code>long</code>. */
+  private static final int KIND_LONG = 0;
+  /** The number is compared as a <code>double</code>. */
+  private static final int KIND_DOUBLE = 1;
+  /** The number is compared as a <code>BigDecimal</code>. */
+  private static final int KIND_BIG = 2;
+  
+  /** 2^63 as a double, the first value which is greater than all the long values. */
+  private static final double TWO_POW_63 = 9223372036854775808.0;
+  
   /** Convert a <code>Number</code> to its <code>BigDecimal</code>
    *  equivalent.
    * 
@@ -56,12 +81,12 @@ public class NumberComparator implements Comparator
     if ((n instanceof Double))
     {
         // Hard coded value approximation 
-        return 15;
+        return DOUBLE_SCALE;
     } else
     if ((n instanceof Float))
     {
        // Hard coded value approximation 
-       return 7;
+       return FLOAT_SCALE;
      }
     else
     {
@@ -71,12 +96,143 @@ public class NumberComparator implements Comparator
   
   
   
+  /** Returns how a number is compared, consistent with 
+   *  {@link #toBigDecimal(Number)}. 
+   */
+  private static int getKind(Number n)
+  {
+    if ((n instanceof Long) || (n instanceof Integer) || (n instanceof Short) || (n instanceof Byte))
+    {
+      return KIND_LONG;
+    } else
+    if ((n instanceof Double) || (n instanceof Float))
+    {
+      return KIND_DOUBLE;
+    } else
+    if ((n instanceof BigDecimal) || (n instanceof BigInteger))
+    {
+      return KIND_BIG;
+    }
+    return KIND_LONG;
+  }
+  
+  /** Verifies that a floating point value can be compared, 
+   *  as done by the <code>BigDecimal</code> conversion.
+   * 
+   * @throws NumberFormatException if the value is infinite or NaN.
+   */
+  private static void checkFinite(double value)
+  {
+    if (Double.isNaN(value) || Double.isInfinite(value))
+    {
+      throw new NumberFormatException("Infinite or NaN");
+    }
+  }
+  
+  /** Compares two integral values.
+   * 
+   * @return -1, 0 or 1 as <code>v1</code> is less than, equal to
+   *   or greater than <code>v2</code>. 
+   */
+  public static int compare(long v1, long v2)
+  {
+    return (v1 < v2) ? -1 : ((v1 == v2) ? 0 : 1);
+  }
+  
+  /** Compares two floating point values, positive and negative
+   *  zero are equal.
+   * 
+   * @return -1, 0 or 1 as <code>v1</code> is less than, equal to
+   *   or greater than <code>v2</code>. 
+   * @throws NumberFormatException if one of the values is infinite or NaN.
+   */
+  public static int compare(double v1, double v2)
+  {
+    checkFinite(v1);
+    checkFinite(v2);
+    return (v1 < v2) ? -1 : ((v1 == v2) ? 0 : 1);
+  }
+  
+  /** Compares exactly an integral value with a floating point value,
+   *  without the rounding of the conversion of the <code>long</code>
+   *  to a <code>double</code>.
+   * 
+   * @return -1, 0 or 1 as <code>v1</code> is less than, equal to
+   *   or greater than <code>v2</code>. 
+   * @throws NumberFormatException if <code>v2</code> is infinite or NaN.
+   */
+  public static int compare(long v1, double v2)
+  {
+    checkFinite(v2);
+    if (v2 < -TWO_POW_63)
+    {
+      return 1;
+    }
+    if (v2 >= TWO_POW_63)
+    {
+      return -1;
+    }
+    // The integral part of v2 is a long, and the fraction is exact
+    long integral = (long) v2;
+    if (v1 != integral)
+    {
+      return (v1 < integral) ? -1 : 1;
+    }
+    double fraction = v2 - integral;
+    return (fraction > 0) ? -1 : ((fraction < 0) ? 1 : 0);
+  }
+  
+  /** Compares an integral value with a number.
+   * 
+   * @return -1, 0 or 1 as <code>v1</code> is less than, equal to
+   *   or greater than <code>v2</code>. 
+   */
+  public static int compare(long v1, Number v2)
+  {
+    switch (getKind(v2))
+    {
+      case KIND_LONG:
+        return compare(v1, v2.longValue());
+      case KIND_DOUBLE:
+        return compare(v1, v2.doubleValue());
+      default:
+        return new BigDecimal(v1).compareTo(toBigDecimal(v2));
+    }
+  }
+  
+  /** Compares a floating point value with a number.
+   * 
+   * @return -1, 0 or 1 as <code>v1</code> is less than, equal to
+   *   or greater than <code>v2</code>. 
+   * @throws NumberFormatException if one of the values is infinite or NaN.
+   */
+  public static int compare(double v1, Number v2)
+  {
+    switch (getKind(v2))
+    {
+      case KIND_LONG:
+        return -compare(v2.longValue(), v1);
+      case KIND_DOUBLE:
+        return compare(v1, v2.doubleValue());
+      default:
+        checkFinite(v1);
+        return new BigDecimal(v1).compareTo(toBigDecimal(v2));
+    }
+  }
+  
   public int compare(Object o1, Object o2)
   {
-    BigDecimal number1 = toBigDecimal((Number) o1);
-    BigDecimal number2 = toBigDecimal((Number) o2);
-
-    return ((BigDecimal)number1).compareTo(number2);
+    Number number1 = (Number) o1;
+    Number number2 = (Number) o2;
+    switch (getKind(number1))
+    {
+      case KIND_LONG:
+        return compare(number1.longValue(), number2);
+      case KIND_DOUBLE:
+        return compare(number1.doubleValue(), number2);
+      default:
+        return toBigDecimal(number1).compareTo(toBigDecimal(number2));
+    }
   }
 
 }
@@ -74,7 +74,7 @@ public class NumberedSelectItems
         {
           throw new IllegalArgumentException("Scale of the ranges should be equal");
         }
-        if (NumberComparator.INSTANCE.compare(minInclusive,maxInclusive)==1)
+        if (NumberComparator.INSTANCE.compare(minInclusive,maxInclusive)>0)
         {
           throw new IllegalArgumentException(
               "minInclusive is greater in magnitude than maxInclusive.");
@@ -242,7 +242,7 @@ public class NumberedSelectItems
       
       if (scale != other.scale)
         return false;
-      return NumberComparator.INSTANCE.compare(this, obj)==0;
+      return NumberComparator.INSTANCE.compare(value, other.value)==0;
     }
 
     /** Returns the actual value */ 
@@ -373,6 +373,58 @@ public class NumberedSelectItems
    *   selecting values or ranges, otherwise <code>false</code>.
    */
   public static boolean validateValue(NumberSelectItem selectItems[], Number value)
+  {
+    return validateValue(selectItems, value, 0, 0, NumberComparator.getScale(value));
+  }
+  
+  /** Method that takes as input a list of selecting items and
+   *  verifies that the integral value passed is within the list of
+   *  values and ranges, without allocating a <code>Number</code>.
+   * 
+   * @param selectItem [in] The list of ranges and values.
+   * @param value [in] The value to compare with
+   * @return <code>true</code> if the value is within the 
+   *   selecting values or ranges, otherwise <code>false</code>.
+   */
+  public static boolean validateValue(NumberSelectItem selectItems[], long value)
+  {
+    return validateValue(selectItems, null, value, 0, 0);
+  }
+  
+  /** Method that takes as input a list of selecting items and
+   *  verifies that the floating point value passed is within the list of
+   *  values and ranges, without allocating a <code>Number</code>.
+   * 
+   * @param selectItem [in] The list of ranges and values.
+   * @param value [in] The value to compare with
+   * @return <code>true</code> if the value is within the 
+   *   selecting values or ranges, otherwise <code>false</code>.
+   */
+  public static boolean validateValue(NumberSelectItem selectItems[], double value)
+  {
+    return validateValue(selectItems, null, 0, value, NumberComparator.DOUBLE_SCALE);
+  }
+  
+  /** Compares the value to validate with a bound. The value is
+   *  <code>value</code> if not <code>null</code>, otherwise 
+   *  <code>doubleValue</code> if the scale is not zero, otherwise
+   *  <code>longValue</code>.
+   */
+  private static int compare(Number value, long longValue, double doubleValue, int scale, Number other)
+  {
+    if (value != null)
+    {
+      return NumberComparator.INSTANCE.compare(value, other);
+    }
+    if (scale != 0)
+    {
+      return NumberComparator.compare(doubleValue, other);
+    }
+    return NumberComparator.compare(longValue, other);
+  }
+  
+  private static boolean validateValue(NumberSelectItem selectItems[], Number value, 
+      long longValue, double doubleValue, int scale)
   {
       for (int i=0; i < selectItems.length; i++)
       {
@@ -387,15 +439,12 @@ public class NumberedSelectItems
         {
           NumberSelectValue item = (NumberSelectValue) rawItem;
           /** Value must be of same scale */
-          if (item.getScale()==0)
+          if ((item.getScale()==0) && (scale!=0))
           {
-            if (NumberComparator.getScale(value)!=0)
-            {
-              continue;
-            }
+            continue;
           }
           /* Values are equal */
-          if (NumberComparator.INSTANCE.compare(value, item.getValue())==0)
+          if (compare(value, longValue, doubleValue, scale, item.getValue())==0)
           {
             return true;
           }
@@ -407,21 +456,18 @@ public class NumberedSelectItems
           Number maxInclusive = item.getMaxInclusive();
           
           /** Value must be of same scale */
-          if (item.getScale()==0)
+          if ((item.getScale()==0) && (scale!=0))
           {
-            if (NumberComparator.getScale(value)!=0)
-            {
-              continue;
-            }
+            continue;
           }
           // Compare the values.
           // value < minInclusive
-          if ((minInclusive != null) && (NumberComparator.INSTANCE.compare(value, minInclusive)==-1))
+          if ((minInclusive != null) && (compare(value, longValue, doubleValue, scale, minInclusive)<0))
           {
             continue;
           }
-          // value >= maxInclusive 
-          if ((maxInclusive != null) &&  (NumberComparator.INSTANCE.compare(value,maxInclusive)==1))
+          // value > maxInclusive 
+          if ((maxInclusive != null) && (compare(value, longValue, doubleValue, scale, maxInclusive)>0))
           {
             continue;
           }
@@ -2,6 +2,7 @@ package com.optimasc.util;
 
 import java.text.ParsePosition;
 
+import com.optimasc.lang.CodePointSet;
 import com.optimasc.lang.OrdinalSelectItem;
 import com.optimasc.lang.OrdinalSelectItems.OrdinalAnyValue;
 import com.optimasc.lang.OrdinalSelectItems.OrdinalSelectRange;
@@ -11,21 +12,42 @@ import com.optimasc.util.SetExpressionFormatter.SelectingExpression;
 
 /** Implementation of a basic expression evaluation
  *  based on {@link com.optimasc.util.SetExpressionFormatter.SelectingExpression}.
- *  
+ *
  *  <p>To use this class the pattern compiler should fill up the {@link #patternItems}
- *  arrays containing for each character a <code>SelectingExpression</code>.</p>
+ *  arrays containing for each character a <code>SelectingExpression</code>, where
+ *  a <code>null</code> element represents a wildcard that matches any sequence of
+ *  characters, and then call {@link #compile()}.</p>
+ *
+ *  <p>The pattern items are compiled to a bit-parallel automaton (Shift-And), where
+ *  bit <code>k</code> of the state is set when the first <code>k</code> pattern items
+ *  can match the characters read so far. Each character of the text is then matched
+ *  with a few bitwise operations, whatever the number of wildcards and optional
+ *  items, so that the matching time is linear in the length of the text. The
+ *  character sets of the pattern items are precompiled to a table of bit masks for
+ *  the ASCII characters. Patterns of less than 64 items are matched without
+ *  allocating any object.</p>
  *
  */
 public abstract class BasePattern extends Pattern
 {
   protected SelectingExpression patternItems[];
-  
-  
+
+  /** The compiled pattern items, or <code>null</code> if not compiled yet. */
+  private Automaton automaton;
+
   public BasePattern(String pattern)
   {
     super(pattern);
   }
-  
+
+  /** Verifies if a character matches a pattern item, and advances the
+   *  position if it is consumed. This method is no longer used for
+   *  matching and is kept for the subclasses that call it.
+   *
+   * @deprecated The pattern items are compiled by {@link #compile()}
+   *   and matched by an automaton, this method does not consume the
+   *   items that can match several characters.
+   */
   protected static boolean matchChars(SelectingExpression expr, int value, ParsePosition pos)
   {
     OrdinalSelectItem selectItems[] = expr.get();
@@ -80,79 +102,227 @@ public abstract class BasePattern extends Pattern
     }
     return false;
   }
-  
 
-    /** Attempts to match the entire region against the pattern. 
-     * */ 
-    public boolean matches(CharSequence text)
+  /** Compiles the {@link #patternItems} to the automaton used for
+   *  matching. This method should be called each time the pattern
+   *  items are modified.
+   */
+  protected void compile()
+  {
+    automaton = new Automaton(patternItems);
+  }
+
+  /** Attempts to match the entire region against the pattern.
+   * */
+  public boolean matches(CharSequence text)
+  {
+    Automaton a = automaton;
+    if (a == null)
+    {
+      compile();
+      a = automaton;
+    }
+    if (a.words == 1)
+    {
+      return a.matchesSingleWord(text);
+    }
+    return a.matchesMultipleWords(text);
+  }
+
+  /** Bit-parallel automaton compiled from the pattern items. The states are
+   *  stored in arrays of <code>words</code> long values, the bit <code>k</code>
+   *  being bit <code>k &amp; 63</code> of word <code>k &gt;&gt; 6</code>.
+   */
+  private static final class Automaton
+  {
+    /** Number of characters with a precompiled mask. */
+    private static final int TABLE_SIZE = 128;
+
+    /** Number of long values in a state. */
+    final int words;
+    /** Number of pattern items, which is the bit of the accepting state. */
+    private final int length;
+    /** Masks of the pattern items which match each ASCII character,
+     *  character <code>c</code> at index <code>c * words</code>. */
+    private final long[] table;
+    /** Mask of the pattern items which match any character. */
+    private final long[] anyMask;
+    /** Character set of each pattern item, <code>null</code> if the item
+     *  matches any character. */
+    private final CodePointSet[] sets;
+    /** Mask of the wildcard items, which can match several characters. */
+    private final long[] repeatMask;
+    /** Mask of the optional and wildcard items, which can match no character. */
+    private final long[] skipMask;
+    /** State before reading any character. */
+    private final long[] initial;
+
+    Automaton(SelectingExpression[] items)
     {
-      SelectingExpression patternValues[] = patternItems;
-      ParsePosition pos = new ParsePosition(0);
+      length = items.length;
+      words = (length >> 6) + 1;
+      table = new long[TABLE_SIZE * words];
+      anyMask = new long[words];
+      sets = new CodePointSet[length];
+      repeatMask = new long[words];
+      skipMask = new long[words];
+      for (int k = 0; k < length; k++)
+      {
+        SelectingExpression expr = items[k];
+        int word = k >> 6;
+        long bit = 1L << (k & 63);
+        if (expr == null)
+        {
+          anyMask[word] |= bit;
+          repeatMask[word] |= bit;
+          skipMask[word] |= bit;
+          continue;
+        }
+        if (expr.minCount == 0)
+        {
+          skipMask[word] |= bit;
+        }
+        OrdinalSelectItem[] selectItems = expr.get();
+        boolean any = false;
+        for (int i = 0; i < selectItems.length; i++)
+        {
+          any = any || (selectItems[i] instanceof OrdinalAnyValue);
+        }
+        if (any)
+        {
+          anyMask[word] |= bit;
+          continue;
+        }
+        CodePointSet set = CodePointSet.compile(selectItems);
+        sets[k] = set;
+        for (int c = 0; c < TABLE_SIZE; c++)
+        {
+          if (set.contains(c))
+          {
+            table[c * words + word] |= bit;
+          }
+        }
+      }
+      for (int c = 0; c < TABLE_SIZE; c++)
+      {
+        for (int w = 0; w < words; w++)
+        {
+          table[c * words + w] |= anyMask[w];
+        }
+      }
+      initial = new long[words];
+      initial[0] = 1;
+      closure(initial, new long[words]);
+    }
+
+    /** Adds to a state the items which can be reached by skipping optional
+     *  and wildcard items. A run of skippable items is crossed by adding the
+     *  state bits in the run to the run itself, so that the carry sets the
+     *  bits from the first state bit up to the end of the run.
+     */
+    private void closure(long[] state, long[] sum)
+    {
+      long carry = 0;
+      for (int w = 0; w < words; w++)
+      {
+        long a = skipMask[w];
+        long b = state[w] & a;
+        long s = a + b;
+        long carryOut = ((a & b) | ((a | b) & ~s)) >>> 63;
+        if ((carry != 0) && (s == -1L))
+        {
+          carryOut = 1;
+        }
+        sum[w] = s + carry;
+        carry = carryOut;
+      }
+      for (int w = 0; w < words; w++)
+      {
+        state[w] |= sum[w] ^ skipMask[w];
+      }
+    }
+
+    /** Returns the mask of the items which match a character, for a pattern
+     *  of one word. */
+    private long mask(char c)
+    {
+      if (c < TABLE_SIZE)
+      {
+        return table[c];
+      }
+      long mask = anyMask[0];
+      for (int k = 0; k < length; k++)
+      {
+        if ((sets[k] != null) && sets[k].contains(c))
+        {
+          mask |= 1L << k;
+        }
+      }
+      return mask;
+    }
+
+    boolean matchesSingleWord(CharSequence text)
+    {
+      long skip = skipMask[0];
+      long repeat = repeatMask[0];
+      long state = initial[0];
       int n = text.length();
-      int m = patternValues.length;
-      int i = 0, j = 0, startIndex = -1, match = 0;
-      // The pattern is an empty string!
-      if (patternValues.length==0)
+      for (int i = 0; (i < n) && (state != 0); i++)
       {
-        if (text.length()!=0)
-          return false;
-        return true;
+        long matched = state & mask(text.charAt(i));
+        state = (matched << 1) | (matched & repeat);
+        state |= ((state & skip) + skip) ^ skip;
       }
-      SelectingExpression patterns = (SelectingExpression) patternValues[j];
+      return (state & (1L << length)) != 0;
+    }
 
-      // While not reached end of text
-      while (i < n)  
+    boolean matchesMultipleWords(CharSequence text)
+    {
+      long[] state = new long[words];
+      long[] matched = new long[words];
+      long[] sum = new long[words];
+      System.arraycopy(initial, 0, state, 0, words);
+      int n = text.length();
+      for (int i = 0; i < n; i++)
       {
-          // While not reached end of pattern
-          if (j < m)
-            patterns = (SelectingExpression) patternValues[j];
-          // If the current characters match or the
-          // pattern has a ANY_CHAR, move to the next
-          // characters in both pattern and text.
-          pos = new ParsePosition(i);
-          if ((j < m) && (patterns!=null) && matchChars(patterns, text.charAt(i),pos)
-                  )
+        char c = text.charAt(i);
+        if (c < TABLE_SIZE)
+        {
+          int offset = c * words;
+          for (int w = 0; w < words; w++)
           {
-              i = pos.getIndex();
-              j++;
+            matched[w] = state[w] & table[offset + w];
           }
-          // If the pattern has a WILDCHAR character, mark the
-          // current position in the pattern and the text
-          // as a proper match.
-          else if (j < m && (patterns==null)) {
-              startIndex = j;
-              match = i;
-              j++;
-          }
-          // If we have not found any match and no WILDCHAR
-          // character, backtrack to the last WILDCHAR
-          // character position and try for a different
-          // match.
-          else if (startIndex != -1) 
+        } else
+        {
+          for (int w = 0; w < words; w++)
           {
-              j = startIndex + 1;
-              match++;
-              i = match;
+            matched[w] = state[w] & anyMask[w];
           }
-          // If none of the above cases comply, the
-          // pattern does not match.
-          else 
+          for (int k = 0; k < length; k++)
           {
-              return false;
+            if ((sets[k] != null) && ((state[k >> 6] & (1L << (k & 63))) != 0) && sets[k].contains(c))
+            {
+              matched[k >> 6] |= 1L << (k & 63);
+            }
           }
+        }
+        long shifted = 0;
+        long any = 0;
+        for (int w = 0; w < words; w++)
+        {
+          state[w] = (matched[w] << 1) | shifted | (matched[w] & repeatMask[w]);
+          shifted = matched[w] >>> 63;
+          any |= state[w];
+        }
+        if (any == 0)
+        {
+          return false;
+        }
+        closure(state, sum);
       }
-
-      // Consume any remaining WILDCHAR characters in the given
-      // pattern.
-      while ((j < m) && (patterns==null)) 
-      {
-          patterns = (SelectingExpression) patternValues[j]; 
-          j++;
-      }
-
-      // If we have reached the end of both the pattern
-      // and the text, the pattern matches the text.
-      return j == m;
+      return (state[length >> 6] & (1L << (length & 63))) != 0;
     }
+  }
 
 }
@@ -110,6 +110,7 @@ public class BasicRegexPattern extends BasePattern
         }
         patternItems = (SelectingExpression[]) localPatternItems.toArray(new SelectingExpression[0]);
         calculateLengths(patternItems);
+        compile();
       }
       
       /** Calculate the minimum length and maximum length of 
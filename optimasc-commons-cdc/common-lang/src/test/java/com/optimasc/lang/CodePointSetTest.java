@@ -0,0 +1,77 @@
+package com.optimasc.lang;
+
+import com.optimasc.lang.OrdinalSelectItems.OrdinalAnyValue;
+import com.optimasc.lang.OrdinalSelectItems.OrdinalSelectRange;
+import com.optimasc.lang.OrdinalSelectItems.OrdinalSelectValue;
+
+import junit.framework.TestCase;
+
+public class CodePointSetTest extends TestCase
+{
+  protected static final CharacterSet[] CHARACTER_SETS = {
+    CharacterSet.UNICODE, CharacterSet.BMP, CharacterSet.ISO8BIT, CharacterSet.LATIN1,
+    CharacterSet.ASCII, CharacterSet.PRINTABLE, CharacterSet.GRAPHIC_IRV
+  };
+
+  /** The compiled sets select the same code points as the selecting items. */
+  public void testCharacterSets()
+  {
+    for (int i = 0; i < CHARACTER_SETS.length; i++)
+    {
+      CharacterSet charSet = CHARACTER_SETS[i];
+      for (int c = -1; c <= CharacterSet.MAX_CODE_POINT + 1; c += (c < 0x20000) ? 1 : 0xFF)
+      {
+        boolean expected = NumberedSelectItems.validateValue(charSet.getSelectingItems(), c);
+        assertEquals(charSet + " " + Integer.toHexString(c), expected, charSet.isValid(c));
+      }
+      assertTrue(charSet.isValid(charSet.getMinInclusive()));
+      assertTrue(charSet.isValid(charSet.getMaxInclusive()));
+      assertFalse(charSet.isValid(charSet.getMaxInclusive() + 1));
+      assertFalse(charSet.isValid(0x100000000L));
+    }
+  }
+
+  public void testCompile()
+  {
+    CodePointSet set = CodePointSet.compile(new OrdinalSelectItem[] {
+        new OrdinalSelectRange(0x20000, 0x2FFFF), new OrdinalSelectValue('a'),
+        new OrdinalSelectRange(0x10000, 0x10010), new OrdinalSelectRange(0x10005, 0x1001F),
+        new OrdinalSelectRange(0x110000, 0x120000) });
+    assertTrue(set.contains('a'));
+    assertFalse(set.contains('b'));
+    assertFalse(set.contains(0x0FFFF));
+    assertTrue(set.contains(0x10000));
+    assertTrue(set.contains(0x1001F));
+    assertFalse(set.contains(0x10020));
+    assertTrue(set.contains(0x2ABCD));
+    assertFalse(set.contains(0x30000));
+    assertFalse(set.contains(0x110000));
+    assertFalse(set.contains(-1));
+
+    CodePointSet empty = CodePointSet.compile(new OrdinalSelectItem[0]);
+    assertFalse(empty.contains(0));
+    assertFalse(empty.contains(0x10000));
+    assertEquals(-1, empty.indexOfInvalid(""));
+    assertEquals(0, empty.indexOfInvalid("a"));
+
+    CodePointSet any = CodePointSet.compile(new OrdinalSelectItem[] { new OrdinalAnyValue() });
+    assertTrue(any.contains(0));
+    assertTrue(any.contains(CharacterSet.MAX_CODE_POINT));
+  }
+
+  public void testIndexOfInvalid()
+  {
+    assertEquals(-1, CharacterSet.ASCII.indexOfInvalid("Hello, world\t"));
+    assertEquals(5, CharacterSet.ASCII.indexOfInvalid("Hello\u00E9"));
+    assertEquals(-1, CharacterSet.LATIN1.indexOfInvalid("Hello\u00E9"));
+    assertEquals(0, CharacterSet.LATIN1.indexOfInvalid("\tHello"));
+    assertEquals(3, CharacterSet.PRINTABLE.indexOfInvalid("abc*"));
+    // Surrogate pairs
+    assertEquals(-1, CharacterSet.UNICODE.indexOfInvalid("a\uD83D\uDE00b"));
+    assertEquals(1, CharacterSet.BMP.indexOfInvalid("a\uD83D\uDE00b"));
+    assertEquals(1, CharacterSet.UNICODE.indexOfInvalid("a\uDBFF\uDFFFb"));
+    // Unpaired surrogates are verified as is
+    assertEquals(1, CharacterSet.BMP.indexOfInvalid("a\uD83D"));
+    assertEquals(-1, CharacterSet.UNICODE.indexOfInvalid("a\uDE00\uD83D"));
+  }
+}
@@ -0,0 +1,126 @@
+package com.optimasc.lang;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import com.optimasc.lang.NumberedSelectItems.NumberSelectRange;
+import com.optimasc.lang.NumberedSelectItems.NumberSelectValue;
+
+import junit.framework.TestCase;
+
+public class NumberComparatorTest extends TestCase
+{
+
+  /** Reference comparison, with the values converted to BigDecimal. */
+  protected static int compareBig(Number n1, Number n2)
+  {
+    return NumberComparator.toBigDecimal(n1).compareTo(NumberComparator.toBigDecimal(n2));
+  }
+
+  protected void assertCompare(int expected, Number n1, Number n2)
+  {
+    assertEquals(n1 + " " + n2, expected, NumberComparator.INSTANCE.compare(n1, n2));
+    assertEquals(n2 + " " + n1, -expected, NumberComparator.INSTANCE.compare(n2, n1));
+  }
+
+  public void testCompareSameKind()
+  {
+    assertCompare(0, new Integer(12), new Long(12));
+    assertCompare(-1, new Byte((byte) -1), new Short((short) 3));
+    assertCompare(1, new Long(Long.MAX_VALUE), new Long(Long.MIN_VALUE));
+    assertCompare(0, new Float(0.5f), new Double(0.5));
+    assertCompare(0, new Double(-0.0), new Double(0.0));
+    assertCompare(-1, new Double(-1.5), new Float(2.25f));
+    assertCompare(0, new BigDecimal("1.50"), new BigDecimal("1.5"));
+    assertCompare(1, new BigInteger("18446744073709551616"), new BigDecimal("1.5"));
+  }
+
+  public void testCompareMixed()
+  {
+    assertCompare(0, new Long(3), new Double(3.0));
+    assertCompare(-1, new Long(3), new Double(3.5));
+    assertCompare(1, new Long(-3), new Double(-3.5));
+    assertCompare(1, new Integer(4), new Float(3.75f));
+    // 2^53 + 1 cannot be represented by a double
+    assertCompare(1, new Long(9007199254740993L), new Double(9007199254740992.0));
+    // Long.MAX_VALUE rounds to 2^63 as a double
+    assertCompare(-1, new Long(Long.MAX_VALUE), new Double(9223372036854775808.0));
+    assertCompare(0, new Long(Long.MIN_VALUE), new Double(-9223372036854775808.0));
+    assertCompare(1, new Long(Long.MIN_VALUE), new Double(-1e19));
+    assertCompare(-1, new Long(3), new BigDecimal("3.000001"));
+    assertCompare(1, new Double(0.1), new BigDecimal("0.1"));
+  }
+
+  public void testCompareRandom()
+  {
+    Random random = new Random(21);
+    for (int i = 0; i < 20000; i++)
+    {
+      long l = random.nextLong() >> random.nextInt(64);
+      double d;
+      switch (random.nextInt(3))
+      {
+        case 0:
+          d = l + random.nextInt(3) - 1;
+          break;
+        case 1:
+          d = l + (random.nextDouble() - 0.5);
+          break;
+        default:
+          d = Double.longBitsToDouble(random.nextLong());
+          if (Double.isNaN(d) || Double.isInfinite(d))
+          {
+            d = 0;
+          }
+      }
+      Number n1 = new Long(l);
+      Number n2 = new Double(d);
+      assertCompare(compareBig(n1, n2), n1, n2);
+      assertEquals(compareBig(n1, n2), NumberComparator.compare(l, d));
+      assertEquals(compareBig(n2, n1), NumberComparator.compare(d, n1));
+    }
+  }
+
+  public void testCompareInvalid()
+  {
+    try
+    {
+      NumberComparator.INSTANCE.compare(new Long(1), new Double(Double.NaN));
+      fail();
+    } catch (NumberFormatException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      NumberComparator.INSTANCE.compare(new Double(Double.POSITIVE_INFINITY), new Double(1));
+      fail();
+    } catch (NumberFormatException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testValidateValue()
+  {
+    NumberSelectItem[] items = new NumberSelectItem[] {
+        new NumberSelectRange(new Long(-10), new Long(10)), new NumberSelectValue(new Long(100)) };
+    assertTrue(NumberedSelectItems.validateValue(items, -10));
+    assertTrue(NumberedSelectItems.validateValue(items, 100L));
+    assertFalse(NumberedSelectItems.validateValue(items, 11));
+    assertTrue(NumberedSelectItems.validateValue(items, new Integer(10)));
+    // The integral items do not allow floating point values
+    assertFalse(NumberedSelectItems.validateValue(items, 1.0));
+    assertFalse(NumberedSelectItems.validateValue(items, new Double(1.0)));
+
+    items = new NumberSelectItem[] { new NumberSelectRange(new Double(-0.5), new Double(0.5)) };
+    assertTrue(NumberedSelectItems.validateValue(items, 0.25));
+    assertTrue(NumberedSelectItems.validateValue(items, new Float(0.5f)));
+    assertFalse(NumberedSelectItems.validateValue(items, 0.75));
+    assertTrue(NumberedSelectItems.validateValue(items, 0L));
+    assertFalse(NumberedSelectItems.validateValue(items, 1L));
+
+    assertEquals(new NumberSelectValue(new Long(3)), new NumberSelectValue(new Integer(3)));
+  }
+}
@@ -2,6 +2,7 @@ package com.optimasc.util;
 
 
 import java.text.ParsePosition;
+import java.util.Random;
 
 import com.optimasc.util.SetExpressionFormatter.SelectingExpression;
 
@@ -169,4 +170,72 @@ public class BasicRegexPatternTest extends TestCase
   }
   
   
+  public void testPatternOptionalAndWildcardAtEnd()
+  {
+    assertEquals(true,new BasicRegexPattern("a.*").matches("a"));
+    assertEquals(true,new BasicRegexPattern("ab?").matches("a"));
+    assertEquals(true,new BasicRegexPattern("a?a").matches("a"));
+    assertEquals(false,new BasicRegexPattern(".*a").matches(""));
+    assertEquals(true,new BasicRegexPattern("[a\u00E9]?.*\u00E9").matches("\u00E9\u00E9"));
+  }
+  
+  /** The matching is the same as the one of <code>java.util.regex</code>
+   *  for the supported pattern elements, including for the patterns of
+   *  more than 64 items. The texts are mostly built from the pattern, so
+   *  that some of them match.
+   */
+  public void testPatternRandom()
+  {
+    Random random = new Random(24);
+    String[] elements = {"a", "b", "\u00E9", ".", "[ab]", "[a-c\u00E9]", "\\.", ".*"};
+    // Characters matched by each element
+    String[] matching = {"a", "b", "\u00E9", "abc.\u00E9x", "ab", "abc\u00E9", ".", "abc.\u00E9x"};
+    String alphabet = "abc.\u00E9x";
+    for (int n = 0; n < 3000; n++)
+    {
+      // The long patterns have few optional items and wildcards, since
+      // java.util.regex backtracks on them.
+      boolean longPattern = (n % 10 == 0);
+      int count = longPattern ? 60 + random.nextInt(80) : random.nextInt(8);
+      int[] items = new int[count];
+      boolean[] optional = new boolean[count];
+      StringBuffer buffer = new StringBuffer();
+      for (int i = 0; i < count; i++)
+      {
+        items[i] = random.nextInt(longPattern && (random.nextInt(30) != 0) ? elements.length - 1 : elements.length);
+        optional[i] = (items[i] != elements.length - 1) && (random.nextInt(longPattern ? 20 : 3) == 0);
+        buffer.append(elements[items[i]]);
+        if (optional[i])
+        {
+          buffer.append('?');
+        }
+      }
+      String expression = buffer.toString();
+      BasicRegexPattern pattern = new BasicRegexPattern(expression);
+      java.util.regex.Pattern expected = java.util.regex.Pattern.compile(expression);
+      for (int j = 0; j < 20; j++)
+      {
+        buffer.setLength(0);
+        for (int i = 0; i < count; i++)
+        {
+          int repeat = (items[i] == elements.length - 1) ? random.nextInt(4) : 1;
+          if (optional[i] && random.nextBoolean())
+          {
+            repeat = 0;
+          }
+          for (int k = 0; k < repeat; k++)
+          {
+            buffer.append(matching[items[i]].charAt(random.nextInt(matching[items[i]].length())));
+          }
+        }
+        if ((buffer.length() > 0) && random.nextBoolean())
+        {
+          buffer.setCharAt(random.nextInt(buffer.length()), alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        String text = buffer.toString();
+        assertEquals(expression + " " + text, expected.matcher(text).matches(), pattern.matches(text));
+      }
+    }
+  }
+  
 }
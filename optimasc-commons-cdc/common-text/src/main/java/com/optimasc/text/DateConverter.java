@@ -241,6 +241,8 @@ public class DateConverter extends DataConverter
 {
   protected String pattern[];
   protected PatternInfo patterns[];
+  /** Patterns which can match a value, indexed by the length of the value. */
+  protected PatternInfo dispatch[][];
   protected DateFormatSymbols symbols;
   public static final DateFormatSymbols RFC822Symbols;
 
@@ -352,11 +354,180 @@ public class DateConverter extends DataConverter
     /** Bitmask indicating the fields required. */
     protected int requiredFields;
     protected List elements;
+    /** Minimum length of a value matching this pattern. */
+    protected int minLength;
+    /** Maximum length of a value matching this pattern, or
+     *  {@link Integer#MAX_VALUE} if there is no limit. */
+    protected int maxLength;
+    /** Expected characters at the start of a value, or one of the
+     *  character class values {@link #DIGIT}, {@link #ISO8601_ZONE_START}
+     *  and {@link #RFC822_ZONE_START}. */
+    protected int prefix[];
+
+    /** Value in {@link #prefix} for a position which must be a digit. */
+    protected static final int DIGIT = -1;
+    /** Value in {@link #prefix} for the first character of an ISO 8601 timezone. */
+    protected static final int ISO8601_ZONE_START = -2;
+    /** Value in {@link #prefix} for the first character of an RFC 822 timezone. */
+    protected static final int RFC822_ZONE_START = -3;
     
     public PatternInfo()
     {
       elements = new Vector();
     }
+
+    /**
+     * Computes the length limits and the fixed prefix of the values
+     * which can match the pattern, once all the elements have been
+     * added. The limits are conservative, a value within them can
+     * still fail to match.
+     */
+    protected void compile()
+    {
+      int min = 0;
+      int max = 0;
+      // Prefix positions are known as long as all elements are of fixed length
+      boolean fixed = true;
+      int[] shape = new int[16];
+      int shapeLength = 0;
+      for (int i = 0; i < elements.size(); i++)
+      {
+        Object o = elements.get(i);
+        int elementMin;
+        int elementMax;
+        int digits = 0;
+        // Character class of the first character, for timezones
+        int start = 0;
+        if (o instanceof String)
+        {
+          String literal = (String) o;
+          elementMin = literal.length();
+          elementMax = elementMin;
+          for (int j = 0; fixed && (j < literal.length()); j++)
+          {
+            shape = append(shape, shapeLength++, literal.charAt(j));
+          }
+        }
+        else
+        {
+          FieldComponent field = (FieldComponent) o;
+          switch (field.field)
+          {
+            case TZ_RFC822:
+              // Named timezone or +hhmm
+              elementMin = 2;
+              elementMax = 5;
+              start = RFC822_ZONE_START;
+              break;
+            case TZ_ISO8601_BASIC:
+              // Z, +hh or +hhmm
+              elementMin = 1;
+              elementMax = 5;
+              start = ISO8601_ZONE_START;
+              break;
+            case TZ_ISO8601_EXTENDED:
+              // Z or +hh:mm
+              elementMin = 1;
+              elementMax = 6;
+              start = ISO8601_ZONE_START;
+              break;
+            case Calendar.MONTH:
+              if (field.minDigits > 2)
+              {
+                // Month name
+                elementMin = 0;
+                elementMax = Integer.MAX_VALUE;
+                break;
+              }
+              // Numeric month
+            default:
+              elementMin = field.minDigits;
+              elementMax = field.maxDigits;
+              digits = field.minDigits;
+              if (field.allowNegative)
+              {
+                elementMax++;
+                digits = 0;
+              }
+              break;
+          }
+          for (int j = 0; fixed && (j < digits); j++)
+          {
+            shape = append(shape, shapeLength++, DIGIT);
+          }
+          if (fixed && (start != 0))
+          {
+            shape = append(shape, shapeLength++, start);
+          }
+        }
+        fixed = fixed && (elementMin == elementMax) && (digits == elementMin || o instanceof String);
+        min += elementMin;
+        max = ((max == Integer.MAX_VALUE) || (elementMax == Integer.MAX_VALUE)) ? Integer.MAX_VALUE
+            : max + elementMax;
+      }
+      minLength = min;
+      maxLength = max;
+      prefix = new int[shapeLength];
+      System.arraycopy(shape, 0, prefix, 0, shapeLength);
+    }
+
+    private static int[] append(int[] shape, int index, int value)
+    {
+      if (index == shape.length)
+      {
+        int[] newShape = new int[shape.length * 2];
+        System.arraycopy(shape, 0, newShape, 0, shape.length);
+        shape = newShape;
+      }
+      shape[index] = value;
+      return shape;
+    }
+
+    /**
+     * Returns false if the value cannot match the pattern, because of
+     * its length or of its first characters.
+     */
+    protected boolean accepts(CharSequence value)
+    {
+      int length = value.length();
+      if ((length < minLength) || (length > maxLength))
+      {
+        return false;
+      }
+      int count = Math.min(prefix.length, length);
+      for (int i = 0; i < count; i++)
+      {
+        char c = value.charAt(i);
+        switch (prefix[i])
+        {
+          case DIGIT:
+            if ((c < '0') || (c > '9'))
+            {
+              return false;
+            }
+            break;
+          case ISO8601_ZONE_START:
+            if ((c != 'Z') && (c != '+') && (c != '-') && (c != UNICODE_MINUS))
+            {
+              return false;
+            }
+            break;
+          case RFC822_ZONE_START:
+            if ((c != '+') && (c != '-') && ((c < 'A') || (c > 'Z')))
+            {
+              return false;
+            }
+            break;
+          default:
+            if (c != prefix[i])
+            {
+              return false;
+            }
+            break;
+        }
+      }
+      return true;
+    }
   }
 
   /**
@@ -416,9 +587,51 @@ public class DateConverter extends DataConverter
     {
       tempPatterns[i] = evaluatePattern(stringPatterns[i]);
     }
+    this.dispatch = compilePatterns(tempPatterns);
     this.patterns = tempPatterns;
   }
 
+  /**
+   * Builds the table giving, for each length of value, the patterns which
+   * can match a value of that length, in their original order. The last
+   * entry is used for values longer than all the patterns of bounded length.
+   */
+  protected static PatternInfo[][] compilePatterns(PatternInfo patterns[])
+  {
+    int limit = 0;
+    for (int i = 0; i < patterns.length; i++)
+    {
+      if (patterns[i].maxLength != Integer.MAX_VALUE)
+      {
+        limit = Math.max(limit, patterns[i].maxLength);
+      }
+    }
+    PatternInfo table[][] = new PatternInfo[limit + 2][];
+    Vector candidates = new Vector();
+    for (int length = 0; length < table.length; length++)
+    {
+      candidates.removeAllElements();
+      for (int i = 0; i < patterns.length; i++)
+      {
+        PatternInfo patternInfo = patterns[i];
+        if (((length >= patternInfo.minLength) || (length == limit + 1))
+            && (length <= patternInfo.maxLength))
+        {
+          candidates.addElement(patternInfo);
+        }
+      }
+      table[length] = new PatternInfo[candidates.size()];
+      candidates.copyInto(table[length]);
+    }
+    return table;
+  }
+
+  /** Returns the patterns which can match a value of the given length. */
+  protected PatternInfo[] getCandidates(int length)
+  {
+    return dispatch[Math.min(length, dispatch.length - 1)];
+  }
+
   protected PatternInfo evaluatePattern(String pattern)
   {
     int patternLength = pattern.length();
@@ -563,6 +776,7 @@ public class DateConverter extends DataConverter
           break;
       }
     }
+    patternInfo.compile();
     return patternInfo;
   }
 
@@ -576,8 +790,10 @@ public class DateConverter extends DataConverter
    */
   public void applyPattern(String pattern) throws IllegalArgumentException
   {
-    patterns = new PatternInfo[1];
-    patterns[0] = evaluatePattern(pattern);
+    PatternInfo tempPatterns[] = new PatternInfo[1];
+    tempPatterns[0] = evaluatePattern(pattern);
+    this.dispatch = compilePatterns(tempPatterns);
+    this.patterns = tempPatterns;
   }
 
   /**
@@ -635,6 +851,23 @@ public class DateConverter extends DataConverter
    */
   protected Calendar parseObject(PatternInfo patternInfo, CharSequence value)
       throws ParseException
+  {
+    DateTimeFields fields = new DateTimeFields();
+    parseFields(patternInfo, value, fields);
+    return fields.toCalendar();
+  }
+
+  /** Parses the value according to the specified pattern specification.
+   * 
+   * @param patternInfo [in] The pattern specification to match.
+   * @param value [in] The value to match
+   * @param fields [out] The fields present in the value, the other
+   *   fields are set to {@link DateTimeFields#FIELD_UNDEFINED}.
+   * @throws ParseException If there is any parsing error parsing this
+   *   date-time pattern.
+   */
+  protected void parseFields(PatternInfo patternInfo, CharSequence value,
+      DateTimeFields fields) throws ParseException
   {
     int currentIndex = 0;
     boolean negative = false;
@@ -654,7 +887,7 @@ public class DateConverter extends DataConverter
     int minoffset = -1;
     // Indicates if this TZ indicates a local timezone, only used in IETF RFC 2822
     boolean localTZIndicator = false;
-    TimeZone timeZone = null;
+    int zone = DateTimeFields.FIELD_UNDEFINED;
     ParsePosition pos = new ParsePosition(0);
     String[] dateSymbols;
 
@@ -710,8 +943,7 @@ public class DateConverter extends DataConverter
                 }
                 zoneoffset = -zoneoffset;
               }
-              timeZone = new SimpleTimeZone(zoneoffset, "GMT+"
-                  + Integer.toString(zoneoffset));
+              zone = zoneoffset;
             }
             else
             {
@@ -720,13 +952,13 @@ public class DateConverter extends DataConverter
               {
                 if (Parsers.indexOf(value, RFC822TimeZones[k].getID(), currentIndex) == currentIndex)
                 {
-                  timeZone = RFC822TimeZones[k];
+                  zone = RFC822TimeZones[k].getRawOffset();
                   currentIndex = currentIndex + RFC822TimeZones[k].getID().length();
                   break;
                 }
               }
             }
-            if (timeZone == null)
+            if (zone == DateTimeFields.FIELD_UNDEFINED)
             {
               throw new ParseException("IETF RFC 2822 Timezone is invalid.", zoneIndex);
             }
@@ -769,20 +1001,19 @@ public class DateConverter extends DataConverter
                 }
                 zoneoffset = -zoneoffset;
               }
-              timeZone = new SimpleTimeZone(zoneoffset, "GMT+"
-                  + Integer.toString(zoneoffset));
+              zone = zoneoffset;
             }
             else
             {
               if (Parsers.indexOf(value, GregorianDatetimeCalendar.ZULU.getID(),
                   currentIndex) == currentIndex)
               {
-                timeZone = GregorianDatetimeCalendar.ZULU;
+                zone = 0;
                 currentIndex = currentIndex
                     + GregorianDatetimeCalendar.ZULU.getID().length();
               }
             }
-            if (timeZone == null)
+            if (zone == DateTimeFields.FIELD_UNDEFINED)
             {
               throw new ParseException("ISO 8601 compact timezone is invalid.", zoneIndex);
             }
@@ -835,20 +1066,19 @@ public class DateConverter extends DataConverter
                 }
                 zoneoffset = -zoneoffset;
               }
-              timeZone = new SimpleTimeZone(zoneoffset, "GMT+"
-                  + Integer.toString(zoneoffset));
+              zone = zoneoffset;
             }
             else
             {
               if (Parsers.indexOf(value, GregorianDatetimeCalendar.ZULU.getID(),
                   currentIndex) == currentIndex)
               {
-                timeZone = GregorianDatetimeCalendar.ZULU;
+                zone = 0;
                 currentIndex = currentIndex
                     + GregorianDatetimeCalendar.ZULU.getID().length();
               }
             }
-            if (timeZone == null)
+            if (zone == DateTimeFields.FIELD_UNDEFINED)
             {
               throw new ParseException("ISO 8601 compact timezone is invalid.", zoneIndex);
             }
@@ -960,9 +1190,8 @@ public class DateConverter extends DataConverter
             // Get fractional of seconds
             scratchInt = Parsers.parsePositiveNumber(value, pos, field.minDigits,
                 field.maxDigits);
-            String intStr = Integer.toString(scratchInt);
-            // Get the fractional value
-            int divisor = power(intStr.length());
+            // Get the fractional value, leading zeros are significant
+            int divisor = power(pos.getIndex() - currentIndex);
             double dval = ((double) scratchInt / (double) divisor) * 1000.0;
             millisecond = (int) Math.round(dval);
             currentIndex = pos.getIndex();
@@ -1014,42 +1243,73 @@ public class DateConverter extends DataConverter
         throw new IllegalArgumentException(
             "Millisecond value is required and is missing.");
     }
-    if (timeZone == null)
+    if (zone == DateTimeFields.FIELD_UNDEFINED)
     {
       if (((requiredFields & FLAG_TIMEZONE_REQUIRED) == FLAG_TIMEZONE_REQUIRED)
           && (localTZIndicator == false))
         throw new IllegalArgumentException("Timezone value is required and is missing.");
     }
 
-    // Convert parsed values to GregorianDatetimeCalendar conventions:
-    // -1 (not parsed) -> FIELD_UNDEFINED, month from 1-based to 0-based
-    int calMonth = (month == -1) ? GregorianDatetimeCalendar.FIELD_UNDEFINED : month - 1;
-    int calDay = (day == -1) ? GregorianDatetimeCalendar.FIELD_UNDEFINED : day;
-    int calHour = (hour == -1) ? GregorianDatetimeCalendar.FIELD_UNDEFINED : hour;
-    int calMinute = (minute == -1) ? GregorianDatetimeCalendar.FIELD_UNDEFINED : minute;
-    int calSecond = (second == -1) ? GregorianDatetimeCalendar.FIELD_UNDEFINED : second;
-    int calMillis = (millisecond == -1) ? GregorianDatetimeCalendar.FIELD_UNDEFINED : millisecond;
-    int calTz = (timeZone == null) ? GregorianDatetimeCalendar.FIELD_UNDEFINED
-        : timeZone.getRawOffset();
-
-    GregorianDatetimeCalendar calendar;
-    if (year == Long.MIN_VALUE)
+    fields.clear();
+    if (year != Long.MIN_VALUE)
     {
-      calendar = new GregorianDatetimeCalendar(calHour, calMinute, calSecond, calMillis,
-          calTz);
+      fields.year = (int) year;
     }
-    else
+    if (month != -1)
     {
-      calendar = new GregorianDatetimeCalendar((int) year, calMonth, calDay, calHour,
-          calMinute, calSecond, calMillis, calTz);
+      fields.month = month;
     }
-    return calendar;
-
+    if (day != -1)
+    {
+      fields.day = day;
+    }
+    if (hour != -1)
+    {
+      fields.hour = hour;
+    }
+    if (minute != -1)
+    {
+      fields.minute = minute;
+    }
+    if (second != -1)
+    {
+      fields.second = second;
+    }
+    if (millisecond != -1)
+    {
+      fields.millisecond = millisecond;
+    }
+    fields.zoneOffset = zone;
   }
 
   public Object parseObject(CharSequence value) throws ParseException
   {
     ParseException error = null;
+    // Only try the patterns which can match the value, so that in
+    // general a single pattern is tried.
+    PatternInfo candidates[] = getCandidates(value.length());
+    for (int index = 0; index < candidates.length; index++)
+    {
+      PatternInfo patternInfo = candidates[index];
+      if (patternInfo.accepts(value))
+      {
+        try
+        {
+          return parseObject(patternInfo, value);
+        } catch (ParseException e)
+        {
+          error = e;
+        } catch (IndexOutOfBoundsException e)
+        {
+          // The value is shorter than the pattern
+          error = new ParseException("Unexpected end of value.", value.length());
+        }
+      }
+    }
+    if (error != null)
+    {
+      throw error;
+    }
     // Search for allowed pattern - and catch all ParseExceptions
     // at end if there is no match on any different patterns, then cause an error.
     for (int index = 0; index < patterns.length; index++)
@@ -1061,28 +1321,74 @@ public class DateConverter extends DataConverter
       } catch (ParseException e)
       {
            error = e;        
+      } catch (IndexOutOfBoundsException e)
+      {
+        // The value is shorter than the pattern
+        error = new ParseException("Unexpected end of value.", value.length());
       }
     }
     throw error;
   }
 
+  /**
+   * Parses a value into a reusable set of fields, without creating a
+   * calendar.
+   * 
+   * @param value
+   *          [in] The value to parse.
+   * @param fields
+   *          [out] The fields present in the value, the other fields are
+   *          set to {@link DateTimeFields#FIELD_UNDEFINED}.
+   * @return true if the value matches one of the patterns, otherwise
+   *         false, in which case {@link DateTimeFields#getErrorIndex()}
+   *         gives the position of the error.
+   */
+  public boolean parse(CharSequence value, DateTimeFields fields)
+  {
+    int errorIndex = 0;
+    PatternInfo candidates[] = getCandidates(value.length());
+    for (int index = 0; index < candidates.length; index++)
+    {
+      if (!candidates[index].accepts(value))
+      {
+        continue;
+      }
+      try
+      {
+        parseFields(candidates[index], value, fields);
+        return true;
+      } catch (ParseException e)
+      {
+        errorIndex = e.getErrorOffset();
+      } catch (IndexOutOfBoundsException e)
+      {
+        // The value is shorter than the pattern
+        errorIndex = value.length();
+      } catch (IllegalArgumentException e)
+      {
+        // A numeric field is too large or a required field is missing
+        errorIndex = 0;
+      }
+    }
+    fields.clear();
+    fields.errorIndex = errorIndex;
+    return false;
+  }
+
 
 
   public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos)
   {
-    long year = Long.MIN_VALUE;
-    int month = -1;
-    int day = -1;
-    int hour = -1;
-    int minute = -1;
-    int second = -1;
-    int millisecond = -1;
+    int undefined = DateTimeFields.FIELD_UNDEFINED;
+    int year = undefined;
+    int month = undefined;
+    int day = undefined;
+    int hour = undefined;
+    int minute = undefined;
+    int second = undefined;
+    int millisecond = undefined;
     // Timezone in milliseconds
-    int zoneoffset = -1;
-    int houroffset = -1;
-    int minoffset = -1;
-    String[] dateSymbols;
-    PrintfFormat fmt;
+    int zoneoffset = undefined;
 
     // Set the values accordingly
     if (obj instanceof GregorianDatetimeCalendar)
@@ -1142,6 +1448,61 @@ public class DateConverter extends DataConverter
       millisecond = cal.get(Calendar.MILLISECOND);
       zoneoffset = cal.get(Calendar.ZONE_OFFSET);
     }
+    return format(year, month, day, hour, minute, second, millisecond, zoneoffset, toAppendTo);
+  }
+
+  /**
+   * Formats a set of fields according to the first pattern, without
+   * going through a calendar.
+   * 
+   * @param fields
+   *          [in] The fields to format.
+   * @param toAppendTo
+   *          [in,out] The buffer where the result is appended.
+   * @return <code>toAppendTo</code>
+   * @throws IllegalArgumentException
+   *           If a field used in the pattern is not defined.
+   */
+  public StringBuffer format(DateTimeFields fields, StringBuffer toAppendTo)
+  {
+    return format(fields.year, fields.month, fields.day, fields.hour, fields.minute,
+        fields.second, fields.millisecond, fields.zoneOffset, toAppendTo);
+  }
+
+  /**
+   * Appends a positive or negative number padded with zeros on the left,
+   * the sign being included in the minimum width like for the
+   * <code>%0nd</code> format of {@link PrintfFormat}.
+   */
+  private static void appendNumber(StringBuffer toAppendTo, int value, int minDigits)
+  {
+    long magnitude = value;
+    if (value < 0)
+    {
+      toAppendTo.append('-');
+      magnitude = -magnitude;
+      minDigits--;
+    }
+    int digits = 1;
+    for (long limit = 10; magnitude >= limit; limit *= 10)
+    {
+      digits++;
+    }
+    for (; digits < minDigits; digits++)
+    {
+      toAppendTo.append('0');
+    }
+    toAppendTo.append(magnitude);
+  }
+
+  private StringBuffer format(int year, int month, int day, int hour, int minute,
+      int second, int millisecond, int zoneoffset, StringBuffer toAppendTo)
+  {
+    int undefined = DateTimeFields.FIELD_UNDEFINED;
+    int houroffset;
+    int minoffset;
+    String[] dateSymbols;
+
     List patternList = patterns[0].elements;
     for (int i = 0; i < patternList.size(); i++)
     {
@@ -1156,7 +1517,7 @@ public class DateConverter extends DataConverter
         switch (field.field)
         {
           case TZ_RFC822:
-            if (zoneoffset == -1)
+            if (zoneoffset == undefined)
             {
               throw new IllegalArgumentException(
                   "The timezone is not set, while it is included in the output pattern.");
@@ -1176,12 +1537,12 @@ public class DateConverter extends DataConverter
             {
               toAppendTo.append('+');
             }
-            toAppendTo.append(INTEGER_2DIGIT.sprintf(houroffset));
-            toAppendTo.append(INTEGER_2DIGIT.sprintf(minoffset));
+            appendNumber(toAppendTo, houroffset, 2);
+            appendNumber(toAppendTo, minoffset, 2);
             break;
           // According to ISO 8601:2004: +hhmm  | -hhmm | +hh | -hh | Z   
           case TZ_ISO8601_BASIC:
-            if (zoneoffset == -1)
+            if (zoneoffset == undefined)
             {
               throw new IllegalArgumentException(
                   "The timezone is not set, while it is included in the output pattern.");
@@ -1201,12 +1562,12 @@ public class DateConverter extends DataConverter
             {
               toAppendTo.append('+');
             }
-            toAppendTo.append(INTEGER_2DIGIT.sprintf(houroffset));
-            toAppendTo.append(INTEGER_2DIGIT.sprintf(minoffset));
+            appendNumber(toAppendTo, houroffset, 2);
+            appendNumber(toAppendTo, minoffset, 2);
             break;
           // According to ISO 8601:2004: +hh:mm  | -hh:mm | Z   
           case TZ_ISO8601_EXTENDED:
-            if (zoneoffset == -1)
+            if (zoneoffset == undefined)
             {
               throw new IllegalArgumentException(
                   "The timezone is not set, while it is included in the output pattern.");
@@ -1226,11 +1587,16 @@ public class DateConverter extends DataConverter
             {
               toAppendTo.append('+');
             }
-            toAppendTo.append(INTEGER_2DIGIT.sprintf(houroffset));
+            appendNumber(toAppendTo, houroffset, 2);
             toAppendTo.append(':');
-            toAppendTo.append(INTEGER_2DIGIT.sprintf(minoffset));
+            appendNumber(toAppendTo, minoffset, 2);
             break;
           case Calendar.YEAR:
+            if (year == undefined)
+            {
+              throw new IllegalArgumentException(
+                  "Calendar year value is not valid, and trying to format it.");
+            }
             if ((field.allowNegative == false) && (year < 0))
             {
               throw new IllegalArgumentException(
@@ -1252,19 +1618,18 @@ public class DateConverter extends DataConverter
               // is encountered, the year is interpreted by adding 1900.      
               if ((year >= 2000) && (year <= 2049))
               {
-                toAppendTo.append(INTEGER_2DIGIT.sprintf(year - 2000));
+                appendNumber(toAppendTo, year - 2000, 2);
               }
               else
               {
-                toAppendTo.append(INTEGER_2DIGIT.sprintf(year - 1900));
+                appendNumber(toAppendTo, year - 1900, 2);
               }
               break;
             }
-            fmt = new PrintfFormat("%0" + Integer.toString(field.maxDigits) + "d");
-            toAppendTo.append(fmt.sprintf(year));
+            appendNumber(toAppendTo, year, field.maxDigits);
             break;
           case Calendar.MONTH:
-            if (month == -1)
+            if (month == undefined)
             {
               throw new IllegalArgumentException(
                   "Calendar month value is not valid, and trying to format it.");
@@ -1272,8 +1637,7 @@ public class DateConverter extends DataConverter
             // Numeric value
             if (field.minDigits <= 2)
             {
-              fmt = new PrintfFormat("%0" + Integer.toString(field.minDigits) + "d");
-              toAppendTo.append(fmt.sprintf(month));
+              appendNumber(toAppendTo, month, field.minDigits);
             }
             else
             // Short form  
@@ -1294,52 +1658,45 @@ public class DateConverter extends DataConverter
             break;
           case Calendar.DAY_OF_MONTH:
             // Numeric value
-            if (day == -1)
+            if (day == undefined)
             {
               throw new IllegalArgumentException(
                   "Calendar day value is not valid, and trying to format it.");
             }
-            fmt = new PrintfFormat("%0" + Integer.toString(field.minDigits) + "d");
-            toAppendTo.append(fmt.sprintf(day));
+            appendNumber(toAppendTo, day, field.minDigits);
             break;
           case Calendar.HOUR_OF_DAY:
-            if (hour == -1)
+            if (hour == undefined)
             {
               throw new IllegalArgumentException(
                   "Calendar hour value is not valid, and trying to format it.");
             }
-            fmt = new PrintfFormat("%0" + Integer.toString(field.minDigits) + "d");
-            toAppendTo.append(fmt.sprintf(hour));
+            appendNumber(toAppendTo, hour, field.minDigits);
             break;
           case Calendar.MINUTE:
-            if (minute == -1)
+            if (minute == undefined)
             {
               throw new IllegalArgumentException(
                   "Calendar minute value is not valid, and trying to format it.");
             }
-            fmt = new PrintfFormat("%0" + Integer.toString(field.minDigits) + "d");
-            toAppendTo.append(fmt.sprintf(minute));
+            appendNumber(toAppendTo, minute, field.minDigits);
             break;
           case Calendar.SECOND:
             // Numeric value
-            if (second == -1)
+            if (second == undefined)
             {
               throw new IllegalArgumentException(
                   "Calendar second value is not valid, and trying to format it.");
             }
-            fmt = new PrintfFormat("%0" + Integer.toString(field.minDigits) + "d");
-            toAppendTo.append(fmt.sprintf(second));
+            appendNumber(toAppendTo, second, field.minDigits);
             break;
           case Calendar.MILLISECOND:
-            float fractional = (float) (millisecond / 1000.0);
-            // Adjust for 1 digit only, no rollever allowed
-            if ((field.minDigits == 1) && (fractional > 0.95d))
+            if (millisecond == undefined)
             {
-              fractional = (float) 0.9;
+              throw new IllegalArgumentException(
+                  "Calendar millisecond value is not valid, and trying to format it.");
             }
-            fmt = new PrintfFormat("%." + Integer.toString(field.minDigits) + "f");
-            String output = fmt.sprintf(fractional).substring(2);
-            toAppendTo.append(output);
+            appendFraction(toAppendTo, millisecond, field.minDigits);
             break;
         }
       }
@@ -1347,4 +1704,29 @@ public class DateConverter extends DataConverter
     return toAppendTo;
   }
 
+  /**
+   * Appends the fractional part of the second with the given number of
+   * digits. The value is rounded, but never up to the next second.
+   */
+  private static void appendFraction(StringBuffer toAppendTo, int millisecond, int digits)
+  {
+    // Only 3 digits are significant, the others are always zero
+    int significant = (digits < 3) ? digits : 3;
+    int scale = 1;
+    for (int i = 0; i < significant; i++)
+    {
+      scale *= 10;
+    }
+    int value = (millisecond * scale + 500) / 1000;
+    if (value >= scale)
+    {
+      value = scale - 1;
+    }
+    appendNumber(toAppendTo, value, significant);
+    for (int i = significant; i < digits; i++)
+    {
+      toAppendTo.append('0');
+    }
+  }
+
 }
@@ -0,0 +1,167 @@
+package com.optimasc.text;
+
+import com.optimasc.lang.GregorianDatetimeCalendar;
+
+/**
+ * Reusable holder for the fields of a parsed or to be formatted date-time
+ * value. Unlike a {@link java.util.Calendar} it only stores the values of
+ * the fields, without any time computation, which makes it cheap to fill
+ * and to reuse from one value to the next.
+ *
+ * <p>Fields which are not present have the value {@link #FIELD_UNDEFINED}.
+ * Months are numbered from 1 to 12, as they appear in the textual
+ * representation, and the timezone offset is in milliseconds.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @author Carl Eric Codere
+ */
+public final class DateTimeFields
+{
+  /** Value of a field which is not present. */
+  public static final int FIELD_UNDEFINED = GregorianDatetimeCalendar.FIELD_UNDEFINED;
+
+  int year;
+  int month;
+  int day;
+  int hour;
+  int minute;
+  int second;
+  int millisecond;
+  int zoneOffset;
+  int errorIndex;
+
+  public DateTimeFields()
+  {
+    clear();
+  }
+
+  /** Sets all the fields to {@link #FIELD_UNDEFINED}. */
+  public void clear()
+  {
+    year = FIELD_UNDEFINED;
+    month = FIELD_UNDEFINED;
+    day = FIELD_UNDEFINED;
+    hour = FIELD_UNDEFINED;
+    minute = FIELD_UNDEFINED;
+    second = FIELD_UNDEFINED;
+    millisecond = FIELD_UNDEFINED;
+    zoneOffset = FIELD_UNDEFINED;
+    errorIndex = -1;
+  }
+
+  /** Astronomical year, where 0 is 1 BCE. */
+  public int getYear()
+  {
+    return year;
+  }
+
+  public void setYear(int year)
+  {
+    this.year = year;
+  }
+
+  /** Month, from 1 to 12. */
+  public int getMonth()
+  {
+    return month;
+  }
+
+  public void setMonth(int month)
+  {
+    this.month = month;
+  }
+
+  public int getDay()
+  {
+    return day;
+  }
+
+  public void setDay(int day)
+  {
+    this.day = day;
+  }
+
+  public int getHour()
+  {
+    return hour;
+  }
+
+  public void setHour(int hour)
+  {
+    this.hour = hour;
+  }
+
+  public int getMinute()
+  {
+    return minute;
+  }
+
+  public void setMinute(int minute)
+  {
+    this.minute = minute;
+  }
+
+  public int getSecond()
+  {
+    return second;
+  }
+
+  public void setSecond(int second)
+  {
+    this.second = second;
+  }
+
+  public int getMillisecond()
+  {
+    return millisecond;
+  }
+
+  public void setMillisecond(int millisecond)
+  {
+    this.millisecond = millisecond;
+  }
+
+  /** Timezone offset from UTC in milliseconds. */
+  public int getZoneOffset()
+  {
+    return zoneOffset;
+  }
+
+  public void setZoneOffset(int zoneOffset)
+  {
+    this.zoneOffset = zoneOffset;
+  }
+
+  /** Returns the index in the input where parsing failed, or -1 if
+   *  the last parsing operation succeeded. */
+  public int getErrorIndex()
+  {
+    return errorIndex;
+  }
+
+  /**
+   * Creates a calendar from the fields, where only the defined fields
+   * are marked as set by the user.
+   *
+   * @throws IllegalArgumentException if a field is outside of its
+   *   allowed range.
+   */
+  public GregorianDatetimeCalendar toCalendar()
+  {
+    int calMonth = (month == FIELD_UNDEFINED) ? FIELD_UNDEFINED : month - 1;
+    if (year == FIELD_UNDEFINED)
+    {
+      return new GregorianDatetimeCalendar(hour, minute, second, millisecond, zoneOffset);
+    }
+    return new GregorianDatetimeCalendar(year, calMonth, day, hour, minute, second, millisecond,
+        zoneOffset);
+  }
+
+  public String toString()
+  {
+    return "DateTimeFields [year=" + year + ", month=" + month + ", day=" + day + ", hour="
+        + hour + ", minute=" + minute + ", second=" + second + ", millisecond=" + millisecond
+        + ", zoneOffset=" + zoneOffset + "]";
+  }
+}
@@ -0,0 +1,409 @@
+package com.optimasc.text;
+
+/**
+ * Single pass parsers for the ISO 8601 based date-time formats of
+ * {@link StandardDateFormatters}.
+ *
+ * <p>Each parser reads the input once, from left to right, deciding which
+ * of the optional parts are present from the next character instead of
+ * trying each allowed pattern in turn. The result is written in a
+ * {@link DateTimeFields} instance, and errors are reported through the
+ * return value and {@link DateTimeFields#getErrorIndex()}, so that no
+ * object is allocated and no exception is thrown.</p>
+ *
+ * <p>The parsers are stricter than the generic pattern parser of
+ * {@link DateConverter}, since field values are also checked to be within
+ * their allowed range. The converters fall back to the generic parser in
+ * <code>parseObject</code> when these parsers fail, so that the same
+ * exception as before is reported.</p>
+ *
+ * @author Carl Eric Codere
+ */
+final class ISO8601Parser
+{
+  private ISO8601Parser()
+  {
+  }
+
+  /**
+   * Parses a W3C NOTE-datetime value: <code>YYYY</code>,
+   * <code>YYYY-MM</code>, <code>YYYY-MM-DD</code> or
+   * <code>YYYY-MM-DDThh:mm[:ss[.s+]]TZD</code>.
+   */
+  static boolean parseW3C(CharSequence value, DateTimeFields fields)
+  {
+    fields.clear();
+    int length = value.length();
+    if ((fields.year = digits(value, 0, 4)) < 0)
+    {
+      return fail(fields, 0);
+    }
+    if (length == 4)
+    {
+      return true;
+    }
+    if ((value.charAt(4) != '-') || ((fields.month = digits(value, 5, 2)) < 0))
+    {
+      return fail(fields, 4);
+    }
+    if (length == 7)
+    {
+      return validate(fields);
+    }
+    if ((value.charAt(7) != '-') || ((fields.day = digits(value, 8, 2)) < 0))
+    {
+      return fail(fields, 7);
+    }
+    if (length == 10)
+    {
+      return validate(fields);
+    }
+    if ((value.charAt(10) != 'T') || ((fields.hour = digits(value, 11, 2)) < 0))
+    {
+      return fail(fields, 10);
+    }
+    if ((length < 14) || (value.charAt(13) != ':') || ((fields.minute = digits(value, 14, 2)) < 0))
+    {
+      return fail(fields, 13);
+    }
+    int index = 16;
+    if ((index < length) && (value.charAt(index) == ':'))
+    {
+      if ((fields.second = digits(value, index + 1, 2)) < 0)
+      {
+        return fail(fields, index);
+      }
+      index += 3;
+      if ((index < length) && (value.charAt(index) == '.'))
+      {
+        index = parseFraction(value, index + 1, 1, fields);
+        if (index < 0)
+        {
+          return false;
+        }
+      }
+    }
+    index = parseExtendedZone(value, index, fields);
+    return (index >= 0) && end(value, index, fields);
+  }
+
+  /** Parses an ISO 8601 extended calendar date: <code>YYYY-MM-DD</code>. */
+  static boolean parseDate(CharSequence value, DateTimeFields fields)
+  {
+    fields.clear();
+    if ((fields.year = digits(value, 0, 4)) < 0)
+    {
+      return fail(fields, 0);
+    }
+    if ((value.length() < 5) || (value.charAt(4) != '-') || ((fields.month = digits(value, 5, 2)) < 0))
+    {
+      return fail(fields, 4);
+    }
+    if ((value.length() < 8) || (value.charAt(7) != '-') || ((fields.day = digits(value, 8, 2)) < 0))
+    {
+      return fail(fields, 7);
+    }
+    return end(value, 10, fields);
+  }
+
+  /**
+   * Parses an ISO 8601 extended time of day, optionally preceded by
+   * <code>T</code>: <code>hh:mm:ss[.s+][TZD]</code>.
+   */
+  static boolean parseTime(CharSequence value, DateTimeFields fields)
+  {
+    fields.clear();
+    int length = value.length();
+    int index = 0;
+    if ((length > 0) && (value.charAt(0) == 'T'))
+    {
+      index++;
+    }
+    if ((fields.hour = digits(value, index, 2)) < 0)
+    {
+      return fail(fields, index);
+    }
+    index += 2;
+    if ((index >= length) || (value.charAt(index) != ':')
+        || ((fields.minute = digits(value, index + 1, 2)) < 0))
+    {
+      return fail(fields, index);
+    }
+    index += 3;
+    if ((index >= length) || (value.charAt(index) != ':')
+        || ((fields.second = digits(value, index + 1, 2)) < 0))
+    {
+      return fail(fields, index);
+    }
+    index += 3;
+    if ((index < length) && (value.charAt(index) == '.'))
+    {
+      index = parseFraction(value, index + 1, 1, fields);
+      if (index < 0)
+      {
+        return false;
+      }
+    }
+    if (index < length)
+    {
+      index = parseExtendedZone(value, index, fields);
+    }
+    return (index >= 0) && end(value, index, fields);
+  }
+
+  /**
+   * Parses an ASN.1 GeneralizedTime value:
+   * <code>YYYYMMDDHH[MM[SS[.fff]]][TZD]</code>, where the timezone
+   * is in the ISO 8601 basic format.
+   */
+  static boolean parseGeneralizedTime(CharSequence value, DateTimeFields fields)
+  {
+    fields.clear();
+    int length = value.length();
+    if (((fields.year = digits(value, 0, 4)) < 0) || ((fields.month = digits(value, 4, 2)) < 0)
+        || ((fields.day = digits(value, 6, 2)) < 0) || ((fields.hour = digits(value, 8, 2)) < 0))
+    {
+      return fail(fields, 0);
+    }
+    int index = 10;
+    if ((index < length) && isDigit(value.charAt(index)))
+    {
+      if ((fields.minute = digits(value, index, 2)) < 0)
+      {
+        return fail(fields, index);
+      }
+      index += 2;
+      if ((index < length) && isDigit(value.charAt(index)))
+      {
+        if ((fields.second = digits(value, index, 2)) < 0)
+        {
+          return fail(fields, index);
+        }
+        index += 2;
+        if ((index < length) && (value.charAt(index) == '.'))
+        {
+          index = parseFraction(value, index + 1, 3, fields);
+          if (index < 0)
+          {
+            return false;
+          }
+        }
+      }
+    }
+    if (index < length)
+    {
+      index = parseBasicZone(value, index, fields);
+    }
+    return (index >= 0) && end(value, index, fields);
+  }
+
+  private static boolean isDigit(char c)
+  {
+    return (c >= '0') && (c <= '9');
+  }
+
+  /** Returns the value of <code>count</code> decimal digits starting
+   *  at <code>index</code>, or -1 if they are not all digits. */
+  private static int digits(CharSequence value, int index, int count)
+  {
+    if (index + count > value.length())
+    {
+      return -1;
+    }
+    int result = 0;
+    for (int i = index; i < index + count; i++)
+    {
+      char c = value.charAt(i);
+      if (!isDigit(c))
+      {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  /** Parses the fractional part of the seconds, rounded to milliseconds.
+   *  @return the index following the fraction, or -1 on error. */
+  private static int parseFraction(CharSequence value, int index, int minDigits,
+      DateTimeFields fields)
+  {
+    int length = value.length();
+    int start = index;
+    int fraction = 0;
+    while ((index < length) && isDigit(value.charAt(index)))
+    {
+      // Keep one more digit than needed, for rounding
+      if (index - start < 4)
+      {
+        fraction = fraction * 10 + (value.charAt(index) - '0');
+      }
+      index++;
+    }
+    int count = index - start;
+    if (count < minDigits)
+    {
+      fail(fields, index);
+      return -1;
+    }
+    switch (count)
+    {
+      case 1:
+        fraction *= 100;
+        break;
+      case 2:
+        fraction *= 10;
+        break;
+      case 3:
+        break;
+      default:
+        fraction = (fraction + 5) / 10;
+        break;
+    }
+    if (fraction > 999)
+    {
+      // Rounded up to the next second, clamp to stay in this second
+      fraction = 999;
+    }
+    fields.millisecond = fraction;
+    return index;
+  }
+
+  /** Parses the sign and hours of a timezone designator, which are
+   *  common to the basic and extended format.
+   *  @return the index following the hours, or -1 on error. */
+  private static int parseZoneHours(CharSequence value, int index, DateTimeFields fields)
+  {
+    char sign = value.charAt(index);
+    int hours = digits(value, index + 1, 2);
+    if (((sign != '+') && (sign != '-') && (sign != DateConverter.UNICODE_MINUS)) || (hours < 0)
+        || (hours > 14))
+    {
+      fail(fields, index);
+      return -1;
+    }
+    fields.zoneOffset = hours * 60 * 60 * 1000;
+    return index + 3;
+  }
+
+  /** Completes the timezone offset with the minutes and sign.
+   *  @return the index, or -1 on error. */
+  private static int applyZoneMinutes(CharSequence value, int zoneIndex, int index, int minutes,
+      DateTimeFields fields)
+  {
+    if ((minutes < 0) || (minutes > 59))
+    {
+      fail(fields, zoneIndex);
+      return -1;
+    }
+    fields.zoneOffset += minutes * 60 * 1000;
+    if (value.charAt(zoneIndex) != '+')
+    {
+      // A negative offset of zero is not allowed in ISO 8601
+      if (fields.zoneOffset == 0)
+      {
+        fail(fields, zoneIndex);
+        return -1;
+      }
+      fields.zoneOffset = -fields.zoneOffset;
+    }
+    return index;
+  }
+
+  /** Parses a <code>Z</code>, <code>+hh:mm</code> or <code>-hh:mm</code> timezone.
+   *  @return the index following the timezone, or -1 on error. */
+  private static int parseExtendedZone(CharSequence value, int index, DateTimeFields fields)
+  {
+    if (index >= value.length())
+    {
+      fail(fields, index);
+      return -1;
+    }
+    if (value.charAt(index) == 'Z')
+    {
+      fields.zoneOffset = 0;
+      return index + 1;
+    }
+    int zoneIndex = index;
+    index = parseZoneHours(value, index, fields);
+    if (index < 0)
+    {
+      return -1;
+    }
+    if ((index >= value.length()) || (value.charAt(index) != ':'))
+    {
+      fail(fields, zoneIndex);
+      return -1;
+    }
+    return applyZoneMinutes(value, zoneIndex, index + 3, digits(value, index + 1, 2), fields);
+  }
+
+  /** Parses a <code>Z</code>, <code>+hh[mm]</code> or <code>-hh[mm]</code> timezone.
+   *  @return the index following the timezone, or -1 on error. */
+  private static int parseBasicZone(CharSequence value, int index, DateTimeFields fields)
+  {
+    if (value.charAt(index) == 'Z')
+    {
+      fields.zoneOffset = 0;
+      return index + 1;
+    }
+    int zoneIndex = index;
+    index = parseZoneHours(value, index, fields);
+    if (index < 0)
+    {
+      return -1;
+    }
+    if (index == value.length())
+    {
+      return applyZoneMinutes(value, zoneIndex, index, 0, fields);
+    }
+    return applyZoneMinutes(value, zoneIndex, index + 2, digits(value, index, 2), fields);
+  }
+
+  /** Checks that the whole input was parsed and that the field values are valid. */
+  private static boolean end(CharSequence value, int index, DateTimeFields fields)
+  {
+    if (index != value.length())
+    {
+      return fail(fields, index);
+    }
+    return validate(fields);
+  }
+
+  private static boolean validate(DateTimeFields fields)
+  {
+    int undefined = DateTimeFields.FIELD_UNDEFINED;
+    if ((fields.month != undefined) && ((fields.month < 1) || (fields.month > 12)))
+    {
+      return fail(fields, 0);
+    }
+    if ((fields.day != undefined) && ((fields.day < 1) || (fields.day > 31)))
+    {
+      return fail(fields, 0);
+    }
+    if (fields.hour != undefined)
+    {
+      if ((fields.hour > 24) || ((fields.minute != undefined) && (fields.minute > 59))
+          || ((fields.second != undefined) && (fields.second > 60)))
+      {
+        return fail(fields, 0);
+      }
+      // 24:00:00 is only allowed for the end of the day
+      if ((fields.hour == 24)
+          && (((fields.minute != undefined) && (fields.minute != 0))
+              || ((fields.second != undefined) && (fields.second != 0))
+              || ((fields.millisecond != undefined) && (fields.millisecond != 0))))
+      {
+        return fail(fields, 0);
+      }
+    }
+    return true;
+  }
+
+  private static boolean fail(DateTimeFields fields, int index)
+  {
+    fields.clear();
+    fields.errorIndex = index;
+    return false;
+  }
+}
@@ -0,0 +1,279 @@
+package com.optimasc.text;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Unicode character properties used by {@link StringNormalizer}, covering
+ * all the code points from U+0000 to U+10FFFF.
+ *
+ * <p>
+ * The properties are stored in a three-stage table indexed by code point,
+ * so that each lookup is done with three array accesses. The tables are
+ * generated from the Unicode Character Database by
+ * <code>NormalizerDataGenerator</code> and read from the
+ * <code>normalizer.dat</code> resource the first time this class is used,
+ * so that they do not add to the initialization time of the classes which
+ * do not need them.
+ * </p>
+ *
+ * <p>
+ * The value of a code point contains its canonical combining class in
+ * bits 0 to 7, the quick check flags in bits 8 to 15 and the index of its
+ * decompositions in bits 16 to 31. The decompositions of the Hangul
+ * syllables are computed algorithmically, as defined by the Unicode
+ * standard.
+ * </p>
+ *
+ * @author Carl Eric Codere
+ */
+final class NormalizerData
+{
+  /** Name of the resource which contains the tables. */
+  static final String RESOURCE_NAME = "normalizer.dat";
+  /** Identifies the resource, "NRMD". */
+  static final int MAGIC = 0x4E524D44;
+  static final int FORMAT_VERSION = 1;
+
+  /** Shift of a code point to get the index in the first stage. */
+  static final int SHIFT1 = 11;
+  /** Shift of a code point to get the index in a block of the second stage. */
+  static final int SHIFT2 = 6;
+  static final int INDEX2_MASK = (1 << (SHIFT1 - SHIFT2)) - 1;
+  static final int DATA_MASK = (1 << SHIFT2) - 1;
+
+  /** Mask of the canonical combining class in a value. */
+  static final int CCC_MASK = 0xFF;
+  /** The code point is never in NFD. */
+  static final int NFD_NO = 0x0100;
+  /** The code point is never in NFKD. */
+  static final int NFKD_NO = 0x0200;
+  /** The code point is never in NFC. */
+  static final int NFC_NO = 0x0400;
+  /** The code point is never in NFKC. */
+  static final int NFKC_NO = 0x0800;
+  /** The code point may compose with a preceding code point. */
+  static final int COMPOSE_MAYBE = 0x1000;
+  /**
+   * The code point may interact with the preceding code points in one of
+   * the normalization forms, so that a segment of text cannot start with it.
+   */
+  static final int NOT_SEGMENT_START = 0x2000;
+  /** Shift of the index of the decompositions in a value. */
+  static final int DECOMPOSITION_SHIFT = 16;
+
+  // Hangul syllable constants, from the Unicode standard section 3.12
+  static final int SBASE = 0xAC00;
+  static final int LBASE = 0x1100;
+  static final int VBASE = 0x1161;
+  static final int TBASE = 0x11A7;
+  static final int LCOUNT = 19;
+  static final int VCOUNT = 21;
+  static final int TCOUNT = 28;
+  static final int NCOUNT = VCOUNT * TCOUNT;
+  static final int SCOUNT = LCOUNT * NCOUNT;
+
+  /** Version of the Unicode Character Database of the tables. */
+  static final String UNICODE_VERSION;
+  /** Maximum length in UTF-16 code units of the decomposition of a code point. */
+  static final int MAX_DECOMPOSITION_LENGTH;
+
+  private static final char[] INDEX1;
+  private static final char[] INDEX2;
+  private static final int[] DATA;
+  /** Offsets in the pool of the canonical (high 16 bits) and compatibility
+   *  (low 16 bits) full decompositions, 0 when there is none. */
+  private static final int[] DECOMPOSITIONS;
+  /** Full decompositions in UTF-16, each preceded by its length. */
+  private static final char[] POOL;
+
+  // Composition lookup: open addressing hash table which maps the key of
+  // "first+second" (see makeCompositionKey) to the composed code point.
+  // A key of 0 marks an empty slot.
+  private static final int COMPOSITION_TABLE_BITS = 11;
+  private static final long[] COMPOSITION_KEYS = new long[1 << COMPOSITION_TABLE_BITS];
+  private static final int[] COMPOSITION_VALUES = new int[1 << COMPOSITION_TABLE_BITS];
+
+  static
+  {
+    InputStream stream = NormalizerData.class.getResourceAsStream(RESOURCE_NAME);
+    if (stream == null)
+    {
+      throw new IllegalStateException("Missing Unicode normalization data " + RESOURCE_NAME);
+    }
+    try
+    {
+      // Buffered, the values are read a few bytes at a time
+      DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 8192));
+      if ((in.readInt() != MAGIC) || (in.readInt() != FORMAT_VERSION))
+      {
+        throw new IOException("Invalid format");
+      }
+      UNICODE_VERSION = in.readUTF();
+      MAX_DECOMPOSITION_LENGTH = in.readInt();
+      INDEX1 = readChars(in);
+      INDEX2 = readChars(in);
+      DATA = readInts(in);
+      DECOMPOSITIONS = readInts(in);
+      POOL = readChars(in);
+      int count = in.readInt();
+      if (count > COMPOSITION_KEYS.length / 2)
+      {
+        throw new IOException("Too many compositions");
+      }
+      for (int i = 0; i < count; i++)
+      {
+        long key = makeCompositionKey(in.readInt(), in.readInt());
+        int slot = findCompositionSlot(key);
+        COMPOSITION_KEYS[slot] = key;
+        COMPOSITION_VALUES[slot] = in.readInt();
+      }
+    } catch (IOException e)
+    {
+      throw new IllegalStateException("Unable to read Unicode normalization data "
+          + RESOURCE_NAME + ": " + e.getMessage());
+    } finally
+    {
+      try
+      {
+        stream.close();
+      } catch (IOException e)
+      {
+        /* nothing more can be done */
+      }
+    }
+  }
+
+  private NormalizerData()
+  {
+  }
+
+  private static char[] readChars(DataInputStream in) throws IOException
+  {
+    char[] result = new char[in.readInt()];
+    for (int i = 0; i < result.length; i++)
+    {
+      result[i] = in.readChar();
+    }
+    return result;
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException
+  {
+    int[] result = new int[in.readInt()];
+    for (int i = 0; i < result.length; i++)
+    {
+      result[i] = in.readInt();
+    }
+    return result;
+  }
+
+  /**
+   * Returns the value of a code point, which contains its combining class,
+   * its quick check flags and the index of its decompositions.
+   */
+  static int getValue(int codePoint)
+  {
+    return DATA[INDEX2[INDEX1[codePoint >> SHIFT1] + ((codePoint >> SHIFT2) & INDEX2_MASK)]
+        + (codePoint & DATA_MASK)];
+  }
+
+  /** Returns the canonical combining class of a code point. */
+  static int getCombiningClass(int codePoint)
+  {
+    return getValue(codePoint) & CCC_MASK;
+  }
+
+  /**
+   * Stores the full decomposition of a code point, with its combining marks
+   * in canonical order.
+   *
+   * @param codePoint
+   *          [in] The code point to decompose.
+   * @param compatibility
+   *          [in] true for the compatibility decomposition, false for the
+   *          canonical decomposition.
+   * @param output
+   *          [out] The buffer where the decomposition is stored in UTF-16.
+   * @param off
+   *          [in] The index where the decomposition is stored.
+   * @return The number of characters stored, or 0 if the code point has no
+   *         decomposition.
+   */
+  static int decompose(int codePoint, boolean compatibility, char[] output, int off)
+  {
+    int s = codePoint - SBASE;
+    if ((s >= 0) && (s < SCOUNT))
+    {
+      output[off] = (char) (LBASE + s / NCOUNT);
+      output[off + 1] = (char) (VBASE + (s % NCOUNT) / TCOUNT);
+      int t = s % TCOUNT;
+      if (t == 0)
+      {
+        return 2;
+      }
+      output[off + 2] = (char) (TBASE + t);
+      return 3;
+    }
+    int index = getValue(codePoint) >>> DECOMPOSITION_SHIFT;
+    if (index == 0)
+    {
+      return 0;
+    }
+    int offset = compatibility ? (DECOMPOSITIONS[index] & 0xFFFF) : (DECOMPOSITIONS[index] >>> 16);
+    if (offset == 0)
+    {
+      return 0;
+    }
+    int length = POOL[offset];
+    System.arraycopy(POOL, offset + 1, output, off, length);
+    return length;
+  }
+
+  /**
+   * Returns the primary composite of two code points, or 0 if there is none.
+   */
+  static int composePair(int first, int second)
+  {
+    int l = first - LBASE;
+    if ((l >= 0) && (l < LCOUNT))
+    {
+      int v = second - VBASE;
+      return ((v >= 0) && (v < VCOUNT)) ? SBASE + (l * VCOUNT + v) * TCOUNT : 0;
+    }
+    int s = first - SBASE;
+    if ((s >= 0) && (s < SCOUNT) && ((s % TCOUNT) == 0))
+    {
+      int t = second - TBASE;
+      return ((t > 0) && (t < TCOUNT)) ? first + t : 0;
+    }
+    return COMPOSITION_VALUES[findCompositionSlot(makeCompositionKey(first, second))];
+  }
+
+  /**
+   * Create a unique key from two code points, which is never 0 since the
+   * second code point of a composition is never U+0000.
+   */
+  private static long makeCompositionKey(int first, int second)
+  {
+    return ((long) first << 21) | second;
+  }
+
+  /**
+   * Returns the slot of the composition table which contains the key, or
+   * the empty slot where it should be added.
+   */
+  private static int findCompositionSlot(long key)
+  {
+    int mask = COMPOSITION_KEYS.length - 1;
+    // Fibonacci hashing, the table size is a power of two
+    int slot = ((int) (key ^ (key >>> 32)) * 0x9E3779B9) >>> (32 - COMPOSITION_TABLE_BITS);
+    while ((COMPOSITION_KEYS[slot] != 0) && (COMPOSITION_KEYS[slot] != key))
+    {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,209 @@
+package com.optimasc.text;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader which normalizes the characters read from another reader in one of
+ * the Unicode normalization forms supported by {@link StringNormalizer}.
+ *
+ * <p>
+ * The characters are read in a buffer and normalized by chunks, which are
+ * split before characters which never interact with the preceding characters
+ * (see {@link StringNormalizer#lastSegmentStart(char[], int, int)}). The
+ * memory used is therefore bounded by the buffer size, whatever the length
+ * of the text. The buffer only grows when a single segment, such as a very
+ * long sequence of combining marks, does not fit in it.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author Carl Eric Codere
+ */
+public class NormalizerReader extends Reader
+{
+  /** Default size of the input buffer, in characters. */
+  protected static final int DEFAULT_BUFFER_SIZE = 1024;
+
+  private Reader in;
+  private final int form;
+
+  /** Characters read but not normalized yet. */
+  private char[] inputBuffer;
+  private int inputLength;
+  private boolean endOfInput;
+
+  /** Normalized characters not returned yet. */
+  private char[] outputBuffer;
+  private int outputPosition;
+  private int outputLength;
+
+  /**
+   * Creates a reader which normalizes the characters of another reader.
+   *
+   * @param in
+   *          [in] The reader of the characters to normalize.
+   * @param form
+   *          [in] One of {@link StringNormalizer#NFC},
+   *          {@link StringNormalizer#NFD}, {@link StringNormalizer#NFKC} or
+   *          {@link StringNormalizer#NFKD}.
+   */
+  public NormalizerReader(Reader in, int form)
+  {
+    this(in, form, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a reader which normalizes the characters of another reader.
+   *
+   * @param in
+   *          [in] The reader of the characters to normalize.
+   * @param form
+   *          [in] One of {@link StringNormalizer#NFC},
+   *          {@link StringNormalizer#NFD}, {@link StringNormalizer#NFKC} or
+   *          {@link StringNormalizer#NFKD}.
+   * @param bufferSize
+   *          [in] The initial size of the input buffer, in characters.
+   */
+  public NormalizerReader(Reader in, int form, int bufferSize)
+  {
+    super(in);
+    if ((form < StringNormalizer.NFC) || (form > StringNormalizer.NFKD))
+    {
+      throw new IllegalArgumentException("Invalid normalization form " + form);
+    }
+    if (bufferSize <= 0)
+    {
+      throw new IllegalArgumentException("Buffer size <= 0");
+    }
+    this.in = in;
+    this.form = form;
+    inputBuffer = new char[bufferSize];
+    outputBuffer = new char[bufferSize * StringNormalizer.getMaxDecompositionLength()];
+  }
+
+  public int read() throws IOException
+  {
+    synchronized (lock)
+    {
+      ensureOpen();
+      while (outputPosition == outputLength)
+      {
+        if (!fill())
+        {
+          return -1;
+        }
+      }
+      return outputBuffer[outputPosition++];
+    }
+  }
+
+  public int read(char[] cbuf, int off, int len) throws IOException
+  {
+    synchronized (lock)
+    {
+      ensureOpen();
+      if ((off < 0) || (len < 0) || (len > cbuf.length - off))
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      if (len == 0)
+      {
+        return 0;
+      }
+      while (outputPosition == outputLength)
+      {
+        if (!fill())
+        {
+          return -1;
+        }
+      }
+      int count = Math.min(len, outputLength - outputPosition);
+      System.arraycopy(outputBuffer, outputPosition, cbuf, off, count);
+      outputPosition += count;
+      return count;
+    }
+  }
+
+  public boolean ready() throws IOException
+  {
+    synchronized (lock)
+    {
+      ensureOpen();
+      return (outputPosition < outputLength) || in.ready();
+    }
+  }
+
+  public void close() throws IOException
+  {
+    synchronized (lock)
+    {
+      if (in != null)
+      {
+        in.close();
+        in = null;
+        inputBuffer = null;
+        outputBuffer = null;
+      }
+    }
+  }
+
+  private void ensureOpen() throws IOException
+  {
+    if (in == null)
+    {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  /**
+   * Reads characters until at least one complete segment is available, and
+   * normalizes the complete segments in the output buffer.
+   *
+   * @return false if the end of the input has been reached and all the
+   *         characters have been normalized.
+   */
+  private boolean fill() throws IOException
+  {
+    outputPosition = 0;
+    outputLength = 0;
+    while (true)
+    {
+      if ((!endOfInput) && (inputLength < inputBuffer.length))
+      {
+        int count = in.read(inputBuffer, inputLength, inputBuffer.length - inputLength);
+        if (count < 0)
+        {
+          endOfInput = true;
+        }
+        else
+        {
+          inputLength += count;
+        }
+      }
+      int end = endOfInput ? inputLength : StringNormalizer.lastSegmentStart(inputBuffer, 0,
+          inputLength);
+      if (end > 0)
+      {
+        outputLength = StringNormalizer.normalize(inputBuffer, 0, end, outputBuffer, 0, form);
+        inputLength -= end;
+        System.arraycopy(inputBuffer, end, inputBuffer, 0, inputLength);
+        return true;
+      }
+      if (endOfInput)
+      {
+        return false;
+      }
+      if (inputLength == inputBuffer.length)
+      {
+        // The segment does not fit in the buffer
+        char[] buffer = new char[inputBuffer.length * 2];
+        System.arraycopy(inputBuffer, 0, buffer, 0, inputLength);
+        inputBuffer = buffer;
+        outputBuffer = new char[buffer.length * StringNormalizer.getMaxDecompositionLength()];
+      }
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package com.optimasc.text;
+
+import java.text.ParseException;
+import java.util.HashMap;
+
+/**
+ * Cache of the comparison keys of values prepared by a {@link StringPreparer},
+ * for the matching rules which compare the same values many times.
+ *
+ * <p>
+ * The cache holds at most a maximum number of values. It is split in
+ * segments selected by the hash code of the value, each with its own lock,
+ * its own preparer and its own list of entries in access order, so that
+ * threads which use different segments do not wait for each other. When a
+ * segment is full, its least recently used value is evicted.
+ * </p>
+ *
+ * <p>
+ * The number of hits, misses and evictions is counted so that the size of
+ * the cache can be tuned, or the cache removed if the values are seldom
+ * compared again.
+ * </p>
+ *
+ * @author Carl Eric Codere
+ */
+public class PreparedKeyCache
+{
+  /** Default maximum number of values kept in the cache. */
+  public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+  /** Number of segments, a power of two. */
+  private static final int SEGMENT_COUNT = 16;
+
+  private final int options;
+  private final int maximumSize;
+  private final Segment[] segments;
+
+  /**
+   * Creates a cache of at most {@link #DEFAULT_MAXIMUM_SIZE} values.
+   *
+   * @param options
+   *          [in] The options of the preparer, see
+   *          {@link StringPreparer#StringPreparer(int)}.
+   */
+  public PreparedKeyCache(int options)
+  {
+    this(options, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param options
+   *          [in] The options of the preparer, see
+   *          {@link StringPreparer#StringPreparer(int)}.
+   * @param maximumSize
+   *          [in] The maximum number of values kept in the cache.
+   * @throws IllegalArgumentException
+   *           if the maximum size is not positive or the options are invalid.
+   */
+  public PreparedKeyCache(int options, int maximumSize)
+  {
+    if (maximumSize <= 0)
+    {
+      throw new IllegalArgumentException("Maximum size must be positive.");
+    }
+    this.options = options;
+    this.maximumSize = maximumSize;
+    int segmentCount = SEGMENT_COUNT;
+    while (segmentCount > maximumSize)
+    {
+      segmentCount >>= 1;
+    }
+    // The first segments hold one more value, so that the sizes of the
+    // segments add up to the maximum size
+    int segmentSize = maximumSize / segmentCount;
+    int remainder = maximumSize % segmentCount;
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++)
+    {
+      segments[i] = new Segment(new StringPreparer(options),
+          (i < remainder) ? segmentSize + 1 : segmentSize);
+    }
+  }
+
+  /** Returns the options of the preparer of this cache. */
+  public int getOptions()
+  {
+    return options;
+  }
+
+  /** Returns the maximum number of values kept in the cache. */
+  public int getMaximumSize()
+  {
+    return maximumSize;
+  }
+
+  /**
+   * Returns the comparison key of a value, preparing it only if it is not
+   * in the cache.
+   *
+   * @param value
+   *          [in] The value to prepare.
+   * @return The prepared value, see {@link StringPreparer#prepare(CharSequence)}.
+   * @throws ParseException
+   *           if the value contains prohibited characters. Such values are
+   *           not cached.
+   */
+  public String getKey(CharSequence value) throws ParseException
+  {
+    String string = value.toString();
+    int hash = string.hashCode();
+    // Spread the high bits, the segment is selected by the low bits
+    hash ^= (hash >>> 16);
+    return segments[hash & (segments.length - 1)].getKey(string);
+  }
+
+  /**
+   * Verifies if two values match, which is the case when their comparison
+   * keys are equal.
+   */
+  public boolean matches(CharSequence value1, CharSequence value2) throws ParseException
+  {
+    return getKey(value1).equals(getKey(value2));
+  }
+
+  /** Returns the number of values in the cache. */
+  public int size()
+  {
+    int size = 0;
+    for (int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        size += segments[i].entries.size();
+      }
+    }
+    return size;
+  }
+
+  /** Removes all the values from the cache, the counters are not reset. */
+  public void clear()
+  {
+    for (int i = 0; i < segments.length; i++)
+    {
+      segments[i].clear();
+    }
+  }
+
+  /** Returns the number of keys found in the cache since the last reset. */
+  public long getHitCount()
+  {
+    long count = 0;
+    for (int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        count += segments[i].hitCount;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the number of values prepared since the last reset. */
+  public long getMissCount()
+  {
+    long count = 0;
+    for (int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        count += segments[i].missCount;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the number of values evicted from the cache since the last reset. */
+  public long getEvictionCount()
+  {
+    long count = 0;
+    for (int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        count += segments[i].evictionCount;
+      }
+    }
+    return count;
+  }
+
+  /** Resets the hit, miss and eviction counters. */
+  public void resetCacheCounters()
+  {
+    for (int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        segments[i].hitCount = 0;
+        segments[i].missCount = 0;
+        segments[i].evictionCount = 0;
+      }
+    }
+  }
+
+  /** A value and its key, linked in access order. */
+  private static final class Entry
+  {
+    final String value;
+    final String key;
+    Entry previous;
+    Entry next;
+
+    Entry(String value, String key)
+    {
+      this.value = value;
+      this.key = key;
+    }
+  }
+
+  /**
+   * Part of the cache, which is only accessed while holding its lock.
+   */
+  private static final class Segment
+  {
+    private final StringPreparer preparer;
+    private final int maximumSize;
+    final HashMap entries = new HashMap();
+    /** Sentinel of the circular list, head.next is the most recently used. */
+    private final Entry head = new Entry(null, null);
+
+    long hitCount;
+    long missCount;
+    long evictionCount;
+
+    Segment(StringPreparer preparer, int maximumSize)
+    {
+      this.preparer = preparer;
+      this.maximumSize = maximumSize;
+      head.previous = head;
+      head.next = head;
+    }
+
+    synchronized String getKey(String value) throws ParseException
+    {
+      Entry entry = (Entry) entries.get(value);
+      if (entry != null)
+      {
+        hitCount++;
+        unlink(entry);
+        linkFirst(entry);
+        return entry.key;
+      }
+      missCount++;
+      entry = new Entry(value, preparer.prepare(value));
+      if (entries.size() >= maximumSize)
+      {
+        Entry eldest = head.previous;
+        unlink(eldest);
+        entries.remove(eldest.value);
+        evictionCount++;
+      }
+      entries.put(value, entry);
+      linkFirst(entry);
+      return entry.key;
+    }
+
+    synchronized void clear()
+    {
+      entries.clear();
+      head.previous = head;
+      head.next = head;
+    }
+
+    private void unlink(Entry entry)
+    {
+      entry.previous.next = entry.next;
+      entry.next.previous = entry.previous;
+    }
+
+    private void linkFirst(Entry entry)
+    {
+      entry.previous = head;
+      entry.next = head.next;
+      head.next.previous = entry;
+      head.next = entry;
+    }
+  }
+}
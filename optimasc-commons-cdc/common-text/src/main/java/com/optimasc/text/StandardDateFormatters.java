@@ -1,5 +1,7 @@
 package com.optimasc.text;
 
+import java.text.ParseException;
+
 /** Standard pre-defined converters for different time and date formats. */
 public class StandardDateFormatters
 {
@@ -13,16 +15,7 @@ public class StandardDateFormatters
   public static final String PATTERN_ISO8601_DATETIME = "yyyy-MM-ddTHH:mm:ss";
   
   /** ISO 8601 Time with or without timezone */
-  public static final DateConverter ISO8601_TIME = new DateConverter(
-   new String[]{   
-       "HH:mm:ss.SX",
-       "HH:mm:ss.S",
-       "HH:mm:ssX",
-       "HH:mm:ss",
-       "'T'HH:mm:ss.SX",
-       "'T'HH:mm:ss.S",
-       "'T'HH:mm:ssX",
-       "'T'HH:mm:ss"});
+  public static final DateConverter ISO8601_TIME = new ISO8601TimeConverter();
   
   
   /** Date/time pattern from IETF RFC 822 / IETF RFC 2822 standard */
@@ -49,6 +42,41 @@ public class StandardDateFormatters
   );
   
   
+  /** Time formatter for ISO 8601 standard time format (hh:mm:ss), with
+   *  optional fraction of seconds and timezone. */
+  public static class ISO8601TimeConverter extends DateConverter
+  {
+    public ISO8601TimeConverter()
+    {
+      super(
+          new String[]{   
+              "HH:mm:ss.SX",
+              "HH:mm:ss.S",
+              "HH:mm:ssX",
+              "HH:mm:ss",
+              "'T'HH:mm:ss.SX",
+              "'T'HH:mm:ss.S",
+              "'T'HH:mm:ssX",
+              "'T'HH:mm:ss"});
+    }
+
+    public boolean parse(CharSequence value, DateTimeFields fields)
+    {
+      return ISO8601Parser.parseTime(value, fields);
+    }
+
+    public Object parseObject(CharSequence value) throws ParseException
+    {
+      DateTimeFields fields = new DateTimeFields();
+      if (ISO8601Parser.parseTime(value, fields))
+      {
+        return fields.toCalendar();
+      }
+      // Let the generic parser report the error
+      return super.parseObject(value);
+    }
+  }
+  
   /** Date formatter for ISO 8601 standard date format (YYYY-MM-DD) */
   public static class ISO8601DateConverter extends DateConverter
   {
@@ -60,6 +88,22 @@ public class StandardDateFormatters
       super(new String[]{PATTERN_ISO8601_DATE});
     }
     
+    public boolean parse(CharSequence value, DateTimeFields fields)
+    {
+      return ISO8601Parser.parseDate(value, fields);
+    }
+
+    public Object parseObject(CharSequence value) throws ParseException
+    {
+      DateTimeFields fields = new DateTimeFields();
+      if (ISO8601Parser.parseDate(value, fields))
+      {
+        return fields.toCalendar();
+      }
+      // Let the generic parser report the error
+      return super.parseObject(value);
+    }
+
     public static DataConverter getInstance()
     {
       if (instance == null)
@@ -96,6 +140,22 @@ public class StandardDateFormatters
               "yyyyMMddHHmmss.SSS"});
     }
     
+    public boolean parse(CharSequence value, DateTimeFields fields)
+    {
+      return ISO8601Parser.parseGeneralizedTime(value, fields);
+    }
+
+    public Object parseObject(CharSequence value) throws ParseException
+    {
+      DateTimeFields fields = new DateTimeFields();
+      if (ISO8601Parser.parseGeneralizedTime(value, fields))
+      {
+        return fields.toCalendar();
+      }
+      // Let the generic parser report the error
+      return super.parseObject(value);
+    }
+
     public static DataConverter getInstance()
     {
       if (instance == null)
@@ -127,6 +187,22 @@ public class StandardDateFormatters
               "yyyy-MM"});
     }
     
+    public boolean parse(CharSequence value, DateTimeFields fields)
+    {
+      return ISO8601Parser.parseW3C(value, fields);
+    }
+
+    public Object parseObject(CharSequence value) throws ParseException
+    {
+      DateTimeFields fields = new DateTimeFields();
+      if (ISO8601Parser.parseW3C(value, fields))
+      {
+        return fields.toCalendar();
+      }
+      // Let the generic parser report the error
+      return super.parseObject(value);
+    }
+
     public static DataConverter getInstance()
     {
       if (instance == null)
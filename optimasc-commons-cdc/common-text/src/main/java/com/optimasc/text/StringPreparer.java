@@ -0,0 +1,177 @@
+package com.optimasc.text;
+
+import java.text.ParseException;
+
+/**
+ * Prepares strings for matching, such as the values of directory attributes
+ * compared with the case exact and case ignore matching rules of ITU-T
+ * X.520.
+ *
+ * <p>
+ * The preparation maps and verifies the characters as
+ * {@link StringNormalizer#mapAndVerifyNormalizedString(CharSequence, boolean)},
+ * optionally converts them to lower case and collapses the insignificant
+ * spaces in a single pass over the value. The mapped characters are only
+ * normalized when they contain characters outside of the ASCII range, in
+ * NFKC or, when the diacritics are removed, in NFD followed by the removal
+ * of the combining marks. No intermediate string is created and the buffers
+ * are reused from one value to the next.
+ * </p>
+ *
+ * <p>
+ * The prepared string is the comparison key of the value: two values match
+ * if and only if their keys are equal, and the key only depends on the
+ * value, the options of the preparer and the Unicode version of
+ * {@link StringNormalizer}, so that it can be stored or indexed.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe, an instance should be used by a single
+ * thread at a time.
+ * </p>
+ *
+ * @author Carl Eric Codere
+ */
+public class StringPreparer
+{
+  /** Converts the characters to lower case. */
+  public static final int CASE_IGNORE = 0x01;
+  /** Removes the diacritical marks instead of using the NFKC form. */
+  public static final int REMOVE_DIACRITICS = 0x02;
+  /**
+   * Removes the leading and trailing spaces, and replaces consecutive spaces
+   * by a single space.
+   */
+  public static final int COLLAPSE_SPACES = 0x04;
+
+  private static final char[] EMPTY_BUFFER = new char[0];
+
+  private final int options;
+  /** Characters mapped from the value. */
+  private char[] mapped = EMPTY_BUFFER;
+  /** Normalized characters, used when the value is not in the ASCII range. */
+  private char[] normalized = EMPTY_BUFFER;
+
+  /**
+   * Creates a string preparer.
+   *
+   * @param options
+   *          [in] A combination of {@link #CASE_IGNORE},
+   *          {@link #REMOVE_DIACRITICS} and {@link #COLLAPSE_SPACES}.
+   */
+  public StringPreparer(int options)
+  {
+    if ((options & ~(CASE_IGNORE | REMOVE_DIACRITICS | COLLAPSE_SPACES)) != 0)
+    {
+      throw new IllegalArgumentException("Invalid options " + options);
+    }
+    this.options = options;
+  }
+
+  /**
+   * Returns the options of this preparer.
+   */
+  public int getOptions()
+  {
+    return options;
+  }
+
+  /**
+   * Prepares a value for matching.
+   *
+   * @param value
+   *          [in] The value to prepare.
+   * @return The prepared value, which is the comparison key of the value.
+   * @throws ParseException
+   *           if the value contains prohibited characters.
+   */
+  public String prepare(CharSequence value) throws ParseException
+  {
+    boolean caseIgnore = (options & CASE_IGNORE) != 0;
+    boolean collapseSpaces = (options & COLLAPSE_SPACES) != 0;
+    int length = value.length();
+    if (mapped.length < length)
+    {
+      mapped = new char[length];
+    }
+    char[] buffer = mapped;
+    int mappedLength = 0;
+    boolean ascii = true;
+    for (int i = 0; i < length; i++)
+    {
+      char ch = value.charAt(i);
+      int c;
+      if ((ch > ' ') && (ch < 0x7F))
+      {
+        c = ((ch >= 'A') && (ch <= 'Z') && caseIgnore) ? ch + ('a' - 'A') : ch;
+      }
+      else
+      {
+        c = StringNormalizer.mapNormalizedStringChar(ch, caseIgnore, i);
+        if (c < 0)
+        {
+          continue;
+        }
+        if (c >= 0x7F)
+        {
+          ascii = false;
+        }
+      }
+      if ((c == ' ') && collapseSpaces && ((mappedLength == 0) || (buffer[mappedLength - 1] == ' ')))
+      {
+        continue;
+      }
+      buffer[mappedLength++] = (char) c;
+    }
+    if (collapseSpaces && (mappedLength > 0) && (buffer[mappedLength - 1] == ' '))
+    {
+      mappedLength--;
+    }
+    if (ascii)
+    {
+      return new String(buffer, 0, mappedLength);
+    }
+    return normalize(mappedLength);
+  }
+
+  /**
+   * Normalizes the mapped characters, and removes the diacritical marks and
+   * collapses the spaces which appear in the normalized characters.
+   */
+  private String normalize(int mappedLength)
+  {
+    boolean removeDiacritics = (options & REMOVE_DIACRITICS) != 0;
+    boolean collapseSpaces = (options & COLLAPSE_SPACES) != 0;
+    int capacity = mappedLength * StringNormalizer.getMaxDecompositionLength();
+    if (normalized.length < capacity)
+    {
+      normalized = new char[capacity];
+    }
+    char[] buffer = normalized;
+    int length = StringNormalizer.normalize(mapped, 0, mappedLength, buffer, 0,
+        removeDiacritics ? StringNormalizer.NFD : StringNormalizer.NFKC);
+    int outLength = 0;
+    for (int i = 0; i < length; i++)
+    {
+      char c = buffer[i];
+      if (removeDiacritics && StringNormalizer.isCombiningMark(c))
+      {
+        continue;
+      }
+      if (collapseSpaces && Character.isWhitespace(c))
+      {
+        if ((outLength == 0) || (buffer[outLength - 1] == ' '))
+        {
+          continue;
+        }
+        c = ' ';
+      }
+      buffer[outLength++] = c;
+    }
+    if (collapseSpaces && (outLength > 0) && (buffer[outLength - 1] == ' '))
+    {
+      outLength--;
+    }
+    return new String(buffer, 0, outLength);
+  }
+}
@@ -978,5 +978,48 @@ public class DateConverterTest extends TestCase
     assertFalse(fail);
     
   }
-  
+
+  public void testParseMultiplePatterns() throws ParseException
+  {
+    String patterns[] = new String[] { "dd MMM yyyy HH:mm:ss Z", "yyyyMMddHHmmssZ",
+        "yyyy:MM:dd HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss.SX", "yyyy-MM-dd'T'HH:mm:ssX", "yyyy-MM-dd",
+        "yyyyMMddHHmmss.SSSx", "yyyyMMddHH" };
+    String values[] = new String[] { "19 Jan 1975 01:01:12 +0100", "19750119010112+0100",
+        "1975:01:19 01:01:12", "1975-01-19T01:01:12.5Z", "1975-01-19T01:01:12-05:00", "1975-01-19",
+        "19750119010112.250Z", "1975011901" };
+    DateConverter converter = new DateConverter(patterns);
+    DateTimeFields fields = new DateTimeFields();
+    for (int i = 0; i < values.length; i++)
+    {
+      GregorianDatetimeCalendar expected = (GregorianDatetimeCalendar) new DateConverter(
+          new String[] { patterns[i] }).parseObject(values[i]);
+      GregorianDatetimeCalendar actual = (GregorianDatetimeCalendar) converter.parseObject(values[i]);
+      assertTrue(values[i], converter.parse(values[i], fields));
+      for (int field = 0; field < Calendar.FIELD_COUNT; field++)
+      {
+        assertEquals(values[i], expected.isUserSet(field), actual.isUserSet(field));
+        assertEquals(values[i], expected.isUserSet(field), fields.toCalendar().isUserSet(field));
+        if (expected.isUserSet(field))
+        {
+          assertEquals(values[i], expected.get(field), actual.get(field));
+          assertEquals(values[i], expected.get(field), fields.toCalendar().get(field));
+        }
+      }
+    }
+
+    String invalid[] = new String[] { "", "1975", "1975-01-19T01:01", "1975/01/19", "19750119010112.250+" };
+    for (int i = 0; i < invalid.length; i++)
+    {
+      assertFalse(invalid[i], converter.parse(invalid[i], fields));
+      try
+      {
+        converter.parseObject(invalid[i]);
+        fail(invalid[i]);
+      } catch (ParseException e)
+      {
+        /* expected */
+      }
+    }
+  }
+
 }
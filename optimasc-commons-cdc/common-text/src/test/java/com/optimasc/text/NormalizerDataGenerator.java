@@ -0,0 +1,485 @@
+package com.optimasc.text;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Generates the <code>normalizer.dat</code> resource read by
+ * {@link NormalizerData} from the files of the Unicode Character Database.
+ *
+ * <p>
+ * It must be run again when the Unicode version is updated, and its output
+ * copied to <code>src/main/resources/com/optimasc/text</code>:
+ * </p>
+ *
+ * <pre>
+ * java com.optimasc.text.NormalizerDataGenerator UnicodeData.txt CompositionExclusions.txt 14.0.0 normalizer.dat
+ * </pre>
+ *
+ * @author Carl Eric Codere
+ */
+public class NormalizerDataGenerator
+{
+  protected static final int CODEPOINT_COUNT = 0x110000;
+
+  /** Canonical combining class of each code point. */
+  protected final int[] combiningClass = new int[CODEPOINT_COUNT];
+  /** Decomposition mapping of each code point, as found in UnicodeData.txt. */
+  protected final int[][] mapping = new int[CODEPOINT_COUNT][];
+  /** Whether the decomposition mapping is a compatibility mapping. */
+  protected final boolean[] compatibilityMapping = new boolean[CODEPOINT_COUNT];
+  /** Code points excluded from composition by CompositionExclusions.txt. */
+  protected final boolean[] excluded = new boolean[CODEPOINT_COUNT];
+  /** Primary composites, with the keys made of the two composed code points. */
+  protected final Hashtable compositions = new Hashtable();
+  protected final Vector compositionList = new Vector();
+
+  public static void main(String[] args) throws IOException
+  {
+    if (args.length != 4)
+    {
+      System.err.println("Usage: NormalizerDataGenerator UnicodeData.txt CompositionExclusions.txt version output");
+      System.exit(1);
+    }
+    NormalizerDataGenerator generator = new NormalizerDataGenerator();
+    generator.readUnicodeData(args[0]);
+    generator.readExclusions(args[1]);
+    generator.buildCompositions();
+    generator.write(args[2], args[3]);
+  }
+
+  protected static BufferedReader open(String fileName) throws IOException
+  {
+    return new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"));
+  }
+
+  protected static int[] parseCodePoints(String value)
+  {
+    Vector values = new Vector();
+    int start = 0;
+    value = value.trim();
+    while (start < value.length())
+    {
+      int end = value.indexOf(' ', start);
+      if (end < 0)
+      {
+        end = value.length();
+      }
+      if (end > start)
+      {
+        values.addElement(value.substring(start, end));
+      }
+      start = end + 1;
+    }
+    int[] result = new int[values.size()];
+    for (int i = 0; i < result.length; i++)
+    {
+      result[i] = Integer.parseInt((String) values.elementAt(i), 16);
+    }
+    return result;
+  }
+
+  protected static String[] split(String line)
+  {
+    Vector fields = new Vector();
+    int start = 0;
+    int end;
+    while ((end = line.indexOf(';', start)) >= 0)
+    {
+      fields.addElement(line.substring(start, end));
+      start = end + 1;
+    }
+    fields.addElement(line.substring(start));
+    String[] result = new String[fields.size()];
+    fields.copyInto(result);
+    return result;
+  }
+
+  /** Reads the combining classes and decomposition mappings. */
+  protected void readUnicodeData(String fileName) throws IOException
+  {
+    BufferedReader reader = open(fileName);
+    String line;
+    while ((line = reader.readLine()) != null)
+    {
+      String[] fields = split(line);
+      if (fields.length < 6)
+      {
+        continue;
+      }
+      int codePoint = Integer.parseInt(fields[0], 16);
+      combiningClass[codePoint] = Integer.parseInt(fields[3]);
+      String decomposition = fields[5].trim();
+      if (decomposition.length() > 0)
+      {
+        if (decomposition.charAt(0) == '<')
+        {
+          compatibilityMapping[codePoint] = true;
+          decomposition = decomposition.substring(decomposition.indexOf('>') + 1);
+        }
+        mapping[codePoint] = parseCodePoints(decomposition);
+      }
+    }
+    reader.close();
+  }
+
+  protected void readExclusions(String fileName) throws IOException
+  {
+    BufferedReader reader = open(fileName);
+    String line;
+    while ((line = reader.readLine()) != null)
+    {
+      int comment = line.indexOf('#');
+      if (comment >= 0)
+      {
+        line = line.substring(0, comment);
+      }
+      line = line.trim();
+      if (line.length() > 0)
+      {
+        excluded[Integer.parseInt(line, 16)] = true;
+      }
+    }
+    reader.close();
+  }
+
+  protected static boolean isHangulSyllable(int codePoint)
+  {
+    return (codePoint >= NormalizerData.SBASE)
+        && (codePoint < NormalizerData.SBASE + NormalizerData.SCOUNT);
+  }
+
+  /**
+   * Adds the primary composites: the canonical mappings of two code points
+   * which are neither excluded nor start with a combining mark.
+   */
+  protected void buildCompositions()
+  {
+    for (int codePoint = 0; codePoint < CODEPOINT_COUNT; codePoint++)
+    {
+      int[] decomposition = mapping[codePoint];
+      if ((decomposition == null) || compatibilityMapping[codePoint] || (decomposition.length != 2)
+          || excluded[codePoint] || (combiningClass[codePoint] != 0)
+          || (combiningClass[decomposition[0]] != 0))
+      {
+        continue;
+      }
+      compositions.put(new Long(((long) decomposition[0] << 21) | decomposition[1]), new Integer(
+          codePoint));
+      compositionList.addElement(new int[] { decomposition[0], decomposition[1], codePoint });
+    }
+  }
+
+  /** Returns the full decomposition of a code point in canonical order. */
+  protected int[] decompose(int codePoint, boolean compatibility)
+  {
+    Vector result = new Vector();
+    appendDecomposition(codePoint, compatibility, result);
+    int[] codePoints = new int[result.size()];
+    for (int i = 0; i < codePoints.length; i++)
+    {
+      codePoints[i] = ((Integer) result.elementAt(i)).intValue();
+    }
+    // Stable insertion sort of the combining marks
+    for (int i = 1; i < codePoints.length; i++)
+    {
+      int c = codePoints[i];
+      int cc = combiningClass[c];
+      int j = i;
+      while ((cc != 0) && (j > 0) && (combiningClass[codePoints[j - 1]] > cc))
+      {
+        codePoints[j] = codePoints[j - 1];
+        j--;
+      }
+      codePoints[j] = c;
+    }
+    return codePoints;
+  }
+
+  protected void appendDecomposition(int codePoint, boolean compatibility, Vector result)
+  {
+    if (isHangulSyllable(codePoint))
+    {
+      int s = codePoint - NormalizerData.SBASE;
+      result.addElement(new Integer(NormalizerData.LBASE + s / NormalizerData.NCOUNT));
+      result.addElement(new Integer(NormalizerData.VBASE + (s % NormalizerData.NCOUNT)
+          / NormalizerData.TCOUNT));
+      if ((s % NormalizerData.TCOUNT) != 0)
+      {
+        result.addElement(new Integer(NormalizerData.TBASE + s % NormalizerData.TCOUNT));
+      }
+      return;
+    }
+    int[] decomposition = mapping[codePoint];
+    if ((decomposition == null) || (compatibilityMapping[codePoint] && !compatibility))
+    {
+      result.addElement(new Integer(codePoint));
+      return;
+    }
+    for (int i = 0; i < decomposition.length; i++)
+    {
+      appendDecomposition(decomposition[i], compatibility, result);
+    }
+  }
+
+  protected int composePair(int first, int second)
+  {
+    int l = first - NormalizerData.LBASE;
+    int v = second - NormalizerData.VBASE;
+    if ((l >= 0) && (l < NormalizerData.LCOUNT) && (v >= 0) && (v < NormalizerData.VCOUNT))
+    {
+      return NormalizerData.SBASE + (l * NormalizerData.VCOUNT + v) * NormalizerData.TCOUNT;
+    }
+    int t = second - NormalizerData.TBASE;
+    if (isHangulSyllable(first) && (((first - NormalizerData.SBASE) % NormalizerData.TCOUNT) == 0)
+        && (t > 0) && (t < NormalizerData.TCOUNT))
+    {
+      return first + t;
+    }
+    Integer composite = (Integer) compositions.get(new Long(((long) first << 21) | second));
+    return (composite == null) ? 0 : composite.intValue();
+  }
+
+  /** Verifies if the canonical composition of the code points is the single code point. */
+  protected boolean composesTo(int[] codePoints, int codePoint)
+  {
+    int starter = codePoints[0];
+    int lastClass = (combiningClass[starter] == 0) ? 0 : 256;
+    int count = 1;
+    for (int i = 1; i < codePoints.length; i++)
+    {
+      int cc = combiningClass[codePoints[i]];
+      int composite = composePair(starter, codePoints[i]);
+      if ((composite != 0) && ((lastClass < cc) || (lastClass == 0)) && (count == 1))
+      {
+        starter = composite;
+      }
+      else
+      {
+        lastClass = cc;
+        count++;
+      }
+    }
+    return (count == 1) && (starter == codePoint);
+  }
+
+  protected static String toUTF16(int[] codePoints)
+  {
+    StringBuffer buffer = new StringBuffer();
+    for (int i = 0; i < codePoints.length; i++)
+    {
+      int c = codePoints[i];
+      if (c >= 0x10000)
+      {
+        c -= 0x10000;
+        buffer.append((char) (0xD800 + (c >> 10)));
+        buffer.append((char) (0xDC00 + (c & 0x3FF)));
+      }
+      else
+      {
+        buffer.append((char) c);
+      }
+    }
+    return buffer.toString();
+  }
+
+  /** Adds a decomposition to the pool and returns its offset. */
+  protected static int addToPool(StringBuffer pool, Hashtable offsets, String value)
+  {
+    Integer offset = (Integer) offsets.get(value);
+    if (offset == null)
+    {
+      offset = new Integer(pool.length());
+      if (offset.intValue() > 0xFFFF)
+      {
+        throw new IllegalStateException("Decomposition pool too large");
+      }
+      pool.append((char) value.length());
+      pool.append(value);
+      offsets.put(value, offset);
+    }
+    return offset.intValue();
+  }
+
+  /** Computes the value of each code point, as described in {@link NormalizerData}. */
+  protected int[] computeValues(StringBuffer pool, Vector decompositions, int[] maxLength)
+  {
+    int[] values = new int[CODEPOINT_COUNT];
+    boolean[] composeMaybe = new boolean[CODEPOINT_COUNT];
+    for (int i = 0; i < compositionList.size(); i++)
+    {
+      composeMaybe[((int[]) compositionList.elementAt(i))[1]] = true;
+    }
+    for (int c = NormalizerData.VBASE; c < NormalizerData.VBASE + NormalizerData.VCOUNT; c++)
+    {
+      composeMaybe[c] = true;
+    }
+    for (int c = NormalizerData.TBASE + 1; c < NormalizerData.TBASE + NormalizerData.TCOUNT; c++)
+    {
+      composeMaybe[c] = true;
+    }
+    Hashtable poolOffsets = new Hashtable();
+    Hashtable decompositionIndexes = new Hashtable();
+    pool.append((char) 0);
+    decompositions.addElement(new Integer(0));
+    maxLength[0] = 3;
+    for (int c = 0; c < CODEPOINT_COUNT; c++)
+    {
+      int value = combiningClass[c];
+      int[] canonical = decompose(c, false);
+      int[] compatibility = decompose(c, true);
+      boolean hasCanonical = (canonical.length != 1) || (canonical[0] != c);
+      boolean hasCompatibility = (compatibility.length != 1) || (compatibility[0] != c);
+      if (hasCanonical)
+      {
+        value |= NormalizerData.NFD_NO;
+        if (!composesTo(canonical, c))
+        {
+          value |= NormalizerData.NFC_NO;
+        }
+      }
+      if (hasCompatibility)
+      {
+        value |= NormalizerData.NFKD_NO;
+        if (!composesTo(compatibility, c))
+        {
+          value |= NormalizerData.NFKC_NO;
+        }
+      }
+      if (composeMaybe[c])
+      {
+        value |= NormalizerData.COMPOSE_MAYBE;
+      }
+      if ((combiningClass[c] != 0) || composeMaybe[c] || (combiningClass[canonical[0]] != 0)
+          || (combiningClass[compatibility[0]] != 0))
+      {
+        value |= NormalizerData.NOT_SEGMENT_START;
+      }
+      if ((hasCanonical || hasCompatibility) && !isHangulSyllable(c))
+      {
+        int canonicalOffset = 0;
+        if (hasCanonical)
+        {
+          String utf16 = toUTF16(canonical);
+          canonicalOffset = addToPool(pool, poolOffsets, utf16);
+          maxLength[0] = Math.max(maxLength[0], utf16.length());
+        }
+        String utf16 = toUTF16(compatibility);
+        int compatibilityOffset = addToPool(pool, poolOffsets, utf16);
+        maxLength[0] = Math.max(maxLength[0], utf16.length());
+        Integer key = new Integer((canonicalOffset << 16) | compatibilityOffset);
+        Integer index = (Integer) decompositionIndexes.get(key);
+        if (index == null)
+        {
+          index = new Integer(decompositions.size());
+          decompositions.addElement(key);
+          decompositionIndexes.put(key, index);
+        }
+        value |= index.intValue() << NormalizerData.DECOMPOSITION_SHIFT;
+      }
+      values[c] = value;
+    }
+    return values;
+  }
+
+  /** Adds a block to a stage of the table, sharing identical blocks. */
+  protected static int addBlock(Vector stage, Hashtable blocks, int[] values, int start, int length)
+  {
+    StringBuffer key = new StringBuffer(length * 2);
+    for (int i = start; i < start + length; i++)
+    {
+      key.append((char) (values[i] >>> 16));
+      key.append((char) values[i]);
+    }
+    Integer offset = (Integer) blocks.get(key.toString());
+    if (offset == null)
+    {
+      offset = new Integer(stage.size());
+      for (int i = start; i < start + length; i++)
+      {
+        stage.addElement(new Integer(values[i]));
+      }
+      blocks.put(key.toString(), offset);
+    }
+    return offset.intValue();
+  }
+
+  protected static void writeChars(DataOutputStream out, Vector values) throws IOException
+  {
+    out.writeInt(values.size());
+    for (int i = 0; i < values.size(); i++)
+    {
+      int value = ((Integer) values.elementAt(i)).intValue();
+      if (value > 0xFFFF)
+      {
+        throw new IllegalStateException("Table too large");
+      }
+      out.writeChar(value);
+    }
+  }
+
+  protected static void writeInts(DataOutputStream out, Vector values) throws IOException
+  {
+    out.writeInt(values.size());
+    for (int i = 0; i < values.size(); i++)
+    {
+      out.writeInt(((Integer) values.elementAt(i)).intValue());
+    }
+  }
+
+  protected void write(String version, String fileName) throws IOException
+  {
+    StringBuffer pool = new StringBuffer();
+    Vector decompositions = new Vector();
+    int[] maxLength = new int[1];
+    int[] values = computeValues(pool, decompositions, maxLength);
+
+    int dataBlockSize = 1 << NormalizerData.SHIFT2;
+    int index2BlockSize = NormalizerData.INDEX2_MASK + 1;
+    Vector data = new Vector();
+    Hashtable dataBlocks = new Hashtable();
+    int[] dataOffsets = new int[CODEPOINT_COUNT / dataBlockSize];
+    for (int i = 0; i < dataOffsets.length; i++)
+    {
+      dataOffsets[i] = addBlock(data, dataBlocks, values, i * dataBlockSize, dataBlockSize);
+    }
+    Vector index2 = new Vector();
+    Hashtable index2Blocks = new Hashtable();
+    Vector index1 = new Vector();
+    for (int i = 0; i < dataOffsets.length; i += index2BlockSize)
+    {
+      index1.addElement(new Integer(addBlock(index2, index2Blocks, dataOffsets, i,
+          index2BlockSize)));
+    }
+
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(fileName));
+    out.writeInt(NormalizerData.MAGIC);
+    out.writeInt(NormalizerData.FORMAT_VERSION);
+    out.writeUTF(version);
+    out.writeInt(maxLength[0]);
+    writeChars(out, index1);
+    writeChars(out, index2);
+    writeInts(out, data);
+    writeInts(out, decompositions);
+    out.writeInt(pool.length());
+    for (int i = 0; i < pool.length(); i++)
+    {
+      out.writeChar(pool.charAt(i));
+    }
+    out.writeInt(compositionList.size());
+    for (int i = 0; i < compositionList.size(); i++)
+    {
+      int[] composition = (int[]) compositionList.elementAt(i);
+      out.writeInt(composition[0]);
+      out.writeInt(composition[1]);
+      out.writeInt(composition[2]);
+    }
+    out.close();
+  }
+}
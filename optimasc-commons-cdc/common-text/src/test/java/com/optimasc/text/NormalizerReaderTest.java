@@ -0,0 +1,107 @@
+package com.optimasc.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class NormalizerReaderTest extends TestCase
+{
+  protected static final int FORMS[] = { StringNormalizer.NFC, StringNormalizer.NFD,
+      StringNormalizer.NFKC, StringNormalizer.NFKD };
+
+  /** Creates a text of precomposed characters, combining sequences and
+   *  compatibility characters. */
+  protected static String createText(int length)
+  {
+    final String samples = "abc \u00E9\u01D5\u0390\u0419e\u0301c\u0327\u0301A\u0308\u0304"
+        + "\u0301\u0327\u0300\u0316\u00BD\u00A8\u0385\u0344\u0387\u02B0\n";
+    Random random = new Random(length);
+    StringBuffer buffer = new StringBuffer(length);
+    for (int i = 0; i < length; i++)
+    {
+      buffer.append(samples.charAt(random.nextInt(samples.length())));
+    }
+    return buffer.toString();
+  }
+
+  protected static String readAll(Reader reader, int chunkSize) throws IOException
+  {
+    StringBuffer buffer = new StringBuffer();
+    char[] chars = new char[chunkSize];
+    int count;
+    while ((count = reader.read(chars, 0, chars.length)) != -1)
+    {
+      buffer.append(chars, 0, count);
+    }
+    return buffer.toString();
+  }
+
+  public void testRead() throws IOException
+  {
+    String text = createText(5000);
+    for (int i = 0; i < FORMS.length; i++)
+    {
+      String expected = StringNormalizer.normalize(text, FORMS[i]);
+      assertEquals(expected, readAll(new NormalizerReader(new StringReader(text), FORMS[i]), 100));
+      assertEquals(expected, readAll(new NormalizerReader(new StringReader(text), FORMS[i], 1), 7));
+      assertEquals(expected, readAll(new NormalizerReader(new StringReader(text), FORMS[i], 3), 1));
+      assertEquals(expected, readAll(new NormalizerReader(new StringReader(text), FORMS[i], 64),
+          4096));
+    }
+  }
+
+  public void testReadChar() throws IOException
+  {
+    String text = createText(500);
+    Reader reader = new NormalizerReader(new StringReader(text), StringNormalizer.NFC, 16);
+    StringBuffer buffer = new StringBuffer();
+    int c;
+    while ((c = reader.read()) != -1)
+    {
+      buffer.append((char) c);
+    }
+    assertEquals(StringNormalizer.toNFC(text), buffer.toString());
+    assertEquals(-1, reader.read());
+  }
+
+  public void testLongSegment() throws IOException
+  {
+    StringBuffer buffer = new StringBuffer("e");
+    for (int i = 0; i < 100; i++)
+    {
+      buffer.append("\u0301\u0327");
+    }
+    buffer.append("x");
+    String text = buffer.toString();
+    assertEquals(StringNormalizer.toNFC(text),
+        readAll(new NormalizerReader(new StringReader(text), StringNormalizer.NFC, 8), 10));
+    assertEquals(StringNormalizer.toNFD(text),
+        readAll(new NormalizerReader(new StringReader(text), StringNormalizer.NFD, 8), 10));
+  }
+
+  public void testEmptyAndClose() throws IOException
+  {
+    Reader reader = new NormalizerReader(new StringReader(""), StringNormalizer.NFC);
+    assertEquals(-1, reader.read(new char[10], 0, 10));
+    reader.close();
+    try
+    {
+      reader.read();
+      fail();
+    } catch (IOException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      new NormalizerReader(new StringReader(""), 5);
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+}
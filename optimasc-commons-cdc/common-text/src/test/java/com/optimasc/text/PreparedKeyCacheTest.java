@@ -0,0 +1,160 @@
+package com.optimasc.text;
+
+import java.text.ParseException;
+
+import junit.framework.TestCase;
+
+public class PreparedKeyCacheTest extends TestCase
+{
+
+  public void testGetKey() throws ParseException
+  {
+    PreparedKeyCache cache = new PreparedKeyCache(StringPreparer.CASE_IGNORE
+        | StringPreparer.COLLAPSE_SPACES);
+    assertEquals("hello world", cache.getKey(" Hello  World "));
+    assertEquals("hello world", cache.getKey(" Hello  World "));
+    assertEquals("\u00E9t\u00E9", cache.getKey(new StringBuffer("E\u0301TE\u0301")));
+    assertTrue(cache.matches("\u00C9T\u00C9", "e\u0301te\u0301"));
+    assertFalse(cache.matches("abc", "abd"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(6, cache.getMissCount());
+    assertEquals(6, cache.size());
+    cache.resetCacheCounters();
+    assertEquals(0, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  public void testEviction() throws ParseException
+  {
+    PreparedKeyCache cache = new PreparedKeyCache(0, 1);
+    assertEquals("a", cache.getKey("a"));
+    assertEquals("b", cache.getKey("b"));
+    assertEquals("a", cache.getKey("a"));
+    assertEquals(1, cache.size());
+    assertEquals(2, cache.getEvictionCount());
+    assertEquals(3, cache.getMissCount());
+
+    cache = new PreparedKeyCache(0, 64);
+    for (int n = 0; n < 10; n++)
+    {
+      for (int i = 0; i < 1000; i++)
+      {
+        assertEquals("v" + i, cache.getKey("v" + i));
+      }
+    }
+    assertTrue(cache.size() <= 64);
+    assertEquals(10000, cache.getHitCount() + cache.getMissCount());
+    assertEquals(cache.getMissCount() - cache.size(), cache.getEvictionCount());
+  }
+
+  public void testMaximumSize() throws ParseException
+  {
+    int sizes[] = new int[] { 1, 3, 17, 100, 4096 };
+    for (int n = 0; n < sizes.length; n++)
+    {
+      PreparedKeyCache cache = new PreparedKeyCache(0, sizes[n]);
+      for (int i = 0; i < 20000; i++)
+      {
+        cache.getKey("v" + i);
+      }
+      // Every segment is full
+      assertEquals(sizes[n], cache.size());
+      assertEquals(20000 - sizes[n], cache.getEvictionCount());
+    }
+  }
+
+  /** Returns the index of the segment of a value in a cache of 16 segments. */
+  private static int segmentOf(String value)
+  {
+    int hash = value.hashCode();
+    return (hash ^ (hash >>> 16)) & 15;
+  }
+
+  public void testLeastRecentlyUsed() throws ParseException
+  {
+    // Three values of the same segment, which holds two values
+    String values[] = new String[3];
+    int count = 0;
+    for (int i = 0; count < values.length; i++)
+    {
+      if (segmentOf("v" + i) == 0)
+      {
+        values[count++] = "v" + i;
+      }
+    }
+    PreparedKeyCache cache = new PreparedKeyCache(0, 32);
+    cache.getKey(values[0]);
+    cache.getKey(values[1]);
+    cache.getKey(values[0]);
+    // The least recently used value is values[1]
+    cache.getKey(values[2]);
+    assertEquals(1, cache.getEvictionCount());
+    cache.getKey(values[0]);
+    assertEquals(2, cache.getHitCount());
+    cache.getKey(values[1]);
+    assertEquals(2, cache.getHitCount());
+    assertEquals(2, cache.getEvictionCount());
+  }
+
+  public void testProhibited()
+  {
+    PreparedKeyCache cache = new PreparedKeyCache(0);
+    try
+    {
+      cache.getKey("a\uFFFD");
+      fail();
+    } catch (ParseException e)
+    {
+      /* expected */
+    }
+    assertEquals(0, cache.size());
+    try
+    {
+      new PreparedKeyCache(0, 0);
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testConcurrentAccess() throws InterruptedException
+  {
+    final PreparedKeyCache cache = new PreparedKeyCache(StringPreparer.CASE_IGNORE, 100);
+    final boolean failed[] = new boolean[1];
+    Thread threads[] = new Thread[4];
+    for (int t = 0; t < threads.length; t++)
+    {
+      threads[t] = new Thread()
+      {
+        public void run()
+        {
+          try
+          {
+            for (int i = 0; i < 20000; i++)
+            {
+              String value = "Value" + (i % 300);
+              if (!cache.getKey(value).equals(value.toLowerCase()))
+              {
+                failed[0] = true;
+              }
+            }
+          } catch (ParseException e)
+          {
+            failed[0] = true;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++)
+    {
+      threads[t].join();
+    }
+    assertFalse(failed[0]);
+    assertTrue(cache.size() <= 100);
+    assertEquals(80000, cache.getHitCount() + cache.getMissCount());
+  }
+}
@@ -0,0 +1,210 @@
+package com.optimasc.text;
+
+import java.text.ParseException;
+import java.util.Calendar;
+
+import com.optimasc.lang.GregorianDatetimeCalendar;
+
+import junit.framework.TestCase;
+
+public class StandardDateFormattersTest extends TestCase
+{
+  protected static final String[] W3C_PATTERNS = { "yyyy", "yyyy-MM-dd'T'HH:mm:ss.SX",
+      "yyyy-MM-dd'T'HH:mm:ssX", "yyyy-MM-dd'T'HH:mmX", "yyyy-MM-dd",
+      "yyyy-MM" };
+
+  protected static final String[] W3C_VALUES = { "1997", "1997-07", "1997-07-16",
+      "1997-07-16T19:20+01:00", "1997-07-16T19:20:30+01:00", "1997-07-16T19:20:30.45+01:00",
+      "1997-07-16T19:20:30.5Z", "1997-07-16T19:20:30.123456-05:30", "2000-02-29T00:00:00Z",
+      "0001-01-01", "1997-07-16T24:00:00Z" };
+
+  protected static final String[] W3C_INVALID = { "", "199", "19970", "1997-", "1997-7",
+      "1997-13", "1997-07-1", "1997-07-16T", "1997-07-16T19:20", "1997-07-16T19:20:30",
+      "1997-07-16T19:20:30.Z", "1997-07-16T19:20:30+0100", "1997-07-16T19:20:30-00:00",
+      "1997-07-16T19:20:30Zx", "1997-07-16 19:20:30Z", "1997-07-16T25:20:30Z" };
+
+  protected static final String[] GENERALIZED_VALUES = { "1997071619", "199707161920",
+      "19970716192030", "19970716192030.123", "1997071619Z", "199707161920+0100",
+      "19970716192030-05", "19970716192030.123Z", "19970716192030.123-0530" };
+
+  protected static final String[] GENERALIZED_INVALID = { "19970716", "199707161", "1997071619203",
+      "1997071619.123", "19970716192030.12", "19970716192030+1", "19970716192030-0000", "1997071619+" };
+
+  protected static final String[] TIME_VALUES = { "19:20:30", "T19:20:30", "19:20:30.5",
+      "19:20:30Z", "T19:20:30.25+01:00", "19:20:30-08:00" };
+
+  protected static final String[] TIME_INVALID = { "19:20", "19:20:3", "T", "19:20:30.", "19:20:30+01",
+      "19:20:30 " };
+
+  protected static void assertSameCalendar(String value, Calendar expected, Calendar actual)
+  {
+    for (int field = 0; field < Calendar.FIELD_COUNT; field++)
+    {
+      assertEquals(value + " field " + field, ((GregorianDatetimeCalendar) expected).isUserSet(field),
+          ((GregorianDatetimeCalendar) actual).isUserSet(field));
+      if (((GregorianDatetimeCalendar) expected).isUserSet(field))
+      {
+        assertEquals(value + " field " + field, expected.get(field), actual.get(field));
+      }
+    }
+  }
+
+  /** Parses the value with the first of the patterns that matches. */
+  protected static Calendar parseWithPatterns(String[] patterns, String value)
+  {
+    for (int i = 0; i < patterns.length; i++)
+    {
+      try
+      {
+        return (Calendar) new DateConverter(new String[] { patterns[i] }).parseObject(value);
+      } catch (Exception e)
+      {
+        /* try the next pattern */
+      }
+    }
+    fail(value);
+    return null;
+  }
+
+  /** Checks that the converter gives the same result as a generic
+   *  converter built with the same patterns. */
+  protected static void assertSameAsPatterns(DateConverter converter, String[] patterns,
+      String[] values, String[] invalid) throws ParseException
+  {
+    DateTimeFields fields = new DateTimeFields();
+    for (int i = 0; i < values.length; i++)
+    {
+      Calendar expected = parseWithPatterns(patterns, values[i]);
+      assertSameCalendar(values[i], expected, (Calendar) converter.parseObject(values[i]));
+      assertTrue(values[i], converter.parse(values[i], fields));
+      assertEquals(values[i], -1, fields.getErrorIndex());
+      assertSameCalendar(values[i], expected, fields.toCalendar());
+    }
+    for (int i = 0; i < invalid.length; i++)
+    {
+      assertFalse(invalid[i], converter.parse(invalid[i], fields));
+      assertTrue(invalid[i], fields.getErrorIndex() >= 0);
+      try
+      {
+        converter.parseObject(invalid[i]);
+        fail(invalid[i]);
+      } catch (ParseException e)
+      {
+        /* expected */
+      } catch (RuntimeException e)
+      {
+        /* also thrown by the generic parser for some values */
+      }
+    }
+  }
+
+  public void testW3CDateTime() throws ParseException
+  {
+    assertSameAsPatterns(new StandardDateFormatters.W3CDateTimeConverter(), W3C_PATTERNS, W3C_VALUES,
+        W3C_INVALID);
+  }
+
+  public void testGeneralizedTime() throws ParseException
+  {
+    assertSameAsPatterns(new StandardDateFormatters.GeneralizedTimeConverter(), new String[] {
+        "yyyyMMddHHmmss.SSSx", "yyyyMMddHHmmssx", "yyyyMMddHHmmx", "yyyyMMddHHx", "yyyyMMddHH",
+        "yyyyMMddHHmm", "yyyyMMddHHmmss", "yyyyMMddHHmmss.SSS" }, GENERALIZED_VALUES,
+        GENERALIZED_INVALID);
+  }
+
+  public void testISO8601Time() throws ParseException
+  {
+    assertSameAsPatterns(new StandardDateFormatters.ISO8601TimeConverter(), new String[] {
+        "HH:mm:ss.SX", "HH:mm:ss.S", "HH:mm:ssX", "HH:mm:ss", "'T'HH:mm:ss.SX", "'T'HH:mm:ss.S",
+        "'T'HH:mm:ssX", "'T'HH:mm:ss" }, TIME_VALUES, TIME_INVALID);
+  }
+
+  public void testISO8601Date() throws ParseException
+  {
+    assertSameAsPatterns(new StandardDateFormatters.ISO8601DateConverter(),
+        new String[] { "yyyy-MM-dd" }, new String[] { "1997-07-16", "2024-12-31" }, new String[] {
+            "1997-07", "1997-07-16T", "1997/07/16", "1997-00-16" });
+  }
+
+  public void testParseFields()
+  {
+    DateTimeFields fields = new DateTimeFields();
+    DateConverter converter = new StandardDateFormatters.W3CDateTimeConverter();
+    assertTrue(converter.parse("1997-07-16T19:20:30.045-01:30", fields));
+    assertEquals(1997, fields.getYear());
+    assertEquals(7, fields.getMonth());
+    assertEquals(16, fields.getDay());
+    assertEquals(19, fields.getHour());
+    assertEquals(20, fields.getMinute());
+    assertEquals(30, fields.getSecond());
+    assertEquals(45, fields.getMillisecond());
+    assertEquals(-(90 * 60 * 1000), fields.getZoneOffset());
+
+    assertTrue(converter.parse("1997-07", fields));
+    assertEquals(1997, fields.getYear());
+    assertEquals(7, fields.getMonth());
+    assertEquals(DateTimeFields.FIELD_UNDEFINED, fields.getDay());
+    assertEquals(DateTimeFields.FIELD_UNDEFINED, fields.getZoneOffset());
+
+    assertFalse(converter.parse("1997-07-16T19:20:30+01", fields));
+    assertEquals(DateTimeFields.FIELD_UNDEFINED, fields.getYear());
+  }
+
+  public void testParseFractionRounding() throws ParseException
+  {
+    DateTimeFields fields = new DateTimeFields();
+    DateConverter converter = new StandardDateFormatters.W3CDateTimeConverter();
+    String values[] = { "2020-01-01T00:00:00.9995Z", "2020-01-01T00:00:00.99999Z" };
+    for (int i = 0; i < values.length; i++)
+    {
+      // Rounded up to the next second, clamped to the last millisecond
+      assertTrue(values[i], converter.parse(values[i], fields));
+      assertEquals(values[i], 0, fields.getSecond());
+      assertEquals(values[i], 999, fields.getMillisecond());
+      Calendar calendar = (Calendar) converter.parseObject(values[i]);
+      assertEquals(values[i], 0, calendar.get(Calendar.SECOND));
+      assertEquals(values[i], 999, calendar.get(Calendar.MILLISECOND));
+    }
+    assertTrue(converter.parse("2020-01-01T00:00:00.0005Z", fields));
+    assertEquals(1, fields.getMillisecond());
+    assertTrue(converter.parse("2020-01-01T00:00:00.9994Z", fields));
+    assertEquals(999, fields.getMillisecond());
+  }
+
+  public void testFormatFields()
+  {
+    DateTimeFields fields = new DateTimeFields();
+    fields.setYear(1997);
+    fields.setMonth(7);
+    fields.setDay(6);
+    fields.setHour(9);
+    fields.setMinute(5);
+    fields.setSecond(3);
+    fields.setMillisecond(45);
+    fields.setZoneOffset(-(90 * 60 * 1000));
+    assertEquals("19970706090503.045-0130", new StandardDateFormatters.GeneralizedTimeConverter()
+        .format(fields, new StringBuffer()).toString());
+    assertEquals("1997-07-06", new StandardDateFormatters.ISO8601DateConverter().format(fields,
+        new StringBuffer()).toString());
+    assertEquals("09:05:03.0-01:30", StandardDateFormatters.ISO8601_TIME.format(fields,
+        new StringBuffer()).toString());
+    fields.setMillisecond(999);
+    fields.setZoneOffset(0);
+    assertEquals("09:05:03.9Z", StandardDateFormatters.ISO8601_TIME.format(fields,
+        new StringBuffer()).toString());
+    fields.setYear(-44);
+    fields.setMonth(3);
+    fields.setDay(15);
+    assertEquals("-044-03-15", new DateConverter(new String[] { "-yyyy-MM-dd" }).format(fields,
+        new StringBuffer()).toString());
+    fields.clear();
+    try
+    {
+      StandardDateFormatters.ISO8601_TIME.format(fields, new StringBuffer());
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.optimasc.text;
+
+import junit.framework.TestCase;
+
+public class StringNormalizerTest extends TestCase
+{
+
+  public void testNFC()
+  {
+    assertEquals("\u00E9", StringNormalizer.toNFC("e\u0301"));
+    assertEquals("\u00E9t\u00E9", StringNormalizer.toNFC("e\u0301te\u0301"));
+    // Multi-mark sequence composed in two steps
+    assertEquals("\u01DE", StringNormalizer.toNFC("A\u0308\u0304"));
+    assertEquals("\u01DE", StringNormalizer.toNFC("\u00C4\u0304"));
+    assertEquals("\u1E7A", StringNormalizer.toNFC("U\u0304\u0308"));
+    // A mark which does not compose blocks the following marks of the same class
+    assertEquals("a\u0346\u0301", StringNormalizer.toNFC("a\u0346\u0301"));
+    // Marks which do not compose are kept, in canonical order
+    assertEquals("a\u0327", StringNormalizer.toNFC("a\u0327"));
+    assertEquals("\u00E1\u0327", StringNormalizer.toNFC("a\u0301\u0327"));
+    assertEquals("\u1E09", StringNormalizer.toNFC("c\u0301\u0327"));
+    assertEquals("\u0301a", StringNormalizer.toNFC("\u0301a"));
+    // Singletons and non-starter decompositions are never composed
+    assertEquals("\u00B7", StringNormalizer.toNFC("\u0387"));
+    assertEquals("\u0308\u0301", StringNormalizer.toNFC("\u0344"));
+    assertEquals("\u0390", StringNormalizer.toNFC("\u03B9\u0308\u0301"));
+    assertEquals("\u0419", StringNormalizer.toNFC("\u0418\u0306"));
+    assertEquals("", StringNormalizer.toNFC(""));
+    assertNull(StringNormalizer.toNFC(null));
+  }
+
+  public void testNFD()
+  {
+    assertEquals("e\u0301", StringNormalizer.toNFD("\u00E9"));
+    assertEquals("U\u0308\u0304", StringNormalizer.toNFD("\u01D5"));
+    assertEquals("\u03B9\u0308\u0301", StringNormalizer.toNFD("\u0390"));
+    // Canonical ordering also applies to the marks which follow
+    assertEquals("c\u0327\u0301", StringNormalizer.toNFD("\u00E7\u0301"));
+    assertEquals("a\u0327\u0301", StringNormalizer.toNFD("a\u0301\u0327"));
+    assertEquals("a\u0327\u0316\u0301\u0300", StringNormalizer.toNFD("a\u0301\u0327\u0300\u0316"));
+    assertEquals("\u00BD", StringNormalizer.toNFD("\u00BD"));
+  }
+
+  public void testNFKCAndNFKD()
+  {
+    assertEquals("1\u20442", StringNormalizer.toNFKC("\u00BD"));
+    assertEquals(" \u0308", StringNormalizer.toNFKD("\u00A8"));
+    assertEquals("\u0385", StringNormalizer.toNFC("\u00A8\u0301"));
+    assertEquals(" \u0308\u0301", StringNormalizer.toNFKC("\u0385"));
+    assertEquals("\u00E9", StringNormalizer.toNFKC("e\u0301"));
+    assertEquals("\u02B9", StringNormalizer.toNFKC("\u02B9"));
+    assertEquals("h", StringNormalizer.toNFKD("\u02B0"));
+  }
+
+  public void testIsNormalized()
+  {
+    assertTrue(StringNormalizer.isNormalized("abc", StringNormalizer.NFC));
+    assertTrue(StringNormalizer.isNormalized("\u00E9t\u00E9", StringNormalizer.NFC));
+    assertFalse(StringNormalizer.isNormalized("\u00E9t\u00E9", StringNormalizer.NFD));
+    assertTrue(StringNormalizer.isNormalized("e\u0301", StringNormalizer.NFD));
+    assertFalse(StringNormalizer.isNormalized("e\u0301", StringNormalizer.NFC));
+    assertTrue(StringNormalizer.isNormalized("\u0301", StringNormalizer.NFC));
+    assertTrue(StringNormalizer.isNormalized("a\u0327", StringNormalizer.NFC));
+    assertFalse(StringNormalizer.isNormalized("a\u0301\u0327", StringNormalizer.NFD));
+    assertFalse(StringNormalizer.isNormalized("\u0387", StringNormalizer.NFC));
+    assertTrue(StringNormalizer.isNormalized("\u00BD", StringNormalizer.NFC));
+    assertFalse(StringNormalizer.isNormalized("\u00BD", StringNormalizer.NFKC));
+    assertTrue(StringNormalizer.isNormalized("\u00E9", StringNormalizer.NFKC));
+    assertFalse(StringNormalizer.isNormalized("\u00E9", StringNormalizer.NFKD));
+    try
+    {
+      StringNormalizer.isNormalized("abc", 4);
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testNormalizedInputUnchanged()
+  {
+    String value = "Ren\u00E9e \u00C5ngstr\u00F6m";
+    assertSame(value, StringNormalizer.toNFC(value));
+    assertSame(value, StringNormalizer.normalize(value, StringNormalizer.NFC));
+    value = "plain ascii";
+    assertSame(value, StringNormalizer.toNFD(value));
+    assertSame(value, StringNormalizer.toNFKC(value));
+    assertSame(value, StringNormalizer.toNFKD(value));
+  }
+
+  public void testNormalizeChunks()
+  {
+    String text = "Ame\u0301lie c\u0301\u0327a\u0308\u0304 \u00BD \u0390\u0344x\u0418\u0306";
+    char[] input = text.toCharArray();
+    int forms[] = { StringNormalizer.NFC, StringNormalizer.NFD, StringNormalizer.NFKC,
+        StringNormalizer.NFKD };
+    for (int f = 0; f < forms.length; f++)
+    {
+      char[] output = new char[input.length * StringNormalizer.getMaxDecompositionLength()];
+      int outputLen = 0;
+      int start = 0;
+      // Normalize chunks of about 4 characters, split at segment boundaries
+      while (start < input.length)
+      {
+        int end = Math.min(start + 4, input.length);
+        while ((end < input.length)
+            && (StringNormalizer.lastSegmentStart(input, start, end - start + 1) == start))
+        {
+          end++;
+        }
+        if (end < input.length)
+        {
+          end = StringNormalizer.lastSegmentStart(input, start, end - start + 1);
+        }
+        outputLen += StringNormalizer.normalize(input, start, end - start, output, outputLen,
+            forms[f]);
+        start = end;
+      }
+      assertEquals(StringNormalizer.normalize(text, forms[f]), new String(output, 0, outputLen));
+    }
+    // Combining marks never start a segment
+    assertEquals(2, StringNormalizer.lastSegmentStart(input, 2, 2));
+    assertEquals(5, StringNormalizer.lastSegmentStart(input, 0, 6));
+  }
+
+  public void testSupplementaryAndHangul()
+  {
+    // KAITHI LETTER VA is composed of two supplementary code points
+    assertEquals("\uD804\uDC9A", StringNormalizer.toNFC("\uD804\uDC99\uD804\uDCBA"));
+    assertEquals("\uD804\uDC99\uD804\uDCBA", StringNormalizer.toNFD("\uD804\uDC9A"));
+    assertFalse(StringNormalizer.isNormalized("\uD804\uDC9A", StringNormalizer.NFD));
+    assertTrue(StringNormalizer.isNormalized("\uD804\uDC9A", StringNormalizer.NFC));
+    // Supplementary combining marks are reordered as a whole
+    assertEquals("a\uD834\uDD65\uD834\uDD6E\u0301",
+        StringNormalizer.toNFD("a\uD834\uDD65\u0301\uD834\uDD6E"));
+    assertEquals("\u00E1\uD834\uDD65\uD834\uDD6E",
+        StringNormalizer.toNFC("a\uD834\uDD65\u0301\uD834\uDD6E"));
+    // Hangul syllables are decomposed and composed algorithmically
+    assertEquals("\u1100\u1161\u11A8", StringNormalizer.toNFD("\uAC01"));
+    assertEquals("\uAC01", StringNormalizer.toNFC("\u1100\u1161\u11A8"));
+    assertEquals("\uAC01", StringNormalizer.toNFC("\uAC00\u11A8"));
+    assertEquals("fi", StringNormalizer.toNFKC("\uFB01"));
+    assertEquals("\uFB01", StringNormalizer.toNFC("\uFB01"));
+    // Unpaired surrogates are kept
+    assertEquals("\uD804a\u00E9", StringNormalizer.toNFC("\uD804ae\u0301"));
+    assertNotNull(StringNormalizer.getUnicodeVersion());
+  }
+
+  public void testRoundTrip()
+  {
+    for (char c = 0; c < 0x0500; c++)
+    {
+      String value = String.valueOf(c);
+      String nfd = StringNormalizer.toNFD(value);
+      assertTrue(Integer.toHexString(c), StringNormalizer.isNormalized(nfd, StringNormalizer.NFD));
+      String nfc = StringNormalizer.toNFC(value);
+      assertEquals(Integer.toHexString(c), nfc, StringNormalizer.toNFC(nfd));
+      assertTrue(Integer.toHexString(c), StringNormalizer.isNormalized(nfc, StringNormalizer.NFC));
+      assertEquals(Integer.toHexString(c), StringNormalizer.isNormalized(value, StringNormalizer.NFC),
+          nfc.equals(value));
+    }
+  }
+}
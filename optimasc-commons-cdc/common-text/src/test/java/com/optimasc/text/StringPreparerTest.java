@@ -0,0 +1,99 @@
+package com.optimasc.text;
+
+import java.text.ParseException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class StringPreparerTest extends TestCase
+{
+
+  public void testCaseExact() throws ParseException
+  {
+    StringPreparer preparer = new StringPreparer(StringPreparer.COLLAPSE_SPACES);
+    assertEquals("Hello World", preparer.prepare("  Hello \t\n  World "));
+    assertEquals("Caf\u00E9 1/2", preparer.prepare("Cafe\u0301\u00A01/2"));
+    assertEquals("1\u20442 fi", preparer.prepare("\u00BD\u3000\uFB01"));
+    assertEquals("ab", preparer.prepare("a\u200B\u00ADb"));
+    assertEquals("", preparer.prepare(" \t "));
+    // A space produced by the normalization is also collapsed
+    assertEquals("a \u0308", preparer.prepare("a \u00A8"));
+    assertEquals("hello world", StringNormalizer.prepareCaseExact(" Hello  World"));
+  }
+
+  public void testCaseIgnore() throws ParseException
+  {
+    StringPreparer preparer = new StringPreparer(StringPreparer.CASE_IGNORE
+        | StringPreparer.COLLAPSE_SPACES);
+    assertEquals("hello world", preparer.prepare("  HELLO \r\n World "));
+    assertEquals("\u00E9l\u00E8ve", preparer.prepare("E\u0301L\u00C8VE"));
+    assertEquals(preparer.prepare("\u00C9l\u00E8ve"), preparer.prepare("e\u0301le\u0300ve"));
+    assertEquals("Hello WORLD", StringNormalizer.prepareCaseIgnore("Hello   WORLD"));
+  }
+
+  public void testRemoveDiacritics() throws ParseException
+  {
+    StringPreparer preparer = new StringPreparer(StringPreparer.CASE_IGNORE
+        | StringPreparer.REMOVE_DIACRITICS);
+    assertEquals("eleve  a", preparer.prepare("\u00C9l\u00E8ve  \u00C0"));
+    assertEquals("eleve", StringNormalizer.prepareCaseIgnoreNoDiacritics("\u00C9L\u00C8VE"));
+    assertEquals("ElEVE", StringNormalizer.prepareCaseExactNoDiacritics("\u00C9l\u00C8VE"));
+    assertNull(StringNormalizer.prepareCaseExactNoDiacritics(null));
+  }
+
+  public void testProhibited()
+  {
+    StringPreparer preparer = new StringPreparer(0);
+    String values[] = { "ab\uE000", "a\uFFFD", "a\uFDD0", "a\uD800" };
+    for (int i = 0; i < values.length; i++)
+    {
+      try
+      {
+        preparer.prepare(values[i]);
+        fail(values[i]);
+      } catch (ParseException e)
+      {
+        assertEquals(values[i].length() - 1, e.getErrorOffset());
+      }
+    }
+    try
+    {
+      new StringPreparer(0x10);
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+
+  /**
+   * Compares the preparation with the separate mapping, normalization and
+   * whitespace collapsing steps.
+   */
+  public void testSeparateSteps() throws ParseException
+  {
+    char pool[] = { 'a', 'B', ' ', ' ', '\t', '\n', '\u00A0', '\u3000', '\u00E9', '\u00C0',
+        '\u0301', '\u0327', '\u00BD', '\u00A8', '\uFB01', '\u200B', '\u2028', '\u0130',
+        '\u212A', '\u1E9E', '\u0000' };
+    StringPreparer exact = new StringPreparer(StringPreparer.COLLAPSE_SPACES);
+    StringPreparer ignore = new StringPreparer(StringPreparer.CASE_IGNORE
+        | StringPreparer.COLLAPSE_SPACES);
+    Random random = new Random(18);
+    for (int n = 0; n < 5000; n++)
+    {
+      StringBuffer buffer = new StringBuffer();
+      int length = random.nextInt(12);
+      for (int i = 0; i < length; i++)
+      {
+        buffer.append(pool[random.nextInt(pool.length)]);
+      }
+      String value = buffer.toString();
+      String expected = StringNormalizer.collapseWhitespace(StringNormalizer.toNFKC(
+          StringNormalizer.mapAndVerifyNormalizedString(value, false)).trim());
+      assertEquals(expected, exact.prepare(value));
+      expected = StringNormalizer.collapseWhitespace(StringNormalizer.toNFKC(
+          StringNormalizer.mapAndVerifyNormalizedString(value, true)).trim());
+      assertEquals(expected, ignore.prepare(value));
+    }
+  }
+}
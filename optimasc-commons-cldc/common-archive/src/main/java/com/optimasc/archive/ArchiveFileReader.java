@@ -1,5 +1,6 @@
 package com.optimasc.archive;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Vector;
@@ -154,7 +155,16 @@ public abstract class ArchiveFileReader
 
     protected final void read(byte[] buffer, int off, int len) throws IOException
     {
-        is.read(buffer, off, len);
+        int total = 0;
+        while (total < len)
+        {
+            int count = is.read(buffer, off + total, len - total);
+            if (count < 0)
+            {
+                throw new EOFException();
+            }
+            total += count;
+        }
         position += len;
     }
 
@@ -1,10 +1,15 @@
 package com.optimasc.archive;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Hashtable;
 import java.util.Vector;
 
+import com.optimasc.io.SeekableDataInputStream;
 import com.optimasc.nio.charset.CharSets;
+import com.optimasc.nio.charset.UnicodeUtilities;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -12,7 +17,7 @@ import java.util.TimeZone;
 // TODO:
 //  - Filesystem attributes setting (NTFS, MS-DOS)
 // Limitations:
-//  - Does not support ZIP64 format
+//  - Does not support multi-disk archives
 //  - Does not support encrypted file formats (encryption headers)
 //
 
@@ -25,20 +30,58 @@ import java.util.TimeZone;
  *  and each file within the archive. It also extracts the file
  *  attributes as used in the ExtraField attributes.
  *
+ *  <p>When created on an <code>InputStream</code>, the whole stream is
+ *  scanned to read the entries. When created on a
+ *  {@link SeekableDataInputStream}, only the end of central directory
+ *  record and the central directory are read, and the data of each
+ *  entry is accessed directly at its offset, so that opening an archive
+ *  and reading one of its entries does not depend on the size of the
+ *  archive. In this mode, the streams returned by
+ *  {@link #getInputStream(ArchiveEntry)} can be read concurrently by
+ *  several threads, the accesses to the underlying stream being
+ *  serialized.</p>
+ *
+ *  <p>The streams returned by {@link #getInputStream(ArchiveEntry)}
+ *  return the raw, possibly compressed, data of the entry.</p>
+ *
+ *  <p>The ZIP64 extensions are supported, so that archives and entries
+ *  larger than 4 GB and archives with more than 65535 entries can be
+ *  read. Archives that must be processed as they are received should
+ *  be read with {@link ZIPStreamReader} instead.</p>
+ *
  * @author Carl Eric Codere
  */
 public class ZIPFileReader extends ArchiveFileReader
 {
 
-    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
-    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
-    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
-    private static final int ARCHIVE_EXTRA_DATA_SIGNATURE = 0x08064b50;
-    private static final int CENTRAL_END_HEADER_SIGNATURE = 0x06054b50;
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int ARCHIVE_EXTRA_DATA_SIGNATURE = 0x08064b50;
+    static final int CENTRAL_END_HEADER_SIGNATURE = 0x06054b50;
+    static final int ZIP64_CENTRAL_END_HEADER_SIGNATURE = 0x06064b50;
+    static final int ZIP64_CENTRAL_END_LOCATOR_SIGNATURE = 0x07064b50;
+
+    /** Size of the fixed part of a local file header */
+    static final int LOCAL_HEADER_SIZE = 30;
+    /** Size of the fixed part of the end of central directory record */
+    private static final int CENTRAL_END_HEADER_SIZE = 22;
+    /** Size of the ZIP64 end of central directory locator */
+    private static final int ZIP64_CENTRAL_END_LOCATOR_SIZE = 20;
+    /** Size of the fixed part of the ZIP64 end of central directory record */
+    private static final int ZIP64_CENTRAL_END_HEADER_SIZE = 56;
+
+    /** Value of a 32-bit size or offset field whose actual value is
+     *  stored in the ZIP64 extended information extra field. */
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    /** Value of a 16-bit count field whose actual value is stored in
+     *  the ZIP64 end of central directory record. */
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
 
 
     /* Private chunk identifiers in ExtraData field */
-    private static final int CHUNK_UNICODE_PATH = 0x7075;
+    static final int CHUNK_ZIP64 = 0x0001;
+    static final int CHUNK_UNICODE_PATH = 0x7075;
     private static final int CHUNK_UNICODE_COMMENT = 0x6375;
     private static final int CHUNK_NTFS_ATTRIBUTES = 0x000A;
     private static final int CHUNK_UNIX_TIMESTAMP = 0x5455;
@@ -47,13 +90,13 @@ public class ZIPFileReader extends ArchiveFileReader
      * Indicates that the size, compressed size and uncompressed sizes are zero,
      * and a data descriptor immediately follows the file data.
      */
-    private int FLAGS_DATA_DESCRIPTOR = 1 << 3;
+    static final int FLAGS_DATA_DESCRIPTOR = 1 << 3;
     /**
      * If this flag is set, it indicates that the filename and comments are stored
      * in UTF-8 format.
      *
      */
-    private int FLAGS_UTF8_NAMES = 1 << 11;
+    static final int FLAGS_UTF8_NAMES = 1 << 11;
     /**
      * Temporary buffer used for reading comments or filenames.
      *
@@ -69,30 +112,163 @@ public class ZIPFileReader extends ArchiveFileReader
      */
     private Vector entries;
 
+    /** The entries of the archive indexed by name. */
+    private Hashtable index;
+    /** The stream used for random access, or null if the
+     *  archive is read sequentially. */
+    private SeekableDataInputStream source;
+
     /** This is the comment archive */
     private String archiveComment;
 
+    /** Reads the archive by scanning the complete stream.
+     *
+     * @param is The stream containing the archive, which must support marking
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If this is not a valid ZIP file
+     */
     public ZIPFileReader(InputStream is) throws IOException, IllegalArgumentException
     {
         super(is);
         buffer = new byte[65535];
         stringBuffer = new StringBuffer(8192);
         entries = readEntries();
+        index = createIndex(entries);
+    }
+
+    /** Reads the archive from its central directory, using random
+     *  access to the stream. The stream is closed when this reader
+     *  is closed.
+     *
+     * @param is The stream containing the archive
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If this is not a valid ZIP file
+     */
+    public ZIPFileReader(SeekableDataInputStream is) throws IOException, IllegalArgumentException
+    {
+        super(is);
+        buffer = new byte[65535];
+        stringBuffer = new StringBuffer(8192);
+        source = is;
+        entries = readCentralDirectory();
+        index = createIndex(entries);
+    }
+
+    private static Hashtable createIndex(Vector v)
+    {
+        Hashtable table = new Hashtable(v.size() * 2 + 1);
+        for (int i = 0; i < v.size(); i++)
+        {
+            ZipEntry entry = (ZipEntry) v.elementAt(i);
+            /* Keep the first entry in case of duplicate names */
+            if (table.containsKey(entry.getName()) == false)
+            {
+                table.put(entry.getName(), entry);
+            }
+        }
+        return table;
+    }
+
+    /** Reads the entries of the archive from the central directory,
+     *  which is located using the end of central directory record.
+     */
+    protected Vector readCentralDirectory() throws IOException
+    {
+        long length = source.length();
+        int tailLength = (int) Math.min(length, CENTRAL_END_HEADER_SIZE + 65535);
+        if (tailLength < CENTRAL_END_HEADER_SIZE)
+        {
+            throw new IllegalArgumentException("This is not a valid zip file!");
+        }
+        byte[] tail = new byte[tailLength];
+        source.seek(length - tailLength);
+        source.readFully(tail, 0, tailLength);
+
+        // Search backwards for the end of central directory record
+        int end = -1;
+        for (int i = tailLength - CENTRAL_END_HEADER_SIZE; i >= 0; i--)
+        {
+            if ((getIntLittle(tail, i) == CENTRAL_END_HEADER_SIGNATURE) &&
+                (i + CENTRAL_END_HEADER_SIZE + (getShortLittle(tail, i + 20) & 0xFFFF) <= tailLength))
+            {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0)
+        {
+            throw new IllegalArgumentException("This is not a valid zip file!");
+        }
+        long dirEntries = getShortLittle(tail, end + 10) & 0xFFFF;
+        long dirSize = getIntLittle(tail, end + 12) & 0xFFFFFFFFL;
+        long dirOffset = getIntLittle(tail, end + 16) & 0xFFFFFFFFL;
+        int commentLength = getShortLittle(tail, end + 20) & 0xFFFF;
+        long dirEnd = length - tailLength + end;
+        archiveComment = decodeCP437(tail, end + CENTRAL_END_HEADER_SIZE, commentLength, stringBuffer);
+
+        // ZIP64 archive: the values are in the ZIP64 end of central directory record
+        int locator = end - ZIP64_CENTRAL_END_LOCATOR_SIZE;
+        if ((locator >= 0) && (getIntLittle(tail, locator) == ZIP64_CENTRAL_END_LOCATOR_SIGNATURE))
+        {
+            long recordOffset = getLongLittle(tail, locator + 8);
+            // The record must end before the locator
+            if ((recordOffset < 0) || (recordOffset > dirEnd - ZIP64_CENTRAL_END_LOCATOR_SIZE
+                - ZIP64_CENTRAL_END_HEADER_SIZE))
+            {
+                throw new IllegalArgumentException("Unknown or corrupt ZIP file!");
+            }
+            byte[] record = new byte[ZIP64_CENTRAL_END_HEADER_SIZE];
+            source.seek(recordOffset);
+            source.readFully(record, 0, record.length);
+            if (getIntLittle(record, 0) != ZIP64_CENTRAL_END_HEADER_SIGNATURE)
+            {
+                throw new IllegalArgumentException("Unknown or corrupt ZIP file!");
+            }
+            dirEntries = getLongLittle(record, 32);
+            dirSize = getLongLittle(record, 40);
+            dirOffset = getLongLittle(record, 48);
+            dirEnd = recordOffset;
+        } else
+        if ((dirEntries == ZIP64_MAGIC_COUNT) || (dirSize == ZIP64_MAGIC) || (dirOffset == ZIP64_MAGIC))
+        {
+            throw new IllegalArgumentException("Missing ZIP64 end of central directory record!");
+        }
+        if ((dirEntries < 0) || (dirSize < 0) || (dirOffset < 0) ||
+            (dirSize > Integer.MAX_VALUE) || (dirEntries > dirSize / 46) || (dirOffset + dirSize > dirEnd))
+        {
+            throw new IllegalArgumentException("Unknown or corrupt ZIP file!");
+        }
+
+        // Read the complete directory in memory, and parse it from there
+        byte[] directory = new byte[(int) dirSize];
+        source.seek(dirOffset);
+        source.readFully(directory, 0, directory.length);
+        Vector v = new Vector((int) dirEntries);
+        is = new ByteArrayInputStream(directory);
+        try
+        {
+            for (long i = 0; i < dirEntries; i++)
+            {
+                if (readUnsignedInt() != CENTRAL_HEADER_SIGNATURE)
+                {
+                    throw new IllegalArgumentException("Unknown or corrupt ZIP file!");
+                }
+                v.addElement(readCentralEntry());
+            }
+        } finally
+        {
+            is = source;
+        }
+        return v;
     }
 
     protected Vector readEntries() throws IOException
     {
-        ZipEntry entry;
-        String filename;
-        int i;
         int length;
         long signature;
-        String comment = null;
         byte[] extraDataBuffer = null;
         Vector v = new Vector();
         Date internalmodificationTime;
-        Date internalCreationTime;
-        Date internalAccessTime;
 
         // Local header signature
         signature = readUnsignedInt();
@@ -114,6 +290,8 @@ public class ZIPFileReader extends ArchiveFileReader
             int nameLength = readUnsignedShort();
             int extraLength = readUnsignedShort();
 
+            boolean zip64 = false;
+
             // Read the filename length.
             read(buffer, 0, nameLength);
             // Read the extra data
@@ -121,6 +299,13 @@ public class ZIPFileReader extends ArchiveFileReader
             {
                 extraDataBuffer = new byte[extraLength];
                 read(extraDataBuffer, 0, extraLength);
+                int offset = findTag(CHUNK_ZIP64, extraDataBuffer, 0, extraLength);
+                if (offset != -1)
+                {
+                    // The local header always contains both sizes
+                    zip64 = true;
+                    compressedSize = getLongLittle(extraDataBuffer, offset + 2 + 8);
+                }
             }
             // Skip the compressed data
             skip(compressedSize);
@@ -133,8 +318,15 @@ public class ZIPFileReader extends ArchiveFileReader
                 {
                     crc32 = readUnsignedInt();
                 }
-                compressedSize = readUnsignedInt();
-                uncompressedSize = readUnsignedInt();
+                if (zip64)
+                {
+                    compressedSize = readLong();
+                    uncompressedSize = readLong();
+                } else
+                {
+                    compressedSize = readUnsignedInt();
+                    uncompressedSize = readUnsignedInt();
+                }
             }
             signature = readUnsignedInt();
         } while (signature == LOCAL_HEADER_SIGNATURE);
@@ -158,188 +350,249 @@ public class ZIPFileReader extends ArchiveFileReader
         }
         do
         {
-            comment = null;
-            filename = null;
-            internalAccessTime = null;
-            internalCreationTime = null;
-            int version = readUnsignedShort();
-            version = readUnsignedShort();
-            int flags = readUnsignedShort();
-            int method = readUnsignedShort();
-            long tstamp = readUnsignedInt();
-            internalmodificationTime = DOSDateTimeToCalendar(tstamp).getTime();
-            long crc32 = readUnsignedInt();
-            long compressedSize = readUnsignedInt();
-            long uncompressedSize = readUnsignedInt();
-            int nameLength = readUnsignedShort();
-            int extraLength = readUnsignedShort();
-            int commentLength = readUnsignedShort();
-            int diskNumberStart = readUnsignedShort();
-            int internalFileAttributes = readUnsignedShort();
-            long externalFileAttributes = readUnsignedInt();
-            long relativeOffset = readUnsignedInt();
-
+            v.addElement(readCentralEntry());
+            signature = readUnsignedInt();
+        } while (signature == CENTRAL_HEADER_SIGNATURE);
 
-            // Read the filename length.
-            read(buffer, 0, nameLength);
-            // Convert to correct character set
-            if ((flags & FLAGS_UTF8_NAMES) == FLAGS_UTF8_NAMES)
-            {
-                filename = new String(buffer, 0, nameLength, "UTF-8");
-            } else
-            // Code Page 437 - Convert to UCS-2 format
+        // Skip the ZIP64 end of central directory record and locator
+        if (signature == ZIP64_CENTRAL_END_HEADER_SIGNATURE)
+        {
+            skip(readLong());
+            signature = readUnsignedInt();
+            if (signature == ZIP64_CENTRAL_END_LOCATOR_SIGNATURE)
             {
-                stringBuffer.ensureCapacity(nameLength);
-                stringBuffer.setLength(0);
-                for (i = 0; i < nameLength; i++)
-                {
-                    stringBuffer.append(CharSets.CodePage437ToUCS2[buffer[i] & 0xff]);
-                }
-                filename = stringBuffer.toString();
+                skip(ZIP64_CENTRAL_END_LOCATOR_SIZE - 4);
+                signature = readUnsignedInt();
             }
+        }
+        // Get the comment number
+        if (signature == CENTRAL_END_HEADER_SIGNATURE)
+        {
+            int diskNumber = readUnsignedShort();
+            int diskStartCentral = readUnsignedShort();
+            int dirEntries = readUnsignedShort();
+            int dirEntries2 = readUnsignedShort();
+            long dirSize = readUnsignedInt();
+            long diskOffset = readUnsignedInt();
+            int commentLength = readUnsignedShort();
 
+            read(buffer, 0, commentLength);
+            archiveComment = decodeCP437(buffer, 0, commentLength, stringBuffer);
+        }
+        return v;
+    }
 
-            // Read the extra data
-            if (extraLength > 0)
-            {
-                extraDataBuffer = new byte[extraLength];
-                read(extraDataBuffer, 0, extraLength);
-
-
-
-                //------------- Check if we have unicode filename
-                int offset = findTag(CHUNK_UNICODE_PATH,extraDataBuffer,0,extraLength);
-                if (offset != -1)
-                {
-                    int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
-                    size = size - 5; // Remove version and CRC-32 value
-                    filename = new String(extraDataBuffer,offset+2+5,size, "UTF-8");
-                }
-                //------------- Check if we have unicode comment
-                offset = findTag(CHUNK_UNICODE_COMMENT,extraDataBuffer,0,extraLength);
-                if (offset != -1)
-                {
-                    int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
-                    size = size - 5; // Remove version and CRC-32 value
-                    comment = new String(extraDataBuffer,offset+2+5,size, "UTF-8");
-                }
-                //------------- Check if we have NTFS attributes
-                offset = findTag(CHUNK_NTFS_ATTRIBUTES,extraDataBuffer,0,extraLength);
-                if (offset != -1)
-                {
-                    int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
-                    offset += 2;
-                    // Check if we have tag #0001 which contains the NTFS timestamps
-                    int internalOffset = findTag(0x0001,extraDataBuffer,offset,extraLength);
-                    if ((internalOffset <= (offset + size)) && (internalOffset != -1))
-                    {
-                        size = getShortLittle(extraDataBuffer,internalOffset) & 0xFFFF;
-                        internalOffset += 2;
-                        // 3 x 8 byte fields
-                        if (size == 24)
-                        {
-                            long mtime = getLongLittle(extraDataBuffer,internalOffset);
-                            internalOffset += 8;
-                            internalmodificationTime =  FiletimeToCalendar(mtime).getTime();
-                            long atime = getLongLittle(extraDataBuffer,internalOffset);
-                            internalOffset += 8;
-                            internalAccessTime =  FiletimeToCalendar(atime).getTime();
-                            long ctime = getLongLittle(extraDataBuffer,internalOffset);
-                            internalOffset += 8;
-                            internalCreationTime =  FiletimeToCalendar(ctime).getTime();
-                        }
-                    }
+    /** Reads a central directory file header, just after its signature,
+     *  and returns the corresponding entry.
+     */
+    protected ZipEntry readCentralEntry() throws IOException
+    {
+        ZipEntry entry;
+        String comment = null;
+        byte[] extraDataBuffer = null;
 
-                }
+        int version = readUnsignedShort();
+        version = readUnsignedShort();
+        int flags = readUnsignedShort();
+        int method = readUnsignedShort();
+        long tstamp = readUnsignedInt();
+        long crc32 = readUnsignedInt();
+        long compressedSize = readUnsignedInt();
+        long uncompressedSize = readUnsignedInt();
+        int nameLength = readUnsignedShort();
+        int extraLength = readUnsignedShort();
+        int commentLength = readUnsignedShort();
+        int diskNumberStart = readUnsignedShort();
+        int internalFileAttributes = readUnsignedShort();
+        long externalFileAttributes = readUnsignedInt();
+        long relativeOffset = readUnsignedInt();
+
+        entry = new ZipEntry();
+        entry.setMethod(method);
+        entry.flag = flags;
+        entry.setModificationTime(DOSDateTimeToCalendar(tstamp).getTime());
+        entry.setCrc(crc32);
+        entry.compressedSize = compressedSize;
+        entry.size = uncompressedSize;
+        entry.offset = relativeOffset;
+
+        // Read the filename length.
+        read(buffer, 0, nameLength);
+        entry.setName(decodeString(buffer, 0, nameLength, flags, stringBuffer));
+
+        // Read the extra data
+        if (extraLength > 0)
+        {
+            extraDataBuffer = new byte[extraLength];
+            read(extraDataBuffer, 0, extraLength);
+            entry.setExtra(extraDataBuffer);
+            readExtraFields(entry, extraDataBuffer);
+            comment = entry.getComment();
+        }
+        if (commentLength > 0)
+        {
+            read(buffer, 0, commentLength);
+            // If the comment is already read-in in the UTF-8 block, you
+            // do not need to convert it again
+            if (comment == null)
+            {
+                entry.setComment(decodeString(buffer, 0, commentLength, flags, stringBuffer));
+            }
+        }
+        return entry;
+    }
 
-                offset = findTag(CHUNK_UNIX_TIMESTAMP,extraDataBuffer,0,extraLength);
-                if (offset != -1)
-                {
-                    int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
-                    offset += 2;
-                    int flag = extraDataBuffer[offset] & 0xFF;
-                    offset++;
-                    long mtime = getIntLittle(extraDataBuffer,offset);
-                    Date d = new Date();
-                    d.setTime(mtime * 1000);
-                    internalmodificationTime = d;
-                }
+    /** Decodes a filename or comment, stored either in UTF-8 or in
+     *  Code Page 437 depending on the flags of the entry.
+     *
+     * @return the string, or null if the length is zero.
+     */
+    static String decodeString(byte[] b, int off, int len, int flags, StringBuffer stringBuffer)
+        throws IOException
+    {
+        if (len == 0)
+        {
+            return null;
+        }
+        // Convert to correct character set
+        if ((flags & FLAGS_UTF8_NAMES) == FLAGS_UTF8_NAMES)
+        {
+            return UnicodeUtilities.UTF8DecodeString(b, off, len);
+        }
+        // Code Page 437 - Convert to UCS-2 format
+        return decodeCP437(b, off, len, stringBuffer);
+    }
 
+    /** Updates an entry with the information of the extra fields
+     *  which are supported: unicode filename and comment, NTFS and
+     *  unix timestamps, and ZIP64 sizes and offset. The ZIP64 values
+     *  are only read for the fields of the entry which are set
+     *  to {@link #ZIP64_MAGIC}, in the order defined by the format.
+     *
+     * @param entry The entry to update
+     * @param extraDataBuffer The extra fields of the entry
+     */
+    static void readExtraFields(ZipEntry entry, byte[] extraDataBuffer) throws IOException
+    {
+        int extraLength = extraDataBuffer.length;
 
-            }
-            // If the comment is already read-in in the UTF-8 block, you
-            // do not need to read it in again
-            if ((commentLength > 0) && (comment == null))
+        //------------- Check if we have unicode filename
+        int offset = findTag(CHUNK_UNICODE_PATH,extraDataBuffer,0,extraLength);
+        if (offset != -1)
+        {
+            int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
+            size = size - 5; // Remove version and CRC-32 value
+            entry.setName(UnicodeUtilities.UTF8DecodeString(extraDataBuffer,offset+2+5,size));
+        }
+        //------------- Check if we have unicode comment
+        offset = findTag(CHUNK_UNICODE_COMMENT,extraDataBuffer,0,extraLength);
+        if (offset != -1)
+        {
+            int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
+            size = size - 5; // Remove version and CRC-32 value
+            entry.setComment(UnicodeUtilities.UTF8DecodeString(extraDataBuffer,offset+2+5,size));
+        }
+        //------------- Check if we have NTFS attributes
+        offset = findTag(CHUNK_NTFS_ATTRIBUTES,extraDataBuffer,0,extraLength);
+        if (offset != -1)
+        {
+            int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
+            offset += 2;
+            // Check if we have tag #0001 which contains the NTFS timestamps
+            int internalOffset = findTag(0x0001,extraDataBuffer,offset,extraLength);
+            if ((internalOffset <= (offset + size)) && (internalOffset != -1))
             {
-                read(buffer, 0, commentLength);
-                // Convert to correct character set
-                if ((flags & FLAGS_UTF8_NAMES) == FLAGS_UTF8_NAMES)
-                {
-                    comment = new String(buffer, 0, commentLength, "UTF-8");
-                } else
-                // Code Page 437 - Convert to UCS-2 format
+                size = getShortLittle(extraDataBuffer,internalOffset) & 0xFFFF;
+                internalOffset += 2;
+                // 3 x 8 byte fields
+                if (size == 24)
                 {
-                    stringBuffer.ensureCapacity(commentLength);
-                    stringBuffer.setLength(0);
-                    for (i = 0; i < commentLength; i++)
-                    {
-                        stringBuffer.append(CharSets.CodePage437ToUCS2[buffer[i]]);
-                    }
-                    comment = stringBuffer.toString();
+                    long mtime = getLongLittle(extraDataBuffer,internalOffset);
+                    internalOffset += 8;
+                    entry.setModificationTime(FiletimeToCalendar(mtime).getTime());
+                    long atime = getLongLittle(extraDataBuffer,internalOffset);
+                    internalOffset += 8;
+                    entry.setLastAccessTime(FiletimeToCalendar(atime).getTime());
+                    long ctime = getLongLittle(extraDataBuffer,internalOffset);
+                    internalOffset += 8;
+                    entry.setCreationTime(FiletimeToCalendar(ctime).getTime());
                 }
             }
 
+        }
 
-            entry = new ZipEntry();
-            entry.setMethod(method);
-            entry.setCrc(crc32);
-
-            entry.offset = relativeOffset;
-            entry.setModificationTime(internalmodificationTime);
-            entry.setCreationTime(internalCreationTime);
-            entry.setLastAccessTime(internalCreationTime);
-            entry.setExtra(extraDataBuffer);
-            entry.setCompressedSize(compressedSize);
-            entry.setSize(uncompressedSize);
-            entry.setCrc(crc32);
-            entry.setCompressedSize(compressedSize);
-            entry.setSize(uncompressedSize);
-            entry.setName(filename);
-            v.addElement(entry);
-
-            signature = readUnsignedInt();
-        } while (signature == CENTRAL_HEADER_SIGNATURE);
-
-        // Get the comment number
-        if (signature == CENTRAL_END_HEADER_SIGNATURE)
+        offset = findTag(CHUNK_UNIX_TIMESTAMP,extraDataBuffer,0,extraLength);
+        if (offset != -1)
         {
-            int diskNumber = readUnsignedShort();
-            int diskStartCentral = readUnsignedShort();
-            int dirEntries = readUnsignedShort();
-            int dirEntries2 = readUnsignedShort();
-            long dirSize = readUnsignedInt();
-            long diskOffset = readUnsignedInt();
-            int commentLength = readUnsignedShort();
+            int size = getShortLittle(extraDataBuffer,offset) & 0xFFFF;
+            offset += 2;
+            int flag = extraDataBuffer[offset] & 0xFF;
+            offset++;
+            long mtime = getIntLittle(extraDataBuffer,offset);
+            Date d = new Date();
+            d.setTime(mtime * 1000);
+            entry.setModificationTime(d);
+        }
 
-            // Code Page 437 - Convert to UCS-2 format
-            if (commentLength > 0)
+        //------------- Check if we have ZIP64 values
+        offset = findTag(CHUNK_ZIP64,extraDataBuffer,0,extraLength);
+        if (offset != -1)
+        {
+            // Only the values that do not fit in the header are present, in this order
+            int end = offset + 2 + (getShortLittle(extraDataBuffer,offset) & 0xFFFF);
+            offset += 2;
+            if ((entry.size == ZIP64_MAGIC) && (offset + 8 <= end))
             {
-                read(buffer, 0, commentLength);
-                stringBuffer.ensureCapacity(commentLength);
-                stringBuffer.setLength(0);
-                for (i = 0; i < commentLength; i++)
-                {
-                    stringBuffer.append(CharSets.CodePage437ToUCS2[buffer[i] & 0xFF]);
-                }
-                archiveComment = stringBuffer.toString();
+                entry.size = getLongLittle(extraDataBuffer,offset);
+                offset += 8;
+            }
+            if ((entry.compressedSize == ZIP64_MAGIC) && (offset + 8 <= end))
+            {
+                entry.compressedSize = getLongLittle(extraDataBuffer,offset);
+                offset += 8;
+            }
+            if ((entry.offset == ZIP64_MAGIC) && (offset + 8 <= end))
+            {
+                entry.offset = getLongLittle(extraDataBuffer,offset);
+                offset += 8;
             }
         }
-        return v;
     }
 
+    /** Converts a string stored in Code Page 437 to UCS-2.
+     *
+     * @return the string, or null if the length is zero.
+     */
+    static String decodeCP437(byte[] b, int off, int len, StringBuffer stringBuffer)
+    {
+        if (len == 0)
+        {
+            return null;
+        }
+        stringBuffer.ensureCapacity(len);
+        stringBuffer.setLength(0);
+        for (int i = 0; i < len; i++)
+        {
+            stringBuffer.append(CharSets.CodePage437ToUCS2[b[off + i] & 0xFF]);
+        }
+        return stringBuffer.toString();
+    }
+
+    /** Closes the archive. When the archive is read using random
+     *  access, the underlying stream is closed.
+     */
     public void close()
     {
-        // TODO Auto-generated method stub
+        if (source != null)
+        {
+            try
+            {
+                source.close();
+            } catch (IOException e)
+            {
+                /* Nothing can be done */
+            }
+        }
     }
 
     public Vector entries()
@@ -347,9 +600,26 @@ public class ZIPFileReader extends ArchiveFileReader
         return entries;
     }
 
+    /** Returns the entry with the specified name, or null if not found.
+     *  The entries are indexed by name, so the search does not depend
+     *  on the number of entries.
+     */
+    public ArchiveEntry getEntry(String name)
+    {
+        return (ArchiveEntry) index.get(name);
+    }
+
+    /** Returns an input stream on the raw data of the entry. When the
+     *  archive is read using random access, the returned stream is
+     *  independent of the other streams returned by this method.
+     */
     public InputStream getInputStream(ArchiveEntry entry) throws IOException, IllegalArgumentException
     {
         ZipEntry z = (ZipEntry)entry;
+        if (source != null)
+        {
+            return new EntryInputStream(source, getDataOffset(z), z.getCompressedSize());
+        }
         /** Offset to the zip file data is as follows:
          *    sizeof(local file header) + length(file name length) + length(extra field length)
          */
@@ -369,11 +639,110 @@ public class ZIPFileReader extends ArchiveFileReader
         return is;
     }
 
+    /** Returns the offset of the data of the entry, reading its
+     *  local file header if it is not already known. The offset is
+     *  read and stored while holding the lock on the source, since
+     *  the entries can be shared by several threads and a long
+     *  value is not written atomically on all virtual machines.
+     */
+    protected long getDataOffset(ZipEntry z) throws IOException
+    {
+        synchronized (source)
+        {
+            if (z.dataOffset >= 0)
+            {
+                return z.dataOffset;
+            }
+            byte[] header = new byte[LOCAL_HEADER_SIZE];
+            source.seek(z.offset);
+            source.readFully(header, 0, LOCAL_HEADER_SIZE);
+            if (getIntLittle(header, 0) != LOCAL_HEADER_SIGNATURE)
+            {
+                throw new IOException("Invalid local file header for entry " + z.getName());
+            }
+            int nameLength = getShortLittle(header, 26) & 0xFFFF;
+            int extraLength = getShortLittle(header, 28) & 0xFFFF;
+            z.dataOffset = z.offset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+            return z.dataOffset;
+        }
+    }
+
     public int size()
     {
         return entries.size();
     }
 
+    /** Stream reading a region of a seekable stream. Each read
+     *  seeks to the current position of this stream while holding
+     *  the lock of the seekable stream, so that several streams
+     *  can be read by different threads.
+     */
+    private static class EntryInputStream extends InputStream
+    {
+        private final SeekableDataInputStream source;
+        private long position;
+        private long remaining;
+
+        EntryInputStream(SeekableDataInputStream source, long position, long length)
+        {
+            this.source = source;
+            this.position = position;
+            remaining = length;
+        }
+
+        public int read() throws IOException
+        {
+            byte[] b = new byte[1];
+            if (read(b, 0, 1) <= 0)
+            {
+                return -1;
+            }
+            return b[0] & 0xFF;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+            if (len > remaining)
+            {
+                len = (int) remaining;
+            }
+            int count;
+            synchronized (source)
+            {
+                source.seek(position);
+                count = source.read(b, off, len);
+            }
+            if (count < 0)
+            {
+                throw new EOFException();
+            }
+            position += count;
+            remaining -= count;
+            return count;
+        }
+
+        public long skip(long n) throws IOException
+        {
+            if (n <= 0)
+            {
+                return 0;
+            }
+            n = Math.min(n, remaining);
+            position += n;
+            remaining -= n;
+            return n;
+        }
+
+        public int available() throws IOException
+        {
+            return (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+    }
+
 
     public String getComment()
     {
@@ -391,14 +760,14 @@ public class ZIPFileReader extends ArchiveFileReader
      * @param len The length of the buffer
      * @return the Offset in the buffer, or -1 if not found.
      */
-    protected int findTag(int tag, byte[] buffer, int off, int len)
+    protected static int findTag(int tag, byte[] buffer, int off, int len)
     {
         int sTag = 0;
         int sLength = 0;
         if (len == 0)
             return -1;
 
-        while (off < len)
+        while (off + 4 <= len)
         {
             sTag = getShortLittle(buffer,off) & 0xFFFF;
             off = off + 2;
@@ -0,0 +1,443 @@
+package com.optimasc.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Forward-only reader of ZIP archives, which reads the entries from
+ *  their local file headers as the archive is received.
+ *
+ *  <p>Contrary to {@link ZIPFileReader}, the stream does not need to
+ *  support marking, and only a small buffer is used, so that archives
+ *  can be processed as they arrive from a pipe or a network connection
+ *  with bounded memory. The central directory is not read, so the
+ *  information which is only stored there, such as the entry comments,
+ *  is not available.</p>
+ *
+ *  <p>Entries whose sizes are stored in a data descriptor after their
+ *  data (bit 3 of the general purpose flags) are supported
+ *  when the data descriptor starts with its optional signature, which
+ *  is the case for all common archivers: the end of the data is found by
+ *  searching for a data descriptor whose compressed size matches the
+ *  number of bytes read. The size and CRC-32 of such entries are only
+ *  known, and set in the entry, once the end of its data is reached.
+ *  The ZIP64 extensions are supported.</p>
+ *
+ *  <p>The stream returned by {@link #getInputStream()} returns the raw,
+ *  possibly compressed, data of the current entry. This class is not
+ *  thread-safe.</p>
+ *
+ * @author Carl Eric Codere
+ */
+public class ZIPStreamReader
+{
+    /** Default size of the input buffer */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** Size of the largest data descriptor: signature, CRC-32 and two 64-bit sizes */
+    private static final int MAX_DESCRIPTOR_SIZE = 24;
+
+    protected InputStream in;
+
+    private byte[] buffer;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    /** Temporary buffer for converting string characters. */
+    private StringBuffer stringBuffer;
+
+    /** The current entry, or null */
+    private ZipEntry entry;
+    /** The stream on the data of the current entry */
+    private EntryInputStream entryStream;
+    /** Set once the central directory or the end of the stream is reached */
+    private boolean finished;
+
+    /** Creates a reader using a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param in The stream containing the archive
+     */
+    public ZIPStreamReader(InputStream in)
+    {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /** Creates a reader using a buffer of the specified size.
+     *
+     * @param in The stream containing the archive
+     * @param bufferSize The size of the input buffer
+     * @throws IllegalArgumentException if the buffer is too small to hold a
+     *   local file header.
+     */
+    public ZIPStreamReader(InputStream in, int bufferSize)
+    {
+        if (bufferSize < ZIPFileReader.LOCAL_HEADER_SIZE + MAX_DESCRIPTOR_SIZE)
+        {
+            throw new IllegalArgumentException("Buffer size is too small.");
+        }
+        this.in = in;
+        buffer = new byte[bufferSize];
+        stringBuffer = new StringBuffer(256);
+    }
+
+    /** Makes sure that at least <code>count</code> bytes are available
+     *  in the buffer, unless the end of the stream is reached.
+     *
+     * @return true if the bytes are available.
+     */
+    private boolean require(int count) throws IOException
+    {
+        if (limit - pos >= count)
+        {
+            return true;
+        }
+        if (pos > 0)
+        {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while ((limit < count) && (eof == false))
+        {
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0)
+            {
+                eof = true;
+            } else
+            {
+                limit += n;
+            }
+        }
+        return limit >= count;
+    }
+
+    /** Reads bytes from the buffered stream.
+     *
+     * @throws EOFException if the end of the stream is reached
+     */
+    private void readFully(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0)
+        {
+            if (require(1) == false)
+            {
+                throw new EOFException();
+            }
+            int count = Math.min(len, limit - pos);
+            System.arraycopy(buffer, pos, b, off, count);
+            pos += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /** Reads the next local file header and returns the corresponding
+     *  entry. The data of the current entry which was not read is skipped.
+     *
+     * @return the next entry, or null if there are no more entries.
+     * @throws IOException If an I/O error occurs or the archive is corrupt
+     */
+    public ZipEntry getNextEntry() throws IOException
+    {
+        if (finished)
+        {
+            return null;
+        }
+        if (entryStream != null)
+        {
+            entryStream.skipAll();
+            entryStream = null;
+            entry = null;
+        }
+        if (require(4) == false)
+        {
+            finished = true;
+            return null;
+        }
+        int signature = ZIPFileReader.getIntLittle(buffer, pos);
+        if (signature != ZIPFileReader.LOCAL_HEADER_SIGNATURE)
+        {
+            if ((signature == ZIPFileReader.CENTRAL_HEADER_SIGNATURE) ||
+                (signature == ZIPFileReader.ARCHIVE_EXTRA_DATA_SIGNATURE) ||
+                (signature == ZIPFileReader.CENTRAL_END_HEADER_SIGNATURE) ||
+                (signature == ZIPFileReader.ZIP64_CENTRAL_END_HEADER_SIGNATURE))
+            {
+                finished = true;
+                return null;
+            }
+            throw new IOException("Unknown or corrupt ZIP file!");
+        }
+        if (require(ZIPFileReader.LOCAL_HEADER_SIZE) == false)
+        {
+            throw new EOFException();
+        }
+        int flags = ZIPFileReader.getShortLittle(buffer, pos + 6) & 0xFFFF;
+        int method = ZIPFileReader.getShortLittle(buffer, pos + 8) & 0xFFFF;
+        long tstamp = ZIPFileReader.getIntLittle(buffer, pos + 10) & 0xFFFFFFFFL;
+        long crc32 = ZIPFileReader.getIntLittle(buffer, pos + 14) & 0xFFFFFFFFL;
+        long compressedSize = ZIPFileReader.getIntLittle(buffer, pos + 18) & 0xFFFFFFFFL;
+        long uncompressedSize = ZIPFileReader.getIntLittle(buffer, pos + 22) & 0xFFFFFFFFL;
+        int nameLength = ZIPFileReader.getShortLittle(buffer, pos + 26) & 0xFFFF;
+        int extraLength = ZIPFileReader.getShortLittle(buffer, pos + 28) & 0xFFFF;
+        pos += ZIPFileReader.LOCAL_HEADER_SIZE;
+
+        ZipEntry e = new ZipEntry();
+        e.setMethod(method);
+        e.flag = flags;
+        e.setModificationTime(ZIPFileReader.DOSDateTimeToCalendar(tstamp).getTime());
+        byte[] name = new byte[nameLength];
+        readFully(name, 0, nameLength);
+        e.setName(ZIPFileReader.decodeString(name, 0, nameLength, flags, stringBuffer));
+
+        boolean zip64 = false;
+        boolean descriptor = (flags & ZIPFileReader.FLAGS_DATA_DESCRIPTOR) != 0;
+        if (descriptor == false)
+        {
+            e.setCrc(crc32);
+            e.compressedSize = compressedSize;
+            e.size = uncompressedSize;
+        }
+        if (extraLength > 0)
+        {
+            byte[] extra = new byte[extraLength];
+            readFully(extra, 0, extraLength);
+            e.setExtra(extra);
+            zip64 = ZIPFileReader.findTag(ZIPFileReader.CHUNK_ZIP64, extra, 0, extraLength) != -1;
+            ZIPFileReader.readExtraFields(e, extra);
+        }
+        if ((descriptor == false) && (e.compressedSize == ZIPFileReader.ZIP64_MAGIC))
+        {
+            throw new IOException("Missing ZIP64 sizes for entry " + e.getName());
+        }
+        entry = e;
+        entryStream = new EntryInputStream(descriptor, zip64);
+        return e;
+    }
+
+    /** Returns the current entry, which is the last entry returned
+     *  by {@link #getNextEntry()}.
+     */
+    public ZipEntry getEntry()
+    {
+        return entry;
+    }
+
+    /** Returns a stream on the raw data of the current entry. The
+     *  stream is valid until the next call to {@link #getNextEntry()}.
+     *
+     * @throws IllegalStateException if there is no current entry.
+     * @throws IOException if an I/O error occurs.
+     */
+    public InputStream getInputStream() throws IOException
+    {
+        if (entryStream == null)
+        {
+            throw new IllegalStateException("No current entry.");
+        }
+        return entryStream;
+    }
+
+    /** Closes the underlying stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void close() throws IOException
+    {
+        finished = true;
+        entryStream = null;
+        entry = null;
+        in.close();
+    }
+
+    /** Stream on the data of the current entry. */
+    private class EntryInputStream extends InputStream
+    {
+        /** true if the size is given by a data descriptor after the data */
+        private final boolean descriptor;
+        /** true if the data descriptor uses 64-bit sizes */
+        private final boolean zip64;
+        /** Number of bytes returned, or remaining bytes if the size is known */
+        private long count;
+        /** Number of bytes before the end of the data in the buffer, or -1 */
+        private int end = -1;
+        private boolean done;
+
+        EntryInputStream(boolean descriptor, boolean zip64)
+        {
+            this.descriptor = descriptor;
+            this.zip64 = zip64;
+            if (descriptor == false)
+            {
+                count = entry.compressedSize;
+            }
+        }
+
+        public int read() throws IOException
+        {
+            byte[] b = new byte[1];
+            if (read(b, 0, 1) <= 0)
+            {
+                return -1;
+            }
+            return b[0] & 0xFF;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (done || (entryStream != this))
+            {
+                return -1;
+            }
+            if (len == 0)
+            {
+                return 0;
+            }
+            int available = descriptor ? scan() : known();
+            if (available == 0)
+            {
+                done = true;
+                if (descriptor)
+                {
+                    readDescriptor();
+                }
+                return -1;
+            }
+            len = Math.min(len, available);
+            System.arraycopy(buffer, pos, b, off, len);
+            pos += len;
+            if (descriptor)
+            {
+                count += len;
+                if (end > 0)
+                {
+                    end -= len;
+                }
+            } else
+            {
+                count -= len;
+            }
+            return len;
+        }
+
+        /** Returns the number of bytes of data available in the buffer
+         *  when the compressed size is known. */
+        private int known() throws IOException
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            if (require(1) == false)
+            {
+                throw new EOFException();
+            }
+            return (int) Math.min(count, limit - pos);
+        }
+
+        /** Returns the number of bytes in the buffer that are certainly
+         *  data, searching for the data descriptor if needed. */
+        private int scan() throws IOException
+        {
+            if (end >= 0)
+            {
+                return end;
+            }
+            require(MAX_DESCRIPTOR_SIZE + 1);
+            int last = limit - (zip64 ? MAX_DESCRIPTOR_SIZE : 16);
+            for (int i = pos; i <= last; i++)
+            {
+                if ((buffer[i] == 'P') && (ZIPFileReader.getIntLittle(buffer, i) == ZIPFileReader.DATA_DESCRIPTOR_SIGNATURE))
+                {
+                    long size;
+                    if (zip64)
+                    {
+                        size = ZIPFileReader.getLongLittle(buffer, i + 8);
+                    } else
+                    {
+                        size = ZIPFileReader.getIntLittle(buffer, i + 8) & 0xFFFFFFFFL;
+                    }
+                    if (size == count + (i - pos))
+                    {
+                        end = i - pos;
+                        return end;
+                    }
+                }
+            }
+            /* The bytes after the last position checked may be part of a
+             * descriptor, there are always some before it unless the end
+             * of the stream is reached. */
+            int safe = last + 1 - pos;
+            if (safe <= 0)
+            {
+                throw new IOException("Missing data descriptor for entry " + entry.getName());
+            }
+            return safe;
+        }
+
+        /** Reads the data descriptor, and updates the entry. */
+        private void readDescriptor() throws IOException
+        {
+            pos += 4;
+            entry.setCrc(ZIPFileReader.getIntLittle(buffer, pos) & 0xFFFFFFFFL);
+            if (zip64)
+            {
+                entry.compressedSize = ZIPFileReader.getLongLittle(buffer, pos + 4);
+                entry.size = ZIPFileReader.getLongLittle(buffer, pos + 12);
+                pos += 20;
+            } else
+            {
+                entry.compressedSize = ZIPFileReader.getIntLittle(buffer, pos + 4) & 0xFFFFFFFFL;
+                entry.size = ZIPFileReader.getIntLittle(buffer, pos + 8) & 0xFFFFFFFFL;
+                pos += 12;
+            }
+        }
+
+        /** Skips the remaining data of the entry. */
+        void skipAll() throws IOException
+        {
+            if (descriptor == false)
+            {
+                while (done == false)
+                {
+                    int available = known();
+                    if (available == 0)
+                    {
+                        done = true;
+                    } else
+                    {
+                        pos += available;
+                        count -= available;
+                    }
+                }
+                return;
+            }
+            while (done == false)
+            {
+                int available = scan();
+                if (available == 0)
+                {
+                    done = true;
+                    readDescriptor();
+                } else
+                {
+                    pos += available;
+                    count += available;
+                    if (end > 0)
+                    {
+                        end -= available;
+                    }
+                }
+            }
+        }
+
+        public int available() throws IOException
+        {
+            if (done)
+            {
+                return 0;
+            }
+            return descriptor ? scan() : known();
+        }
+    }
+}
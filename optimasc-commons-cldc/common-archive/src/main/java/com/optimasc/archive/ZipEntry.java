@@ -70,21 +70,34 @@ public class ZipEntry extends AbstractArchiveEntry
 
     /** Offset to this file header from the start of the stream */
     protected long offset;
+    /** Offset to the data of this entry from the start of the stream,
+     *  or -1 if it is not known yet. Only accessed while holding the
+     *  lock on the source of the archive. */
+    protected long dataOffset = -1;
     long crc = -1; // crc-32 of entry data
 
+    /**
+     * Returns the CRC-32 checksum of the uncompressed entry data.
+     *
+     * @return the CRC-32 value, or -1 if it is not known
+     */
+    public long getCrc()
+    {
+        return crc;
+    }
+
     /**
      * Sets the uncompressed size of the entry data.
      *
      * @param size
      *          the uncompressed size in bytes
      * @exception IllegalArgumentException
-     *              if the specified size is less than 0 or greater than
-     *              0xFFFFFFFF bytes
+     *              if the specified size is less than 0
      * @see #getSize()
      */
     public void setSize(long size)
     {
-        if (size < 0 || size > 0xFFFFFFFFL)
+        if (size < 0)
         {
             throw new IllegalArgumentException("invalid entry size");
         }
@@ -5,8 +5,12 @@
 
 package com.optimasc.archive;
 
+import com.optimasc.io.ByteArrayInputStream;
 import com.optimasc.text.PrintfFormat;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -291,6 +295,272 @@ public class ZIPFileReaderTest extends TestCase {
     }
     
     
+    protected byte[] readResource(String name) throws IOException
+    {
+        InputStream in = getClass().getResourceAsStream(name);
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] b = new byte[8192];
+        int count;
+        while ((count = in.read(b)) > 0)
+        {
+            out.write(b, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    protected byte[] readFully(InputStream in) throws IOException
+    {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) >= 0)
+        {
+            out.write(c);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Test of the central directory based reading of entries.
+     */
+    public void testReadCentralDirectory() throws Exception
+    {
+        String names[] = {"/res/calgary-winrar.zip", "/res/calgary-7z.zip", "/res/calgary-infozip.zip"};
+        for (int j = 0; j < names.length; j++)
+        {
+            ZIPFileReader sequential = new ZIPFileReader(getClass().getResourceAsStream(names[j]));
+            ZIPFileReader instance = new ZIPFileReader(new ByteArrayInputStream(readResource(names[j])));
+            assertEquals(sequential.getComment(), instance.getComment());
+            assertEquals(ENTRIES_COUNT, instance.size());
+            for (int i = 0; i < ENTRIES_COUNT; i++)
+            {
+                ZipEntry entry = (ZipEntry) instance.getEntry(ENTRIES_FILENAMES[i]);
+                ZipEntry expected = (ZipEntry) sequential.entries().elementAt(
+                    sequential.entries().indexOf(sequential.getEntry(ENTRIES_FILENAMES[i])));
+                assertEquals(ENTRIES_FILENAMES[i], entry.getName());
+                assertEquals(ENTRIES_UNCOMPRESSED_SIZE[i], entry.getSize());
+                assertEquals(expected.getCompressedSize(), entry.getCompressedSize());
+                assertEquals(expected.getCrc(), entry.getCrc());
+                assertEquals(expected.offset, entry.offset);
+                assertEquals(true, compareDates(new Date(ENTRIES_MTIME[i]), entry.getLastModifiedDate()));
+            }
+            assertNull(instance.getEntry("calgary/missing"));
+
+            // Stored entry
+            ZipEntry entry = (ZipEntry) instance.getEntry(ENTRIES_FILENAMES[19]);
+            assertEquals(ZipEntry.COMPRESSION_STORED, entry.getMethod());
+            assertEquals("Text file containing standard extended CP437 characters.",
+                new String(readFully(instance.getInputStream(entry)), "ISO-8859-1"));
+
+            // Raw data of a compressed entry
+            entry = (ZipEntry) instance.getEntry(ENTRIES_FILENAMES[1]);
+            assertEquals(entry.getCompressedSize(), readFully(instance.getInputStream(entry)).length);
+            instance.close();
+        }
+    }
+
+    public void testReadCentralDirectory_Invalid() throws Exception
+    {
+        try
+        {
+            new ZIPFileReader(new ByteArrayInputStream(new byte[100]));
+            fail();
+        } catch (IllegalArgumentException e)
+        {
+            /* expected */
+        }
+    }
+
+    public static final String ZIP64_ENTRY_NAME = "hello.txt";
+    public static final String ZIP64_ENTRY_DATA = "Hello, ZIP64!";
+    public static final String DESCRIPTOR_ENTRY_NAME = "desc.txt";
+    /* Contains a data descriptor signature to check the size verification */
+    public static final String DESCRIPTOR_ENTRY_DATA = "Data with a descriptor PK\u0007\u0008 inside.";
+    public static final long ZIP64_ENTRY_CRC = 0x12345678L;
+    public static final long DESCRIPTOR_ENTRY_CRC = 0x9ABCDEF0L;
+
+    protected static void writeShort(java.io.ByteArrayOutputStream out, int v)
+    {
+        out.write(v & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+    }
+
+    protected static void writeInt(java.io.ByteArrayOutputStream out, long v)
+    {
+        writeShort(out, (int) v);
+        writeShort(out, (int) (v >>> 16));
+    }
+
+    protected static void writeLong(java.io.ByteArrayOutputStream out, long v)
+    {
+        writeInt(out, v);
+        writeInt(out, v >>> 32);
+    }
+
+    /** Creates a ZIP64 archive containing a stored entry whose sizes and
+     *  offset are in ZIP64 extra fields, followed by a stored entry using
+     *  a data descriptor. The CRC-32 values are not the real ones.
+     */
+    public static byte[] createZip64Archive() throws IOException
+    {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] name1 = ZIP64_ENTRY_NAME.getBytes("ISO-8859-1");
+        byte[] data1 = ZIP64_ENTRY_DATA.getBytes("ISO-8859-1");
+        byte[] name2 = DESCRIPTOR_ENTRY_NAME.getBytes("ISO-8859-1");
+        byte[] data2 = DESCRIPTOR_ENTRY_DATA.getBytes("ISO-8859-1");
+
+        // Local header with ZIP64 sizes
+        writeInt(out, 0x04034b50);
+        writeShort(out, 45);
+        writeShort(out, 0);
+        writeShort(out, ZipEntry.COMPRESSION_STORED);
+        writeInt(out, 0x42EC7000L);
+        writeInt(out, ZIP64_ENTRY_CRC);
+        writeInt(out, 0xFFFFFFFFL);
+        writeInt(out, 0xFFFFFFFFL);
+        writeShort(out, name1.length);
+        writeShort(out, 20);
+        out.write(name1, 0, name1.length);
+        writeShort(out, 0x0001);
+        writeShort(out, 16);
+        writeLong(out, data1.length);
+        writeLong(out, data1.length);
+        out.write(data1, 0, data1.length);
+
+        // Local header with a data descriptor
+        int offset2 = out.size();
+        writeInt(out, 0x04034b50);
+        writeShort(out, 20);
+        writeShort(out, 1 << 3);
+        writeShort(out, ZipEntry.COMPRESSION_STORED);
+        writeInt(out, 0x42EC7000L);
+        writeInt(out, 0);
+        writeInt(out, 0);
+        writeInt(out, 0);
+        writeShort(out, name2.length);
+        writeShort(out, 0);
+        out.write(name2, 0, name2.length);
+        out.write(data2, 0, data2.length);
+        writeInt(out, 0x08074b50);
+        writeInt(out, DESCRIPTOR_ENTRY_CRC);
+        writeInt(out, data2.length);
+        writeInt(out, data2.length);
+
+        // Central directory
+        int dirOffset = out.size();
+        writeInt(out, 0x02014b50);
+        writeShort(out, 45);
+        writeShort(out, 45);
+        writeShort(out, 0);
+        writeShort(out, ZipEntry.COMPRESSION_STORED);
+        writeInt(out, 0x42EC7000L);
+        writeInt(out, ZIP64_ENTRY_CRC);
+        writeInt(out, 0xFFFFFFFFL);
+        writeInt(out, 0xFFFFFFFFL);
+        writeShort(out, name1.length);
+        writeShort(out, 28);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeInt(out, 0);
+        writeInt(out, 0xFFFFFFFFL);
+        out.write(name1, 0, name1.length);
+        writeShort(out, 0x0001);
+        writeShort(out, 24);
+        writeLong(out, data1.length);
+        writeLong(out, data1.length);
+        writeLong(out, 0);
+
+        writeInt(out, 0x02014b50);
+        writeShort(out, 20);
+        writeShort(out, 20);
+        writeShort(out, 1 << 3);
+        writeShort(out, ZipEntry.COMPRESSION_STORED);
+        writeInt(out, 0x42EC7000L);
+        writeInt(out, DESCRIPTOR_ENTRY_CRC);
+        writeInt(out, data2.length);
+        writeInt(out, data2.length);
+        writeShort(out, name2.length);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeInt(out, 0);
+        writeInt(out, offset2);
+        out.write(name2, 0, name2.length);
+        int dirSize = out.size() - dirOffset;
+
+        // ZIP64 end of central directory record and locator
+        int recordOffset = out.size();
+        writeInt(out, 0x06064b50);
+        writeLong(out, 44);
+        writeShort(out, 45);
+        writeShort(out, 45);
+        writeInt(out, 0);
+        writeInt(out, 0);
+        writeLong(out, 2);
+        writeLong(out, 2);
+        writeLong(out, dirSize);
+        writeLong(out, dirOffset);
+        writeInt(out, 0x07064b50);
+        writeInt(out, 0);
+        writeLong(out, recordOffset);
+        writeInt(out, 1);
+
+        // End of central directory record
+        writeInt(out, 0x06054b50);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, 0xFFFF);
+        writeShort(out, 0xFFFF);
+        writeInt(out, 0xFFFFFFFFL);
+        writeInt(out, 0xFFFFFFFFL);
+        writeShort(out, 0);
+        return out.toByteArray();
+    }
+
+    public void testReadZip64() throws Exception
+    {
+        byte[] data = createZip64Archive();
+        ZIPFileReader instance = new ZIPFileReader(new ByteArrayInputStream(data));
+        assertEquals(2, instance.size());
+        assertNull(instance.getComment());
+        ZipEntry entry = (ZipEntry) instance.getEntry(ZIP64_ENTRY_NAME);
+        assertEquals(ZIP64_ENTRY_DATA.length(), entry.getSize());
+        assertEquals(ZIP64_ENTRY_DATA.length(), entry.getCompressedSize());
+        assertEquals(ZIP64_ENTRY_CRC, entry.getCrc());
+        assertEquals(0, entry.offset);
+        entry = (ZipEntry) instance.getEntry(DESCRIPTOR_ENTRY_NAME);
+        assertEquals(DESCRIPTOR_ENTRY_DATA.length(), entry.getSize());
+        assertEquals(DESCRIPTOR_ENTRY_CRC, entry.getCrc());
+        assertEquals(ZIP64_ENTRY_DATA, new String(readFully(
+            instance.getInputStream(instance.getEntry(ZIP64_ENTRY_NAME))), "ISO-8859-1"));
+        assertEquals(DESCRIPTOR_ENTRY_DATA, new String(readFully(
+            instance.getInputStream(instance.getEntry(DESCRIPTOR_ENTRY_NAME))), "ISO-8859-1"));
+    }
+
+    public void testReadZip64_RecordOverlapsLocator() throws Exception
+    {
+        byte[] data = createZip64Archive();
+        int locator = data.length - 22 - 20;
+        // Move the record 20 bytes forward, so that it overlaps the locator
+        int recordOffset = locator - 56 + 20;
+        data[recordOffset] = 0x50;
+        data[recordOffset + 1] = 0x4b;
+        data[recordOffset + 2] = 0x06;
+        data[recordOffset + 3] = 0x06;
+        data[locator + 8] = (byte) recordOffset;
+        data[locator + 9] = (byte) (recordOffset >>> 8);
+        try
+        {
+            new ZIPFileReader(new ByteArrayInputStream(data));
+            fail();
+        } catch (IllegalArgumentException e)
+        {
+            /* expected */
+        }
+    }
+
     public static boolean compareDates(Date expected, Date value)
     {
       // Millisecond precision is removed. and last second also.
@@ -0,0 +1,126 @@
+package com.optimasc.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+public class ZIPStreamReaderTest extends TestCase
+{
+
+    /** Input stream returning a few bytes at a time, without mark support. */
+    protected static class SlowInputStream extends InputStream
+    {
+        private final InputStream in;
+
+        public SlowInputStream(InputStream in)
+        {
+            this.in = in;
+        }
+
+        public int read() throws IOException
+        {
+            return in.read();
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return in.read(b, off, Math.min(len, 7));
+        }
+
+        public boolean markSupported()
+        {
+            return false;
+        }
+    }
+
+    protected static byte[] readFully(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[5];
+        int count;
+        while ((count = in.read(b, 0, b.length)) >= 0)
+        {
+            out.write(b, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    protected ZIPStreamReader open(byte[] data)
+    {
+        return new ZIPStreamReader(new SlowInputStream(new java.io.ByteArrayInputStream(data)), 64);
+    }
+
+    public void testZip64AndDataDescriptor() throws IOException
+    {
+        ZIPStreamReader reader = open(ZIPFileReaderTest.createZip64Archive());
+        ZipEntry entry = reader.getNextEntry();
+        assertEquals(ZIPFileReaderTest.ZIP64_ENTRY_NAME, entry.getName());
+        assertEquals(ZIPFileReaderTest.ZIP64_ENTRY_DATA.length(), entry.getSize());
+        assertEquals(ZIPFileReaderTest.ZIP64_ENTRY_CRC, entry.getCrc());
+        assertEquals(ZIPFileReaderTest.ZIP64_ENTRY_DATA, new String(readFully(reader.getInputStream()), "ISO-8859-1"));
+
+        entry = reader.getNextEntry();
+        assertEquals(ZIPFileReaderTest.DESCRIPTOR_ENTRY_NAME, entry.getName());
+        assertEquals(ArchiveEntry.UNKNOWN_SIZE, entry.getSize());
+        assertEquals(ZIPFileReaderTest.DESCRIPTOR_ENTRY_DATA, new String(readFully(reader.getInputStream()), "ISO-8859-1"));
+        assertEquals(ZIPFileReaderTest.DESCRIPTOR_ENTRY_DATA.length(), entry.getSize());
+        assertEquals(ZIPFileReaderTest.DESCRIPTOR_ENTRY_CRC, entry.getCrc());
+
+        assertNull(reader.getNextEntry());
+        reader.close();
+    }
+
+    public void testSkipEntries() throws IOException
+    {
+        ZIPStreamReader reader = open(ZIPFileReaderTest.createZip64Archive());
+        assertEquals(ZIPFileReaderTest.ZIP64_ENTRY_NAME, reader.getNextEntry().getName());
+        ZipEntry entry = reader.getNextEntry();
+        assertEquals(ZIPFileReaderTest.DESCRIPTOR_ENTRY_NAME, entry.getName());
+        assertNull(reader.getNextEntry());
+        assertEquals(ZIPFileReaderTest.DESCRIPTOR_ENTRY_CRC, entry.getCrc());
+    }
+
+    public void testSameAsCentralDirectory() throws IOException
+    {
+        InputStream in = getClass().getResourceAsStream("/res/calgary-infozip.zip");
+        ZIPStreamReader reader = new ZIPStreamReader(new SlowInputStream(in));
+        ZIPFileReader expected = new ZIPFileReader(getClass().getResourceAsStream("/res/calgary-infozip.zip"));
+        int count = 0;
+        ZipEntry entry;
+        while ((entry = reader.getNextEntry()) != null)
+        {
+            ZipEntry z = (ZipEntry) expected.getEntry(entry.getName());
+            assertNotNull(z);
+            assertEquals(z.getSize(), entry.getSize());
+            assertEquals(z.getCrc(), entry.getCrc());
+            if ((count % 2) == 0)
+            {
+                assertEquals(z.getCompressedSize(), readFully(reader.getInputStream()).length);
+            }
+            count++;
+        }
+        assertEquals(ZIPFileReaderTest.ENTRIES_COUNT, count);
+        reader.close();
+    }
+
+    public void testMissingDescriptor() throws IOException
+    {
+        byte[] data = ZIPFileReaderTest.createZip64Archive();
+        /* Truncate in the data of the second entry */
+        byte[] truncated = new byte[120];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        ZIPStreamReader reader = open(truncated);
+        reader.getNextEntry();
+        reader.getNextEntry();
+        try
+        {
+            readFully(reader.getInputStream());
+            fail();
+        } catch (IOException e)
+        {
+            /* expected */
+        }
+    }
+}
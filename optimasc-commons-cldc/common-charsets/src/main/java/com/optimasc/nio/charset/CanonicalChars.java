@@ -2453,66 +2453,65 @@ public final class CanonicalChars
   };
 
 
+  private static final char[][] LIGATURES =
+  {
+   { (char)0x00C6, 'A', 'E'},
+   { (char)0x00E6, 'a', 'e'},
+   { (char)0x0152, 'O', 'E'},
+   { (char)0x0153, 'o', 'e'}
+  };
+
+  private static final CanonicalTable TABLE = new CanonicalTable(canonicalMap, LIGATURES, true);
+
+  /** The maximum number of characters that a single character can be
+   *  converted to by {@link #convertCanonical(char[], int, int, char[], int)}. */
+  public static final int MAX_EXPANSION = TABLE.getMaxExpansion();
+
    /** Converts a string representation to its canonical representation,
     *  that is removing all accented characters and replacing ligatured
-    *  characters with non-ligatured characters. Currently only supports
-    *  Latin character sets regarding replacing ligatured characters.
+    *  characters with non-ligatured characters, the result being in
+    *  upper case. Currently only supports Latin character sets regarding
+    *  replacing ligatured characters.
     *
     * @param The string that needs to be converted.
     * @return The converted string.
     */
     public static String convertCanonical(String str)
     {
-        int i;
-        int j;
-        char c;
-        final StringBuffer buffer = new StringBuffer(256);
-        buffer.setLength(0);
-        buffer.append(str);
-        for (i = 0; i < buffer.length(); i++)
-        {
-            c = buffer.charAt(i);
-            if (c > (char)0x7F)
-            {
-               // AE
-               if (c == (char)0xC6)
-               {
-                   buffer.setCharAt(i,'A');
-                   buffer.insert(i+1,'E');
-                   break;
-               }
-               // AE
-               if (c == (char)0xE6)
-               {
-                   buffer.setCharAt(i,'a');
-                   buffer.insert(i+1,'e');
-                   break;
-               }
-               // OE
-               if (c == (char)0x152)
-               {
-                   buffer.setCharAt(i,'O');
-                   buffer.insert(i+1,'E');
-                   break;
-               }
-               // oe
-               if (c == (char)0x153)
-               {
-                   buffer.setCharAt(i,'o');
-                   buffer.insert(i+1,'e');
-                   break;
-               }
-               for (j = 0; j < CanonicalChars.canonicalMap.length; j++)
-               {
-                  if (c == CanonicalChars.canonicalMap[j][0])
-                  {
-                      buffer.setCharAt(i,CanonicalChars.canonicalMap[j][1]);
-                      break;
-                  }
-               }
-            }
-        }
-        return buffer.toString().toUpperCase();
+        final StringBuffer buffer = new StringBuffer(str.length() + 16);
+        TABLE.fold(str, buffer);
+        return buffer.toString();
+    }
+
+   /** Converts a string representation to its canonical representation,
+    *  as {@link #convertCanonical(String)} does.
+    *
+    * @param str The string to convert
+    * @param outBuffer The buffer that will receive the resulting string,
+    *   its previous contents are discarded.
+    */
+    public static void convertCanonical(String str, StringBuffer outBuffer)
+    {
+        outBuffer.setLength(0);
+        TABLE.fold(str, outBuffer);
+    }
+
+   /** Converts characters to their canonical representation, as
+    *  {@link #convertCanonical(String)} does, without allocating
+    *  any object.
+    *
+    * @param src The characters to convert
+    * @param srcOff The offset of the first character to convert
+    * @param len The number of characters to convert
+    * @param dst The array that will receive the converted characters, it
+    *   must have room for <code>len * MAX_EXPANSION</code> characters
+    *   starting at <code>dstOff</code>.
+    * @param dstOff The offset where to store the first converted character
+    * @return The number of characters written to <code>dst</code>.
+    */
+    public static int convertCanonical(char[] src, int srcOff, int len, char[] dst, int dstOff)
+    {
+        return TABLE.fold(src, srcOff, len, dst, dstOff);
     }
 
 }
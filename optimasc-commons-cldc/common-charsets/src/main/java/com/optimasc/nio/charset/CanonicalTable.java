@@ -0,0 +1,258 @@
+package com.optimasc.nio.charset;
+
+/** Direct-indexed folding table built from a canonical character map.
+ *
+ *  <p>The table is divided in 256 pages of 256 characters, pages which
+ *  contain no folded character being left out, so that each character
+ *  is folded with two array accesses. Characters which fold to more than
+ *  one character, such as ligatures, are marked in the table and their
+ *  replacement is searched in a small sorted list.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+final class CanonicalTable
+{
+  /** Marker for characters which are replaced by several characters. */
+  private static final char EXPANSION = (char) 0xFFFF;
+
+  /** Pages of the table, null for blocks where no character is folded */
+  private final char[][] pages;
+  /** Sorted characters which are replaced by several characters */
+  private char[] expansionKeys;
+  private char[][] expansionValues;
+  private int expansionCount;
+  /** Maximum number of characters a single character can be replaced with */
+  private int maxExpansion;
+
+  /** Creates the folding table.
+   *
+   * @param map Table of {character, canonical character} pairs, if a
+   *   character is present more than once the first entry is used.
+   * @param ligatures Table of {character, replacement characters ...}
+   *   rows, which take precedence over <code>map</code>.
+   * @param upperCase true if the result of the folding should be converted
+   *   to upper case, in which case upper case conversion is also applied to
+   *   the characters not present in <code>map</code>.
+   */
+  CanonicalTable(char[][] map, char[][] ligatures, boolean upperCase)
+  {
+    pages = new char[256][];
+    expansionKeys = new char[16];
+    expansionValues = new char[16][];
+    maxExpansion = 1;
+    if (upperCase)
+    {
+      for (int c = 0; c <= 0xFFFF; c++)
+      {
+        char u = Character.toUpperCase((char) c);
+        if (u != c)
+        {
+          set((char) c, u);
+        } else if (Character.isLowerCase((char) c))
+        {
+          char[] value = toUpperCase((char) c);
+          if ((value.length > 1) || (value[0] != c))
+          {
+            setExpansion((char) c, value);
+          }
+        }
+      }
+    }
+    /* Go backwards so that the first entry is kept for duplicates */
+    for (int i = map.length - 1; i >= 0; i--)
+    {
+      char c = map[i][0];
+      char v = map[i][1];
+      if (upperCase)
+      {
+        setExpansion(c, toUpperCase(v));
+      } else
+      {
+        setExpansion(c, new char[] { v });
+      }
+    }
+    for (int i = 0; i < ligatures.length; i++)
+    {
+      String value = new String(ligatures[i], 1, ligatures[i].length - 1);
+      if (upperCase)
+      {
+        value = value.toUpperCase();
+      }
+      setExpansion(ligatures[i][0], value.toCharArray());
+    }
+  }
+
+  /** Returns the upper case equivalent of a character, which can
+   *  be several characters long, such as for the german sharp s. */
+  private static char[] toUpperCase(char c)
+  {
+    char u = Character.toUpperCase(c);
+    if ((u == c) && Character.isLowerCase(c))
+    {
+      return String.valueOf(c).toUpperCase().toCharArray();
+    }
+    return new char[] { u };
+  }
+
+  private void set(char c, char value)
+  {
+    char[] page = pages[c >>> 8];
+    if (page == null)
+    {
+      page = new char[256];
+      int base = c & 0xFF00;
+      for (int i = 0; i < page.length; i++)
+      {
+        page[i] = (char) (base + i);
+      }
+      pages[c >>> 8] = page;
+    }
+    page[c & 0xFF] = value;
+  }
+
+  private int findExpansion(char c)
+  {
+    int low = 0;
+    int high = expansionCount - 1;
+    while (low <= high)
+    {
+      int mid = (low + high) >>> 1;
+      char key = expansionKeys[mid];
+      if (key < c)
+      {
+        low = mid + 1;
+      } else if (key > c)
+      {
+        high = mid - 1;
+      } else
+      {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private void setExpansion(char c, char[] value)
+  {
+    if (value.length == 1)
+    {
+      removeExpansion(c);
+      set(c, value[0]);
+      return;
+    }
+    int index = findExpansion(c);
+    if (index < 0)
+    {
+      index = -(index + 1);
+      if (expansionCount == expansionKeys.length)
+      {
+        char[] keys = new char[expansionCount * 2];
+        char[][] values = new char[expansionCount * 2][];
+        System.arraycopy(expansionKeys, 0, keys, 0, expansionCount);
+        System.arraycopy(expansionValues, 0, values, 0, expansionCount);
+        expansionKeys = keys;
+        expansionValues = values;
+      }
+      System.arraycopy(expansionKeys, index, expansionKeys, index + 1, expansionCount - index);
+      System.arraycopy(expansionValues, index, expansionValues, index + 1, expansionCount - index);
+      expansionCount++;
+    }
+    expansionKeys[index] = c;
+    expansionValues[index] = value;
+    maxExpansion = Math.max(maxExpansion, value.length);
+    set(c, EXPANSION);
+  }
+
+  private void removeExpansion(char c)
+  {
+    int index = findExpansion(c);
+    if (index >= 0)
+    {
+      expansionCount--;
+      System.arraycopy(expansionKeys, index + 1, expansionKeys, index, expansionCount - index);
+      System.arraycopy(expansionValues, index + 1, expansionValues, index, expansionCount - index);
+    }
+  }
+
+  /** Returns the maximum number of characters that a single character
+   *  can be converted to. */
+  int getMaxExpansion()
+  {
+    return maxExpansion;
+  }
+
+  /** Folds characters from an array into another array.
+   *
+   * @return the number of characters written to <code>dst</code>.
+   */
+  int fold(char[] src, int srcOff, int len, char[] dst, int dstOff)
+  {
+    int end = srcOff + len;
+    int d = dstOff;
+    for (int i = srcOff; i < end; i++)
+    {
+      char c = src[i];
+      char[] page = pages[c >>> 8];
+      if (page == null)
+      {
+        dst[d++] = c;
+        continue;
+      }
+      char f = page[c & 0xFF];
+      if (f == EXPANSION)
+      {
+        d = expand(c, dst, d);
+      } else
+      {
+        dst[d++] = f;
+      }
+    }
+    return d - dstOff;
+  }
+
+  /** Folds the characters of a string and appends them to a buffer. */
+  void fold(String str, StringBuffer outBuffer)
+  {
+    int length = str.length();
+    for (int i = 0; i < length; i++)
+    {
+      char c = str.charAt(i);
+      char[] page = pages[c >>> 8];
+      if (page == null)
+      {
+        outBuffer.append(c);
+        continue;
+      }
+      char f = page[c & 0xFF];
+      if (f == EXPANSION)
+      {
+        int index = findExpansion(c);
+        if (index >= 0)
+        {
+          outBuffer.append(expansionValues[index]);
+        } else
+        {
+          outBuffer.append(c);
+        }
+      } else
+      {
+        outBuffer.append(f);
+      }
+    }
+  }
+
+  private int expand(char c, char[] dst, int d)
+  {
+    int index = findExpansion(c);
+    if (index < 0)
+    {
+      /* The character itself is the marker value */
+      dst[d++] = c;
+      return d;
+    }
+    char[] value = expansionValues[index];
+    System.arraycopy(value, 0, dst, d, value.length);
+    return d + value.length;
+  }
+}
@@ -5,6 +5,9 @@ package com.optimasc.nio.charset;
  *   CP437  (437)
  *   CP850  (850)
  *   Windows-1252 (1252)
+ *
+ * The conversions from UCS-2 use precomputed reverse tables, so that
+ * each character is converted in constant time.
  */
 public final class CharSets
 {
@@ -840,47 +843,195 @@ public final class CharSets
   };
 
 
-  public static final int UCS2ToCodePage850(char c)
+  /* Reverse tables, indexed by the high byte then by the low byte of the
+   * character. Pages without any mapped character share the same empty page.
+   * An entry of zero either maps to code point zero or indicates an unmapped
+   * character, which is checked against the forward table. */
+  private static final byte[][] UCS2ToCodePage850Table = createReverseTable(CodePage850ToUCS2);
+  private static final byte[][] UCS2ToCodePage437Table = createReverseTable(CodePage437ToUCS2);
+  private static final byte[][] UCS2ToCodePage1252Table = createReverseTable(CodePage1252ToUCS2);
+
+  private static byte[][] createReverseTable(char[] table)
   {
-      int i;
-      for (i = 0; i < CodePage850ToUCS2.length; i++)
+    byte[] empty = new byte[256];
+    byte[][] pages = new byte[256][];
+    for (int i = 0; i < pages.length; i++)
+    {
+      pages[i] = empty;
+    }
+    /* Go backwards so that the lowest code point is kept for duplicates */
+    for (int i = table.length - 1; i >= 0; i--)
+    {
+      char c = table[i];
+      if (c == UNKNOWN_CODEPOINT)
       {
-          if (c == (char)CodePage850ToUCS2[i])
-          {
-              return i;
-          }
+        continue;
       }
-      return UNKNOWN_CODEPOINT;
+      if (pages[c >>> 8] == empty)
+      {
+        pages[c >>> 8] = new byte[256];
+      }
+      pages[c >>> 8][c & 0xFF] = (byte) i;
+    }
+    return pages;
+  }
+
+  private static byte[][] getReverseTable(char[] codePage)
+  {
+    if (codePage == CodePage850ToUCS2)
+    {
+      return UCS2ToCodePage850Table;
+    }
+    if (codePage == CodePage437ToUCS2)
+    {
+      return UCS2ToCodePage437Table;
+    }
+    if (codePage == CodePage1252ToUCS2)
+    {
+      return UCS2ToCodePage1252Table;
+    }
+    throw new IllegalArgumentException("Unsupported code page table.");
+  }
+
+  private static int lookup(byte[][] reverse, char[] codePage, char c)
+  {
+    int b = reverse[c >>> 8][c & 0xFF] & 0xFF;
+    if (codePage[b] == c)
+    {
+      return b;
+    }
+    return UNKNOWN_CODEPOINT;
+  }
+
+  public static final int UCS2ToCodePage850(char c)
+  {
+    return lookup(UCS2ToCodePage850Table, CodePage850ToUCS2, c);
   }
 
   public static final int UCS2ToCodePage437(char c)
   {
-      int i;
-      for (i = 0; i < CodePage437ToUCS2.length; i++)
-      {
-          if (c == (char)CodePage437ToUCS2[i])
-          {
-              return i;
-          }
-      }
-      return UNKNOWN_CODEPOINT;
+    return lookup(UCS2ToCodePage437Table, CodePage437ToUCS2, c);
   }
 
   public static final int UCS2ToCodePageWin1252(char c)
   {
-      int i;
-      for (i = 0; i < CodePage1252ToUCS2.length; i++)
+    return lookup(UCS2ToCodePage1252Table, CodePage1252ToUCS2, c);
+  }
+
+  /** Converts a character to a single-byte code page.
+   *
+   * @param codePage One of the conversion tables of this class, {@link #CodePage437ToUCS2},
+   *   {@link #CodePage850ToUCS2} or {@link #CodePage1252ToUCS2}, indicating the code page.
+   * @param c The character to convert
+   * @return The code point in the code page, or {@link #UNKNOWN_CODEPOINT}
+   *   if the character cannot be represented.
+   * @throws IllegalArgumentException if the table is not one of the tables of this class.
+   */
+  public static int encode(char[] codePage, char c)
+  {
+    return lookup(getReverseTable(codePage), codePage, c);
+  }
+
+  /** Converts characters to a single-byte code page.
+   *
+   * @param codePage One of the conversion tables of this class, {@link #CodePage437ToUCS2},
+   *   {@link #CodePage850ToUCS2} or {@link #CodePage1252ToUCS2}, indicating the code page.
+   * @param src The characters to convert
+   * @param srcOff The offset of the first character to convert
+   * @param dst The array receiving the code points
+   * @param dstOff The offset of the first code point to store
+   * @param len The number of characters to convert
+   * @param replacement The code point stored for characters that cannot be represented
+   * @return The number of characters that could not be represented.
+   * @throws IllegalArgumentException if the table is not one of the tables of this class.
+   */
+  public static int encode(char[] codePage, char[] src, int srcOff, byte[] dst, int dstOff, int len, byte replacement)
+  {
+    byte[][] reverse = getReverseTable(codePage);
+    int unmapped = 0;
+    for (int i = 0; i < len; i++)
+    {
+      char c = src[srcOff + i];
+      int b = reverse[c >>> 8][c & 0xFF] & 0xFF;
+      if (codePage[b] == c)
       {
-          if (c == (char)CodePage1252ToUCS2[i])
-          {
-              return i;
-          }
+        dst[dstOff + i] = (byte) b;
       }
-      return UNKNOWN_CODEPOINT;
+      else
+      {
+        dst[dstOff + i] = replacement;
+        unmapped++;
+      }
+    }
+    return unmapped;
   }
 
+  /** Converts a string to a single-byte code page.
+   *
+   * @param codePage One of the conversion tables of this class, {@link #CodePage437ToUCS2},
+   *   {@link #CodePage850ToUCS2} or {@link #CodePage1252ToUCS2}, indicating the code page.
+   * @param s The string to convert
+   * @param dst The array receiving the code points, one for each character of the string
+   * @param dstOff The offset of the first code point to store
+   * @param replacement The code point stored for characters that cannot be represented
+   * @return The number of characters that could not be represented.
+   * @throws IllegalArgumentException if the table is not one of the tables of this class.
+   */
+  public static int encode(char[] codePage, String s, byte[] dst, int dstOff, byte replacement)
+  {
+    byte[][] reverse = getReverseTable(codePage);
+    int len = s.length();
+    int unmapped = 0;
+    for (int i = 0; i < len; i++)
+    {
+      char c = s.charAt(i);
+      int b = reverse[c >>> 8][c & 0xFF] & 0xFF;
+      if (codePage[b] == c)
+      {
+        dst[dstOff + i] = (byte) b;
+      }
+      else
+      {
+        dst[dstOff + i] = replacement;
+        unmapped++;
+      }
+    }
+    return unmapped;
+  }
 
+  /** Converts code points of a single-byte code page to characters. Unmapped
+   *  code points are converted to {@link #UNKNOWN_CODEPOINT}.
+   *
+   * @param codePage The conversion table of the code page, such as {@link #CodePage437ToUCS2}.
+   * @param src The code points to convert
+   * @param srcOff The offset of the first code point to convert
+   * @param dst The array receiving the characters
+   * @param dstOff The offset of the first character to store
+   * @param len The number of code points to convert
+   */
+  public static void decode(char[] codePage, byte[] src, int srcOff, char[] dst, int dstOff, int len)
+  {
+    for (int i = 0; i < len; i++)
+    {
+      dst[dstOff + i] = codePage[src[srcOff + i] & 0xFF];
+    }
+  }
 
+  /** Converts code points of a single-byte code page to a string. Unmapped
+   *  code points are converted to {@link #UNKNOWN_CODEPOINT}.
+   *
+   * @param codePage The conversion table of the code page, such as {@link #CodePage437ToUCS2}.
+   * @param src The code points to convert
+   * @param off The offset of the first code point to convert
+   * @param len The number of code points to convert
+   * @return the converted string
+   */
+  public static String decode(char[] codePage, byte[] src, int off, int len)
+  {
+    char[] chars = new char[len];
+    decode(codePage, src, off, chars, 0, len);
+    return new String(chars);
+  }
 
 }
 
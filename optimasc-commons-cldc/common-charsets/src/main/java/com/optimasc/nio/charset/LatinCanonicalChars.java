@@ -301,18 +301,33 @@ public final class LatinCanonicalChars
   };
 
 
+  private static final char[][] LIGATURES =
+  {
+   { (char)0x00C6, 'A', 'E'},
+   // Canonical is always upper case
+   { (char)0x00E6, 'A', 'E'},
+   { (char)0x0152, 'O', 'E'},
+   { (char)0x0153, 'O', 'E'}
+  };
+
+  private static final CanonicalTable TABLE = new CanonicalTable(canonicalMap, LIGATURES, false);
+
+  /** The maximum number of characters that a single character can be
+   *  converted to by {@link #convertCanonical(char[], int, int, char[], int)}. */
+  public static final int MAX_EXPANSION = TABLE.getMaxExpansion();
+
    /** Converts a string representation to its canonical representation,
     *  that is removing all accented characters and replacing ligatured
     *  characters with non-ligatured characters. Currently only supports
     *  Latin character sets regarding replacing ligatured characters.
     *
     * @param str The string to convert
-    * @return
+    * @return The converted string.
     */
     public static String convertCanonical(String str)
     {
-        final StringBuffer buffer = new StringBuffer(256);
-        convertCanonical(str, buffer);
+        final StringBuffer buffer = new StringBuffer(str.length() + 16);
+        TABLE.fold(str, buffer);
         return buffer.toString();
     }
 
@@ -321,64 +336,32 @@ public final class LatinCanonicalChars
     *  characters with non-ligatured characters. Currently only supports
     *  Latin character sets regarding replacing ligatured characters.
     *
-    * @param outBuffer The buffer that will receive the resulting string.
-    * @return outBuffer
+    * @param str The string to convert
+    * @param outBuffer The buffer that will receive the resulting string,
+    *   its previous contents are discarded.
     */
     public static void convertCanonical(String str, StringBuffer outBuffer)
     {
-        int i;
-        int j;
-        char c;
         outBuffer.setLength(0);
-        outBuffer.append(str);
-        for (i = 0; i < outBuffer.length(); i++)
-        {
-            c = outBuffer.charAt(i);
-            if (c > (char)0x7F)
-            {
-               // AE
-               if (c == (char)0xC6)
-               {
-                   outBuffer.setCharAt(i,'A');
-                   outBuffer.insert(i+1,'E');
-                   break;
-               }
-               // ae
-               if (c == (char)0xE6)
-               {
-                 // Canonical is always upper case
-                   outBuffer.setCharAt(i,'A');
-                   outBuffer.insert(i+1,'E');
-                   break;
-               }
-               // OE
-               if (c == (char)0x152)
-               {
-                   outBuffer.setCharAt(i,'O');
-                   outBuffer.insert(i+1,'E');
-                   break;
-               }
-               // oe
-               if (c == (char)0x153)
-               {
-                   // Canonical is always upper case
-                   outBuffer.setCharAt(i,'O');
-                   outBuffer.insert(i+1,'E');
-                   break;
-               }
-               for (j = 0; j < LatinCanonicalChars.canonicalMap.length; j++)
-               {
-                  if (c == LatinCanonicalChars.canonicalMap[j][0])
-                  {
-                      outBuffer.setCharAt(i,LatinCanonicalChars.canonicalMap[j][1]);
-                      break;
-                  }
-               }
-            } else
-            {
-                outBuffer.setCharAt(i,c);
-            }
-        }
+        TABLE.fold(str, outBuffer);
+    }
+
+   /** Converts characters to their canonical representation, as
+    *  {@link #convertCanonical(String)} does, without allocating
+    *  any object.
+    *
+    * @param src The characters to convert
+    * @param srcOff The offset of the first character to convert
+    * @param len The number of characters to convert
+    * @param dst The array that will receive the converted characters, it
+    *   must have room for <code>len * MAX_EXPANSION</code> characters
+    *   starting at <code>dstOff</code>.
+    * @param dstOff The offset where to store the first converted character
+    * @return The number of characters written to <code>dst</code>.
+    */
+    public static int convertCanonical(char[] src, int srcOff, int len, char[] dst, int dstOff)
+    {
+        return TABLE.fold(src, srcOff, len, dst, dstOff);
     }
 
 
@@ -3,6 +3,9 @@
  * and open the template in the editor.
  */
 package com.optimasc.nio.charset;
+
+import java.io.UTFDataFormatException;
+
 /**
  *
  * @author Carl
@@ -35,8 +38,13 @@ public class UnicodeUtilities
      */
     private static final int UNI_MAX_UCS2 = 0x0000FFFF;
 
+    /** Character which replaces malformed input when it is not rejected. */
+    public static final char REPLACEMENT_CHAR = (char) UNI_REPLACEMENT_CHAR;
+
     /** Converts a byte array of characters encoded in UTF-8 and converts
-     *  it to a StringBuffer.
+     *  it to a StringBuffer. Supplementary characters are stored as
+     *  surrogate pairs, and malformed sequences are replaced by
+     *  {@link #REPLACEMENT_CHAR}.
      *
      * @param inBuffer
      * @param off
@@ -45,67 +53,225 @@ public class UnicodeUtilities
      */
     public static void UTF8Decode(byte inBuffer[], int off, int len, StringBuffer outBuffer)
     {
-        int i = off;
-        int ch = 0;
-        int extraBytesToRead;
-        int currentIndex;
-        int maxlen = len;
-        byte[] src = inBuffer;
+        char[] chars = new char[len];
+        int count = decode(inBuffer, off, len, chars, 0, true);
         outBuffer.setLength(0);
-        outBuffer.ensureCapacity(len*2);
-        while (i < maxlen)
+        outBuffer.append(chars, 0, count);
+    }
+
+    /** Decodes characters encoded in UTF-8 to an array of characters.
+     *
+     *  <p>Supplementary characters are stored as surrogate pairs. Runs of
+     *  ASCII characters are verified and copied 8 bytes at a time.
+     *  Overlong sequences, encoded surrogates, values above U+10FFFF,
+     *  unexpected continuation bytes and truncated sequences are
+     *  malformed; each maximal part of a malformed sequence is either
+     *  replaced by a single {@link #REPLACEMENT_CHAR} or rejected.</p>
+     *
+     * @param in The bytes to decode
+     * @param off The index of the first byte to decode
+     * @param len The number of bytes to decode
+     * @param out The buffer where the characters are stored, which must
+     *   have room for <code>len</code> characters.
+     * @param outOff The index where the first character is stored
+     * @param replaceMalformed true to replace the malformed sequences,
+     *   false to reject them.
+     * @return The number of characters stored.
+     * @throws UTFDataFormatException If the input is malformed and
+     *   <code>replaceMalformed</code> is false.
+     */
+    public static int UTF8Decode(byte[] in, int off, int len, char[] out, int outOff,
+        boolean replaceMalformed) throws UTFDataFormatException
+    {
+        int count = decode(in, off, len, out, outOff, replaceMalformed);
+        if (count < 0)
         {
-            ch = 0;
-            extraBytesToRead = trailingBytesForUTF8[src[i] & 0xff];
-            currentIndex = extraBytesToRead;
-            if (currentIndex == 5)
+            throw new UTFDataFormatException("Malformed UTF-8 input at offset " + (-count - 1));
+        }
+        return count;
+    }
+
+    /** Decodes characters encoded in UTF-8, see
+     *  {@link #UTF8Decode(byte[], int, int, char[], int, boolean)}.
+     *
+     * @return The number of characters stored, or <code>-(offset + 1)</code>
+     *   where offset is the position of the malformed input if it is not
+     *   replaced.
+     */
+    private static int decode(byte[] in, int off, int len, char[] out, int outOff,
+        boolean replaceMalformed)
+    {
+        int i = off;
+        int end = off + len;
+        int o = outOff;
+        while (i < end)
+        {
+            // ASCII fast path
+            while ((i + 8 <= end) && (((in[i] | in[i + 1] | in[i + 2] | in[i + 3] | in[i + 4]
+                | in[i + 5] | in[i + 6] | in[i + 7]) & 0x80) == 0))
             {
-                ch = ch + (src[i] & 0xff);
-                i++;
-                ch = ch << 6;
-                currentIndex--;
+                out[o] = (char) in[i];
+                out[o + 1] = (char) in[i + 1];
+                out[o + 2] = (char) in[i + 2];
+                out[o + 3] = (char) in[i + 3];
+                out[o + 4] = (char) in[i + 4];
+                out[o + 5] = (char) in[i + 5];
+                out[o + 6] = (char) in[i + 6];
+                out[o + 7] = (char) in[i + 7];
+                i += 8;
+                o += 8;
             }
-            if (currentIndex == 4)
+            if (i >= end)
             {
-                ch = ch + (src[i] & 0xff);
-                i++;
-                ch = ch << 6;
-                currentIndex--;
+                break;
             }
-            if (currentIndex == 3)
+            int b = in[i] & 0xFF;
+            if (b < 0x80)
             {
-                ch = ch + (src[i] & 0xff);
+                out[o++] = (char) b;
                 i++;
-                ch = ch << 6;
-
+                continue;
             }
-            if (currentIndex == 2)
+            int extraBytes = trailingBytesForUTF8[b];
+            // Valid range of the first continuation byte, which excludes the
+            // overlong forms, the surrogates and the values above U+10FFFF
+            int min = 0x80;
+            int max = 0xBF;
+            switch (b)
             {
-                ch = ch + (src[i] & 0xff);
-                i++;
-                ch = ch << 6;
-                currentIndex--;
+                case 0xE0:
+                    min = 0xA0;
+                    break;
+                case 0xED:
+                    max = 0x9F;
+                    break;
+                case 0xF0:
+                    min = 0x90;
+                    break;
+                case 0xF4:
+                    max = 0x8F;
+                    break;
+                default:
+                    if ((b < 0xC2) || (b > 0xF4))
+                    {
+                        extraBytes = -1;
+                    }
+                    break;
             }
-            if (currentIndex == 1)
+            int ch = b;
+            int j = i + 1;
+            for (int k = 0; k < extraBytes; k++, j++)
             {
-                ch = ch + (src[i] & 0xff);
-                i++;
-                ch = ch << 6;
-                currentIndex--;
+                int c = (j < end) ? (in[j] & 0xFF) : -1;
+                if ((c < min) || (c > max))
+                {
+                    extraBytes = -1;
+                    break;
+                }
+                ch = (ch << 6) + c;
+                min = 0x80;
+                max = 0xBF;
             }
-            if (currentIndex == 0)
+            if (extraBytes < 0)
             {
-                ch = ch + (src[i] & 0xff);
-                i++;
+                if (!replaceMalformed)
+                {
+                    return -(i - off) - 1;
+                }
+                out[o++] = REPLACEMENT_CHAR;
+                // Resume at the byte which is not part of the sequence
+                i = Math.max(j, i + 1);
+                continue;
             }
-            ch = ch - offsetsFromUTF8[extraBytesToRead];
+            ch -= offsetsFromUTF8[extraBytes];
             if (ch <= UNI_MAX_UCS2)
             {
-                outBuffer.append((char)ch);
+                out[o++] = (char) ch;
             } else
             {
-                outBuffer.append((char) UNI_REPLACEMENT_CHAR);
+                ch -= 0x10000;
+                out[o++] = (char) (0xD800 + (ch >> 10));
+                out[o++] = (char) (0xDC00 + (ch & 0x3FF));
             }
+            i = j;
         }
+        return o - outOff;
+    }
+
+    /** Encodes characters to UTF-8.
+     *
+     *  <p>Surrogate pairs are encoded as a single supplementary character
+     *  and runs of ASCII characters are copied without any conversion.
+     *  Unpaired surrogates are malformed, and are either replaced by the
+     *  encoding of {@link #REPLACEMENT_CHAR} or rejected.</p>
+     *
+     * @param in The characters to encode
+     * @param off The index of the first character to encode
+     * @param len The number of characters to encode
+     * @param out The buffer where the bytes are stored, which must have
+     *   room for <code>len</code> times 3 bytes.
+     * @param outOff The index where the first byte is stored
+     * @param replaceMalformed true to replace the unpaired surrogates,
+     *   false to reject them.
+     * @return The number of bytes stored.
+     * @throws UTFDataFormatException If an unpaired surrogate is found and
+     *   <code>replaceMalformed</code> is false.
+     */
+    public static int UTF8Encode(char[] in, int off, int len, byte[] out, int outOff,
+        boolean replaceMalformed) throws UTFDataFormatException
+    {
+        int end = off + len;
+        int o = outOff;
+        for (int i = off; i < end; i++)
+        {
+            int ch = in[i];
+            if (ch < 0x80)
+            {
+                out[o++] = (byte) ch;
+            } else if (ch < 0x800)
+            {
+                out[o++] = (byte) (0xC0 | (ch >> 6));
+                out[o++] = (byte) (0x80 | (ch & 0x3F));
+            } else
+            {
+                if ((ch >= 0xD800) && (ch < 0xE000))
+                {
+                    int low = (i + 1 < end) ? in[i + 1] : 0;
+                    if ((ch < 0xDC00) && (low >= 0xDC00) && (low < 0xE000))
+                    {
+                        ch = ((ch - 0xD800) << 10) + (low - 0xDC00) + 0x10000;
+                        out[o++] = (byte) (0xF0 | (ch >> 18));
+                        out[o++] = (byte) (0x80 | ((ch >> 12) & 0x3F));
+                        out[o++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                        out[o++] = (byte) (0x80 | (ch & 0x3F));
+                        i++;
+                        continue;
+                    }
+                    if (!replaceMalformed)
+                    {
+                        throw new UTFDataFormatException("Unpaired surrogate at index " + (i - off));
+                    }
+                    ch = UNI_REPLACEMENT_CHAR;
+                }
+                out[o++] = (byte) (0xE0 | (ch >> 12));
+                out[o++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                out[o++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+        return o - outOff;
+    }
+
+    /** Decodes characters encoded in UTF-8 to a string, replacing the
+     *  malformed sequences by {@link #REPLACEMENT_CHAR}.
+     *
+     * @param in The bytes to decode
+     * @param off The index of the first byte to decode
+     * @param len The number of bytes to decode
+     * @return The decoded string.
+     */
+    public static String UTF8DecodeString(byte[] in, int off, int len)
+    {
+        char[] chars = new char[len];
+        return new String(chars, 0, decode(in, off, len, chars, 0, true));
     }
 }
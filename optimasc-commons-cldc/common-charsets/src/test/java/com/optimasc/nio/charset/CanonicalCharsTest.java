@@ -0,0 +1,61 @@
+package com.optimasc.nio.charset;
+
+import junit.framework.TestCase;
+
+public class CanonicalCharsTest extends TestCase
+{
+  /** Reference implementation, searching the map linearly */
+  protected static char linearSearch(char[][] map, char c)
+  {
+    for (int i = 0; i < map.length; i++)
+    {
+      if (map[i][0] == c)
+      {
+        return map[i][1];
+      }
+    }
+    return c;
+  }
+
+  public void testAllCharacters()
+  {
+    char[] src = new char[1];
+    char[] dst = new char[CanonicalChars.MAX_EXPANSION];
+    for (int c = 0x80; c <= 0xFFFF; c++)
+    {
+      if ((c == 0xC6) || (c == 0xE6) || (c == 0x152) || (c == 0x153))
+      {
+        continue;
+      }
+      src[0] = (char) c;
+      String expected = String.valueOf(linearSearch(CanonicalChars.canonicalMap, (char) c)).toUpperCase();
+      int count = CanonicalChars.convertCanonical(src, 0, 1, dst, 0);
+      assertEquals(Integer.toHexString(c), expected, new String(dst, 0, count));
+      assertEquals(expected, CanonicalChars.convertCanonical(String.valueOf((char) c)));
+      assertEquals(String.valueOf(linearSearch(LatinCanonicalChars.canonicalMap, (char) c)),
+          LatinCanonicalChars.convertCanonical(String.valueOf((char) c)));
+    }
+  }
+
+  public void testLigatures()
+  {
+    /* All the ligatures are converted, not only the first one */
+    assertEquals("AESOP COEUR ETE", CanonicalChars.convertCanonical("Æsop cœur été"));
+    assertEquals("AEsop cOEur ete", LatinCanonicalChars.convertCanonical("æsop cœur été"));
+    assertEquals("STRASSE", CanonicalChars.convertCanonical("Straße"));
+  }
+
+  public void testArrays()
+  {
+    char[] src = "xxŒuvre éléphantxx".toCharArray();
+    char[] dst = new char[(src.length - 4) * LatinCanonicalChars.MAX_EXPANSION + 1];
+    int count = LatinCanonicalChars.convertCanonical(src, 2, src.length - 4, dst, 1);
+    assertEquals("OEuvre elephant", new String(dst, 1, count));
+    count = CanonicalChars.convertCanonical(src, 2, src.length - 4, dst, 0);
+    assertEquals("OEUVRE ELEPHANT", new String(dst, 0, count));
+
+    StringBuffer buffer = new StringBuffer("previous");
+    CanonicalChars.convertCanonical("ça", buffer);
+    assertEquals("CA", buffer.toString());
+  }
+}
@@ -0,0 +1,91 @@
+package com.optimasc.nio.charset;
+
+import junit.framework.TestCase;
+
+public class CharSetsTest extends TestCase
+{
+  protected static final char[][] TABLES =
+  {
+    CharSets.CodePage437ToUCS2,
+    CharSets.CodePage850ToUCS2,
+    CharSets.CodePage1252ToUCS2
+  };
+
+  /** Reference implementation, searching the table linearly */
+  protected static int linearSearch(char[] table, char c)
+  {
+    for (int i = 0; i < table.length; i++)
+    {
+      if ((table[i] == c) && (c != CharSets.UNKNOWN_CODEPOINT))
+      {
+        return i;
+      }
+    }
+    return CharSets.UNKNOWN_CODEPOINT;
+  }
+
+  public void testEncodeAllCharacters()
+  {
+    for (int c = 0; c <= 0xFFFF; c++)
+    {
+      char ch = (char) c;
+      assertEquals(linearSearch(CharSets.CodePage437ToUCS2, ch), CharSets.UCS2ToCodePage437(ch));
+      assertEquals(linearSearch(CharSets.CodePage850ToUCS2, ch), CharSets.UCS2ToCodePage850(ch));
+      assertEquals(linearSearch(CharSets.CodePage1252ToUCS2, ch), CharSets.UCS2ToCodePageWin1252(ch));
+    }
+  }
+
+  public void testRoundTrip()
+  {
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < bytes.length; i++)
+    {
+      bytes[i] = (byte) i;
+    }
+    for (int t = 0; t < TABLES.length; t++)
+    {
+      char[] chars = new char[258];
+      CharSets.decode(TABLES[t], bytes, 0, chars, 1, 256);
+      byte[] encoded = new byte[258];
+      int unmapped = CharSets.encode(TABLES[t], chars, 1, encoded, 2, 256, (byte) '?');
+      int expectedUnmapped = 0;
+      for (int i = 0; i < 256; i++)
+      {
+        if (chars[i + 1] == CharSets.UNKNOWN_CODEPOINT)
+        {
+          expectedUnmapped++;
+          assertEquals((byte) '?', encoded[i + 2]);
+        }
+        else
+        {
+          assertEquals((byte) i, encoded[i + 2]);
+        }
+      }
+      assertEquals(expectedUnmapped, unmapped);
+      assertEquals(new String(chars, 1, 256), CharSets.decode(TABLES[t], bytes, 0, 256));
+    }
+  }
+
+  public void testEncodeString()
+  {
+    byte[] dst = new byte[4];
+    assertEquals(1, CharSets.encode(CharSets.CodePage437ToUCS2, "éA€░", dst, 0, (byte) '?'));
+    assertEquals((byte) 0x82, dst[0]);
+    assertEquals((byte) 'A', dst[1]);
+    assertEquals((byte) '?', dst[2]);
+    assertEquals((byte) 0xB0, dst[3]);
+    assertEquals(0x80, CharSets.encode(CharSets.CodePage1252ToUCS2, '€'));
+  }
+
+  public void testUnsupportedTable()
+  {
+    try
+    {
+      CharSets.encode(new char[256], 'a');
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.optimasc.nio.charset;
+
+import java.io.UTFDataFormatException;
+import java.io.UnsupportedEncodingException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class UnicodeUtilitiesTest extends TestCase
+{
+  protected static byte[] bytes(int[] values)
+  {
+    byte[] result = new byte[values.length];
+    for (int i = 0; i < values.length; i++)
+    {
+      result[i] = (byte) values[i];
+    }
+    return result;
+  }
+
+  protected static String decode(int[] values) throws UTFDataFormatException
+  {
+    byte[] b = bytes(values);
+    char[] chars = new char[b.length];
+    return new String(chars, 0, UnicodeUtilities.UTF8Decode(b, 0, b.length, chars, 0, false));
+  }
+
+  public void testDecode() throws UTFDataFormatException
+  {
+    assertEquals("", decode(new int[] {}));
+    assertEquals("Hello, world", decode(new int[] { 'H', 'e', 'l', 'l', 'o', ',', ' ', 'w', 'o',
+        'r', 'l', 'd' }));
+    assertEquals("\u00E9", decode(new int[] { 0xC3, 0xA9 }));
+    assertEquals("\u20AC", decode(new int[] { 0xE2, 0x82, 0xAC }));
+    assertEquals("\uD83D\uDE00", decode(new int[] { 0xF0, 0x9F, 0x98, 0x80 }));
+    assertEquals("\uDBFF\uDFFF", decode(new int[] { 0xF4, 0x8F, 0xBF, 0xBF }));
+    assertEquals("abcdefgh\u00E9ijklmnopq", decode(new int[] { 'a', 'b', 'c', 'd', 'e', 'f', 'g',
+        'h', 0xC3, 0xA9, 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q' }));
+  }
+
+  public void testDecodeMalformed()
+  {
+    int[][] malformed = {
+        // Unexpected continuation byte
+        { 'a', 0x80 },
+        // Overlong forms
+        { 0xC0, 0xAF }, { 0xE0, 0x80, 0xAF }, { 0xF0, 0x80, 0x80, 0xAF },
+        // Encoded surrogate
+        { 0xED, 0xA0, 0x80 },
+        // Above U+10FFFF
+        { 0xF4, 0x90, 0x80, 0x80 }, { 0xF8, 0x88, 0x80, 0x80, 0x80 },
+        // Truncated sequences
+        { 0xC3 }, { 'a', 0xE2, 0x82 }, { 0xE2, 0x82, 'a' } };
+    for (int i = 0; i < malformed.length; i++)
+    {
+      try
+      {
+        decode(malformed[i]);
+        fail("Sequence " + i);
+      } catch (UTFDataFormatException e)
+      {
+        /* expected */
+      }
+    }
+  }
+
+  /**
+   * The replacement of malformed input is the same as the one of the JDK,
+   * except for the encoded surrogates which the JDK replaces as a whole.
+   */
+  public void testDecodeReplacement() throws UnsupportedEncodingException
+  {
+    Random random = new Random(20);
+    int[] pool = { 'a', 0x7F, 0x80, 0xBF, 0xC0, 0xC3, 0xA9, 0xE0, 0xA0, 0xE2, 0x82, 0xAC, 0x9F,
+        0xF0, 0x90, 0x9F, 0xF4, 0x8F, 0xF5, 0xFF };
+    for (int n = 0; n < 20000; n++)
+    {
+      int[] values = new int[random.nextInt(16)];
+      for (int i = 0; i < values.length; i++)
+      {
+        values[i] = pool[random.nextInt(pool.length)];
+      }
+      byte[] b = bytes(values);
+      StringBuffer buffer = new StringBuffer();
+      UnicodeUtilities.UTF8Decode(b, 0, b.length, buffer);
+      assertEquals(new String(b, "UTF-8"), buffer.toString());
+      assertEquals(new String(b, "UTF-8"), UnicodeUtilities.UTF8DecodeString(b, 0, b.length));
+    }
+    // Each maximal part of a malformed sequence is replaced
+    byte[] surrogate = bytes(new int[] { 0xED, 0xA0, 0x80, 'a' });
+    assertEquals("\uFFFD\uFFFD\uFFFDa", UnicodeUtilities.UTF8DecodeString(surrogate, 0, 4));
+    byte[] truncated = bytes(new int[] { 0xF0, 0x9F, 0x98, 'a', 0xE2, 0x82 });
+    assertEquals("\uFFFDa\uFFFD", UnicodeUtilities.UTF8DecodeString(truncated, 0, 6));
+    // Offset and length
+    byte[] b = bytes(new int[] { 'x', 0xC3, 0xA9, 'y', 'z' });
+    assertEquals("\u00E9y", UnicodeUtilities.UTF8DecodeString(b, 1, 3));
+  }
+
+  public void testEncode() throws UnsupportedEncodingException, UTFDataFormatException
+  {
+    String[] values = { "", "abc", "\u00E9t\u00E9", "\u20AC 12345678", "\uD83D\uDE00x",
+        "\u0000\u007F\u0080\u07FF\u0800\uFFFF" };
+    for (int i = 0; i < values.length; i++)
+    {
+      char[] chars = values[i].toCharArray();
+      byte[] b = new byte[chars.length * 3];
+      int length = UnicodeUtilities.UTF8Encode(chars, 0, chars.length, b, 0, false);
+      byte[] expected = values[i].getBytes("UTF-8");
+      assertEquals(expected.length, length);
+      for (int j = 0; j < length; j++)
+      {
+        assertEquals(expected[j], b[j]);
+      }
+      char[] decoded = new char[length];
+      assertEquals(values[i], new String(decoded, 0, UnicodeUtilities.UTF8Decode(b, 0, length,
+          decoded, 0, false)));
+    }
+    char[] unpaired = { 'a', '\uD800', 'b' };
+    byte[] b = new byte[9];
+    try
+    {
+      UnicodeUtilities.UTF8Encode(unpaired, 0, unpaired.length, b, 0, false);
+      fail();
+    } catch (UTFDataFormatException e)
+    {
+      /* expected */
+    }
+    assertEquals(5, UnicodeUtilities.UTF8Encode(unpaired, 0, unpaired.length, b, 0, true));
+    assertEquals("a\uFFFDb", UnicodeUtilities.UTF8DecodeString(b, 0, 5));
+  }
+}
@@ -46,6 +46,12 @@ public abstract class AbstractDataInputStream extends InputStream implements Dat
   /** Read buffer */
   protected byte readBuffer[] = new byte[8];
 
+  /** Size of the scratch buffer used by the bulk read methods. */
+  protected static final int BULK_BUFFER_SIZE = 8192;
+
+  /** Scratch buffer used by the bulk read methods, allocated on first use. */
+  protected byte bulkBuffer[];
+
   public AbstractDataInputStream()
   {
     readCount = 0;
@@ -437,6 +443,221 @@ public abstract class AbstractDataInputStream extends InputStream implements Dat
     return LineReader.readISOLine(this);
   }
 
+  /** Checks the array parameters of the bulk read methods and returns
+   *  the scratch buffer. */
+  private byte[] getBulkBuffer(int arrayLength, int off, int len)
+  {
+    if ((off | len) < 0 || off > arrayLength || arrayLength - off < len)
+    {
+      throw new IndexOutOfBoundsException("Invalid parameters");
+    }
+    if (bulkBuffer == null)
+    {
+      bulkBuffer = new byte[BULK_BUFFER_SIZE];
+    }
+    return bulkBuffer;
+  }
+
+  /** Reads <code>len</code> short values into an array. The
+   *  reading uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #readShort()} <code>len</code> times, but
+   *  the bytes are read in blocks with {@link #readFully(byte[], int, int)}.
+   *
+   *  @param v [out] The array receiving the values
+   *  @param off The index of the first value to store in the array
+   *  @param len The number of values to read
+   *
+   *  @throws EOFException - if this stream reaches the end before reading all the bytes.
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void readShorts(short[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 2);
+      readFully(buffer, 0, count * 2);
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getShortBig(buffer, i * 2);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getShortLittle(buffer, i * 2);
+        }
+      }
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Reads <code>len</code> int values into an array. The
+   *  reading uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #readInt()} <code>len</code> times, but
+   *  the bytes are read in blocks with {@link #readFully(byte[], int, int)}.
+   *
+   *  @param v [out] The array receiving the values
+   *  @param off The index of the first value to store in the array
+   *  @param len The number of values to read
+   *
+   *  @throws EOFException - if this stream reaches the end before reading all the bytes.
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void readInts(int[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 4);
+      readFully(buffer, 0, count * 4);
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getIntBig(buffer, i * 4);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getIntLittle(buffer, i * 4);
+        }
+      }
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Reads <code>len</code> long values into an array. The
+   *  reading uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #readLong()} <code>len</code> times, but
+   *  the bytes are read in blocks with {@link #readFully(byte[], int, int)}.
+   *
+   *  @param v [out] The array receiving the values
+   *  @param off The index of the first value to store in the array
+   *  @param len The number of values to read
+   *
+   *  @throws EOFException - if this stream reaches the end before reading all the bytes.
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void readLongs(long[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 8);
+      readFully(buffer, 0, count * 8);
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getLongBig(buffer, i * 8);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getLongLittle(buffer, i * 8);
+        }
+      }
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Reads <code>len</code> IEEE754 float values into an array. The
+   *  reading uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #readFloat()} <code>len</code> times, but
+   *  the bytes are read in blocks with {@link #readFully(byte[], int, int)}.
+   *
+   *  @param v [out] The array receiving the values
+   *  @param off The index of the first value to store in the array
+   *  @param len The number of values to read
+   *
+   *  @throws EOFException - if this stream reaches the end before reading all the bytes.
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void readFloats(float[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 4);
+      readFully(buffer, 0, count * 4);
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getFloatBig(buffer, i * 4);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getFloatLittle(buffer, i * 4);
+        }
+      }
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Reads <code>len</code> IEEE754 double values into an array. The
+   *  reading uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #readDouble()} <code>len</code> times, but
+   *  the bytes are read in blocks with {@link #readFully(byte[], int, int)}.
+   *
+   *  @param v [out] The array receiving the values
+   *  @param off The index of the first value to store in the array
+   *  @param len The number of values to read
+   *
+   *  @throws EOFException - if this stream reaches the end before reading all the bytes.
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void readDoubles(double[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 8);
+      readFully(buffer, 0, count * 8);
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getDoubleBig(buffer, i * 8);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          v[off + i] = ByteBufferIO.getDoubleLittle(buffer, i * 8);
+        }
+      }
+      off += count;
+      len -= count;
+    }
+  }
+
 
 
 
@@ -31,6 +31,12 @@ public abstract class AbstractDataOutputStream extends OutputStream
   
   /** Write buffer */
   protected byte writeBuffer[] = new byte[8];
+
+  /** Size of the scratch buffer used by the bulk write methods. */
+  protected static final int BULK_BUFFER_SIZE = 8192;
+
+  /** Scratch buffer used by the bulk write methods, allocated on first use. */
+  protected byte bulkBuffer[];
   
   
   
@@ -149,6 +155,221 @@ public abstract class AbstractDataOutputStream extends OutputStream
     writeLong(value);
   }
 
+  /** Checks the array parameters of the bulk write methods and returns
+   *  the scratch buffer. */
+  private byte[] getBulkBuffer(int arrayLength, int off, int len)
+  {
+    if ((off | len) < 0 || off > arrayLength || arrayLength - off < len)
+    {
+      throw new IndexOutOfBoundsException("Invalid parameters");
+    }
+    if (bulkBuffer == null)
+    {
+      bulkBuffer = new byte[BULK_BUFFER_SIZE];
+    }
+    return bulkBuffer;
+  }
+
+  /** Writes <code>len</code> short values from an array. The
+   *  writing uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #writeShort(int)} <code>len</code> times, but
+   *  the values are encoded in blocks and written with {@link #write(byte[], int, int)}.
+   *
+   *  @param v [in] The array containing the values
+   *  @param off The index of the first value to write
+   *  @param len The number of values to write
+   *
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void writeShorts(short[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 2);
+      int offset = 0;
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putShortBig(buffer, offset, v[off + i]);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putShortLittle(buffer, offset, v[off + i]);
+        }
+      }
+      write(buffer, 0, offset);
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Writes <code>len</code> int values from an array. The
+   *  writing uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #writeInt(int)} <code>len</code> times, but
+   *  the values are encoded in blocks and written with {@link #write(byte[], int, int)}.
+   *
+   *  @param v [in] The array containing the values
+   *  @param off The index of the first value to write
+   *  @param len The number of values to write
+   *
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void writeInts(int[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 4);
+      int offset = 0;
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putIntBig(buffer, offset, v[off + i]);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putIntLittle(buffer, offset, v[off + i]);
+        }
+      }
+      write(buffer, 0, offset);
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Writes <code>len</code> long values from an array. The
+   *  writing uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #writeLong(long)} <code>len</code> times, but
+   *  the values are encoded in blocks and written with {@link #write(byte[], int, int)}.
+   *
+   *  @param v [in] The array containing the values
+   *  @param off The index of the first value to write
+   *  @param len The number of values to write
+   *
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void writeLongs(long[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 8);
+      int offset = 0;
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putLongBig(buffer, offset, v[off + i]);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putLongLittle(buffer, offset, v[off + i]);
+        }
+      }
+      write(buffer, 0, offset);
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Writes <code>len</code> IEEE754 float values from an array. The
+   *  writing uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #writeFloat(float)} <code>len</code> times, but
+   *  the values are encoded in blocks and written with {@link #write(byte[], int, int)}.
+   *
+   *  @param v [in] The array containing the values
+   *  @param off The index of the first value to write
+   *  @param len The number of values to write
+   *
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void writeFloats(float[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 4);
+      int offset = 0;
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putFloatBig(buffer, offset, v[off + i]);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putFloatLittle(buffer, offset, v[off + i]);
+        }
+      }
+      write(buffer, 0, offset);
+      off += count;
+      len -= count;
+    }
+  }
+
+  /** Writes <code>len</code> IEEE754 double values from an array. The
+   *  writing uses the actively configured endian as set
+   *  by {@link #setByteOrder(ByteOrder)}. This is equivalent
+   *  to calling {@link #writeDouble(double)} <code>len</code> times, but
+   *  the values are encoded in blocks and written with {@link #write(byte[], int, int)}.
+   *
+   *  @param v [in] The array containing the values
+   *  @param off The index of the first value to write
+   *  @param len The number of values to write
+   *
+   *  @throws IOException - if an I/O error occurs.
+   *  @throws IndexOutOfBoundsException - if the array parameters are invalid
+   */
+  public void writeDoubles(double[] v, int off, int len) throws IOException
+  {
+    byte[] buffer = getBulkBuffer(v.length, off, len);
+    while (len > 0)
+    {
+      int count = Math.min(len, buffer.length / 8);
+      int offset = 0;
+      if (byteOrder == ByteOrder.BIG_ENDIAN)
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putDoubleBig(buffer, offset, v[off + i]);
+        }
+      }
+      else
+      {
+        for (int i = 0; i < count; i++)
+        {
+          offset = ByteBufferIO.putDoubleLittle(buffer, offset, v[off + i]);
+        }
+      }
+      write(buffer, 0, offset);
+      off += count;
+      len -= count;
+    }
+  }
+
   public void writeBytes(String s) throws IOException
   {
     for (int i = 0; i < s.length(); i++)
@@ -0,0 +1,339 @@
+package com.optimasc.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Reads bit fields from an input stream using a 64-bit accumulator.
+ *
+ *  <p>Contrary to {@link SeekableDataInputStream#readBits(int)}, which
+ *  reads the stream one bit at a time, the bytes of the stream are read
+ *  in blocks into an internal buffer, and the accumulator is refilled
+ *  from this buffer 32 bits at a time, so that reading a bit field only
+ *  requires a few shift and mask operations.</p>
+ *
+ *  <p>The order in which the bits are extracted from each byte is given
+ *  by a {@link ByteOrder}, in the same way as
+ *  {@link SeekableDataInputStream#peekBits(int)}:</p>
+ *  <ul>
+ *   <li>{@link ByteOrder#BIG_ENDIAN}: bits are read starting with the
+ *    most significant bit of each byte, and the first bit read becomes
+ *    the most significant bit of the returned value. This is the order
+ *    used by {@link BitInput#readBits(int)}.</li>
+ *   <li>{@link ByteOrder#LITTLE_ENDIAN}: bits are read starting with the
+ *    least significant bit of each byte, and the first bit read becomes
+ *    the least significant bit of the returned value, as in the DEFLATE
+ *    format.</li>
+ *  </ul>
+ *
+ *  <p>Since bytes are read ahead from the underlying stream, the stream
+ *  should not be accessed directly while this reader is in use. This
+ *  class is not thread-safe.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public class BitReader implements BitInput
+{
+  /** Default size of the byte buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  protected InputStream in;
+  protected final boolean msbFirst;
+
+  protected byte[] buffer;
+  /** Index of the next byte to load in the accumulator. */
+  protected int pos;
+  /** Index one past the last valid byte in the buffer. */
+  protected int limit;
+
+  /** Bit accumulator. In big endian order the valid bits are the
+   *  <code>bitCount</code> least significant bits, the next bit to read
+   *  being the highest one. In little endian order the next bit to read
+   *  is bit 0. */
+  protected long accumulator;
+  /** Number of valid bits in the accumulator. */
+  protected int bitCount;
+  /** Number of bytes loaded in the accumulator until now. */
+  protected long bytesLoaded;
+
+  /** Creates a bit reader.
+   *
+   * @param in The stream to read from
+   * @param bitOrder {@link ByteOrder#BIG_ENDIAN} to read the most significant
+   *   bit of each byte first, or {@link ByteOrder#LITTLE_ENDIAN} to read the least
+   *   significant bit first.
+   */
+  public BitReader(InputStream in, ByteOrder bitOrder)
+  {
+    this(in, bitOrder, DEFAULT_BUFFER_SIZE);
+  }
+
+  /** Creates a bit reader using a buffer of the specified size.
+   *
+   * @param in The stream to read from
+   * @param bitOrder {@link ByteOrder#BIG_ENDIAN} to read the most significant
+   *   bit of each byte first, or {@link ByteOrder#LITTLE_ENDIAN} to read the least
+   *   significant bit first.
+   * @param bufferSize The size of the byte buffer
+   * @throws IllegalArgumentException if the buffer size is smaller than 8 bytes.
+   */
+  public BitReader(InputStream in, ByteOrder bitOrder, int bufferSize)
+  {
+    if (bufferSize < 8)
+    {
+      throw new IllegalArgumentException("Buffer size must be at least 8 bytes.");
+    }
+    this.in = in;
+    msbFirst = (bitOrder != ByteOrder.LITTLE_ENDIAN);
+    buffer = new byte[bufferSize];
+  }
+
+  /** Creates a bit reader on the contents of a byte array, without
+   *  copying it.
+   *
+   * @param data The data to read from
+   * @param off The offset of the first byte to read
+   * @param len The number of bytes to read
+   * @param bitOrder {@link ByteOrder#BIG_ENDIAN} to read the most significant
+   *   bit of each byte first, or {@link ByteOrder#LITTLE_ENDIAN} to read the least
+   *   significant bit first.
+   */
+  public BitReader(byte[] data, int off, int len, ByteOrder bitOrder)
+  {
+    if ((off < 0) || (len < 0) || (off + len > data.length))
+    {
+      throw new IndexOutOfBoundsException();
+    }
+    msbFirst = (bitOrder != ByteOrder.LITTLE_ENDIAN);
+    buffer = data;
+    pos = off;
+    limit = off + len;
+  }
+
+  /** Loads bytes in the accumulator so that it contains at least
+   *  57 bits, or all the remaining bits of the stream.
+   */
+  private void refill() throws IOException
+  {
+    if (limit - pos < 8)
+    {
+      fillBuffer();
+    }
+    if (msbFirst)
+    {
+      if ((bitCount <= 32) && (limit - pos >= 4))
+      {
+        accumulator = (accumulator << 32) | (ByteBufferIO.getIntBig(buffer, pos) & 0xFFFFFFFFL);
+        pos += 4;
+        bitCount += 32;
+        bytesLoaded += 4;
+      }
+      while ((bitCount <= 56) && (pos < limit))
+      {
+        accumulator = (accumulator << 8) | (buffer[pos++] & 0xFF);
+        bitCount += 8;
+        bytesLoaded++;
+      }
+    }
+    else
+    {
+      if ((bitCount <= 32) && (limit - pos >= 4))
+      {
+        accumulator |= (ByteBufferIO.getIntLittle(buffer, pos) & 0xFFFFFFFFL) << bitCount;
+        pos += 4;
+        bitCount += 32;
+        bytesLoaded += 4;
+      }
+      while ((bitCount <= 56) && (pos < limit))
+      {
+        accumulator |= ((long) (buffer[pos++] & 0xFF)) << bitCount;
+        bitCount += 8;
+        bytesLoaded++;
+      }
+    }
+  }
+
+  /** Moves the remaining bytes to the start of the buffer and
+   *  reads more bytes from the stream. */
+  private void fillBuffer() throws IOException
+  {
+    if (in == null)
+    {
+      return;
+    }
+    int remaining = limit - pos;
+    System.arraycopy(buffer, pos, buffer, 0, remaining);
+    pos = 0;
+    limit = remaining;
+    while (limit < 8)
+    {
+      int count = in.read(buffer, limit, buffer.length - limit);
+      if (count < 0)
+      {
+        break;
+      }
+      limit += count;
+    }
+  }
+
+  /** Extracts bits from the accumulator, which must contain
+   *  at least <code>numBits</code> bits, between 1 and 57. */
+  private long take(int numBits)
+  {
+    long value;
+    if (msbFirst)
+    {
+      bitCount -= numBits;
+      value = (accumulator >>> bitCount) & ((1L << numBits) - 1);
+    }
+    else
+    {
+      value = accumulator & ((1L << numBits) - 1);
+      accumulator >>>= numBits;
+      bitCount -= numBits;
+    }
+    return value;
+  }
+
+  public int readBit() throws IOException
+  {
+    if (bitCount == 0)
+    {
+      refill();
+      if (bitCount == 0)
+      {
+        throw new EOFException();
+      }
+    }
+    return (int) take(1);
+  }
+
+  /** Reads a bitstring from the stream and returns it as a long. In
+   *  big endian bit order the first bit read becomes the most significant
+   *  bit of the output, in little endian bit order it becomes the least
+   *  significant bit.
+   *
+   * @param numBits The number of bits to read, between 0 and 64 inclusive.
+   * @return the bits read
+   * @throws IllegalArgumentException if numBits is not between 0 and 64, inclusive.
+   * @throws EOFException if the stream reaches the end before reading all the bits.
+   * @throws IOException if an I/O error occurs.
+   */
+  public long readBits(int numBits) throws IOException
+  {
+    if ((numBits < 0) || (numBits > 64))
+    {
+      throw new IllegalArgumentException("number of bits must be between 0 and 64");
+    }
+    if (numBits == 0)
+    {
+      return 0;
+    }
+    if (numBits > 32)
+    {
+      /* Split the read in two parts that always fit in the accumulator */
+      long first = readBits(32);
+      long second = readBits(numBits - 32);
+      if (msbFirst)
+      {
+        return (first << (numBits - 32)) | second;
+      }
+      return first | (second << 32);
+    }
+    if (bitCount < numBits)
+    {
+      refill();
+      if (bitCount < numBits)
+      {
+        throw new EOFException();
+      }
+    }
+    return take(numBits);
+  }
+
+  /** Returns the next bits of the stream without consuming them.
+   *
+   * @param numBits The number of bits to peek, between 0 and 32 inclusive.
+   * @return the bits, in the same format as {@link #readBits(int)}
+   * @throws IllegalArgumentException if numBits is not between 0 and 32, inclusive.
+   * @throws EOFException if the stream reaches the end before all the bits.
+   * @throws IOException if an I/O error occurs.
+   */
+  public int peekBits(int numBits) throws IOException
+  {
+    if ((numBits < 0) || (numBits > 32))
+    {
+      throw new IllegalArgumentException("number of bits must be between 0 and 32");
+    }
+    if (numBits == 0)
+    {
+      return 0;
+    }
+    if (bitCount < numBits)
+    {
+      refill();
+      if (bitCount < numBits)
+      {
+        throw new EOFException();
+      }
+    }
+    long mask = (1L << numBits) - 1;
+    if (msbFirst)
+    {
+      return (int) ((accumulator >>> (bitCount - numBits)) & mask);
+    }
+    return (int) (accumulator & mask);
+  }
+
+  /** Skips over the specified number of bits.
+   *
+   * @param numBits The number of bits to skip
+   * @throws IllegalArgumentException if numBits is negative.
+   * @throws EOFException if the stream reaches the end before all the bits.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void skipBits(long numBits) throws IOException
+  {
+    if (numBits < 0)
+    {
+      throw new IllegalArgumentException("number of bits must not be negative");
+    }
+    while (numBits > 0)
+    {
+      int count = (int) Math.min(numBits, 32);
+      readBits(count);
+      numBits -= count;
+    }
+  }
+
+  /** Skips the remaining bits of the current byte, so that the
+   *  next read starts on a byte boundary. */
+  public void alignToByte()
+  {
+    int extra = bitCount & 7;
+    if (extra != 0)
+    {
+      take(extra);
+    }
+  }
+
+  /** Returns the number of bits read until now.
+   *
+   * @return the current position in bits from the start of the data.
+   */
+  public long getBitPosition()
+  {
+    return (bytesLoaded * 8) - bitCount;
+  }
+
+  /** Returns the offset of the next bit to read within its byte, 0
+   *  indicating that the next read starts on a byte boundary.
+   *
+   * @return the bit offset, between 0 and 7 inclusive.
+   */
+  public int getBitOffset()
+  {
+    return (int) (getBitPosition() & 7);
+  }
+}
@@ -0,0 +1,221 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Writes bit fields to an output stream using a 64-bit accumulator.
+ *
+ *  <p>This is the output counterpart of {@link BitReader}: the bits are
+ *  accumulated in a register and written 32 bits at a time to an internal
+ *  byte buffer, which is written to the stream when it is full or when
+ *  {@link #flush()} is called.</p>
+ *
+ *  <p>The bit order is given by a {@link ByteOrder}, with the same
+ *  meaning as in {@link BitReader}: with {@link ByteOrder#BIG_ENDIAN} the
+ *  bits are written starting with the most significant bit of each byte,
+ *  and the bits of a value are written in left-to-right order as specified
+ *  by {@link BitOutput#writeBits(long, int)}; with
+ *  {@link ByteOrder#LITTLE_ENDIAN} the bits are written starting with the
+ *  least significant bit of each byte, and the bits of a value are written
+ *  starting with its least significant bit.</p>
+ *
+ *  <p>This class is not thread-safe.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public class BitWriter implements BitOutput
+{
+  /** Default size of the byte buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  protected OutputStream out;
+  protected final boolean msbFirst;
+
+  protected byte[] buffer;
+  /** Number of bytes in the buffer. */
+  protected int count;
+
+  /** Bit accumulator. In big endian order the pending bits are the
+   *  <code>bitCount</code> least significant bits, the first bit to write
+   *  being the highest one. In little endian order the first bit to write
+   *  is bit 0. */
+  protected long accumulator;
+  /** Number of pending bits in the accumulator, always less than 32. */
+  protected int bitCount;
+  /** Number of bytes written to the buffer until now. */
+  protected long bytesWritten;
+
+  /** Creates a bit writer.
+   *
+   * @param out The stream to write to
+   * @param bitOrder {@link ByteOrder#BIG_ENDIAN} to write the most significant
+   *   bit of each byte first, or {@link ByteOrder#LITTLE_ENDIAN} to write the least
+   *   significant bit first.
+   */
+  public BitWriter(OutputStream out, ByteOrder bitOrder)
+  {
+    this(out, bitOrder, DEFAULT_BUFFER_SIZE);
+  }
+
+  /** Creates a bit writer using a buffer of the specified size.
+   *
+   * @param out The stream to write to
+   * @param bitOrder {@link ByteOrder#BIG_ENDIAN} to write the most significant
+   *   bit of each byte first, or {@link ByteOrder#LITTLE_ENDIAN} to write the least
+   *   significant bit first.
+   * @param bufferSize The size of the byte buffer
+   * @throws IllegalArgumentException if the buffer size is smaller than 8 bytes.
+   */
+  public BitWriter(OutputStream out, ByteOrder bitOrder, int bufferSize)
+  {
+    if (bufferSize < 8)
+    {
+      throw new IllegalArgumentException("Buffer size must be at least 8 bytes.");
+    }
+    this.out = out;
+    msbFirst = (bitOrder != ByteOrder.LITTLE_ENDIAN);
+    buffer = new byte[bufferSize];
+  }
+
+  public void writeBit(int bit) throws IOException
+  {
+    writeBits(bit & 1, 1);
+  }
+
+  public void writeBits(long bits, int numBits) throws IOException
+  {
+    if ((numBits < 0) || (numBits > 64))
+    {
+      throw new IllegalArgumentException("number of bits must be between 0 and 64");
+    }
+    if (numBits > 32)
+    {
+      /* Split the write in two parts that always fit in the accumulator */
+      if (msbFirst)
+      {
+        writeBits(bits >>> 32, numBits - 32);
+        writeBits(bits & 0xFFFFFFFFL, 32);
+      }
+      else
+      {
+        writeBits(bits & 0xFFFFFFFFL, 32);
+        writeBits(bits >>> 32, numBits - 32);
+      }
+      return;
+    }
+    if (numBits == 0)
+    {
+      return;
+    }
+    long value = bits & ((1L << numBits) - 1);
+    if (msbFirst)
+    {
+      accumulator = (accumulator << numBits) | value;
+      bitCount += numBits;
+      if (bitCount >= 32)
+      {
+        bitCount -= 32;
+        putWord((int) (accumulator >>> bitCount));
+      }
+    }
+    else
+    {
+      accumulator |= value << bitCount;
+      bitCount += numBits;
+      if (bitCount >= 32)
+      {
+        putWord((int) accumulator);
+        accumulator >>>= 32;
+        bitCount -= 32;
+      }
+    }
+  }
+
+  private void putWord(int word) throws IOException
+  {
+    if (buffer.length - count < 4)
+    {
+      flushBuffer();
+    }
+    if (msbFirst)
+    {
+      count = ByteBufferIO.putIntBig(buffer, count, word);
+    }
+    else
+    {
+      count = ByteBufferIO.putIntLittle(buffer, count, word);
+    }
+    bytesWritten += 4;
+  }
+
+  private void flushBuffer() throws IOException
+  {
+    if (count > 0)
+    {
+      out.write(buffer, 0, count);
+      count = 0;
+    }
+  }
+
+  /** Pads the current byte with zero bits, so that the next
+   *  write starts on a byte boundary. */
+  public void alignToByte() throws IOException
+  {
+    int extra = bitCount & 7;
+    if (extra != 0)
+    {
+      writeBits(0, 8 - extra);
+    }
+  }
+
+  /** Returns the number of bits written until now.
+   *
+   * @return the current position in bits from the start of the data.
+   */
+  public long getBitPosition()
+  {
+    return (bytesWritten * 8) + bitCount;
+  }
+
+  /** Pads the last byte with zero bits if needed, and writes all
+   *  the pending bytes to the stream.
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  public void flush() throws IOException
+  {
+    alignToByte();
+    while (bitCount > 0)
+    {
+      if (buffer.length == count)
+      {
+        flushBuffer();
+      }
+      if (msbFirst)
+      {
+        bitCount -= 8;
+        buffer[count++] = (byte) (accumulator >>> bitCount);
+      }
+      else
+      {
+        buffer[count++] = (byte) accumulator;
+        accumulator >>>= 8;
+        bitCount -= 8;
+      }
+      bytesWritten++;
+    }
+    flushBuffer();
+    out.flush();
+  }
+
+  /** Flushes the pending bits and closes the stream.
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  public void close() throws IOException
+  {
+    flush();
+    out.close();
+  }
+}
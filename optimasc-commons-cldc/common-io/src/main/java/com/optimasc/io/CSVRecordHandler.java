@@ -0,0 +1,35 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+
+/** Callback interface used to receive the records parsed by a
+ *  {@link CSVTokenizer} based reader.
+ *
+ *  <p>When records are parsed in parallel, the input is split into
+ *  chunks. Each record is then identified by the index of the
+ *  chunk it was found in and its index within that chunk, the
+ *  chunks being numbered in input order, so that the pair
+ *  (<code>chunk</code>,<code>index</code>) gives the original
+ *  ordering of the records.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public interface CSVRecordHandler
+{
+  /** Called once for each record. The field values must
+   *  be read from the tokenizer before this method returns,
+   *  since they are only valid until the next record is parsed.
+   *
+   *  <p>This method may be called concurrently from different
+   *  threads for different chunks, but is always called
+   *  sequentially and in order for the records of the same chunk.</p>
+   *
+   * @param chunk The 0-based index of the chunk containing the record
+   * @param index The 0-based index of the record within the chunk
+   * @param tokenizer The tokenizer positioned on the record
+   * @throws IOException If the record cannot be processed, which
+   *   stops the parsing.
+   */
+  public void handleRecord(int chunk, long index, CSVTokenizer tokenizer) throws IOException;
+}
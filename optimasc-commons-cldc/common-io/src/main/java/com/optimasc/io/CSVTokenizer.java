@@ -0,0 +1,465 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A cursor-style CSV tokenizer that parses records without allocating
+ * objects per record or per field.
+ *
+ * <p>Where {@link CSVReader#parseCSVRecord(Reader, char)} builds a new
+ * <code>String[]</code> for every record, this class reads the input
+ * through a single reusable <code>char[]</code> buffer and exposes each
+ * field of the current record as an offset and a length into that buffer,
+ * as returned by {@link #getBuffer()}. Escaped quotes are unescaped in place,
+ * so the buffer always contains the decoded field values.</p>
+ *
+ * <p>The quoting rules are the same as the ones implemented by
+ * {@link CSVReader}: a quoted field must start with <code>"</code>,
+ * <code>""</code> inside a quoted field is an escaped quote, a quote
+ * appearing mid-field outside quotes is a literal character, embedded
+ * newlines inside quoted fields are preserved and an unclosed quoted field
+ * throws an {@link IOException}. The only difference is that a bare
+ * <code>\r</code> record terminator does not swallow the character following
+ * it, since the tokenizer can look ahead in its buffer.</p>
+ *
+ * <p>The field offsets and the buffer contents are only valid until the
+ * next call to {@link #nextRecord()}. The buffer may be reallocated when a
+ * single record does not fit in it, so {@link #getBuffer()} should be called
+ * again after each record.</p>
+ *
+ * <h3>Typical usage</h3>
+ * <pre>
+ *   CSVTokenizer tokenizer = new CSVTokenizer(reader, ',');
+ *   while (tokenizer.nextRecord())
+ *   {
+ *     char[] buffer = tokenizer.getBuffer();
+ *     for (int i = 0; i &lt; tokenizer.getFieldCount(); i++)
+ *     {
+ *       process(buffer, tokenizer.getFieldOffset(i), tokenizer.getFieldLength(i));
+ *     }
+ *   }
+ * </pre>
+ *
+ * <p>Instances of this class are not thread safe. The caller owns the
+ * {@link Reader} and is responsible for closing it.</p>
+ *
+ * @author Carl Eric Codere
+ */
+public class CSVTokenizer
+{
+  /** The only recognised quote character, per RFC 4180. */
+  private static final char QUOTE = '"';
+
+  /** Carriage return. */
+  private static final char CR = '\r';
+
+  /** Line feed — the primary record terminator. */
+  private static final char LF = '\n';
+
+  /** Default size of the character buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /** Default number of field slots allocated initially. */
+  private static final int DEFAULT_FIELD_COUNT = 16;
+
+  protected Reader reader;
+  protected char delimiter;
+
+  /** Character buffer, contains the decoded fields of the current record. */
+  protected char[] buffer;
+  /** Index of the next character to read in the buffer. */
+  protected int pos;
+  /** Index one past the last valid character read in the buffer. */
+  protected int limit;
+  /** Index of the first character of the current record in the buffer. */
+  protected int recordStart;
+  /** Set once the underlying reader has returned end of stream. */
+  protected boolean eof;
+
+  /** Offsets of each field, relative to {@link #recordStart}. */
+  protected int[] fieldOffsets;
+  /** Lengths in characters of each field. */
+  protected int[] fieldLengths;
+  /** Number of fields in the current record. */
+  protected int fieldCount;
+  /** Number of records read until now. */
+  protected long recordCount;
+
+  /**
+   * Creates a tokenizer using a buffer of {@link #DEFAULT_BUFFER_SIZE}
+   * characters.
+   *
+   * @param reader    the character stream to read from
+   * @param delimiter the field separator character
+   * @throws IllegalArgumentException if {@code reader} is {@code null}, or if
+   *   {@code delimiter} is {@code '"'}, {@code '\r'}, or {@code '\n'}.
+   */
+  public CSVTokenizer(Reader reader, char delimiter)
+  {
+    this(reader, delimiter, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a tokenizer using a buffer of the specified initial size.
+   *
+   * @param reader     the character stream to read from
+   * @param delimiter  the field separator character
+   * @param bufferSize the initial size of the character buffer, the buffer
+   *   grows if a single record is larger than this value.
+   * @throws IllegalArgumentException if {@code reader} is {@code null}, if
+   *   {@code delimiter} is {@code '"'}, {@code '\r'}, or {@code '\n'}, or
+   *   if {@code bufferSize} is not positive.
+   */
+  public CSVTokenizer(Reader reader, char delimiter, int bufferSize)
+  {
+    if (reader == null)
+    {
+      throw new IllegalArgumentException("Reader must not be null.");
+    }
+    if (delimiter == QUOTE)
+    {
+      throw new IllegalArgumentException(
+          "Delimiter must not be the double-quote character.");
+    }
+    if (delimiter == CR || delimiter == LF)
+    {
+      throw new IllegalArgumentException(
+          "Delimiter must not be a newline character (CR or LF).");
+    }
+    if (bufferSize <= 0)
+    {
+      throw new IllegalArgumentException("Buffer size must be positive.");
+    }
+    this.reader = reader;
+    this.delimiter = delimiter;
+    buffer = new char[bufferSize];
+    fieldOffsets = new int[DEFAULT_FIELD_COUNT];
+    fieldLengths = new int[DEFAULT_FIELD_COUNT];
+  }
+
+  /**
+   * Advances the cursor to the next logical CSV record.
+   *
+   * @return true if a record was read, or false if the stream is at end of
+   *   stream before any characters are read.
+   * @throws IOException if an I/O error occurs while reading, or if the
+   *   stream ends inside an unclosed quoted field.
+   */
+  public boolean nextRecord() throws IOException
+  {
+    fieldCount = 0;
+    recordStart = pos;
+    if (pos >= limit)
+    {
+      fill(pos);
+      if (pos >= limit)
+      {
+        return false;
+      }
+    }
+
+    char[] buf = buffer;
+    int w = pos;
+    int fieldStart = w;
+    boolean inQuotes = false;
+    int shift;
+
+    for (;;)
+    {
+      if (pos >= limit)
+      {
+        shift = fill(w);
+        buf = buffer;
+        w -= shift;
+        fieldStart -= shift;
+        if (pos >= limit)
+        {
+          break;
+        }
+      }
+      char c = buf[pos++];
+
+      if (inQuotes)
+      {
+        if (c != QUOTE)
+        {
+          /* Regular character or embedded newline inside quotes. */
+          buf[w++] = c;
+          continue;
+        }
+        /* Distinguish an escaped quote from a closing quote. */
+        if (pos >= limit)
+        {
+          shift = fill(w);
+          buf = buffer;
+          w -= shift;
+          fieldStart -= shift;
+          if (pos >= limit)
+          {
+            /* Closing quote is the very last character in the stream. */
+            inQuotes = false;
+            break;
+          }
+        }
+        if (buf[pos] == QUOTE)
+        {
+          pos++;
+          buf[w++] = QUOTE;
+        }
+        else
+        {
+          /* Closing quote, the next character is processed normally. */
+          inQuotes = false;
+        }
+      }
+      else if (c == delimiter)
+      {
+        addField(fieldStart, w);
+        fieldStart = w;
+      }
+      else if (c == LF)
+      {
+        break;
+      }
+      else if (c == CR)
+      {
+        /* Consume a following LF if present (CRLF normalisation). */
+        if (pos >= limit)
+        {
+          shift = fill(w);
+          buf = buffer;
+          w -= shift;
+          fieldStart -= shift;
+          if (pos >= limit)
+          {
+            break;
+          }
+        }
+        if (buf[pos] == LF)
+        {
+          pos++;
+        }
+        break;
+      }
+      else if ((c == QUOTE) && (w == fieldStart))
+      {
+        /* Opening quote: only valid at the very start of a field. */
+        inQuotes = true;
+      }
+      else
+      {
+        buf[w++] = c;
+      }
+    }
+
+    if (inQuotes)
+    {
+      throw new IOException(
+          "Malformed CSV: end of stream reached inside an unclosed quoted field.");
+    }
+    addField(fieldStart, w);
+    recordCount++;
+    return true;
+  }
+
+  /** Returns the number of fields in the current record.
+   *
+   * @return the number of fields, at least 1 after a successful call to
+   *   {@link #nextRecord()}.
+   */
+  public int getFieldCount()
+  {
+    return fieldCount;
+  }
+
+  /** Returns the number of records read until now. This can
+   *  be used as the 1-based ordinal of the current record.
+   *
+   * @return the number of records read.
+   */
+  public long getRecordCount()
+  {
+    return recordCount;
+  }
+
+  /** Returns the character buffer containing the decoded fields
+   *  of the current record. The returned array must not be modified
+   *  and may change after each call to {@link #nextRecord()}.
+   *
+   * @return the internal character buffer.
+   */
+  public char[] getBuffer()
+  {
+    return buffer;
+  }
+
+  /** Returns the offset in {@link #getBuffer()} of the first character
+   *  of the specified field.
+   *
+   * @param index the 0-based field index
+   * @return the offset of the field in the buffer.
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public int getFieldOffset(int index)
+  {
+    checkIndex(index);
+    return recordStart + fieldOffsets[index];
+  }
+
+  /** Returns the length in characters of the specified field.
+   *
+   * @param index the 0-based field index
+   * @return the length of the field
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public int getFieldLength(int index)
+  {
+    checkIndex(index);
+    return fieldLengths[index];
+  }
+
+  /** Returns the specified field as a new <code>String</code>. This
+   *  allocates a new object, the other accessors should be preferred
+   *  in performance sensitive code.
+   *
+   * @param index the 0-based field index
+   * @return the value of the field
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public String getField(int index)
+  {
+    checkIndex(index);
+    return new String(buffer, recordStart + fieldOffsets[index], fieldLengths[index]);
+  }
+
+  /** Appends the specified field to a string buffer.
+   *
+   * @param index the 0-based field index
+   * @param sb [in,out] the buffer to append the field to
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public void appendField(int index, StringBuffer sb)
+  {
+    checkIndex(index);
+    sb.append(buffer, recordStart + fieldOffsets[index], fieldLengths[index]);
+  }
+
+  /** Copies the specified field into a character array.
+   *
+   * @param index the 0-based field index
+   * @param dst [in,out] the destination array
+   * @param dstOffset the offset in the destination array
+   * @return the number of characters copied
+   * @throws IndexOutOfBoundsException if the index is invalid or
+   *   if the field does not fit in the destination array.
+   */
+  public int copyField(int index, char[] dst, int dstOffset)
+  {
+    checkIndex(index);
+    int len = fieldLengths[index];
+    System.arraycopy(buffer, recordStart + fieldOffsets[index], dst, dstOffset, len);
+    return len;
+  }
+
+  /** Compares the specified field with a string without allocating
+   *  any object.
+   *
+   * @param index the 0-based field index
+   * @param s the string to compare with
+   * @return true if the field has exactly the same characters as
+   *   <code>s</code>.
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public boolean fieldEquals(int index, String s)
+  {
+    checkIndex(index);
+    int len = fieldLengths[index];
+    if (len != s.length())
+    {
+      return false;
+    }
+    int off = recordStart + fieldOffsets[index];
+    for (int i = 0; i < len; i++)
+    {
+      if (buffer[off + i] != s.charAt(i))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void checkIndex(int index)
+  {
+    if ((index < 0) || (index >= fieldCount))
+    {
+      throw new IndexOutOfBoundsException("Invalid field index " + index);
+    }
+  }
+
+  private void addField(int start, int end)
+  {
+    if (fieldCount == fieldOffsets.length)
+    {
+      int[] newOffsets = new int[fieldCount * 2];
+      int[] newLengths = new int[fieldCount * 2];
+      System.arraycopy(fieldOffsets, 0, newOffsets, 0, fieldCount);
+      System.arraycopy(fieldLengths, 0, newLengths, 0, fieldCount);
+      fieldOffsets = newOffsets;
+      fieldLengths = newLengths;
+    }
+    fieldOffsets[fieldCount] = start - recordStart;
+    fieldLengths[fieldCount] = end - start;
+    fieldCount++;
+  }
+
+  /** Refills the buffer once all characters have been consumed. The
+   *  decoded characters of the current record, which are located
+   *  between {@link #recordStart} and <code>writePos</code>, are first
+   *  moved to the start of the buffer, which is grown if the record
+   *  fills the entire buffer.
+   *
+   * <p>Upon return, {@link #pos} is equal to {@link #limit} if the
+   * end of stream has been reached.</p>
+   *
+   * @param writePos the index one past the last decoded character
+   * @return the number of positions the record was shifted towards the
+   *   start of the buffer.
+   * @throws IOException if an I/O error occurs while reading
+   */
+  private int fill(int writePos) throws IOException
+  {
+    if (eof)
+    {
+      return 0;
+    }
+    int shift = recordStart;
+    int used = writePos - recordStart;
+    if (used == buffer.length)
+    {
+      char[] newBuffer = new char[buffer.length * 2];
+      System.arraycopy(buffer, recordStart, newBuffer, 0, used);
+      buffer = newBuffer;
+    }
+    else if (shift > 0)
+    {
+      System.arraycopy(buffer, recordStart, buffer, 0, used);
+    }
+    recordStart = 0;
+    pos = used;
+    limit = used;
+    int count;
+    do
+    {
+      count = reader.read(buffer, used, buffer.length - used);
+    } while (count == 0);
+    if (count < 0)
+    {
+      eof = true;
+      return shift;
+    }
+    limit = used + count;
+    return shift;
+  }
+}
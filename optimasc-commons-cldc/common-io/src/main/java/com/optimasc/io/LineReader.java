@@ -3,6 +3,8 @@ package com.optimasc.io;
 import java.io.IOException;
 import java.io.InputStream;
 
+import com.optimasc.nio.charset.UnicodeUtilities;
+
 /** A class that is used to read logical lines that can be terminated
  *  by the different line terminator and supports different encodings.
  *
@@ -71,7 +73,8 @@ public class LineReader
    */
   public static String readUTF8Line(InputStream reader) throws IOException 
   {
-      java.io.ByteArrayOutputStream bis = new java.io.ByteArrayOutputStream(MAX_LINE_LENGTH);
+      byte[] buffer = new byte[MAX_LINE_LENGTH];
+      int length = 0;
       // Test whether the end of file has been reached. If so, return null.
       int readChar = reader.read();
       if (readChar == -1) {
@@ -85,11 +88,17 @@ public class LineReader
           // and therefore an exception that should not be appended to the
           // string.
           if (readChar != '\r') {
-              bis.write((byte)(readChar & 0xFF));               
+              if (length == buffer.length) {
+                  byte[] newBuffer = new byte[buffer.length * 2];
+                  System.arraycopy(buffer, 0, newBuffer, 0, length);
+                  buffer = newBuffer;
+              }
+              buffer[length++] = (byte) readChar;
           }
           // Read the next character
           readChar = reader.read();
       }
-      return new String(bis.toByteArray(), 0, bis.size(), "UTF-8");
+      // Malformed sequences are replaced by U+FFFD
+      return UnicodeUtilities.UTF8DecodeString(buffer, 0, length);
   }
 }
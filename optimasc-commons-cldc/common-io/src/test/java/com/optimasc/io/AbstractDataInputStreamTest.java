@@ -540,6 +540,117 @@ public abstract class AbstractDataInputStreamTest extends MarkableInputStreamTes
   
   
   
+  public void testReadInts_StandardScenario_BigEndian()
+  {
+    AbstractDataInputStream is = (AbstractDataInputStream) in;
+    is.setByteOrder(ByteOrder.BIG_ENDIAN);
+    // The last value of the mapping is not in the stream
+    int[] values = new int[INT_BIG_TEST_BUFFER.length];
+    try
+    {
+      is.readInts(values, 1, values.length - 1);
+    } catch (IOException e)
+    {
+      fail();
+    }
+    assertEquals(0, values[0]);
+    for (int i = 0; i < values.length - 1; i++)
+    {
+      assertEquals(INT_BIG_TEST_BUFFER[i], values[i + 1]);
+    }
+
+    // Should throw EOFException
+    boolean EOFThrown = false;
+    try
+    {
+      is.readInts(values, 0, 1);
+    } catch (EOFException e)
+    {
+      EOFThrown = true;
+    } catch (IOException e)
+    {
+      fail();
+    }
+    if (EOFThrown == false)
+    {
+      fail();
+    }
+  }
+
+  public void testReadInts_StandardScenario_LittleEndian()
+  {
+    AbstractDataInputStream is = (AbstractDataInputStream) in;
+    is.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    int[] values = new int[INT_LITTLE_TEST_BUFFER.length - 1];
+    try
+    {
+      is.readInts(values, 0, values.length);
+    } catch (IOException e)
+    {
+      fail();
+    }
+    for (int i = 0; i < values.length; i++)
+    {
+      assertEquals(INT_LITTLE_TEST_BUFFER[i], values[i]);
+    }
+  }
+
+  public void testReadInts_OutOfBounds()
+  {
+    AbstractDataInputStream is = (AbstractDataInputStream) in;
+    try
+    {
+      is.readInts(new int[2], 1, 2);
+      fail();
+    } catch (IndexOutOfBoundsException e)
+    {
+      /* expected */
+    } catch (IOException e)
+    {
+      fail();
+    }
+  }
+
+  public void testReadShorts_StandardScenario()
+  {
+    AbstractDataInputStream is = (AbstractDataInputStream) in;
+    short[] values = new short[SHORT_BIG_TEST_BUFFER.length];
+    try
+    {
+      is.setByteOrder(ByteOrder.BIG_ENDIAN);
+      is.readShorts(values, 0, 2);
+      is.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+      is.readShorts(values, 2, values.length - 2);
+    } catch (IOException e)
+    {
+      fail();
+    }
+    assertEquals(SHORT_BIG_TEST_BUFFER[0], values[0]);
+    assertEquals(SHORT_BIG_TEST_BUFFER[1], values[1]);
+    for (int i = 2; i < values.length; i++)
+    {
+      assertEquals(SHORT_LITTLE_TEST_BUFFER[i], values[i]);
+    }
+  }
+
+  public void testReadLongs_StandardScenario()
+  {
+    AbstractDataInputStream is = (AbstractDataInputStream) in;
+    long[] values = new long[LONG_BIG_TEST_BUFFER.length - 1];
+    try
+    {
+      is.setByteOrder(ByteOrder.BIG_ENDIAN);
+      is.readLongs(values, 0, values.length);
+    } catch (IOException e)
+    {
+      fail();
+    }
+    for (int i = 0; i < values.length; i++)
+    {
+      assertEquals(LONG_BIG_TEST_BUFFER[i], values[i]);
+    }
+  }
+
   public void testReadLine_StandardScenario_NoNewLine()
   {
     AbstractDataInputStream is = (AbstractDataInputStream) in;
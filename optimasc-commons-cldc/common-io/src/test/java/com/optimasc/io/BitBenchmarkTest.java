@@ -0,0 +1,69 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/** Compares the time taken to read variable length bit fields with
+ *  {@link SeekableDataInputStream#readBits(int)} and with {@link BitReader}.
+ */
+public class BitBenchmarkTest extends TestCase
+{
+  private static final int ITERATION_COUNT = 10;
+
+  private byte[] buffer;
+  private int[] sizes;
+
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    buffer = new byte[1024 * 1024];
+    Random random = new Random(3);
+    random.nextBytes(buffer);
+    /* Average of 12 bits per field */
+    sizes = new int[(buffer.length * 8) / 24];
+    for (int i = 0; i < sizes.length; i++)
+    {
+      sizes[i] = 1 + random.nextInt(23);
+    }
+  }
+
+  protected void tearDown() throws Exception
+  {
+    super.tearDown();
+  }
+
+  public void testBenchmark() throws IOException
+  {
+    long checksum1 = 0;
+    long checksum2 = 0;
+    long timeSeekable = 0;
+    long timeBitReader = 0;
+
+    for (int i = 0; i < ITERATION_COUNT; i++)
+    {
+      long beforeBenchmark = System.currentTimeMillis();
+      ByteArrayInputStream is = new ByteArrayInputStream(buffer);
+      for (int j = 0; j < sizes.length; j++)
+      {
+        checksum1 += is.readBits(sizes[j]);
+      }
+      long afterBenchmark = System.currentTimeMillis();
+      timeSeekable = timeSeekable + (afterBenchmark - beforeBenchmark);
+
+      beforeBenchmark = System.currentTimeMillis();
+      BitReader reader = new BitReader(new java.io.ByteArrayInputStream(buffer), ByteOrder.BIG_ENDIAN);
+      for (int j = 0; j < sizes.length; j++)
+      {
+        checksum2 += reader.readBits(sizes[j]);
+      }
+      afterBenchmark = System.currentTimeMillis();
+      timeBitReader = timeBitReader + (afterBenchmark - beforeBenchmark);
+    }
+    assertEquals(checksum1, checksum2);
+    System.out.println("SeekableDataInputStream.readBits: " + (timeSeekable / ITERATION_COUNT) + " ms");
+    System.out.println("BitReader.readBits: " + (timeBitReader / ITERATION_COUNT) + " ms");
+  }
+
+}
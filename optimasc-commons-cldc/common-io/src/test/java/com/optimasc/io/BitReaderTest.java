@@ -0,0 +1,166 @@
+package com.optimasc.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class BitReaderTest extends TestCase
+{
+  private byte[] data;
+
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    data = new byte[257];
+    new Random(5).nextBytes(data);
+  }
+
+  /** Returns the bit at the specified bit position, in the given bit order. */
+  private int bitAt(long bitPos, boolean msbFirst)
+  {
+    int b = data[(int) (bitPos >> 3)] & 0xFF;
+    int shift = (int) (bitPos & 7);
+    if (msbFirst)
+    {
+      return (b >>> (7 - shift)) & 1;
+    }
+    return (b >>> shift) & 1;
+  }
+
+  private long expectedBits(long bitPos, int numBits, boolean msbFirst)
+  {
+    long value = 0;
+    for (int i = 0; i < numBits; i++)
+    {
+      if (msbFirst)
+      {
+        value = (value << 1) | bitAt(bitPos + i, true);
+      }
+      else
+      {
+        value |= ((long) bitAt(bitPos + i, false)) << i;
+      }
+    }
+    return value;
+  }
+
+  private void checkRandomReads(ByteOrder order, boolean fromStream) throws IOException
+  {
+    boolean msbFirst = (order == ByteOrder.BIG_ENDIAN);
+    BitReader reader;
+    if (fromStream)
+    {
+      reader = new BitReader(new java.io.ByteArrayInputStream(data), order, 8);
+    }
+    else
+    {
+      reader = new BitReader(data, 0, data.length, order);
+    }
+    Random random = new Random(7);
+    long bitPos = 0;
+    long totalBits = data.length * 8L;
+    while (true)
+    {
+      int numBits = random.nextInt(65);
+      int op = random.nextInt(4);
+      if (bitPos + numBits > totalBits)
+      {
+        break;
+      }
+      assertEquals(bitPos, reader.getBitPosition());
+      assertEquals((int) (bitPos & 7), reader.getBitOffset());
+      if (op == 0)
+      {
+        assertEquals(expectedBits(bitPos, 1, msbFirst), reader.readBit());
+        bitPos++;
+      }
+      else if ((op == 1) && (numBits <= 32))
+      {
+        assertEquals(expectedBits(bitPos, numBits, msbFirst), reader.peekBits(numBits) & 0xFFFFFFFFL);
+      }
+      else if (op == 2)
+      {
+        reader.skipBits(numBits);
+        bitPos += numBits;
+      }
+      else
+      {
+        assertEquals(expectedBits(bitPos, numBits, msbFirst), reader.readBits(numBits));
+        bitPos += numBits;
+      }
+    }
+    reader.skipBits(totalBits - bitPos);
+    try
+    {
+      reader.readBit();
+      fail("Expected EOFException.");
+    } catch (EOFException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testBigEndian() throws IOException
+  {
+    checkRandomReads(ByteOrder.BIG_ENDIAN, false);
+    checkRandomReads(ByteOrder.BIG_ENDIAN, true);
+  }
+
+  public void testLittleEndian() throws IOException
+  {
+    checkRandomReads(ByteOrder.LITTLE_ENDIAN, false);
+    checkRandomReads(ByteOrder.LITTLE_ENDIAN, true);
+  }
+
+  /** The big endian order must give the same results as SeekableDataInputStream.readBits */
+  public void testSameAsSeekableDataInputStream() throws IOException
+  {
+    ByteArrayInputStream is = new ByteArrayInputStream(data);
+    BitReader reader = new BitReader(data, 0, data.length, ByteOrder.BIG_ENDIAN);
+    int[] sizes = { 3, 13, 1, 8, 32, 5, 64, 17 };
+    for (int i = 0; i < sizes.length; i++)
+    {
+      assertEquals(is.readBits(sizes[i]), reader.readBits(sizes[i]));
+    }
+  }
+
+  public void testAlignToByte() throws IOException
+  {
+    BitReader reader = new BitReader(new byte[] { (byte) 0xFF, 0x5A }, 0, 2, ByteOrder.BIG_ENDIAN);
+    assertEquals(0x07, reader.readBits(3));
+    reader.alignToByte();
+    assertEquals(0, reader.getBitOffset());
+    assertEquals(0x5A, reader.readBits(8));
+    try
+    {
+      reader.readBits(1);
+      fail("Expected EOFException.");
+    } catch (EOFException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testInvalidArguments() throws IOException
+  {
+    BitReader reader = new BitReader(data, 0, data.length, ByteOrder.BIG_ENDIAN);
+    try
+    {
+      reader.readBits(65);
+      fail("Expected IllegalArgumentException.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      reader.peekBits(33);
+      fail("Expected IllegalArgumentException.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+}
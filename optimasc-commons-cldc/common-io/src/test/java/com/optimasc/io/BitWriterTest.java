@@ -0,0 +1,82 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class BitWriterTest extends TestCase
+{
+
+  private void checkRoundTrip(ByteOrder order) throws IOException
+  {
+    Random random = new Random(11);
+    int count = 2000;
+    long[] values = new long[count];
+    int[] sizes = new int[count];
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    BitWriter writer = new BitWriter(out, order, 8);
+    long totalBits = 0;
+    for (int i = 0; i < count; i++)
+    {
+      sizes[i] = random.nextInt(65);
+      values[i] = random.nextLong();
+      if (sizes[i] < 64)
+      {
+        values[i] &= (1L << sizes[i]) - 1;
+      }
+      if (sizes[i] == 1)
+      {
+        writer.writeBit((int) values[i]);
+      }
+      else
+      {
+        writer.writeBits(values[i], sizes[i]);
+      }
+      totalBits += sizes[i];
+      assertEquals(totalBits, writer.getBitPosition());
+    }
+    writer.flush();
+    byte[] data = out.toByteArray();
+    assertEquals((totalBits + 7) / 8, data.length);
+
+    BitReader reader = new BitReader(data, 0, data.length, order);
+    for (int i = 0; i < count; i++)
+    {
+      assertEquals("Value " + i, values[i], reader.readBits(sizes[i]));
+    }
+  }
+
+  public void testBigEndianRoundTrip() throws IOException
+  {
+    checkRoundTrip(ByteOrder.BIG_ENDIAN);
+  }
+
+  public void testLittleEndianRoundTrip() throws IOException
+  {
+    checkRoundTrip(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public void testBitLayout() throws IOException
+  {
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    BitWriter writer = new BitWriter(out, ByteOrder.BIG_ENDIAN);
+    writer.writeBits(0x5, 3);
+    writer.writeBit(1);
+    writer.flush();
+    byte[] data = out.toByteArray();
+    assertEquals(1, data.length);
+    assertEquals((byte) 0xB0, data[0]);
+
+    out = new java.io.ByteArrayOutputStream();
+    writer = new BitWriter(out, ByteOrder.LITTLE_ENDIAN);
+    writer.writeBits(0x5, 3);
+    writer.writeBit(1);
+    writer.writeBits(0xABC, 12);
+    writer.close();
+    data = out.toByteArray();
+    assertEquals(2, data.length);
+    assertEquals((byte) 0xCD, data[0]);
+    assertEquals((byte) 0xAB, data[1]);
+  }
+}
@@ -0,0 +1,75 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+/** Compares the time taken to parse the same CSV data with
+ *  {@link CSVReader#parseCSVRecord(java.io.Reader, char)} and
+ *  with {@link CSVTokenizer}.
+ */
+public class CSVBenchmarkTest extends TestCase
+{
+  private static final int RECORD_COUNT = 50000;
+  private static final int ITERATION_COUNT = 10;
+
+  private String csv;
+
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < RECORD_COUNT; i++)
+    {
+      sb.append(i).append(",name").append(i).append(",\"quoted, \"\"value\"\"\",");
+      sb.append(i * 31).append('.').append(i % 100).append(",\"multi\nline\"\r\n");
+    }
+    csv = sb.toString();
+  }
+
+  protected void tearDown() throws Exception
+  {
+    super.tearDown();
+  }
+
+  public void testBenchmark() throws IOException
+  {
+    long checksum1 = 0;
+    long checksum2 = 0;
+    long timeCSVReader = 0;
+    long timeCSVTokenizer = 0;
+
+    for (int i = 0; i < ITERATION_COUNT; i++)
+    {
+      long beforeBenchmark = System.currentTimeMillis();
+      StringReader reader = new StringReader(csv);
+      String[] record;
+      while ((record = CSVReader.parseCSVRecord(reader, ',')) != null)
+      {
+        for (int j = 0; j < record.length; j++)
+        {
+          checksum1 += record[j].length();
+        }
+      }
+      long afterBenchmark = System.currentTimeMillis();
+      timeCSVReader = timeCSVReader + (afterBenchmark - beforeBenchmark);
+
+      beforeBenchmark = System.currentTimeMillis();
+      CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(csv), ',');
+      while (tokenizer.nextRecord())
+      {
+        for (int j = 0; j < tokenizer.getFieldCount(); j++)
+        {
+          checksum2 += tokenizer.getFieldLength(j);
+        }
+      }
+      afterBenchmark = System.currentTimeMillis();
+      timeCSVTokenizer = timeCSVTokenizer + (afterBenchmark - beforeBenchmark);
+    }
+    assertEquals(checksum1, checksum2);
+    System.out.println("CSVReader.parseCSVRecord: " + (timeCSVReader / ITERATION_COUNT) + " ms");
+    System.out.println("CSVTokenizer.nextRecord: " + (timeCSVTokenizer / ITERATION_COUNT) + " ms");
+  }
+
+}
@@ -0,0 +1,280 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link CSVTokenizer}.
+ *
+ * <p>Most tests are run with several buffer sizes, including very small
+ * ones, so that records and quoted fields straddle buffer refills.</p>
+ */
+public class CSVTokenizerTest extends TestCase
+{
+  private static final int[] BUFFER_SIZES = { 1, 2, 3, 7, 64, CSVTokenizer.DEFAULT_BUFFER_SIZE };
+
+  /* ======================================================================
+   *  HELPERS
+   * ====================================================================== */
+
+  private static String[][] parseAll(String csv, char delimiter, int bufferSize) throws IOException
+  {
+    CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(csv), delimiter, bufferSize);
+    Vector records = new Vector();
+    while (tokenizer.nextRecord())
+    {
+      String[] record = new String[tokenizer.getFieldCount()];
+      for (int i = 0; i < record.length; i++)
+      {
+        record[i] = tokenizer.getField(i);
+      }
+      records.addElement(record);
+    }
+    String[][] result = new String[records.size()][];
+    for (int i = 0; i < records.size(); i++)
+    {
+      result[i] = (String[]) records.elementAt(i);
+    }
+    return result;
+  }
+
+  private static String[][] parseAllWithCSVReader(String csv, char delimiter) throws IOException
+  {
+    StringReader r = new StringReader(csv);
+    Vector records = new Vector();
+    String[] record;
+    while ((record = CSVReader.parseCSVRecord(r, delimiter)) != null)
+    {
+      records.addElement(record);
+    }
+    String[][] result = new String[records.size()][];
+    for (int i = 0; i < records.size(); i++)
+    {
+      result[i] = (String[]) records.elementAt(i);
+    }
+    return result;
+  }
+
+  private static void assertRecords(String[][] expected, String csv) throws IOException
+  {
+    for (int k = 0; k < BUFFER_SIZES.length; k++)
+    {
+      String[][] actual = parseAll(csv, ',', BUFFER_SIZES[k]);
+      assertEquals("Record count mismatch.", expected.length, actual.length);
+      for (int i = 0; i < expected.length; i++)
+      {
+        assertEquals("Field count mismatch.", expected[i].length, actual[i].length);
+        for (int j = 0; j < expected[i].length; j++)
+        {
+          assertEquals("Field " + j + " mismatch.", expected[i][j], actual[i][j]);
+        }
+      }
+    }
+  }
+
+  private static void assertRecord(String[] expected, String csv) throws IOException
+  {
+    assertRecords(new String[][] { expected }, csv);
+  }
+
+  /* ======================================================================
+   *  PARSING
+   * ====================================================================== */
+
+  public void testUnquotedFields() throws IOException
+  {
+    assertRecord(new String[] { "hello" }, "hello");
+    assertRecord(new String[] { "a", "b", "c" }, "a,b,c");
+    assertRecord(new String[] { "", "b", "" }, ",b,");
+    assertRecord(new String[] { "", "", "" }, ",,");
+  }
+
+  public void testQuotedFields() throws IOException
+  {
+    assertRecord(new String[] { "hello,world" }, "\"hello,world\"");
+    assertRecord(new String[] { "foo,bar", "baz" }, "\"foo,bar\",baz");
+    assertRecord(new String[] { "say \"hello\"" }, "\"say \"\"hello\"\"\"");
+    assertRecord(new String[] { "" }, "\"\"");
+    assertRecord(new String[] { "a", "b" }, "\"a\",\"b\"");
+    assertRecord(new String[] { "  hello  " }, "\"  hello  \"");
+  }
+
+  public void testMidFieldQuoteIsLiteral() throws IOException
+  {
+    assertRecord(new String[] { "ab\"c", "d" }, "ab\"c,d");
+  }
+
+  public void testEmbeddedNewlines() throws IOException
+  {
+    assertRecord(new String[] { "line1\nline2", "next" }, "\"line1\nline2\",next");
+    assertRecord(new String[] { "line1\r\nline2", "next" }, "\"line1\r\nline2\",next");
+    assertRecords(new String[][] { { "a\nb", "c" }, { "d", "e" } }, "\"a\nb\",c\nd,e");
+  }
+
+  public void testMultipleRecords() throws IOException
+  {
+    assertRecords(new String[][] { { "a", "b" }, { "c", "d" } }, "a,b\nc,d");
+    assertRecords(new String[][] { { "a", "b" }, { "c", "d" } }, "a,b\r\nc,d");
+    assertRecords(new String[][] { { "a", "b" } }, "a,b\n");
+    assertRecords(new String[][] { { "a", "b" } }, "a,b\r\n");
+  }
+
+  public void testBareCRDoesNotSwallowNextCharacter() throws IOException
+  {
+    assertRecords(new String[][] { { "a", "b" }, { "c", "d" } }, "a,b\rc,d");
+  }
+
+  public void testEmptyStream() throws IOException
+  {
+    CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(""), ',');
+    assertFalse(tokenizer.nextRecord());
+    assertFalse(tokenizer.nextRecord());
+  }
+
+  public void testSingleEmptyLine() throws IOException
+  {
+    assertRecords(new String[][] { { "" } }, "\n");
+  }
+
+  public void testAccessors() throws IOException
+  {
+    CSVTokenizer tokenizer = new CSVTokenizer(new StringReader("x;\"y\"\"z\";\n"), ';');
+    assertTrue(tokenizer.nextRecord());
+    assertEquals(1, tokenizer.getRecordCount());
+    assertEquals(3, tokenizer.getFieldCount());
+    assertTrue(tokenizer.fieldEquals(0, "x"));
+    assertTrue(tokenizer.fieldEquals(1, "y\"z"));
+    assertFalse(tokenizer.fieldEquals(1, "y\"Z"));
+    assertEquals(3, tokenizer.getFieldLength(1));
+    assertEquals('y', tokenizer.getBuffer()[tokenizer.getFieldOffset(1)]);
+    assertEquals(0, tokenizer.getFieldLength(2));
+
+    char[] dst = new char[4];
+    assertEquals(3, tokenizer.copyField(1, dst, 1));
+    assertEquals("y\"z", new String(dst, 1, 3));
+    StringBuffer sb = new StringBuffer("<");
+    tokenizer.appendField(0, sb);
+    assertEquals("<x", sb.toString());
+    try
+    {
+      tokenizer.getFieldLength(3);
+      fail("Expected IndexOutOfBoundsException.");
+    } catch (IndexOutOfBoundsException e)
+    {
+      /* expected */
+    }
+    assertFalse(tokenizer.nextRecord());
+  }
+
+  public void testManyFields() throws IOException
+  {
+    StringBuffer sb = new StringBuffer();
+    String[] expected = new String[100];
+    for (int i = 0; i < expected.length; i++)
+    {
+      expected[i] = Integer.toString(i);
+      if (i > 0)
+      {
+        sb.append(',');
+      }
+      sb.append(expected[i]);
+    }
+    assertRecord(expected, sb.toString());
+  }
+
+  /** Compares the results with {@link CSVReader} on random input. */
+  public void testSameResultsAsCSVReader() throws IOException
+  {
+    Random random = new Random(4180);
+    char[] alphabet = { 'a', 'b', ',', '"', '\n', ' ', '"', ',' };
+    for (int n = 0; n < 500; n++)
+    {
+      StringBuffer sb = new StringBuffer();
+      int len = random.nextInt(40);
+      for (int i = 0; i < len; i++)
+      {
+        sb.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      String csv = sb.toString();
+      String[][] expected;
+      try
+      {
+        expected = parseAllWithCSVReader(csv, ',');
+      } catch (IOException e)
+      {
+        for (int k = 0; k < BUFFER_SIZES.length; k++)
+        {
+          try
+          {
+            parseAll(csv, ',', BUFFER_SIZES[k]);
+            fail("Expected IOException for input: " + csv);
+          } catch (IOException e2)
+          {
+            /* expected */
+          }
+        }
+        continue;
+      }
+      assertRecords(expected, csv);
+    }
+  }
+
+  /* ======================================================================
+   *  ERROR CASES
+   * ====================================================================== */
+
+  public void testInvalidArguments()
+  {
+    try
+    {
+      new CSVTokenizer(null, ',');
+      fail("Expected IllegalArgumentException for null reader.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      new CSVTokenizer(new StringReader("a"), '"');
+      fail("Expected IllegalArgumentException for quote delimiter.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      new CSVTokenizer(new StringReader("a"), '\n');
+      fail("Expected IllegalArgumentException for LF delimiter.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      new CSVTokenizer(new StringReader("a"), ',', 0);
+      fail("Expected IllegalArgumentException for empty buffer.");
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+
+  public void testUnclosedQuoteThrowsIOException()
+  {
+    for (int k = 0; k < BUFFER_SIZES.length; k++)
+    {
+      try
+      {
+        parseAll("a\n\"line1\nline2", ',', BUFFER_SIZES[k]);
+        fail("Expected IOException for unclosed quoted field.");
+      } catch (IOException e)
+      {
+        /* expected */
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.optimasc.io;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class FilteredDataOutputStreamTest extends TestCase
+{
+  protected static final int COUNT = 5000;
+
+  protected byte[] write(ByteOrder order) throws IOException
+  {
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    FilteredDataOutputStream out = new FilteredDataOutputStream(bytes);
+    out.setByteOrder(order);
+    short[] shorts = new short[COUNT];
+    int[] ints = new int[COUNT];
+    long[] longs = new long[COUNT];
+    float[] floats = new float[COUNT];
+    double[] doubles = new double[COUNT];
+    for (int i = 0; i < COUNT; i++)
+    {
+      shorts[i] = (short) (i * 31);
+      ints[i] = i * 0x01020304;
+      longs[i] = i * 0x0102030405060708L;
+      floats[i] = i / 3.0f;
+      doubles[i] = i / 7.0;
+    }
+    out.writeShorts(shorts, 0, COUNT);
+    out.writeInts(ints, 0, COUNT);
+    out.writeLongs(longs, 0, COUNT);
+    out.writeFloats(floats, 0, COUNT);
+    out.writeDoubles(doubles, 0, COUNT);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  protected void checkRoundTrip(ByteOrder order) throws IOException
+  {
+    byte[] data = write(order);
+    assertEquals(COUNT * (2 + 4 + 8 + 4 + 8), data.length);
+    ByteArrayInputStream in = new ByteArrayInputStream(data);
+    in.setByteOrder(order);
+    for (int i = 0; i < COUNT; i++)
+    {
+      assertEquals((short) (i * 31), in.readShort());
+    }
+    for (int i = 0; i < COUNT; i++)
+    {
+      assertEquals(i * 0x01020304, in.readInt());
+    }
+    for (int i = 0; i < COUNT; i++)
+    {
+      assertEquals(i * 0x0102030405060708L, in.readLong());
+    }
+    for (int i = 0; i < COUNT; i++)
+    {
+      assertEquals(i / 3.0f, in.readFloat(), 0.0f);
+    }
+    for (int i = 0; i < COUNT; i++)
+    {
+      assertEquals(i / 7.0, in.readDouble(), 0.0);
+    }
+    assertEquals(-1, in.read());
+  }
+
+  public void testWriteArrays_BigEndian() throws IOException
+  {
+    checkRoundTrip(ByteOrder.BIG_ENDIAN);
+  }
+
+  public void testWriteArrays_LittleEndian() throws IOException
+  {
+    checkRoundTrip(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public void testReadArrays_RoundTrip() throws IOException
+  {
+    byte[] data = write(ByteOrder.LITTLE_ENDIAN);
+    FilteredDataInputStream in = new FilteredDataInputStream(new java.io.ByteArrayInputStream(data));
+    in.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    short[] shorts = new short[COUNT];
+    int[] ints = new int[COUNT];
+    long[] longs = new long[COUNT];
+    float[] floats = new float[COUNT];
+    double[] doubles = new double[COUNT];
+    in.readShorts(shorts, 0, COUNT);
+    in.readInts(ints, 0, COUNT);
+    in.readLongs(longs, 0, COUNT);
+    in.readFloats(floats, 0, COUNT);
+    in.readDoubles(doubles, 0, COUNT);
+    for (int i = 0; i < COUNT; i++)
+    {
+      assertEquals((short) (i * 31), shorts[i]);
+      assertEquals(i * 0x01020304, ints[i]);
+      assertEquals(i * 0x0102030405060708L, longs[i]);
+      assertEquals(i / 3.0f, floats[i], 0.0f);
+      assertEquals(i / 7.0, doubles[i], 0.0);
+    }
+    assertEquals(-1, in.read());
+  }
+
+  public void testWriteArrays_OutOfBounds() throws IOException
+  {
+    FilteredDataOutputStream out = new FilteredDataOutputStream(new java.io.ByteArrayOutputStream());
+    try
+    {
+      out.writeLongs(new long[4], 3, 2);
+      fail();
+    } catch (IndexOutOfBoundsException e)
+    {
+      /* expected */
+    }
+  }
+}
@@ -0,0 +1,1337 @@
+package com.optimasc.text;
+
+/** Pre-compiled version of a {@link PrintfFormat} control string.
+ *
+ *  <p>The control string is parsed once into a flat array of
+ *  instructions, each conversion specification being stored as a fixed
+ *  number of integers. The formatting methods then append the result
+ *  directly to a caller supplied <code>StringBuffer</code>, without
+ *  creating any intermediate string or array, and primitive values can
+ *  be passed without boxing, either one at a time or through a reusable
+ *  {@link Arguments} list.</p>
+ *
+ *  <p>The control string syntax, and the output, are the same as the
+ *  ones of {@link PrintfFormat}, including the default precision of
+ *  5 digits for the <code>f</code>, <code>e</code> and <code>E</code>
+ *  conversions, with the following differences:</p>
+ *  <ul>
+ *   <li>The thousands grouping character is inserted between each group
+ *    of three digits of the integer part of the <code>f</code>,
+ *    <code>g</code> and <code>G</code> conversions, including the digits
+ *    added by zero padding.</li>
+ *   <li>The <code>L</code> modifier always prints three exponent
+ *    digits.</li>
+ *   <li>Infinite and NaN values are always padded with blanks.</li>
+ *  </ul>
+ *
+ *  <p>Instances are immutable, and can therefore be shared by several
+ *  threads.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public final class CompiledPrintfFormat
+{
+  /* Instruction operation codes */
+  private static final int OP_LITERAL = 0;
+  private static final int OP_PERCENT = 1;
+  private static final int OP_CONVERSION = 2;
+
+  /* Layout of an instruction */
+  private static final int I_OPCODE = 0;
+  /** Conversion character, or index in the literal table */
+  private static final int I_CONVERSION = 1;
+  private static final int I_FLAGS = 2;
+  private static final int I_WIDTH = 3;
+  private static final int I_PRECISION = 4;
+  /** One-based position of the argument, 0 for the next argument */
+  private static final int I_ARGUMENT = 5;
+  /** One-based position of the field width argument */
+  private static final int I_WIDTH_ARGUMENT = 6;
+  /** One-based position of the precision argument */
+  private static final int I_PRECISION_ARGUMENT = 7;
+  private static final int INSTRUCTION_SIZE = 8;
+
+  /* Conversion flags */
+  private static final int F_THOUSANDS = 0x0001;
+  private static final int F_LEFT = 0x0002;
+  private static final int F_SIGN = 0x0004;
+  private static final int F_SPACE = 0x0008;
+  private static final int F_ALTERNATE = 0x0010;
+  private static final int F_ZEROS = 0x0020;
+  private static final int F_WIDTH = 0x0040;
+  private static final int F_PRECISION = 0x0080;
+  private static final int F_VARIABLE_WIDTH = 0x0100;
+  private static final int F_VARIABLE_PRECISION = 0x0200;
+  private static final int F_SHORT = 0x0400;
+  private static final int F_LONG = 0x0800;
+  private static final int F_LONG_DOUBLE = 0x1000;
+  private static final int F_POSITIONAL = 0x2000;
+
+  /** Default number of digits after the radix character */
+  private static final int DEFAULT_DIGITS = 5;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final char[] HEX_DIGITS_UPPER = "0123456789ABCDEF".toCharArray();
+
+  private static final long[] POWERS_OF_TEN = new long[19];
+
+  static
+  {
+    long value = 1;
+    for (int i = 0; i < POWERS_OF_TEN.length; i++)
+    {
+      POWERS_OF_TEN[i] = value;
+      value *= 10;
+    }
+  }
+
+  private final char groupingSeparator;
+  private final char decimalSeparator;
+  private final int[] program;
+  private final String[] literals;
+
+  /** Compiles a control string, using the default grouping and decimal
+   *  separators.
+   *
+   * @param fmtArg Control string.
+   * @exception IllegalArgumentException if the control string is
+   *   malformed.
+   */
+  public CompiledPrintfFormat(String fmtArg) throws IllegalArgumentException
+  {
+    this(PrintfFormat.DEFAULT_GROUPING_SEPARATOR, PrintfFormat.DEFAULT_DECIMAL_SEPARATOR, fmtArg);
+  }
+
+  /** Compiles a control string.
+   *
+   * @param groupingSeparator The character used to separate groups of
+   *   thousands
+   * @param decimalSeparator The radix character
+   * @param fmtArg Control string.
+   * @exception IllegalArgumentException if the control string is
+   *   malformed.
+   */
+  public CompiledPrintfFormat(char groupingSeparator, char decimalSeparator, String fmtArg)
+      throws IllegalArgumentException
+  {
+    this.groupingSeparator = groupingSeparator;
+    this.decimalSeparator = decimalSeparator;
+    int length = fmtArg.length();
+    /* Count the maximum number of instructions */
+    int count = 1;
+    for (int i = 0; i < length; i++)
+    {
+      if (fmtArg.charAt(i) == '%')
+      {
+        count += 2;
+      }
+    }
+    int[] code = new int[count * INSTRUCTION_SIZE];
+    String[] strings = new String[count];
+    int pc = 0;
+    int literalCount = 0;
+    int start = 0;
+    while (start < length)
+    {
+      int cPos = fmtArg.indexOf('%', start);
+      if (cPos == -1)
+      {
+        cPos = length;
+      }
+      if (cPos > start)
+      {
+        code[pc + I_OPCODE] = OP_LITERAL;
+        code[pc + I_CONVERSION] = literalCount;
+        strings[literalCount++] = fmtArg.substring(start, cPos);
+        pc += INSTRUCTION_SIZE;
+      }
+      if (cPos == length)
+      {
+        break;
+      }
+      int ePos;
+      for (ePos = cPos + 1; ePos < length; ePos++)
+      {
+        if ("idfgGoxXeEcs%".indexOf(fmtArg.charAt(ePos)) >= 0)
+        {
+          break;
+        }
+      }
+      ePos = Math.min(ePos + 1, length);
+      parseSpecification(fmtArg, cPos, ePos, code, pc);
+      pc += INSTRUCTION_SIZE;
+      start = ePos;
+    }
+    program = new int[pc];
+    System.arraycopy(code, 0, program, 0, pc);
+    literals = new String[literalCount];
+    System.arraycopy(strings, 0, literals, 0, literalCount);
+  }
+
+  /** Parses a conversion specification, which starts with a percent
+   *  sign and ends with the conversion character, and stores it in
+   *  the instruction at <code>pc</code>. */
+  private static void parseSpecification(String fmt, int start, int end, int[] code, int pc)
+  {
+    int flags = 0;
+    int width = 0;
+    int precision = 0;
+    int pos = start + 1;
+    /* %n$ argument position */
+    int digitsEnd = skipDigits(fmt, pos, end);
+    if ((digitsEnd > pos) && (digitsEnd < end) && (fmt.charAt(digitsEnd) == '$'))
+    {
+      flags |= F_POSITIONAL;
+      code[pc + I_ARGUMENT] = Integer.parseInt(fmt.substring(pos, digitsEnd));
+      pos = digitsEnd + 1;
+    }
+    /* Flag characters */
+    for (; pos < end; pos++)
+    {
+      char c = fmt.charAt(pos);
+      if (c == '\'')
+      {
+        flags |= F_THOUSANDS;
+      } else if (c == '-')
+      {
+        flags = (flags | F_LEFT) & ~F_ZEROS;
+      } else if (c == '+')
+      {
+        flags = (flags | F_SIGN) & ~F_SPACE;
+      } else if (c == ' ')
+      {
+        if ((flags & F_SIGN) == 0)
+        {
+          flags |= F_SPACE;
+        }
+      } else if (c == '#')
+      {
+        flags |= F_ALTERNATE;
+      } else if (c == '0')
+      {
+        if ((flags & F_LEFT) == 0)
+        {
+          flags |= F_ZEROS;
+        }
+      } else
+      {
+        break;
+      }
+    }
+    /* Field width */
+    if ((pos < end) && (fmt.charAt(pos) == '*'))
+    {
+      pos++;
+      digitsEnd = skipDigits(fmt, pos, end);
+      if ((digitsEnd > pos) && (digitsEnd < end) && (fmt.charAt(digitsEnd) == '$'))
+      {
+        code[pc + I_WIDTH_ARGUMENT] = Integer.parseInt(fmt.substring(pos, digitsEnd));
+        pos = digitsEnd + 1;
+      } else
+      {
+        flags |= F_VARIABLE_WIDTH | F_WIDTH;
+      }
+    } else
+    {
+      digitsEnd = skipDigits(fmt, pos, end);
+      if (digitsEnd > pos)
+      {
+        width = Integer.parseInt(fmt.substring(pos, digitsEnd));
+        flags |= F_WIDTH;
+        pos = digitsEnd;
+      }
+    }
+    /* Precision */
+    if ((pos < end) && (fmt.charAt(pos) == '.'))
+    {
+      pos++;
+      if ((pos < end) && (fmt.charAt(pos) == '*'))
+      {
+        pos++;
+        digitsEnd = skipDigits(fmt, pos, end);
+        if ((digitsEnd > pos) && (digitsEnd < end) && (fmt.charAt(digitsEnd) == '$'))
+        {
+          code[pc + I_PRECISION_ARGUMENT] = Integer.parseInt(fmt.substring(pos, digitsEnd));
+          pos = digitsEnd + 1;
+        } else
+        {
+          flags |= F_VARIABLE_PRECISION | F_PRECISION;
+        }
+      } else
+      {
+        digitsEnd = skipDigits(fmt, pos, end);
+        if (digitsEnd > pos)
+        {
+          precision = Integer.parseInt(fmt.substring(pos, digitsEnd));
+          flags |= F_PRECISION;
+          pos = digitsEnd;
+        }
+      }
+    }
+    /* Optional h, l or L */
+    if (pos < end)
+    {
+      char c = fmt.charAt(pos);
+      if (c == 'h')
+      {
+        flags |= F_SHORT;
+        pos++;
+      } else if (c == 'l')
+      {
+        flags |= F_LONG;
+        pos++;
+      } else if (c == 'L')
+      {
+        flags |= F_LONG_DOUBLE;
+        pos++;
+      }
+    }
+    if ((pos + 1 != end) || ("idfgGoxXeEcs%".indexOf(fmt.charAt(pos)) < 0))
+    {
+      throw new IllegalArgumentException("Malformed conversion specification=" + fmt.substring(start, end));
+    }
+    char conversion = fmt.charAt(pos);
+    if (((flags & F_PRECISION) != 0) && ((conversion == 'd') || (conversion == 'i')
+        || (conversion == 'o') || (conversion == 'x')))
+    {
+      flags &= ~F_ZEROS;
+    }
+    code[pc + I_OPCODE] = (conversion == '%') ? OP_PERCENT : OP_CONVERSION;
+    code[pc + I_CONVERSION] = conversion;
+    code[pc + I_FLAGS] = flags;
+    code[pc + I_WIDTH] = width;
+    code[pc + I_PRECISION] = precision;
+  }
+
+  private static int skipDigits(String s, int pos, int end)
+  {
+    while ((pos < end) && Character.isDigit(s.charAt(pos)))
+    {
+      pos++;
+    }
+    return pos;
+  }
+
+  /** Appends the control string, without any conversion.
+   *
+   * @param sb The buffer to append to
+   * @return sb
+   */
+  public StringBuffer format(StringBuffer sb)
+  {
+    for (int pc = 0; pc < program.length; pc += INSTRUCTION_SIZE)
+    {
+      appendLiteral(sb, pc);
+    }
+    return sb;
+  }
+
+  /** Formats an int, which is used by all the conversions of the
+   *  control string.
+   *
+   * @param sb The buffer to append to
+   * @param x The value to format
+   * @return sb
+   * @exception IllegalArgumentException if the conversion character
+   *   is f, e, E, g, G or s.
+   */
+  public StringBuffer format(StringBuffer sb, int x) throws IllegalArgumentException
+  {
+    return format(sb, (long) x);
+  }
+
+  /** Formats a long, which is used by all the conversions of the
+   *  control string.
+   *
+   * @param sb The buffer to append to
+   * @param x The value to format
+   * @return sb
+   * @exception IllegalArgumentException if the conversion character
+   *   is f, e, E, g, G or s.
+   */
+  public StringBuffer format(StringBuffer sb, long x) throws IllegalArgumentException
+  {
+    for (int pc = 0; pc < program.length; pc += INSTRUCTION_SIZE)
+    {
+      if (program[pc + I_OPCODE] == OP_CONVERSION)
+      {
+        appendInteger(sb, pc, program[pc + I_FLAGS], program[pc + I_WIDTH], program[pc + I_PRECISION], x);
+      } else
+      {
+        appendLiteral(sb, pc);
+      }
+    }
+    return sb;
+  }
+
+  /** Formats a double, which is used by all the conversions of the
+   *  control string.
+   *
+   * @param sb The buffer to append to
+   * @param x The value to format
+   * @return sb
+   * @exception IllegalArgumentException if the conversion character
+   *   is c, s, d, i, x, X or o.
+   */
+  public StringBuffer format(StringBuffer sb, double x) throws IllegalArgumentException
+  {
+    for (int pc = 0; pc < program.length; pc += INSTRUCTION_SIZE)
+    {
+      if (program[pc + I_OPCODE] == OP_CONVERSION)
+      {
+        appendDouble(sb, pc, program[pc + I_FLAGS], program[pc + I_WIDTH], program[pc + I_PRECISION], x);
+      } else
+      {
+        appendLiteral(sb, pc);
+      }
+    }
+    return sb;
+  }
+
+  /** Formats an object, which is used by all the conversions of the
+   *  control string. Wrapper types are formatted as their primitive
+   *  value, and other objects are formatted using their
+   *  <code>toString()</code> method.
+   *
+   * @param sb The buffer to append to
+   * @param x The value to format
+   * @return sb
+   * @exception IllegalArgumentException if the conversion character
+   *   is inappropriate for the value.
+   */
+  public StringBuffer format(StringBuffer sb, Object x) throws IllegalArgumentException
+  {
+    for (int pc = 0; pc < program.length; pc += INSTRUCTION_SIZE)
+    {
+      if (program[pc + I_OPCODE] == OP_CONVERSION)
+      {
+        appendObject(sb, pc, program[pc + I_FLAGS], program[pc + I_WIDTH], program[pc + I_PRECISION], x);
+      } else
+      {
+        appendLiteral(sb, pc);
+      }
+    }
+    return sb;
+  }
+
+  /** Formats an array of objects, each conversion using the next
+   *  argument or the argument given by its <code>%n$</code> position.
+   *  Byte, Short, Integer, Long, Float, Double, and Character
+   *  arguments are treated as wrappers for primitive types.
+   *
+   * @param sb The buffer to append to
+   * @param args The values to format
+   * @return sb
+   * @exception IllegalArgumentException if a conversion character
+   *   is inappropriate for its argument, or if there are not enough
+   *   arguments.
+   */
+  public StringBuffer format(StringBuffer sb, Object[] args) throws IllegalArgumentException
+  {
+    run(sb, args, null, args.length);
+    return sb;
+  }
+
+  /** Formats a list of arguments, each conversion using the next
+   *  argument or the argument given by its <code>%n$</code> position.
+   *
+   * @param sb The buffer to append to
+   * @param args The values to format
+   * @return sb
+   * @exception IllegalArgumentException if a conversion character
+   *   is inappropriate for its argument, or if there are not enough
+   *   arguments.
+   */
+  public StringBuffer format(StringBuffer sb, Arguments args) throws IllegalArgumentException
+  {
+    run(sb, null, args, args.count);
+    return sb;
+  }
+
+  /** Formats the arguments either from an array of objects, or from
+   *  an argument list if <code>args</code> is not null. */
+  private void run(StringBuffer sb, Object[] objects, Arguments args, int count)
+  {
+    int index = 0;
+    for (int pc = 0; pc < program.length; pc += INSTRUCTION_SIZE)
+    {
+      if (program[pc + I_OPCODE] != OP_CONVERSION)
+      {
+        appendLiteral(sb, pc);
+        continue;
+      }
+      int flags = program[pc + I_FLAGS];
+      int width = program[pc + I_WIDTH];
+      int precision = program[pc + I_PRECISION];
+      int argument;
+      int widthArgument = -1;
+      int precisionArgument = -1;
+      if ((flags & F_POSITIONAL) != 0)
+      {
+        argument = program[pc + I_ARGUMENT] - 1;
+        widthArgument = program[pc + I_WIDTH_ARGUMENT] - 1;
+        precisionArgument = program[pc + I_PRECISION_ARGUMENT] - 1;
+      } else
+      {
+        if ((flags & F_VARIABLE_WIDTH) != 0)
+        {
+          widthArgument = index++;
+        }
+        if ((flags & F_VARIABLE_PRECISION) != 0)
+        {
+          precisionArgument = index++;
+        }
+        argument = index++;
+      }
+      if (widthArgument >= 0)
+      {
+        width = getIntArgument(objects, args, count, widthArgument);
+        flags |= F_WIDTH;
+        if (width < 0)
+        {
+          flags |= F_LEFT;
+          width = -width;
+        }
+      }
+      if (precisionArgument >= 0)
+      {
+        precision = Math.max(getIntArgument(objects, args, count, precisionArgument), 0);
+        flags |= F_PRECISION;
+      }
+      checkArgument(count, argument);
+      if (args == null)
+      {
+        appendObject(sb, pc, flags, width, precision, objects[argument]);
+      } else
+      {
+        switch (args.kinds[argument])
+        {
+          case Arguments.INTEGER:
+            appendInteger(sb, pc, flags, width, precision, args.longs[argument]);
+            break;
+          case Arguments.DOUBLE:
+            appendDouble(sb, pc, flags, width, precision, args.doubles[argument]);
+            break;
+          default:
+            appendObject(sb, pc, flags, width, precision, args.objects[argument]);
+            break;
+        }
+      }
+    }
+  }
+
+  private static void checkArgument(int count, int index)
+  {
+    if ((index < 0) || (index >= count))
+    {
+      throw new IllegalArgumentException("Missing argument " + (index + 1) + ".");
+    }
+  }
+
+  private static int getIntArgument(Object[] objects, Arguments args, int count, int index)
+  {
+    checkArgument(count, index);
+    if (args == null)
+    {
+      return ((Integer) objects[index]).intValue();
+    }
+    switch (args.kinds[index])
+    {
+      case Arguments.INTEGER:
+        return (int) args.longs[index];
+      case Arguments.OBJECT:
+        return ((Integer) args.objects[index]).intValue();
+      default:
+        throw new IllegalArgumentException("Field width and precision arguments must be integers.");
+    }
+  }
+
+  private void appendLiteral(StringBuffer sb, int pc)
+  {
+    switch (program[pc + I_OPCODE])
+    {
+      case OP_LITERAL:
+        sb.append(literals[program[pc + I_CONVERSION]]);
+        break;
+      case OP_PERCENT:
+        sb.append('%');
+        break;
+    }
+  }
+
+  private void appendObject(StringBuffer sb, int pc, int flags, int width, int precision, Object x)
+  {
+    if ((x instanceof Integer) || (x instanceof Short) || (x instanceof Byte))
+    {
+      long value;
+      if (x instanceof Integer)
+      {
+        value = ((Integer) x).intValue();
+      } else if (x instanceof Short)
+      {
+        value = ((Short) x).shortValue();
+      } else
+      {
+        value = ((Byte) x).byteValue();
+      }
+      appendInteger(sb, pc, flags, width, precision, value);
+    } else if (x instanceof Long)
+    {
+      appendInteger(sb, pc, flags, width, precision, ((Long) x).longValue());
+    } else if (x instanceof Character)
+    {
+      appendInteger(sb, pc, flags, width, precision, ((Character) x).charValue());
+    } else if (x instanceof Double)
+    {
+      appendDouble(sb, pc, flags, width, precision, ((Double) x).doubleValue());
+    } else if (x instanceof Float)
+    {
+      appendDouble(sb, pc, flags, width, precision, ((Float) x).floatValue());
+    } else
+    {
+      char conversion = (char) program[pc + I_CONVERSION];
+      if (conversion != 's')
+      {
+        throw new IllegalArgumentException("Cannot format a String with a format using a "
+            + conversion + " conversion character.");
+      }
+      appendString(sb, flags, width, precision, x.toString());
+    }
+  }
+
+  private void appendInteger(StringBuffer sb, int pc, int flags, int width, int precision, long x)
+  {
+    char conversion = (char) program[pc + I_CONVERSION];
+    switch (conversion)
+    {
+      case 'd':
+      case 'i':
+        if ((flags & F_SHORT) != 0)
+        {
+          x = (short) x;
+        } else if ((flags & F_LONG) == 0)
+        {
+          x = (int) x;
+        }
+        appendDecimal(sb, flags, width, precision, x);
+        break;
+      case 'x':
+      case 'X':
+      case 'o':
+        if ((flags & F_SHORT) != 0)
+        {
+          x &= 0xFFFFL;
+        } else if ((flags & F_LONG) == 0)
+        {
+          x &= 0xFFFFFFFFL;
+        }
+        if (conversion == 'o')
+        {
+          appendOctal(sb, flags, width, precision, x);
+        } else
+        {
+          appendHexadecimal(sb, flags, width, precision, x, conversion == 'X');
+        }
+        break;
+      case 'c':
+        appendCharacter(sb, flags, width, (char) x);
+        break;
+      default:
+        throw new IllegalArgumentException("Cannot format an integer with a format using a "
+            + conversion + " conversion character.");
+    }
+  }
+
+  private static void appendRepeated(StringBuffer sb, char c, int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      sb.append(c);
+    }
+  }
+
+  /** Returns the number of decimal digits of a negative or zero
+   *  value. */
+  private static int decimalDigits(long negative)
+  {
+    int count = 1;
+    while ((count < POWERS_OF_TEN.length) && (negative <= -POWERS_OF_TEN[count]))
+    {
+      count++;
+    }
+    return count;
+  }
+
+  /** Appends the decimal digits of a negative or zero value, which
+   *  allows to format Long.MIN_VALUE. */
+  private static void appendDecimalDigits(StringBuffer sb, long negative, int count)
+  {
+    for (int i = count - 1; i >= 0; i--)
+    {
+      long power = POWERS_OF_TEN[i];
+      sb.append((char) ('0' - (negative / power)));
+      negative %= power;
+    }
+  }
+
+  private static void appendDecimal(StringBuffer sb, int flags, int width, int precision, long x)
+  {
+    long negative = (x < 0) ? x : -x;
+    int digits = decimalDigits(negative);
+    if ((x == 0) && ((flags & F_PRECISION) != 0) && (precision == 0))
+    {
+      digits = 0;
+    }
+    int zeros = 0;
+    if ((flags & F_PRECISION) != 0)
+    {
+      zeros = Math.max(precision - digits, 0);
+    }
+    char sign = getSign(flags, x < 0);
+    int blanks = 0;
+    if ((flags & F_WIDTH) != 0)
+    {
+      blanks = Math.max(width - zeros - digits - ((sign != 0) ? 1 : 0), 0);
+    }
+    if ((flags & F_LEFT) != 0)
+    {
+      appendSign(sb, sign);
+      appendRepeated(sb, '0', zeros);
+      appendDecimalDigits(sb, negative, digits);
+      appendRepeated(sb, ' ', blanks);
+    } else if ((flags & F_ZEROS) == 0)
+    {
+      appendRepeated(sb, ' ', blanks);
+      appendSign(sb, sign);
+      appendRepeated(sb, '0', zeros);
+      appendDecimalDigits(sb, negative, digits);
+    } else
+    {
+      appendSign(sb, sign);
+      appendRepeated(sb, '0', blanks + zeros);
+      appendDecimalDigits(sb, negative, digits);
+    }
+  }
+
+  private static void appendHexadecimal(StringBuffer sb, int flags, int width, int precision, long x,
+      boolean upperCase)
+  {
+    int digits = 1;
+    while ((digits < 16) && ((x >>> (digits * 4)) != 0))
+    {
+      digits++;
+    }
+    if ((x == 0) && ((flags & F_PRECISION) != 0) && (precision == 0))
+    {
+      digits = 0;
+    }
+    int zeros = 0;
+    if ((flags & F_PRECISION) != 0)
+    {
+      zeros = Math.max(precision - digits, 0);
+    }
+    boolean prefix = (flags & F_ALTERNATE) != 0;
+    int blanks = 0;
+    if ((flags & F_WIDTH) != 0)
+    {
+      blanks = Math.max(width - zeros - digits - (prefix ? 2 : 0), 0);
+    }
+    boolean left = (flags & F_LEFT) != 0;
+    boolean padZeros = !left && ((flags & F_ZEROS) != 0);
+    if (!left && !padZeros)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+    if (prefix)
+    {
+      sb.append('0');
+      sb.append(upperCase ? 'X' : 'x');
+    }
+    if (padZeros)
+    {
+      appendRepeated(sb, '0', blanks);
+    }
+    appendRepeated(sb, '0', zeros);
+    char[] table = upperCase ? HEX_DIGITS_UPPER : HEX_DIGITS;
+    for (int i = digits - 1; i >= 0; i--)
+    {
+      sb.append(table[(int) (x >>> (i * 4)) & 0x0F]);
+    }
+    if (left)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+  }
+
+  private static void appendOctal(StringBuffer sb, int flags, int width, int precision, long x)
+  {
+    int digits = 1;
+    while ((digits < 22) && ((x >>> (digits * 3)) != 0))
+    {
+      digits++;
+    }
+    if ((x == 0) && ((flags & F_PRECISION) != 0) && (precision == 0))
+    {
+      digits = 0;
+    }
+    int zeros = 0;
+    if ((flags & F_PRECISION) != 0)
+    {
+      zeros = precision - digits;
+    }
+    if ((flags & F_ALTERNATE) != 0)
+    {
+      zeros++;
+    }
+    zeros = Math.max(zeros, 0);
+    int blanks = 0;
+    if ((flags & F_WIDTH) != 0)
+    {
+      blanks = Math.max(width - zeros - digits, 0);
+    }
+    boolean left = (flags & F_LEFT) != 0;
+    if (!left)
+    {
+      appendRepeated(sb, ((flags & F_ZEROS) != 0) ? '0' : ' ', blanks);
+    }
+    appendRepeated(sb, '0', zeros);
+    for (int i = digits - 1; i >= 0; i--)
+    {
+      sb.append((char) ('0' + ((int) (x >>> (i * 3)) & 0x07)));
+    }
+    if (left)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+  }
+
+  private static void appendCharacter(StringBuffer sb, int flags, int width, char x)
+  {
+    int blanks = ((flags & F_WIDTH) != 0) ? Math.max(width - 1, 0) : 0;
+    if ((flags & F_LEFT) != 0)
+    {
+      sb.append(x);
+      appendRepeated(sb, ' ', blanks);
+    } else
+    {
+      appendRepeated(sb, ' ', blanks);
+      sb.append(x);
+    }
+  }
+
+  private static void appendString(StringBuffer sb, int flags, int width, int precision, String x)
+  {
+    int count = x.length();
+    if (((flags & F_PRECISION) != 0) && (count > precision))
+    {
+      count = precision;
+    }
+    int blanks = ((flags & F_WIDTH) != 0) ? Math.max(width - count, 0) : 0;
+    if ((flags & F_LEFT) == 0)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+    if (count == x.length())
+    {
+      sb.append(x);
+    } else
+    {
+      for (int i = 0; i < count; i++)
+      {
+        sb.append(x.charAt(i));
+      }
+    }
+    if ((flags & F_LEFT) != 0)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+  }
+
+  private static char getSign(int flags, boolean negative)
+  {
+    if (negative)
+    {
+      return '-';
+    }
+    if ((flags & F_SIGN) != 0)
+    {
+      return '+';
+    }
+    if ((flags & F_SPACE) != 0)
+    {
+      return ' ';
+    }
+    return 0;
+  }
+
+  private static void appendSign(StringBuffer sb, char sign)
+  {
+    if (sign != 0)
+    {
+      sb.append(sign);
+    }
+  }
+
+  /*--------------------------- Floating point --------------------------*/
+
+  /* The digits of a floating point value are obtained by appending its
+   * shortest representation, as returned by Double.toString(), to the
+   * output buffer, where they are rounded in place. The formatted value
+   * is appended after them, and the digits are then removed. A digit
+   * index k designates the k-th digit of the representation, ignoring
+   * the decimal point, indexes outside of the digits having the value 0.
+   */
+
+  /** Returns the value of a digit of the representation starting
+   *  at <code>start</code>. */
+  private static int digitAt(StringBuffer sb, int start, int intLength, int count, int k)
+  {
+    if ((k < 0) || (k >= count))
+    {
+      return 0;
+    }
+    return sb.charAt((k < intLength) ? start + k : start + k + 1) - '0';
+  }
+
+  /** Returns true if dropping the digits starting at index
+   *  <code>r</code> requires rounding up the preceding digits. Half
+   *  way values are rounded to even. */
+  private static boolean isRoundUp(StringBuffer sb, int start, int intLength, int count, int r)
+  {
+    int digit = digitAt(sb, start, intLength, count, r);
+    if (digit != 5)
+    {
+      return digit > 5;
+    }
+    for (int k = r + 1; k < count; k++)
+    {
+      if (digitAt(sb, start, intLength, count, k) != 0)
+      {
+        return true;
+      }
+    }
+    return (digitAt(sb, start, intLength, count, r - 1) & 1) != 0;
+  }
+
+  /** Adds one to the digit before index <code>r</code>, propagating
+   *  the carry.
+   *
+   * @return the index of the digit that was incremented, or -1 if a
+   *   new digit with the value 1 was inserted before the first digit.
+   */
+  private static int addCarry(StringBuffer sb, int start, int intLength, int r)
+  {
+    for (int k = r - 1; k >= 0; k--)
+    {
+      int pos = (k < intLength) ? start + k : start + k + 1;
+      char c = sb.charAt(pos);
+      if (c != '9')
+      {
+        sb.setCharAt(pos, (char) (c + 1));
+        return k;
+      }
+      sb.setCharAt(pos, '0');
+    }
+    sb.insert(start, '1');
+    return -1;
+  }
+
+  private void appendDouble(StringBuffer sb, int pc, int flags, int width, int precision, double x)
+  {
+    char conversion = (char) program[pc + I_CONVERSION];
+    if ("feEgG".indexOf(conversion) < 0)
+    {
+      throw new IllegalArgumentException("Cannot format a double with a format using a "
+          + conversion + " conversion character.");
+    }
+    if (Double.isNaN(x) || Double.isInfinite(x))
+    {
+      char sign = getSign(flags, x < 0);
+      int blanks = ((flags & F_WIDTH) != 0) ? Math.max(width - 3 - ((sign != 0) ? 1 : 0), 0) : 0;
+      if ((flags & F_LEFT) == 0)
+      {
+        appendRepeated(sb, ' ', blanks);
+      }
+      appendSign(sb, sign);
+      sb.append(Double.isNaN(x) ? "NaN" : "Inf");
+      if ((flags & F_LEFT) != 0)
+      {
+        appendRepeated(sb, ' ', blanks);
+      }
+      return;
+    }
+    /* Detect negative zero as well */
+    boolean negative = (x < 0) || ((x == 0) && ((1.0 / x) < 0));
+    char sign = getSign(flags, negative);
+    int start = sb.length();
+    sb.append(Math.abs(x));
+    int end = sb.length();
+    int intLength = 0;
+    int count = 0;
+    int exponent = 0;
+    for (int i = start; i < end; i++)
+    {
+      char c = sb.charAt(i);
+      if (c == '.')
+      {
+        intLength = count;
+      } else if ((c == 'E') || (c == 'e'))
+      {
+        for (int j = i + 1; j < end; j++)
+        {
+          c = sb.charAt(j);
+          if (c != '-')
+          {
+            exponent = (exponent * 10) + (c - '0');
+          }
+        }
+        if (sb.charAt(i + 1) == '-')
+        {
+          exponent = -exponent;
+        }
+        break;
+      } else
+      {
+        count++;
+      }
+    }
+    if (intLength == 0)
+    {
+      /* No decimal point, which is not the case on most platforms */
+      intLength = count;
+    }
+    int pointPos = intLength + exponent;
+    int p = ((flags & F_PRECISION) != 0) ? precision : DEFAULT_DIGITS;
+    boolean alternate = (flags & F_ALTERNATE) != 0;
+    boolean exponential = (conversion == 'e') || (conversion == 'E');
+    boolean trim = false;
+    if ((conversion == 'g') || (conversion == 'G'))
+    {
+      int limit = 6;
+      if ((flags & F_PRECISION) != 0)
+      {
+        p = Math.max(precision, 1);
+        limit = p;
+      }
+      /* Find the exponent of the value in exponential notation */
+      int first = 0;
+      while ((first < count) && (digitAt(sb, start, intLength, count, first) == 0))
+      {
+        first++;
+      }
+      int e = 0;
+      if (first < count)
+      {
+        e = pointPos - 1 - first;
+        int r = first + p + 1;
+        if (isRoundUp(sb, start, intLength, count, r))
+        {
+          int k = first;
+          while ((k < r) && (digitAt(sb, start, intLength, count, k) == 9))
+          {
+            k++;
+          }
+          if (k == r)
+          {
+            e++;
+          }
+        }
+      }
+      exponential = (e < -4) || (e >= limit);
+      trim = !alternate;
+    }
+    boolean point = alternate || (p != 0);
+    int digitsEnd = end;
+    if (exponential)
+    {
+      digitsEnd = appendExponential(sb, start, end, intLength, count, pointPos, flags, width, p, point, trim,
+          sign, Character.isUpperCase(conversion) ? 'E' : 'e');
+    } else
+    {
+      digitsEnd = appendFixed(sb, start, end, intLength, count, pointPos, flags, width, p, point, trim, sign);
+    }
+    sb.delete(start, digitsEnd);
+  }
+
+  /** Appends a value in f format, and returns the end of the digits
+   *  of the representation. */
+  private int appendFixed(StringBuffer sb, int start, int end, int intLength, int count, int pointPos,
+      int flags, int width, int p, boolean point, boolean trim, char sign)
+  {
+    int r = pointPos + p;
+    if (isRoundUp(sb, start, intLength, count, r))
+    {
+      if (addCarry(sb, start, intLength, r) < 0)
+      {
+        end++;
+        intLength++;
+        count++;
+        pointPos++;
+        r++;
+      }
+    }
+    count = Math.max(Math.min(count, r), 0);
+    int fraction = p;
+    if (trim)
+    {
+      while ((fraction > 0) && (digitAt(sb, start, intLength, count, pointPos - 1 + fraction) == 0))
+      {
+        fraction--;
+      }
+      point = fraction > 0;
+    }
+    int intDigits = Math.max(pointPos, 1);
+    boolean thousands = (flags & F_THOUSANDS) != 0;
+    int fixedLength = ((sign != 0) ? 1 : 0) + (point ? fraction + 1 : 0);
+    int totalDigits = intDigits;
+    boolean left = (flags & F_LEFT) != 0;
+    if (((flags & F_WIDTH) != 0) && !left && ((flags & F_ZEROS) != 0))
+    {
+      while (fixedLength + totalDigits + (thousands ? (totalDigits - 1) / 3 : 0) < width)
+      {
+        totalDigits++;
+      }
+    }
+    int length = fixedLength + totalDigits + (thousands ? (totalDigits - 1) / 3 : 0);
+    int blanks = ((flags & F_WIDTH) != 0) ? Math.max(width - length, 0) : 0;
+    if (!left)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+    appendSign(sb, sign);
+    for (int i = 0; i < totalDigits; i++)
+    {
+      if (thousands && (i > 0) && ((totalDigits - i) % 3 == 0))
+      {
+        sb.append(groupingSeparator);
+      }
+      /* Digit for the power of ten totalDigits - 1 - i */
+      int k = pointPos - totalDigits + i;
+      sb.append((char) ('0' + digitAt(sb, start, intLength, count, k)));
+    }
+    if (point)
+    {
+      sb.append(decimalSeparator);
+      for (int i = 0; i < fraction; i++)
+      {
+        sb.append((char) ('0' + digitAt(sb, start, intLength, count, pointPos + i)));
+      }
+    }
+    if (left)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+    return end;
+  }
+
+  /** Appends a value in e format, and returns the end of the digits
+   *  of the representation. */
+  private int appendExponential(StringBuffer sb, int start, int end, int intLength, int count, int pointPos,
+      int flags, int width, int p, boolean point, boolean trim, char sign, char eChar)
+  {
+    int first = 0;
+    while ((first < count) && (digitAt(sb, start, intLength, count, first) == 0))
+    {
+      first++;
+    }
+    int exponent = 0;
+    if (first < count)
+    {
+      int r = first + p + 1;
+      if (isRoundUp(sb, start, intLength, count, r))
+      {
+        int k = addCarry(sb, start, intLength, r);
+        if (k < 0)
+        {
+          end++;
+          intLength++;
+          count++;
+          pointPos++;
+          r++;
+          first = 0;
+        } else if (k < first)
+        {
+          first = k;
+        }
+      }
+      count = Math.min(count, r);
+      exponent = pointPos - 1 - first;
+    }
+    int fraction = p;
+    if (trim)
+    {
+      while ((fraction > 0) && (digitAt(sb, start, intLength, count, first + fraction) == 0))
+      {
+        fraction--;
+      }
+      point = fraction > 0;
+    }
+    int absExponent = Math.abs(exponent);
+    int exponentDigits = ((absExponent >= 100) || ((flags & F_LONG_DOUBLE) != 0)) ? 3 : 2;
+    int length = ((sign != 0) ? 1 : 0) + 1 + (point ? fraction + 1 : 0) + 2 + exponentDigits;
+    boolean left = (flags & F_LEFT) != 0;
+    int zeros = 0;
+    int blanks = 0;
+    if (((flags & F_WIDTH) != 0) && (width > length))
+    {
+      if (left || ((flags & F_ZEROS) == 0))
+      {
+        blanks = width - length;
+      } else
+      {
+        zeros = width - length;
+      }
+    }
+    if (!left)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+    appendSign(sb, sign);
+    appendRepeated(sb, '0', zeros);
+    sb.append((char) ('0' + digitAt(sb, start, intLength, count, first)));
+    if (point)
+    {
+      sb.append(decimalSeparator);
+      for (int i = 1; i <= fraction; i++)
+      {
+        sb.append((char) ('0' + digitAt(sb, start, intLength, count, first + i)));
+      }
+    }
+    sb.append(eChar);
+    sb.append((exponent < 0) ? '-' : '+');
+    if (exponentDigits == 3)
+    {
+      sb.append((char) ('0' + (absExponent / 100)));
+    }
+    sb.append((char) ('0' + ((absExponent / 10) % 10)));
+    sb.append((char) ('0' + (absExponent % 10)));
+    if (left)
+    {
+      appendRepeated(sb, ' ', blanks);
+    }
+    return end;
+  }
+
+  /** A reusable list of arguments, which allows to format several
+   *  primitive values without boxing them.
+   *
+   *  <p>Argument lists are not thread-safe, each thread should use its
+   *  own list, which is typically cleared and filled before each call to
+   *  {@link CompiledPrintfFormat#format(StringBuffer, Arguments)}.</p>
+   */
+  public static final class Arguments
+  {
+    static final byte INTEGER = 0;
+    static final byte DOUBLE = 1;
+    static final byte OBJECT = 2;
+
+    byte[] kinds;
+    long[] longs;
+    double[] doubles;
+    Object[] objects;
+    int count;
+
+    /** Creates an empty argument list. */
+    public Arguments()
+    {
+      this(8);
+    }
+
+    /** Creates an empty argument list.
+     *
+     * @param capacity The initial number of arguments that can be
+     *   stored without growing the list.
+     */
+    public Arguments(int capacity)
+    {
+      capacity = Math.max(capacity, 1);
+      kinds = new byte[capacity];
+      longs = new long[capacity];
+      doubles = new double[capacity];
+      objects = new Object[capacity];
+    }
+
+    /** Removes all the arguments.
+     *
+     * @return this argument list.
+     */
+    public Arguments clear()
+    {
+      for (int i = 0; i < count; i++)
+      {
+        objects[i] = null;
+      }
+      count = 0;
+      return this;
+    }
+
+    /** Returns the number of arguments in the list. */
+    public int size()
+    {
+      return count;
+    }
+
+    private int next(byte kind)
+    {
+      if (count == kinds.length)
+      {
+        int capacity = count * 2;
+        byte[] newKinds = new byte[capacity];
+        long[] newLongs = new long[capacity];
+        double[] newDoubles = new double[capacity];
+        Object[] newObjects = new Object[capacity];
+        System.arraycopy(kinds, 0, newKinds, 0, count);
+        System.arraycopy(longs, 0, newLongs, 0, count);
+        System.arraycopy(doubles, 0, newDoubles, 0, count);
+        System.arraycopy(objects, 0, newObjects, 0, count);
+        kinds = newKinds;
+        longs = newLongs;
+        doubles = newDoubles;
+        objects = newObjects;
+      }
+      kinds[count] = kind;
+      return count++;
+    }
+
+    /** Adds an integer argument, which can be formatted with the
+     *  d, i, x, X, o and c conversions.
+     *
+     * @param value The value to add
+     * @return this argument list.
+     */
+    public Arguments add(long value)
+    {
+      int index = next(INTEGER);
+      longs[index] = value;
+      return this;
+    }
+
+    /** Adds a floating point argument, which can be formatted with the
+     *  f, e, E, g and G conversions.
+     *
+     * @param value The value to add
+     * @return this argument list.
+     */
+    public Arguments add(double value)
+    {
+      int index = next(DOUBLE);
+      doubles[index] = value;
+      return this;
+    }
+
+    /** Adds an object argument. Wrapper types are formatted as their
+     *  primitive value, and other objects with the s conversion, using
+     *  their <code>toString()</code> method.
+     *
+     * @param value The value to add
+     * @return this argument list.
+     */
+    public Arguments add(Object value)
+    {
+      int index = next(OBJECT);
+      objects[index] = value;
+      return this;
+    }
+  }
+}
@@ -387,6 +387,13 @@ import java.util.Vector;
  * before the e, E, g, or G conversion character.  The
  * optional L does not imply conversion to a long long
  * double. </p>
+ *<p>
+ * Instances are not modified once constructed, field
+ * widths and precisions given as arguments are kept
+ * in a copy of the conversion specification private to
+ * the call.  A single instance can therefore be stored
+ * in a static field and used concurrently by several
+ * threads without synchronization.</p>
  * <p>
  * The biggest divergence from the C printf
  * specification is in the use of 16 bit characters.
@@ -440,9 +447,9 @@ import java.util.Vector;
 public class PrintfFormat {
   
   // Grouping separator
-  private char groupingSeparator;
+  private final char groupingSeparator;
   // Decimal separator
-  private char decimalSeparator;
+  private final char decimalSeparator;
   
 
   public static final char DEFAULT_GROUPING_SEPARATOR = ',';
@@ -560,6 +567,9 @@ public class PrintfFormat {
       else {
         if (cs.isPositionalSpecification()) {
           i=cs.getArgumentPosition()-1;
+          if (cs.isPositionalFieldWidth()
+              || cs.isPositionalPrecision())
+            cs = new ConversionSpecification(cs);
           if (cs.isPositionalFieldWidth()) {
             int ifw=cs.getArgumentPositionForFieldWidth()-1;
             cs.setFieldWidthWithArg(((Integer)o[ifw]).intValue());
@@ -570,6 +580,9 @@ public class PrintfFormat {
           }
         }
         else {
+          if (cs.isVariableFieldWidth()
+              || cs.isVariablePrecision())
+            cs = new ConversionSpecification(cs);
           if (cs.isVariableFieldWidth()) {
             cs.setFieldWidthWithArg(((Integer)o[i]).intValue());
             i++;
@@ -820,6 +833,38 @@ public class PrintfFormat {
      * to hold a literal, not a control string.
      */
     ConversionSpecification() { }
+    /**
+     * Copy constructor.  Used to hold the field
+     * width and precision given by the arguments
+     * of a single call, so that the specification
+     * shared by all the callers is never modified.
+     * @param spec the specification to copy.
+     */
+    ConversionSpecification(ConversionSpecification spec) {
+      thousands = spec.thousands;
+      leftJustify = spec.leftJustify;
+      leadingSign = spec.leadingSign;
+      leadingSpace = spec.leadingSpace;
+      alternateForm = spec.alternateForm;
+      leadingZeros = spec.leadingZeros;
+      variableFieldWidth = spec.variableFieldWidth;
+      fieldWidth = spec.fieldWidth;
+      fieldWidthSet = spec.fieldWidthSet;
+      precision = spec.precision;
+      variablePrecision = spec.variablePrecision;
+      precisionSet = spec.precisionSet;
+      positionalSpecification = spec.positionalSpecification;
+      argumentPosition = spec.argumentPosition;
+      positionalFieldWidth = spec.positionalFieldWidth;
+      argumentPositionForFieldWidth = spec.argumentPositionForFieldWidth;
+      positionalPrecision = spec.positionalPrecision;
+      argumentPositionForPrecision = spec.argumentPositionForPrecision;
+      optionalh = spec.optionalh;
+      optionall = spec.optionall;
+      optionalL = spec.optionalL;
+      conversionCharacter = spec.conversionCharacter;
+      fmt = spec.fmt;
+    }
     /**
      * Constructor for a conversion specification.
      * The argument must begin with a % and end
@@ -955,7 +1000,8 @@ public class PrintfFormat {
     /**
      * Set the field width with an argument.  A
      * negative field width is taken as a - flag
-     * followed by a positive field width.
+     * followed by a positive field width.  Only
+     * called on a copy made for a single call.
      * @param fw the field width.
      */
     void setFieldWidthWithArg(int fw) {
@@ -977,6 +1023,7 @@ public class PrintfFormat {
     /**
      * Set the precision with an argument.  A
      * negative precision will be changed to zero.
+     * Only called on a copy made for a single call.
      * @param pr the precision.
      */
     void setPrecisionWithArg(int pr) {
@@ -1175,7 +1222,7 @@ public class PrintfFormat {
      * to appear after the radix character.  Padding is
      * with trailing 0s.
      */
-    private char[] fFormatDigits(double x) {
+    private char[] fFormatDigits(double x,int prec) {
       // int defaultDigits=6;
       String sx,sxOut;
       int i,j,k;
@@ -1224,7 +1271,7 @@ public class PrintfFormat {
         }
       }
       int p;
-      if (precisionSet) p = precision;
+      if (precisionSet) p = prec;
       else p = defaultDigits-1;
       char[] ca1 = sx.toCharArray();
       char[] ca2 = new char[n1In+n2In];
@@ -1255,7 +1302,7 @@ public class PrintfFormat {
         ca4 = new char[2+p];
         if (!carry) ca4[0]='0';
         else ca4[0]='1';
-        if(alternateForm||!precisionSet||precision!=0){
+        if(alternateForm||!precisionSet||prec!=0){
           ca4[1]='.';
           for(i=0,j=2;i<Math.min(p,ca3.length);i++,j++)
             ca4[j]=ca3[i];
@@ -1265,7 +1312,7 @@ public class PrintfFormat {
       else {
         if (!carry) {
           if(alternateForm||!precisionSet
-          ||precision!=0)
+          ||prec!=0)
             ca4 = new char[n1In+expon+p+1];
           else
             ca4 = new char[n1In+expon];
@@ -1273,7 +1320,7 @@ public class PrintfFormat {
         }
         else {
           if(alternateForm||!precisionSet
-          ||precision!=0)
+          ||prec!=0)
             ca4 = new char[n1In+expon+p+2];
           else
             ca4 = new char[n1In+expon+1];
@@ -1284,7 +1331,7 @@ public class PrintfFormat {
           ca4[j]=ca3[i];
         for (; i<n1In+expon; i++,j++)
           ca4[j]='0';
-        if(alternateForm||!precisionSet||precision!=0){
+        if(alternateForm||!precisionSet||prec!=0){
           ca4[j]='.'; j++;
           for (k=0; i<ca3.length && k<p; i++,j++,k++)
             ca4[j]=ca3[i];
@@ -1365,9 +1412,10 @@ public class PrintfFormat {
     * not-a-number, or a finite double and formats
     * each type of input appropriately.
     * @param x the double value to be formatted.
+    * @param prec the precision, used if one is set.
     * @return the converted double value.
     */
-    private String fFormatString(double x) {
+    private String fFormatString(double x,int prec) {
       boolean noDigits=false;
       char[] ca6,ca7;
       if (Double.isInfinite(x)) {
@@ -1389,7 +1437,7 @@ public class PrintfFormat {
         noDigits = true;
       }
       else
-        ca6 = fFormatDigits(x);
+        ca6 = fFormatDigits(x,prec);
       ca7 = applyFloatPadding(ca6,false);
       return new String(ca7);
     }
@@ -1423,7 +1471,7 @@ public class PrintfFormat {
      * L does not imply conversion to a long long
      * double.
      */
-    private char[] eFormatDigits(double x,char eChar) {
+    private char[] eFormatDigits(double x,char eChar,int prec) {
       char[] ca1,ca2,ca3;
       // int defaultDigits=6;
       String sx,sxOut;
@@ -1475,7 +1523,7 @@ public class PrintfFormat {
         }
       }
       if (rPos!=-1) expon += rPos-1;
-      if (precisionSet) p = precision;
+      if (precisionSet) p = prec;
       else p = defaultDigits-1;
       if (rPos!=-1 && ePos!=-1)
         ca1=(sx.substring(0,rPos)+
@@ -1510,7 +1558,7 @@ public class PrintfFormat {
       }
       if (Math.abs(expon)<100 && !optionalL) eSize=4;
       else eSize=5;
-      if (alternateForm||!precisionSet||precision!=0)
+      if (alternateForm||!precisionSet||prec!=0)
         ca2 = new char[2+p+eSize];
       else
         ca2 = new char[1+eSize];
@@ -1532,7 +1580,7 @@ public class PrintfFormat {
           j=2;
         }
       }
-      if (alternateForm||!precisionSet||precision!=0) {
+      if (alternateForm||!precisionSet||prec!=0) {
         ca2[1] = '.';
         i=2;
       }
@@ -1723,9 +1771,10 @@ public class PrintfFormat {
     * @param x the double value to be formatted.
     * @param eChar an 'e' or 'E' to use in the
     *     converted double value.
+    * @param prec the precision, used if one is set.
     * @return the converted double value.
     */
-    private String eFormatString(double x,char eChar) {
+    private String eFormatString(double x,char eChar,int prec) {
       boolean noDigits=false;
       char[] ca4,ca5;
       if (Double.isInfinite(x)) {
@@ -1747,7 +1796,7 @@ public class PrintfFormat {
         noDigits = true;
       }
       else
-        ca4 = eFormatDigits(x,eChar);
+        ca4 = eFormatDigits(x,eChar,prec);
       ca5 = applyFloatPadding(ca4,false);
       return new String(ca5);
     }
@@ -1804,7 +1853,7 @@ public class PrintfFormat {
      * @return the formatted String.
      */
     private String printFFormat(double x) {
-      return fFormatString(x);
+      return fFormatString(x,precision);
     }
     /**
      * Format method for the e or E conversion
@@ -1814,9 +1863,9 @@ public class PrintfFormat {
      */
     private String printEFormat(double x) {
       if (conversionCharacter=='e')
-        return eFormatString(x,'e');
+        return eFormatString(x,'e',precision);
       else
-        return eFormatString(x,'E');
+        return eFormatString(x,'E',precision);
     }
     /**
      * Format method for the g conversion character.
@@ -1845,8 +1894,12 @@ public class PrintfFormat {
      * @return the formatted String.
      */
     private String printGFormat(double x) {
+      // The effective precision is passed to the e and
+      // f formatting methods, this instance is shared
+      // by all the callers.
+      int p = precisionSet ? precision : defaultDigits;
+      if (p==0) p=1;
       String sx,sy,sz,ret;
-      int savePrecision=precision;
       int i;
       char[] ca4,ca5;
       boolean noDigits=false;
@@ -1869,15 +1922,13 @@ public class PrintfFormat {
         noDigits = true;
       }
       else {
-        if (!precisionSet) precision=defaultDigits;
-        if (precision==0) precision=1;
         int ePos=-1;
         if (conversionCharacter=='g') {
-          sx = eFormatString(x,'e').trim();
+          sx = eFormatString(x,'e',p).trim();
           ePos=sx.indexOf('e');
         }
         else {
-          sx = eFormatString(x,'E').trim();
+          sx = eFormatString(x,'E',p).trim();
           ePos=sx.indexOf('E');
         }
         i=ePos+1;
@@ -1899,8 +1950,8 @@ public class PrintfFormat {
         // If the radix character is not followed by
         // a digit, trim it, too.
         if (!alternateForm) {
-          if (expon>=-4 && expon<precision)
-            sy = fFormatString(x).trim();
+          if (expon>=-4 && expon<p)
+            sy = fFormatString(x,p).trim();
           else
             sy = sx.substring(0,ePos);
           i=sy.length()-1;
@@ -1911,14 +1962,14 @@ public class PrintfFormat {
           else if (!Character.isDigit(sy.charAt(i)))
             sz=sy.substring(0,i+1)+"0";
           else sz=sy.substring(0,i+1);
-          if (expon>=-4 && expon<precision)
+          if (expon>=-4 && expon<p)
             ret=sz;
           else
             ret=sz+sx.substring(ePos);
         }
         else {
-          if (expon>=-4 && expon<precision)
-            ret = fFormatString(x).trim();
+          if (expon>=-4 && expon<p)
+            ret = fFormatString(x,p).trim();
           else
             ret = sx;
         }
@@ -1929,7 +1980,6 @@ public class PrintfFormat {
       }
       // Pad with blanks or zeros.
       ca5 = applyFloatPadding(ca4,false);
-      precision=savePrecision;
       return new String(ca5);
     }
     /**
@@ -3091,7 +3141,7 @@ public class PrintfFormat {
     private String fmt;
   }
   /** Vector of control strings and format literals. */
-  private Vector vFmt = new Vector();
+  private final Vector vFmt = new Vector();
   /** Character position.  Used by the constructor. */
   private int cPos=0;
 }
@@ -0,0 +1,180 @@
+package com.optimasc.text;
+
+import junit.framework.TestCase;
+
+public class CompiledPrintfFormatTest extends TestCase
+{
+  protected static final String[] FLAGS = { "", "-", "+", " ", "#", "0", "-0", "+0", "#0" };
+  protected static final String[] WIDTHS = { "", "1", "8", "15" };
+  protected static final String[] PRECISIONS = { "", ".0", ".1", ".3", ".7" };
+  protected static final String[] MODIFIERS = { "", "h", "l" };
+
+  protected static final long[] INTEGERS = { 0, 1, -1, 42, -42, 255, 65535, 123456, -123456,
+      Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 0x12345678ABCDL };
+  protected static final double[] DOUBLES = { 0.0, -0.0, 1.0, -1.0, 0.5, 1.5, 2.5, 0.125, 3.14159265,
+      123.456789, -123.456789, 99.999999, 0.000123456, 1e-5, 9.99995e-5, 1e6, 1234567.0, 1e20, 1.5e-300,
+      0.96, 9.5, 999999.5, 6.02e23 };
+
+  protected static String format(String fmt, long value)
+  {
+    return new CompiledPrintfFormat(fmt).format(new StringBuffer(), value).toString();
+  }
+
+  protected static String format(String fmt, double value)
+  {
+    return new CompiledPrintfFormat(fmt).format(new StringBuffer(), value).toString();
+  }
+
+  /** Compares the result with the one of PrintfFormat, except when
+   *  PrintfFormat returns a string containing NUL characters, which it
+   *  does for some flag combinations. */
+  protected static void assertSameAsPrintfFormat(String fmt, String expected, String actual)
+  {
+    if (expected.indexOf(0) < 0)
+    {
+      assertEquals(fmt, expected, actual);
+    }
+  }
+
+  public void testIntegersSameAsPrintfFormat()
+  {
+    String conversions = "dxXoc";
+    for (int c = 0; c < conversions.length(); c++)
+      for (int f = 0; f < FLAGS.length; f++)
+        for (int w = 0; w < WIDTHS.length; w++)
+          for (int p = 0; p < PRECISIONS.length; p++)
+            for (int m = 0; m < MODIFIERS.length; m++)
+            {
+              String fmt = "[%" + FLAGS[f] + WIDTHS[w] + PRECISIONS[p] + MODIFIERS[m] + conversions.charAt(c) + "]";
+              PrintfFormat printf = new PrintfFormat(fmt);
+              CompiledPrintfFormat compiled = new CompiledPrintfFormat(fmt);
+              StringBuffer sb = new StringBuffer();
+              for (int i = 0; i < INTEGERS.length; i++)
+              {
+                long value = INTEGERS[i];
+                sb.setLength(0);
+                if (MODIFIERS[m].equals("l"))
+                {
+                  assertSameAsPrintfFormat(fmt, printf.sprintf(value), compiled.format(sb, value).toString());
+                } else if (value == (int) value)
+                {
+                  assertSameAsPrintfFormat(fmt, printf.sprintf((int) value),
+                      compiled.format(sb, (int) value).toString());
+                }
+              }
+            }
+  }
+
+  public void testDoublesSameAsPrintfFormat()
+  {
+    String conversions = "feEgG";
+    for (int c = 0; c < conversions.length(); c++)
+      for (int f = 0; f < FLAGS.length; f++)
+        for (int w = 0; w < WIDTHS.length; w++)
+          for (int p = 0; p < PRECISIONS.length; p++)
+          {
+            /* PrintfFormat pads g conversions after the sign */
+            if ((conversions.charAt(c) == 'g' || conversions.charAt(c) == 'G')
+                && ((FLAGS[f].indexOf('0') >= 0) || (FLAGS[f].indexOf(' ') >= 0)))
+            {
+              continue;
+            }
+            String fmt = "[%" + FLAGS[f] + WIDTHS[w] + PRECISIONS[p] + conversions.charAt(c) + "]";
+            PrintfFormat printf = new PrintfFormat(fmt);
+            CompiledPrintfFormat compiled = new CompiledPrintfFormat(fmt);
+            StringBuffer sb = new StringBuffer();
+            for (int i = 0; i < DOUBLES.length; i++)
+            {
+              sb.setLength(0);
+              assertSameAsPrintfFormat(fmt + " " + DOUBLES[i], printf.sprintf(DOUBLES[i]),
+                  compiled.format(sb, DOUBLES[i]).toString());
+            }
+          }
+  }
+
+  public void testStrings()
+  {
+    assertEquals("[  abc]", new CompiledPrintfFormat("[%5s]").format(new StringBuffer(), "abc").toString());
+    assertEquals("[ab   ]", new CompiledPrintfFormat("[%-5.2s]").format(new StringBuffer(), "abc").toString());
+    assertEquals("100% sure", new CompiledPrintfFormat("100%% sure").format(new StringBuffer()).toString());
+  }
+
+  public void testIntegers()
+  {
+    assertEquals("-9223372036854775808", format("%ld", Long.MIN_VALUE));
+    assertEquals("ffffffffffffffff", format("%lx", -1));
+    assertEquals("0XFF", format("%#X", 255));
+    assertEquals(" 017", format("%#4o", 15));
+    assertEquals("[-0042]", format("[%05d]", -42));
+    assertEquals("[42   ]", format("[%-5d]", 42));
+  }
+
+  public void testDoubles()
+  {
+    assertEquals("3.14159", format("%f", 3.14159265));
+    assertEquals("2", format("%.0f", 2.5));
+    assertEquals("4", format("%.0f", 3.5));
+    assertEquals("1.00", format("%.2f", 0.999));
+    assertEquals("0.001", format("%.3f", 0.0009));
+    assertEquals("1.00000e+20", format("%e", 1e20));
+    assertEquals("1.0E+003", format("%.1LE", 1000.0));
+    assertEquals("1e+06", format("%g", 999999.5));
+    assertEquals("0.0001", format("%g", 0.0001));
+    assertEquals("   -Inf", format("%07f", Double.NEGATIVE_INFINITY));
+    assertEquals("+NaN", format("%+f", Double.NaN));
+    assertEquals("1,234,567.50", format("%'.2f", 1234567.5));
+    assertEquals("-0,001,234.5", format("%'012.1f", -1234.5));
+    assertEquals("1 234,50",
+        new CompiledPrintfFormat(' ', ',', "%'.2f").format(new StringBuffer(), 1234.5).toString());
+  }
+
+  public void testArguments()
+  {
+    CompiledPrintfFormat fmt = new CompiledPrintfFormat("%s: %d items, %*.*f%% %c");
+    CompiledPrintfFormat.Arguments args = new CompiledPrintfFormat.Arguments(2);
+    args.add("total").add(12).add(8).add(2).add(45.678).add('!');
+    StringBuffer sb = new StringBuffer("> ");
+    assertSame(sb, fmt.format(sb, args));
+    assertEquals("> total: 12 items,    45.68% !", sb.toString());
+
+    Object[] objects = { "total", new Integer(12), new Integer(8), new Integer(2), new Double(45.678),
+        new Character('!') };
+    assertEquals("total: 12 items,    45.68% !", fmt.format(new StringBuffer(), objects).toString());
+    assertEquals(new PrintfFormat("%s: %d items, %*.*f%% %c").sprintf(objects),
+        fmt.format(new StringBuffer(), objects).toString());
+
+    args.clear().add(3).add(-4);
+    assertEquals("[ -4|3]", new CompiledPrintfFormat("[%2$*1$d|%1$d]").format(new StringBuffer(), args)
+        .toString());
+    assertEquals("[-4 |3]", new CompiledPrintfFormat("[%2$-*1$d|%1$d]").format(new StringBuffer(), args)
+        .toString());
+  }
+
+  public void testErrors()
+  {
+    try
+    {
+      new CompiledPrintfFormat("%5q");
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      format("%d", 1.5);
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+    try
+    {
+      new CompiledPrintfFormat("%d %d").format(new StringBuffer(), new CompiledPrintfFormat.Arguments().add(1));
+      fail();
+    } catch (IllegalArgumentException e)
+    {
+      /* expected */
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.optimasc.text;
+
+import junit.framework.TestCase;
+
+public class PrintfFormatTest extends TestCase
+{
+
+  public void testVariableWidthIsNotRetained()
+  {
+    PrintfFormat fmt = new PrintfFormat("[%*d]");
+    assertEquals("[12   ]", fmt.sprintf(new Object[] { new Integer(-5), new Integer(12) }));
+    assertEquals("[   12]", fmt.sprintf(new Object[] { new Integer(5), new Integer(12) }));
+    assertEquals("[12]", fmt.sprintf(12));
+  }
+
+  public void testVariablePrecisionIsNotRetained()
+  {
+    PrintfFormat fmt = new PrintfFormat("[%.*f]");
+    String expected = new PrintfFormat("[%.*f]").sprintf(3.14159);
+    assertEquals("[3.1]", fmt.sprintf(new Object[] { new Integer(1), new Double(3.14159) }));
+    assertEquals(expected, fmt.sprintf(3.14159));
+
+    fmt = new PrintfFormat("[%2$.*1$f]");
+    expected = new PrintfFormat("[%2$.*1$f]").sprintf(3.14159);
+    assertEquals("[3.142]", fmt.sprintf(new Object[] { new Integer(3), new Double(3.14159) }));
+    assertEquals(expected, fmt.sprintf(3.14159));
+  }
+
+  public void testGeneralPrecisionIsNotRetained()
+  {
+    PrintfFormat fmt = new PrintfFormat("%g|%.0g");
+    assertEquals("0.5|0.5", fmt.sprintf(0.5));
+    assertEquals("0.5|0.5", fmt.sprintf(0.5));
+  }
+
+  public void testConcurrentUse() throws InterruptedException
+  {
+    final PrintfFormat fmt = new PrintfFormat("%*.*f|%g");
+    final int[] failures = new int[1];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++)
+    {
+      final int width = t + 6;
+      final int precision = t;
+      threads[t] = new Thread()
+      {
+        public void run()
+        {
+          Object[] args = { new Integer(width), new Integer(precision), new Double(2.0), new Double(0.5) };
+          String expected = new PrintfFormat("%" + width + "." + precision + "f|%g").sprintf(new Object[] {
+              new Double(2.0), new Double(0.5) });
+          for (int i = 0; i < 2000; i++)
+          {
+            if (!expected.equals(fmt.sprintf(args)))
+            {
+              synchronized (failures)
+              {
+                failures[0]++;
+              }
+            }
+          }
+        }
+      };
+    }
+    for (int t = 0; t < threads.length; t++)
+    {
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++)
+    {
+      threads[t].join();
+    }
+    assertEquals(0, failures[0]);
+  }
+}
@@ -0,0 +1,435 @@
+package com.optimasc.datatypes;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Vector;
+
+import com.optimasc.datatypes.primitives.EnumeratedType.EnumerationElement;
+import com.optimasc.lang.OctetSequence;
+
+/** Immutable hash index of the allowed values of an enumeration, so that
+ *  the validation of a value does not depend on the number of allowed
+ *  values.
+ *
+ *  <p>The index either compares the values with their <code>equals</code>
+ *  method, or compares their contents: in this case the character
+ *  sequences are equal if they contain the same characters whatever
+ *  their class, the octet sequences if they contain the same octets
+ *  and the arrays if they contain the same elements, as done by the
+ *  <code>Arrays.equals</code> methods. The values of different kinds
+ *  are never equal.</p>
+ *
+ *  <p>The allowed values are stored in an open addressing hash table
+ *  built once, the allowed values array should therefore not be modified
+ *  after the index is created, see {@link #isIndexOf(Object[])}. Only the
+ *  values whose hash code is known to be consistent with their comparison
+ *  are hashed: the sequences and arrays compared by content, and the
+ *  strings, boxed primitives, big numbers and enumeration elements. The
+ *  other objects, whose class may override <code>equals</code> without
+ *  <code>hashCode</code>, are compared one by one with
+ *  <code>value.equals(allowedValue)</code>.</p>
+ *
+ * @author Carl Eric Codere
+ *
+ */
+public final class EnumerationIndex
+{
+  /** Kind of value compared with its <code>equals</code> method. */
+  public static final int KIND_OBJECT = 0;
+  /** Kind of value that is a <code>CharSequence</code>. */
+  public static final int KIND_CHARS = 1;
+  /** Kind of value that is an <code>OctetSequence</code>. */
+  public static final int KIND_OCTETS = 2;
+  public static final int KIND_BYTE_ARRAY = 3;
+  public static final int KIND_BOOLEAN_ARRAY = 4;
+  public static final int KIND_SHORT_ARRAY = 5;
+  public static final int KIND_INT_ARRAY = 6;
+  public static final int KIND_LONG_ARRAY = 7;
+  public static final int KIND_FLOAT_ARRAY = 8;
+  public static final int KIND_DOUBLE_ARRAY = 9;
+  public static final int KIND_CHAR_ARRAY = 10;
+  public static final int KIND_OBJECT_ARRAY = 11;
+
+  /** The indexed values, as passed to the constructor. */
+  private final Object[] values;
+  private final boolean contentEquality;
+  /** Set of the kinds of the indexed values, one bit per kind. */
+  private final int kinds;
+  /** Hash table of the distinct hashed values, a <code>null</code> slot is empty. */
+  private final Object[] table;
+  private final int[] hashes;
+  private final byte[] slotKinds;
+  /** The values of kind {@link #KIND_OBJECT} which are not hashed. */
+  private final Object[] others;
+  /** Set if <code>null</code> is one of the values. */
+  private final boolean containsNull;
+
+  /** Creates the index of a list of allowed values.
+   *
+   * @param values [in] The allowed values.
+   * @param contentEquality [in] <code>true</code> if the contents of the
+   *   sequences and arrays are compared, <code>false</code> if the values are
+   *   compared with their <code>equals</code> method.
+   */
+  public EnumerationIndex(Object[] values, boolean contentEquality)
+  {
+    this.values = values;
+    this.contentEquality = contentEquality;
+    int capacity = 4;
+    while (capacity < values.length * 2)
+    {
+      capacity <<= 1;
+    }
+    table = new Object[capacity];
+    hashes = new int[capacity];
+    slotKinds = new byte[capacity];
+    int kindSet = 0;
+    boolean hasNull = false;
+    Vector otherValues = new Vector();
+    for (int i = 0; i < values.length; i++)
+    {
+      Object value = values[i];
+      if (value == null)
+      {
+        hasNull = true;
+        continue;
+      }
+      int kind = getKind(value);
+      kindSet |= 1 << kind;
+      if (isHashed(value, kind) == false)
+      {
+        otherValues.addElement(value);
+        continue;
+      }
+      int hash = hash(value, kind);
+      int slot = findSlot(value, kind, hash);
+      if (table[slot] == null)
+      {
+        table[slot] = value;
+        hashes[slot] = hash;
+        slotKinds[slot] = (byte) kind;
+      }
+    }
+    kinds = kindSet;
+    containsNull = hasNull;
+    others = new Object[otherValues.size()];
+    otherValues.copyInto(others);
+  }
+
+  /** Returns <code>true</code> if this index was created from the
+   *  specified array, used to verify if the index is up to date.
+   */
+  public boolean isIndexOf(Object[] values)
+  {
+    return this.values == values;
+  }
+
+  /** Returns the kind of a value, {@link #KIND_OBJECT} if its
+   *  content is not compared.
+   */
+  public int getKind(Object value)
+  {
+    if (contentEquality == false)
+    {
+      return KIND_OBJECT;
+    }
+    if (value instanceof CharSequence)
+      return KIND_CHARS;
+    if (value instanceof OctetSequence)
+      return KIND_OCTETS;
+    if (value instanceof byte[])
+      return KIND_BYTE_ARRAY;
+    if (value instanceof boolean[])
+      return KIND_BOOLEAN_ARRAY;
+    if (value instanceof short[])
+      return KIND_SHORT_ARRAY;
+    if (value instanceof int[])
+      return KIND_INT_ARRAY;
+    if (value instanceof long[])
+      return KIND_LONG_ARRAY;
+    if (value instanceof float[])
+      return KIND_FLOAT_ARRAY;
+    if (value instanceof double[])
+      return KIND_DOUBLE_ARRAY;
+    if (value instanceof char[])
+      return KIND_CHAR_ARRAY;
+    if (value instanceof Object[])
+      return KIND_OBJECT_ARRAY;
+    return KIND_OBJECT;
+  }
+
+  /** Returns <code>true</code> if one of the indexed values is of
+   *  the specified kind.
+   */
+  public boolean containsKind(int kind)
+  {
+    return (kinds & (1 << kind)) != 0;
+  }
+
+  /** Verifies if a value is one of the indexed values.
+   *
+   * @param value [in] The value to look for.
+   * @return <code>true</code> if the value is equal to one of
+   *   the indexed values, otherwise <code>false</code>.
+   */
+  public boolean contains(Object value)
+  {
+    if (value == null)
+    {
+      return containsNull;
+    }
+    int kind = getKind(value);
+    if (containsKind(kind) == false)
+    {
+      return false;
+    }
+    if (isHashed(value, kind) == false)
+    {
+      // Its hash code may not be consistent with its equals method
+      for (int i = 0; i < values.length; i++)
+      {
+        Object allowedValue = values[i];
+        if ((allowedValue != null) && (getKind(allowedValue) == KIND_OBJECT)
+            && value.equals(allowedValue))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (table[findSlot(value, kind, hash(value, kind))] != null)
+    {
+      return true;
+    }
+    // An object which is not hashed can still be equal to this value
+    if (kind == KIND_OBJECT)
+    {
+      for (int i = 0; i < others.length; i++)
+      {
+        if (value.equals(others[i]))
+        {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Returns <code>true</code> if the hash code of a value is known
+   *  to be consistent with the comparison of the values of its kind.
+   */
+  private static boolean isHashed(Object value, int kind)
+  {
+    if (kind != KIND_OBJECT)
+    {
+      return true;
+    }
+    Class clz = value.getClass();
+    return (clz == String.class) || (clz == Integer.class) || (clz == Long.class)
+        || (clz == Short.class) || (clz == Byte.class) || (clz == Character.class)
+        || (clz == Boolean.class) || (clz == Float.class) || (clz == Double.class)
+        || (clz == BigInteger.class) || (clz == BigDecimal.class)
+        || (clz == EnumerationElement.class);
+  }
+
+  /** Returns the slot of the table which contains a value equal to
+   *  the specified value, or the empty slot where it should be added.
+   */
+  private int findSlot(Object value, int kind, int hash)
+  {
+    int mask = table.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    while (table[slot] != null)
+    {
+      if ((hashes[slot] == hash) && (slotKinds[slot] == kind) && equal(table[slot], value, kind))
+      {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /** Returns the hash code of a value, computed from its contents
+   *  for the sequences and arrays.
+   */
+  private static int hash(Object value, int kind)
+  {
+    int hash = 1;
+    switch (kind)
+    {
+      case KIND_CHARS:
+      {
+        // Same as String.hashCode(), which is cached
+        if (value instanceof String)
+        {
+          return value.hashCode();
+        }
+        CharSequence chars = (CharSequence) value;
+        hash = 0;
+        for (int i = 0; i < chars.length(); i++)
+        {
+          hash = 31 * hash + chars.charAt(i);
+        }
+        return hash;
+      }
+      case KIND_OCTETS:
+      {
+        OctetSequence octets = (OctetSequence) value;
+        for (int i = 0; i < octets.length(); i++)
+        {
+          hash = 31 * hash + octets.octetAt(i);
+        }
+        return hash;
+      }
+      case KIND_BYTE_ARRAY:
+      {
+        byte[] array = (byte[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + array[i];
+        }
+        return hash;
+      }
+      case KIND_BOOLEAN_ARRAY:
+      {
+        boolean[] array = (boolean[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + (array[i] ? 1231 : 1237);
+        }
+        return hash;
+      }
+      case KIND_SHORT_ARRAY:
+      {
+        short[] array = (short[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + array[i];
+        }
+        return hash;
+      }
+      case KIND_INT_ARRAY:
+      {
+        int[] array = (int[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + array[i];
+        }
+        return hash;
+      }
+      case KIND_LONG_ARRAY:
+      {
+        long[] array = (long[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + (int) (array[i] ^ (array[i] >>> 32));
+        }
+        return hash;
+      }
+      case KIND_FLOAT_ARRAY:
+      {
+        float[] array = (float[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + Float.floatToIntBits(array[i]);
+        }
+        return hash;
+      }
+      case KIND_DOUBLE_ARRAY:
+      {
+        double[] array = (double[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          long bits = Double.doubleToLongBits(array[i]);
+          hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+        }
+        return hash;
+      }
+      case KIND_CHAR_ARRAY:
+      {
+        char[] array = (char[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + array[i];
+        }
+        return hash;
+      }
+      case KIND_OBJECT_ARRAY:
+      {
+        Object[] array = (Object[]) value;
+        for (int i = 0; i < array.length; i++)
+        {
+          hash = 31 * hash + ((array[i] == null) ? 0 : array[i].hashCode());
+        }
+        return hash;
+      }
+      default:
+        return value.hashCode();
+    }
+  }
+
+  /** Compares two values of the same kind. */
+  private static boolean equal(Object left, Object right, int kind)
+  {
+    switch (kind)
+    {
+      case KIND_CHARS:
+      {
+        CharSequence leftValue = (CharSequence) left;
+        CharSequence rightValue = (CharSequence) right;
+        if (leftValue.length() != rightValue.length())
+        {
+          return false;
+        }
+        for (int i = 0; i < leftValue.length(); i++)
+        {
+          if (leftValue.charAt(i) != rightValue.charAt(i))
+          {
+            return false;
+          }
+        }
+        return true;
+      }
+      case KIND_OCTETS:
+      {
+        OctetSequence leftValue = (OctetSequence) left;
+        OctetSequence rightValue = (OctetSequence) right;
+        if (leftValue.length() != rightValue.length())
+        {
+          return false;
+        }
+        for (int i = 0; i < leftValue.length(); i++)
+        {
+          if (leftValue.octetAt(i) != rightValue.octetAt(i))
+          {
+            return false;
+          }
+        }
+        return true;
+      }
+      case KIND_BYTE_ARRAY:
+        return Arrays.equals((byte[]) left, (byte[]) right);
+      case KIND_BOOLEAN_ARRAY:
+        return Arrays.equals((boolean[]) left, (boolean[]) right);
+      case KIND_SHORT_ARRAY:
+        return Arrays.equals((short[]) left, (short[]) right);
+      case KIND_INT_ARRAY:
+        return Arrays.equals((int[]) left, (int[]) right);
+      case KIND_LONG_ARRAY:
+        return Arrays.equals((long[]) left, (long[]) right);
+      case KIND_FLOAT_ARRAY:
+        return Arrays.equals((float[]) left, (float[]) right);
+      case KIND_DOUBLE_ARRAY:
+        return Arrays.equals((double[]) left, (double[]) right);
+      case KIND_CHAR_ARRAY:
+        return Arrays.equals((char[]) left, (char[]) right);
+      case KIND_OBJECT_ARRAY:
+        return Arrays.equals((Object[]) left, (Object[]) right);
+      default:
+        return right.equals(left);
+    }
+  }
+
+}
@@ -79,7 +79,7 @@ public class NumberEnumerationHelper implements NumberEnumerationFacet
     {
       return true;
     }
-    return NumberedSelectItems.validateValue(values, new Long(value));
+    return NumberedSelectItems.validateValue(values, value);
   }
   
   public int hashCode()
@@ -10,6 +10,7 @@ import com.optimasc.datatypes.ConstructedSimple;
 import com.optimasc.datatypes.Convertable;
 import com.optimasc.datatypes.Datatype;
 import com.optimasc.datatypes.DatatypeException;
+import com.optimasc.datatypes.EnumerationIndex;
 import com.optimasc.datatypes.LengthHelper;
 import com.optimasc.datatypes.Restriction;
 import com.optimasc.datatypes.Type;
@@ -61,6 +62,8 @@ public class SequenceType extends Datatype implements LengthFacet,Restriction,
   protected LengthHelper lengthHelper;
   /** Select list */
   protected Object enumeration[];
+  /** Index of the enumeration, built when first used. */
+  private EnumerationIndex enumerationIndex;
   /** Expected class type. */
   protected Class classType;
 
@@ -615,16 +618,30 @@ public class SequenceType extends Datatype implements LengthFacet,Restriction,
     return false;
   }
 
+  /** {@inheritDoc}
+   * 
+   *  <p>The values are compared as done by {@link #equalValues(Object, Object)},
+   *  through an index of the allowed values.</p>
+   */
   public boolean isValid(Object value)
   {
-    if (enumeration==null)
+    Object[] choices = enumeration;
+    if (choices==null)
         return true;
-    for (int i=0; i < enumeration.length; i++)
+    if (choices.length==0)
+        return false;
+    EnumerationIndex index = enumerationIndex;
+    if ((index == null) || (index.isIndexOf(choices)==false))
     {
-      if (equalValues(enumeration[i],value)==true)
-        return true;
+      index = new EnumerationIndex(choices, true);
+      enumerationIndex = index;
     }
-    return false;
+    int kind = index.getKind(value);
+    if ((kind == EnumerationIndex.KIND_OBJECT) || (index.containsKind(kind)==false))
+    {
+      throw new IllegalArgumentException("Unsupported java type");
+    }
+    return index.contains(value);
   }
   
   /** Return the length of the object. This generic method supports
@@ -784,14 +801,28 @@ public class SequenceType extends Datatype implements LengthFacet,Restriction,
     lengthHelper.setLength(minLength, maxLength);
   }
 
+  /** Returns a copy of the allowed values, modifying the returned
+   *  array does not change the allowed values of this type.
+   */
   public Object[] getAllowedValues()
   {
-    return enumeration;
+    if (enumeration == null)
+      return null;
+    Object[] values = new Object[enumeration.length];
+    System.arraycopy(enumeration, 0, values, 0, enumeration.length);
+    return values;
   }
 
+  /** Sets the allowed values, the array is copied. */
   public void setAllowedValues(Object[] choices)
   {
-    enumeration = choices;
+    if (choices == null)
+    {
+      enumeration = null;
+      return;
+    }
+    enumeration = new Object[choices.length];
+    System.arraycopy(choices, 0, enumeration, 0, choices.length);
   }
 
   public int getChoicesLength()
@@ -15,6 +15,7 @@ import com.optimasc.datatypes.facets.LengthFacet;
 import com.optimasc.datatypes.primitives.CharacterType;
 import com.optimasc.datatypes.visitor.TypeVisitor;
 import com.optimasc.lang.CharacterSet;
+import com.optimasc.lang.CodePointSet;
 import com.optimasc.text.DataConverter;
 import com.optimasc.text.StringUtilities;
 
@@ -191,93 +192,93 @@ public class StringType extends SequenceType implements CharacterSetEncodingFace
    *   pairs in UTF-16 encoding, as required, if the character cannot be represented
    *   in one character.
    *  </p>
+   *  
+   *  <p>The character repertoire, the length and the need for whitespace
+   *  normalization are verified in a single pass over the characters. When
+   *  the input is a <code>String</code> which is not modified by the whitespace
+   *  normalization, the same instance is returned.</p>
    * 
    */
   public Object toValue(Object value, TypeCheckResult conversionResult)
   {
-    StringBuffer buffer = new StringBuffer(32);
-    int charCount = 0;
-    CharacterType charType = (CharacterType)elementType.getType();
+    CharacterSet charSet = ((CharacterType)elementType.getType()).getCharacterSet();
     conversionResult.reset();
+    String string;
+    if (value instanceof String)
+    {
+      string = (String)value;
+    } else
     if (value instanceof char[])
     {
-      char[] chArr = (char[])value;
-      int charIndex = 0;
-      while (charIndex < chArr.length)
-      {
-        // Manually check for surrogate pairs
-        int ch = chArr[charIndex];
-        buffer.append((char)ch);
-
-        // Reconstruct a full UCS-4 codepoint
-        if ((ch & HIGH_SURROGATE)==HIGH_SURROGATE)
-        {
-          ch = (ch - HIGH_SURROGATE)*0x400;
-          charIndex++;
-          int ch1 = chArr[charIndex];
-          buffer.append((char)ch1);
-          ch = 0x10000+ch+(ch1-LOW_SURROGATE);
-        }
-        if (charType.toValue(ch,conversionResult)==null)
-        {
-          return null;
-        }
-        charIndex++;
-        charCount++;
-      }
-    }
-    else
+      string = new String((char[])value);
+    } else
     if (value instanceof CharSequence)
     {
-      CharSequence string = (CharSequence)value;
-      int charIndex = 0;
-      while (charIndex < string.length())
-      {
-        // Manually check for surrogate pairs
-        int ch = string.charAt(charIndex);
-        buffer.append((char)ch);
-
-        // Reconstruct a full UCS-4 codepoint
-        if ((ch & HIGH_SURROGATE)==HIGH_SURROGATE)
-        {
-          ch = (ch - HIGH_SURROGATE)*0x400;
-          charIndex++;
-          int ch1 = string.charAt(charIndex);
-          buffer.append((char)ch1);
-          ch = 0x10000+ch+(ch1-LOW_SURROGATE);
-        }
-        
-        if (charType.toValue(ch,conversionResult)==null)
-        {
-          return null;
-        }
-        charIndex++;
-        charCount++;
-      }
+      string = value.toString();
     } else
     if (value instanceof int[])
     {
       // Each int value is a unicode codepoint.
       int[] chArr = (int[])value;
-      int charIndex = 0;
-      charCount = chArr.length;
+      StringBuffer buffer = new StringBuffer(chArr.length);
       for (int i=0; i < chArr.length; i++)
       {
         int ch = chArr[i];
-        if (charType.toValue(ch,conversionResult)==null)
+        if (charSet.isValid(ch)==false)
         {
+          conversionResult.error = new DatatypeException(DatatypeException.ERROR_DATA_CHARACTER_NOT_REPERTOIRE,"Character is beyond the range of the Unicode character repertoire.");
           return null;
         }
-        char[] result = CharacterSet.toChars(ch);
-        buffer.append(result);
+        buffer.append(CharacterSet.toChars(ch));
       }
+      string = buffer.toString();
     } else
     {
       conversionResult.error = new DatatypeException(DatatypeException.ERROR_DATA_TYPE_MISMATCH,"Unsupported value of class '"+value.getClass().getName()+"'.");
       return null;
     }
     
-    String string = buffer.toString();
+    int whitespaceType = getWhitespaceType(whitespace);
+    CodePointSet codePoints = charSet.getCodePoints();
+    int length = string.length();
+    int charCount = 0;
+    boolean normalize = false;
+    int previous = 0;
+    for (int charIndex = 0; charIndex < length; charIndex++)
+    {
+      int ch = string.charAt(charIndex);
+      // Reconstruct a full UCS-4 codepoint from a surrogate pair
+      if ((ch >= HIGH_SURROGATE) && (ch < LOW_SURROGATE) && (charIndex + 1 < length))
+      {
+        int ch1 = string.charAt(charIndex + 1);
+        if ((ch1 >= LOW_SURROGATE) && (ch1 <= 0xDFFF))
+        {
+          ch = 0x10000 + ((ch - HIGH_SURROGATE) << 10) + (ch1 - LOW_SURROGATE);
+          charIndex++;
+        }
+      }
+      if (codePoints.contains(ch)==false)
+      {
+        conversionResult.error = new DatatypeException(DatatypeException.ERROR_DATA_CHARACTER_NOT_REPERTOIRE,"Character is beyond the range of the Unicode character repertoire.");
+        return null;
+      }
+      charCount++;
+      if (ch <= CHAR_SPACE)
+      {
+        if ((ch == CHAR_TAB) || (ch == CHAR_LF) || (ch == CHAR_CR))
+        {
+          normalize = normalize || (whitespaceType != StringUtilities.WHITESPACE_PRESERVE);
+        }
+        // Leading and trailing control characters and spaces are trimmed,
+        // and consecutive spaces collapsed.
+        else if ((charIndex == 0) || (charIndex == length - 1) || ((ch == CHAR_SPACE) && (previous == CHAR_SPACE)))
+        {
+          normalize = normalize || (whitespaceType == StringUtilities.WHITESPACE_COLLAPSE);
+        }
+      }
+      previous = ch;
+    }
+    
     if (lengthHelper.validateLength(charCount)==false)
     {
       conversionResult.error = new DatatypeException(DatatypeException.ERROR_BOUNDS_RANGE,
@@ -295,7 +296,10 @@ public class StringType extends SequenceType implements CharacterSetEncodingFace
       conversionResult.error = new DatatypeException(DatatypeException.ERROR_DATA_TYPE_MISMATCH,"The string does not match the datatype specification");
       return null;
     }
-    string =normalizeWhitespaces(string,whitespace);
+    if (normalize)
+    {
+      string = StringUtilities.normalizeWhitespaces(string,whitespaceType);
+    }
     return string;
   }
 
@@ -332,23 +336,31 @@ public class StringType extends SequenceType implements CharacterSetEncodingFace
 
   public static String normalizeWhitespaces(String value, String type)
   {
-    int whitespaceType = 0;
+    return StringUtilities.normalizeWhitespaces(value,getWhitespaceType(type));
+  }
+  
+  /** Returns the <code>StringUtilities</code> whitespace normalization
+   *  constant of a whitespace normalization type.
+   * 
+   * @param type [in] One of {@link #WHITESPACE_PRESERVE}, {@link #WHITESPACE_REPLACE}
+   *   or {@link #WHITESPACE_COLLAPSE}.
+   * @throws IllegalArgumentException if the normalization type is invalid.
+   */
+  protected static int getWhitespaceType(String type)
+  {
     if (type.equals(WHITESPACE_PRESERVE))
     {
-      return value;
+      return StringUtilities.WHITESPACE_PRESERVE;
     } else
     if (type.equals(WHITESPACE_REPLACE))
     {
-      whitespaceType = StringUtilities.WHITESPACE_REPLACE;
-    } else
-      if (type.equals(WHITESPACE_COLLAPSE))
-    {
-        whitespaceType = StringUtilities.WHITESPACE_COLLAPSE;
+      return StringUtilities.WHITESPACE_REPLACE;
     } else
+    if (type.equals(WHITESPACE_COLLAPSE))
     {
-      throw new IllegalArgumentException("Invalid normalization type '"+type+"'");
+      return StringUtilities.WHITESPACE_COLLAPSE;
     }
-    return StringUtilities.normalizeWhitespaces(value,whitespaceType);
+    throw new IllegalArgumentException("Invalid normalization type '"+type+"'");
   }
 
 
@@ -449,11 +449,11 @@ public abstract class AbstractNumberType extends PrimitiveType  implements Numbe
     Number minInclusive = getMinInclusive();
     Number maxInclusive = getMaxInclusive(); 
     
-    if ((minInclusive != null) && (NumberComparator.INSTANCE.compare(value,minInclusive)==-1))
+    if ((minInclusive != null) && (NumberComparator.INSTANCE.compare(value,minInclusive)<0))
     {
       return getMinInclusive();
     } else
-    if ((minInclusive != null) &&  (NumberComparator.INSTANCE.compare(value,maxInclusive)==1))
+    if ((maxInclusive != null) && (NumberComparator.INSTANCE.compare(value,maxInclusive)>0))
     {
         return getMaxInclusive();
     }
@@ -494,7 +494,7 @@ public abstract class AbstractNumberType extends PrimitiveType  implements Numbe
     
     if (minInclusive != null)
     {
-      if (NumberComparator.INSTANCE.compare(value, minInclusive)==-1)
+      if (NumberComparator.INSTANCE.compare(value, minInclusive)<0)
       {
         return false;
       }
@@ -502,7 +502,7 @@ public abstract class AbstractNumberType extends PrimitiveType  implements Numbe
 
     if (maxInclusive != null)
     {
-      if (NumberComparator.INSTANCE.compare(value, maxInclusive)==1)
+      if (NumberComparator.INSTANCE.compare(value, maxInclusive)>0)
       {
         return false;
       }
@@ -346,11 +346,11 @@ public class DurationType extends PrimitiveType implements OrderedProperty, Time
     Number minInclusive = getMinInclusive();
     Number maxInclusive = getMaxInclusive(); 
     
-    if ((minInclusive != null) && (NumberComparator.INSTANCE.compare(value,minInclusive)==-1))
+    if ((minInclusive != null) && (NumberComparator.INSTANCE.compare(value,minInclusive)<0))
     {
       return getMinInclusive();
     } else
-    if ((minInclusive != null) &&  (NumberComparator.INSTANCE.compare(value,maxInclusive)==1))
+    if ((maxInclusive != null) && (NumberComparator.INSTANCE.compare(value,maxInclusive)>0))
     {
         return getMaxInclusive();
     }
@@ -446,7 +446,7 @@ public class DurationType extends PrimitiveType implements OrderedProperty, Time
     
     if (minInclusive != null)
     {
-      if (NumberComparator.INSTANCE.compare(value, minInclusive)==-1)
+      if (NumberComparator.INSTANCE.compare(value, minInclusive)<0)
       {
         return false;
       }
@@ -454,7 +454,7 @@ public class DurationType extends PrimitiveType implements OrderedProperty, Time
 
     if (maxInclusive != null)
     {
-      if (NumberComparator.INSTANCE.compare(value, maxInclusive)==1)
+      if (NumberComparator.INSTANCE.compare(value, maxInclusive)>0)
       {
         return false;
       }
@@ -10,6 +10,7 @@ import omg.org.astm.type.TypeReference;
 import com.optimasc.datatypes.BoundedProperty;
 import com.optimasc.datatypes.Datatype;
 import com.optimasc.datatypes.DatatypeException;
+import com.optimasc.datatypes.EnumerationIndex;
 import com.optimasc.datatypes.OrderedProperty;
 import com.optimasc.datatypes.TypeUtilities.TypeCheckResult;
 import com.optimasc.datatypes.facets.EnumerationFacet;
@@ -57,6 +58,8 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
 
   /** Basic element type */
   protected Object[] choices;
+  /** Index of the choices, built when first used. */
+  private EnumerationIndex choicesIndex;
   /** The maximum allowed number of elements in the enumerated type. */
   protected int maxChoices;
 
@@ -115,6 +118,11 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
       return true;
     }
 
+    public int hashCode()
+    {
+      return ((name == null) ? 0 : name.hashCode()) * 31 + value;
+    }
+
     public String toString()
     {
       return name;
@@ -153,9 +161,14 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
     return Object[].class;
   }
 
+  /** Returns a copy of the choices, modifying the returned
+   *  array does not change the choices of this type.
+   */
   public Object[] getAllowedValues()
   {
-    return choices;
+    Object[] values = new Object[choices.length];
+    System.arraycopy(choices, 0, values, 0, choices.length);
+    return values;
   }
 
   public Object accept(TypeVisitor v, Object arg)
@@ -167,6 +180,9 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
    * Set possible choices. Setting this value to <code>null</code> 
    * indicates that this enumerated type has no enumeration values (e.g no choices
    * 
+   * <p>The array is copied, the choices themselves should not be modified
+   * afterwards since they are indexed by their hash code.</p>
+   * 
    * @throws IllegalArgumentException
    *           Thrown if number of choices is beyond supported by this
    *           specification, as set by {@link #maxChoices}.
@@ -187,19 +203,19 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
               + " Maximum allowed number of enumerated values is "
               + Integer.toString(maxChoices) + ".");
     }
-    this.choices = choices;
+    this.choices = new Object[choices.length];
+    System.arraycopy(choices, 0, this.choices, 0, choices.length);
   }
 
   public boolean isValid(Object value)
   {
-    for (int i = 0; i < choices.length; i++)
+    EnumerationIndex index = choicesIndex;
+    if ((index == null) || (index.isIndexOf(choices) == false))
     {
-      if (value.equals(choices[i]))
-      {
-        return true;
-      }
+      index = new EnumerationIndex(choices, false);
+      choicesIndex = index;
     }
-    return false;
+    return index.contains(value);
   }
 
   /**
@@ -316,7 +332,7 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
    */
   public int getEnumeratorOrdinalValue(String symbol)
   {
-    Object[] choices = getAllowedValues();
+    Object[] choices = this.choices;
     if (choices == null)
       return -1;
     if (choices.length == 0)
@@ -349,7 +365,7 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
 
   protected int getEnumeratorIndex(String symbol)
   {
-    Object[] choices = getAllowedValues();
+    Object[] choices = this.choices;
     if (choices[0] instanceof EnumerationElement)
     {
       for (int i = 0; i < choices.length; i++)
@@ -454,7 +470,7 @@ public class EnumeratedType extends PrimitiveType implements EnumerationFacet,
     }
     if ((choices != null) && (choices.length > 0) && (choices[0] != null))
     {
-      Object[] choices = getAllowedValues();
+      Object[] choices = this.choices;
       if (choices[0] instanceof EnumerationElement)
       {
         for (int i = 0; i < choices.length; i++)
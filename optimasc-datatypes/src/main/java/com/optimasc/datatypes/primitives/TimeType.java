@@ -690,7 +690,7 @@ public class TimeType extends PrimitiveType implements TimeFacet, OrderedPropert
    */
   protected boolean validateChoice(long value)
   {
-    return NumberedSelectItems.validateValue(new NumberSelectItem[]{rangeHelper}, new Long(value));
+    return NumberedSelectItems.validateValue(new NumberSelectItem[]{rangeHelper}, value);
   }
 
   public boolean isBounded()
@@ -0,0 +1,121 @@
+package com.optimasc.datatypes;
+
+import com.optimasc.datatypes.primitives.EnumeratedType;
+import com.optimasc.datatypes.primitives.EnumeratedType.EnumerationElement;
+
+import junit.framework.TestCase;
+
+public class EnumerationIndexTest extends TestCase
+{
+  /** Overrides equals without hashCode. */
+  private static class Code
+  {
+    private final String code;
+
+    Code(String code)
+    {
+      this.code = code;
+    }
+
+    public boolean equals(Object obj)
+    {
+      return (obj instanceof Code) && ((Code) obj).code.equals(code);
+    }
+  }
+
+  public void testContentEquality()
+  {
+    Object[] values = new Object[] { "AB", new byte[] { 1, 2 }, new char[] { 'x', 'y' },
+        new int[] {}, new StringBuffer("CD"), "AB" };
+    EnumerationIndex index = new EnumerationIndex(values, true);
+    assertTrue(index.isIndexOf(values));
+    assertFalse(index.isIndexOf(new Object[0]));
+
+    assertTrue(index.contains("AB"));
+    assertTrue(index.contains(new StringBuffer("AB")));
+    assertTrue(index.contains("CD"));
+    assertFalse(index.contains("ABC"));
+    assertTrue(index.contains(new byte[] { 1, 2 }));
+    assertFalse(index.contains(new byte[] { 2, 1 }));
+    assertTrue(index.contains(new char[] { 'x', 'y' }));
+    assertTrue(index.contains(new int[] {}));
+    assertFalse(index.contains(new long[] {}));
+    assertFalse(index.contains(null));
+    // Values of different kinds are never equal
+    assertFalse(index.contains("xy"));
+
+    assertTrue(index.containsKind(EnumerationIndex.KIND_CHARS));
+    assertTrue(index.containsKind(EnumerationIndex.KIND_BYTE_ARRAY));
+    assertFalse(index.containsKind(EnumerationIndex.KIND_OBJECT));
+    assertEquals(EnumerationIndex.KIND_OBJECT, index.getKind(new Integer(1)));
+  }
+
+  public void testObjectEquality()
+  {
+    Object[] values = new Object[] { "AB", new Integer(12), null };
+    EnumerationIndex index = new EnumerationIndex(values, false);
+    assertTrue(index.contains("AB"));
+    assertFalse(index.contains(new StringBuffer("AB")));
+    assertTrue(index.contains(new Integer(12)));
+    assertFalse(index.contains(new Long(12)));
+    assertTrue(index.contains(null));
+    assertEquals(EnumerationIndex.KIND_OBJECT, index.getKind("AB"));
+  }
+
+  public void testObjectsNotHashed()
+  {
+    Object[] values = new Object[] { new Code("A"), new Code("B"), "C" };
+    EnumerationIndex index = new EnumerationIndex(values, false);
+    assertTrue(index.contains(new Code("A")));
+    assertTrue(index.contains(new Code("B")));
+    assertFalse(index.contains(new Code("C")));
+    assertTrue(index.contains("C"));
+
+    // An element of a subclass is compared with equals
+    EnumerationElement element = new EnumerationElement("red", 0)
+    {
+    };
+    index = new EnumerationIndex(new Object[] { element }, false);
+    assertTrue(index.contains(new EnumerationElement("red", 0)));
+    index = new EnumerationIndex(new Object[] { new EnumerationElement("red", 0) }, false);
+    assertTrue(index.contains(element));
+  }
+
+  public void testLargeEnumeration()
+  {
+    String[] codes = new String[5000];
+    for (int i = 0; i < codes.length; i++)
+    {
+      codes[i] = "C" + Integer.toString(i * 7, 36);
+    }
+    EnumerationIndex index = new EnumerationIndex(codes, true);
+    for (int i = 0; i < codes.length * 7; i++)
+    {
+      assertEquals((i % 7) == 0, index.contains("C" + Integer.toString(i, 36)));
+    }
+  }
+
+  public void testEnumeratedType()
+  {
+    EnumeratedType type = new EnumeratedType(new Object[] { new EnumerationElement("red", 0),
+        new EnumerationElement("green", 1) });
+    assertTrue(type.isValid(new EnumerationElement("green", 1)));
+    assertFalse(type.isValid(new EnumerationElement("green", 2)));
+    assertFalse(type.isValid(new EnumerationElement("blue", 1)));
+    // The index is rebuilt when the choices are changed
+    type.setAllowedValues(new Object[] { new EnumerationElement("blue", 1) });
+    assertTrue(type.isValid(new EnumerationElement("blue", 1)));
+    assertFalse(type.isValid(new EnumerationElement("green", 1)));
+
+    // The choices are copied
+    Object[] choices = new Object[] { new Code("A"), new Code("B") };
+    type.setAllowedValues(choices);
+    assertTrue(type.isValid(new Code("B")));
+    choices[1] = new Code("C");
+    assertTrue(type.isValid(new Code("B")));
+    assertFalse(type.isValid(new Code("C")));
+    type.getAllowedValues()[1] = new Code("C");
+    assertTrue(type.isValid(new Code("B")));
+    assertFalse(type.isValid(new Code("C")));
+  }
+}
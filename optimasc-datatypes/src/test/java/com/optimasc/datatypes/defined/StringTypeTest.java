@@ -291,7 +291,55 @@ public class StringTypeTest extends DatatypeTest
     
     datatype.setWhitespace(StringType.WHITESPACE_COLLAPSE);
     assertEquals(collapsedString,datatype.toValue(originalString, checkResult));
-    
+
+  }
+
+  public void testWhitespaceUnchanged()
+  {
+    TypeCheckResult checkResult = new TypeCheckResult();
+    StringType datatype = defaultInstance;
+    String[] values = {"", " ", "a", "a b", "a  b", " a", "a ", "\u0001a", "a\u0001", "a\tb", "a\r\nb",
+        "a \u0001 b", "\t", "ab  \n cd \u001F"};
+    String[] types = {StringType.WHITESPACE_PRESERVE, StringType.WHITESPACE_REPLACE, StringType.WHITESPACE_COLLAPSE};
+    for (int i = 0; i < types.length; i++)
+    {
+      datatype.setWhitespace(types[i]);
+      for (int j = 0; j < values.length; j++)
+      {
+        String expected = StringType.normalizeWhitespaces(values[j], types[i]);
+        Object result = datatype.toValue(values[j], checkResult);
+        assertEquals(expected, result);
+        // The same instance is returned when it is not modified
+        if (expected.equals(values[j]))
+        {
+          assertSame(values[j], result);
+        }
+        assertEquals(expected, datatype.toValue(new StringBuffer(values[j]), checkResult));
+        assertEquals(expected, datatype.toValue(values[j].toCharArray(), checkResult));
+      }
+    }
+  }
+
+  public void testToValueSurrogates()
+  {
+    TypeCheckResult checkResult = new TypeCheckResult();
+    StringType datatype = new StringType(0, 3, new UnnamedTypeReference(new CharacterType(CharacterSet.UNICODE)));
+    // A surrogate pair is a single character
+    String value = "a\uD83D\uDE00b";
+    assertSame(value, datatype.toValue(value, checkResult));
+    assertEquals(null,checkResult.error);
+    assertEquals(value, datatype.toValue(new int[]{'a', 0x1F600, 'b'}, checkResult));
+    assertEquals(null, datatype.toValue("a\uD83D\uDE00bc", checkResult));
+    assertEquals(DatatypeException.ERROR_BOUNDS_RANGE,((DatatypeException)checkResult.error).getCode());
+    // Characters which have the bits of a high surrogate but are not surrogates
+    value = "\uFFFD\uF900";
+    assertSame(value, datatype.toValue(value, checkResult));
+
+    datatype = new StringType(0, 3, charType);
+    assertEquals(null, datatype.toValue("a\uD83D\uDE00b", checkResult));
+    assertEquals(DatatypeException.ERROR_DATA_CHARACTER_NOT_REPERTOIRE,((DatatypeException)checkResult.error).getCode());
+    assertEquals(null, datatype.toValue("a\uD83D", checkResult));
+    assertEquals(DatatypeException.ERROR_DATA_CHARACTER_NOT_REPERTOIRE,((DatatypeException)checkResult.error).getCode());
   }
   
   